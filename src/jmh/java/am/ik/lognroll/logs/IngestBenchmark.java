@@ -0,0 +1,87 @@
+package am.ik.lognroll.logs;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import am.ik.lognroll.otlp.SyntheticLogs;
+import am.ik.lognroll.util.Json;
+import am.ik.lognroll.util.JsonTextWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.proto.logs.v1.LogsData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * CPU cost of turning an OTLP batch into rows, before anything touches the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestBenchmark {
+
+	@Param({ "100", "1000" })
+	int batchSize;
+
+	final ObjectMapper objectMapper = new ObjectMapper();
+
+	LogsData logsData;
+
+	List<Log> logs;
+
+	String attributesJson;
+
+	@Setup
+	public void setUp() {
+		this.logsData = SyntheticLogs.generate(10, this.batchSize / 10, 42);
+		this.logs = Logs.from(this.logsData);
+		this.attributesJson = Json.stringify(this.objectMapper, this.logs.getFirst().attributes());
+	}
+
+	@Benchmark
+	public List<Log> logsFrom() {
+		return Logs.from(this.logsData);
+	}
+
+	@Benchmark
+	public void resourceAttributesDigest(Blackhole blackhole) {
+		for (Log log : this.logs) {
+			blackhole.consume(log.resourceAttributesDigest());
+		}
+	}
+
+	@Benchmark
+	public void jsonStringify(Blackhole blackhole) {
+		for (Log log : this.logs) {
+			blackhole.consume(Json.stringify(this.objectMapper, log.attributes()));
+		}
+	}
+
+	@Benchmark
+	public void jsonTextWriter(Blackhole blackhole) {
+		try (JsonTextWriter writer = new JsonTextWriter(this.objectMapper)) {
+			for (Log log : this.logs) {
+				blackhole.consume(writer.write(log.attributes()));
+			}
+		}
+	}
+
+	@Benchmark
+	public Map<String, Object> jsonParse() {
+		return Json.parse(this.objectMapper, this.attributesJson);
+	}
+
+}
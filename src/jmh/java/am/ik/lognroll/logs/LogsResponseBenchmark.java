@@ -0,0 +1,81 @@
+package am.ik.lognroll.logs;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import am.ik.lognroll.util.Json;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of turning stored rows into a {@code /api/logs} response body, with the attribute
+ * JSON parsed into maps or written as stored.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogsResponseBenchmark {
+
+	static final String ATTRIBUTES = """
+			{"http.method":"GET","http.route":"/orders/{id}","http.status_code":200,"user_agent.original":"curl/8.5.0","thread.name":"http-nio-8080-exec-1","code.namespace":"com.example.OrderController","tags":["a","b","c"]}""";
+
+	static final String RESOURCE_ATTRIBUTES = """
+			{"service.name":"order-service","service.version":"1.4.2","k8s.namespace.name":"default","k8s.pod.name":"order-service-6c9f7d8b5-x2x7q","host.name":"node-1"}""";
+
+	@Param({ "1000" })
+	int rows;
+
+	final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+	@Benchmark
+	public String parsed() throws JsonProcessingException {
+		return this.objectMapper.writeValueAsString(logs(Json::parse));
+	}
+
+	@Benchmark
+	public String raw() throws JsonProcessingException {
+		return this.objectMapper.writeValueAsString(logs(Json::raw));
+	}
+
+	private List<Log> logs(BiFunction<ObjectMapper, String, Map<String, Object>> attributes) {
+		List<Log> logs = new ArrayList<>(this.rows);
+		Instant now = Instant.parse("2024-06-01T00:00:00Z");
+		for (int i = 0; i < this.rows; i++) {
+			logs.add(LogBuilder.log()
+				.logId((long) i)
+				.timestamp(now)
+				.observedTimestamp(now)
+				.severityText("INFO")
+				.severityNumber(9)
+				.serviceName("order-service")
+				.scope("com.example.OrderController")
+				.body("Fetched order " + i)
+				.traceId("")
+				.spanId("")
+				.traceFlags(0)
+				.attributes(attributes.apply(this.objectMapper, ATTRIBUTES))
+				.resourceAttributes(attributes.apply(this.objectMapper, RESOURCE_ATTRIBUTES))
+				.build());
+		}
+		return logs;
+	}
+
+}
@@ -0,0 +1,106 @@
+package am.ik.lognroll.logs.jdbc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import am.ik.lognroll.logs.IngestMetrics;
+import am.ik.lognroll.logs.IngestMetricsProps;
+import am.ik.lognroll.logs.IngestWatermark;
+import am.ik.lognroll.logs.Log;
+import am.ik.lognroll.logs.Logs;
+import am.ik.lognroll.logs.pattern.PatternProps;
+import am.ik.lognroll.logs.query.FtsTokenizer;
+import am.ik.lognroll.otlp.SyntheticLogs;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Cost of storing a batch in a SQLite file with the production schema, including the
+ * full-text index triggers. Every iteration starts from an empty database, so that the
+ * indexes do not keep growing from one iteration to the next.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JdbcLogStoreBenchmark {
+
+	@Param({ "100", "1000" })
+	int batchSize;
+
+	@Param({ "true", "false" })
+	boolean patterns;
+
+	Path dbFile;
+
+	SingleConnectionDataSource dataSource;
+
+	TransactionTemplate transactionTemplate;
+
+	JdbcExecutor jdbcExecutor;
+
+	JdbcLogStore logStore;
+
+	List<Log> logs;
+
+	@Setup(Level.Iteration)
+	public void setUp() throws IOException {
+		this.dbFile = Files.createTempFile("lognroll-benchmark", ".db");
+		this.dataSource = new SingleConnectionDataSource("jdbc:sqlite:" + this.dbFile, true);
+		Flyway.configure().dataSource(this.dataSource).load().migrate();
+		DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(this.dataSource);
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		FtsProps ftsProps = new FtsProps(100000, List.of(FtsTokenizer.TRIGRAM), "-_", 10000,
+				FtsProps.Indexing.IMMEDIATE, Duration.ofSeconds(1));
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		this.jdbcExecutor = new JdbcExecutor(this.dataSource, new JdbcExecutorProps(1),
+				new ParallelQueryProps(1, Duration.ofHours(6), 1), registry);
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(this.dataSource);
+		JdbcLogTemplates logTemplates = new JdbcLogTemplates(jdbcTemplate, JdbcClient.create(jdbcTemplate),
+				this.jdbcExecutor, new PatternProps(this.patterns, 4, 0.4, 100, 128, 10000, Duration.ofMinutes(5)));
+		logTemplates.afterPropertiesSet();
+		this.logStore = new JdbcLogStore(jdbcTemplate, new ObjectMapper(), new IngestWatermark(),
+				new IngestMetrics(registry, new IngestMetricsProps(100)), ftsProps, this.jdbcExecutor,
+				transactionManager, logTemplates);
+		this.logs = Logs.from(SyntheticLogs.generate(10, this.batchSize / 10, 42));
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws IOException {
+		this.jdbcExecutor.destroy();
+		this.dataSource.destroy();
+		Files.deleteIfExists(this.dbFile);
+	}
+
+	@Benchmark
+	public void addAll() {
+		this.transactionTemplate.executeWithoutResult(status -> this.logStore.addAll(this.logs));
+	}
+
+}
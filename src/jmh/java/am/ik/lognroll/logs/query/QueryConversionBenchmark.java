@@ -0,0 +1,71 @@
+package am.ik.lognroll.logs.query;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import am.ik.lognroll.logs.filter.Filter;
+import am.ik.lognroll.logs.filter.FilterExpressionTextParser;
+import am.ik.lognroll.logs.filter.converter.Sqlite3FilterExpressionConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-request cost of translating the {@code query} and {@code filter} parameters to SQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryConversionBenchmark {
+
+	static final String FILTER = "severity_text IN ['ERROR', 'WARN'] AND service_name == 'service-1' AND attributes['http.status_code'] >= 500";
+
+	static final String QUERY = "timeout (payment or order) -healthcheck";
+
+	final FilterExpressionTextParser cachingParser = new FilterExpressionTextParser();
+
+	final Sqlite3FilterExpressionConverter filterConverter = new Sqlite3FilterExpressionConverter();
+
+	Filter.Expression filterExpression;
+
+	@Setup
+	public void setUp() {
+		this.filterExpression = this.cachingParser.parse(FILTER);
+	}
+
+	@Benchmark
+	public Filter.Expression parseFilter() {
+		return new FilterExpressionTextParser().parse(FILTER);
+	}
+
+	@Benchmark
+	public Filter.Expression parseFilterCached() {
+		return this.cachingParser.parse(FILTER);
+	}
+
+	@Benchmark
+	public String convertFilter() {
+		return this.filterConverter.convertExpression(this.filterExpression);
+	}
+
+	@Benchmark
+	public String convertQuery() {
+		return Sqlite3QueryConverter.convertQuery(QUERY);
+	}
+
+	@Benchmark
+	public FtsQuery convertQueryMixedTokenizers() {
+		return Sqlite3QueryConverter.convertQuery(QUERY + " id", EnumSet.allOf(FtsTokenizer.class), true);
+	}
+
+}
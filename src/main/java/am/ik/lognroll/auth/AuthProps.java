@@ -1,9 +1,31 @@
 package am.ik.lognroll.auth;
 
+import java.util.List;
+
+import jakarta.annotation.Nullable;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.bind.DefaultValue;
 
+/**
+ * @param token token granted every scope. Authentication is disabled when neither this
+ * nor {@code tokens} is set.
+ * @param tokens additional tokens granted a single scope each, e.g. an ingest-only token
+ * for OpenTelemetry collectors
+ * @param basicCacheSize maximum number of decoded Basic credentials kept
+ */
 @ConfigurationProperties(prefix = "lognroll.auth")
-public record AuthProps(@DefaultValue("changeme") String token) {
+public record AuthProps(@DefaultValue("changeme") String token, @DefaultValue List<ScopedToken> tokens,
+		@DefaultValue("256") int basicCacheSize) {
+
+	/**
+	 * @param value the bearer token, or the password of Basic authentication
+	 * @param scope what the token is allowed to do
+	 * @param tenant tenant the token is bound to. Logs sent with it belong to the tenant
+	 * and queries with it only see the tenant's logs.
+	 */
+	public record ScopedToken(String value, TokenScope scope, @Nullable String tenant) {
+
+	}
 
 }
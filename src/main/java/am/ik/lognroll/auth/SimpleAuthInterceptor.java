@@ -1,50 +1,59 @@
 package am.ik.lognroll.auth;
 
-import java.util.Base64;
-import java.util.Objects;
-
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.util.StringUtils;
 import org.springframework.web.servlet.HandlerInterceptor;
-
+import org.springframework.web.util.UrlPathHelper;
+
+/**
+ * Rejects requests without a known token with 401, and requests whose token lacks the
+ * {@link TokenScope} required by the request with 403. Tokens bound to a tenant are
+ * rejected with 403 for {@linkplain TokenScope#isInstanceWide(String) instance-wide}
+ * requests. The tenant a token is bound to is exposed as the {@link #TENANT_ATTRIBUTE}
+ * request attribute.
+ */
 public class SimpleAuthInterceptor implements HandlerInterceptor {
 
-	private final AuthProps props;
+	/**
+	 * Request attribute holding the tenant the token of the request is bound to, if any
+	 */
+	public static final String TENANT_ATTRIBUTE = SimpleAuthInterceptor.class.getName() + ".tenant";
+
+	private final TokenAuthenticator authenticator;
 
 	public SimpleAuthInterceptor(AuthProps props) {
-		this.props = props;
+		this.authenticator = new TokenAuthenticator(props);
 	}
 
 	@Override
 	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
 			throws Exception {
-		if (StringUtils.hasText(this.props.token())) {
-			String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
-			boolean authorized = false;
-			if (StringUtils.hasText(authorization)) {
-				if (authorization.startsWith("Bearer") || authorization.startsWith("bearer")) {
-					final String token = authorization.replace("Bearer ", "").replace("bearer ", "");
-					if (Objects.equals(this.props.token(), token)) {
-						authorized = true;
-					}
-				}
-				else if (authorization.startsWith("Basic") || authorization.startsWith("basic")) {
-					final String basic = authorization.replace("Basic ", "").replace("basic ", "");
-					final String token = new String(Base64.getDecoder().decode(basic)).split(":", 2)[1];
-					if (Objects.equals(this.props.token(), token)) {
-						authorized = true;
-					}
-				}
-			}
-			if (!authorized) {
-				response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Basic realm=\"LogN'Roll API\"");
-				response.sendError(HttpStatus.UNAUTHORIZED.value());
-				return false;
-			}
+		if (!this.authenticator.isEnabled()) {
+			return true;
+		}
+		int match = this.authenticator.match(request.getHeader(HttpHeaders.AUTHORIZATION));
+		int scopes = this.authenticator.scopes(match);
+		if (scopes == 0) {
+			response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Basic realm=\"LogN'Roll API\"");
+			response.sendError(HttpStatus.UNAUTHORIZED.value());
+			return false;
+		}
+		String path = UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+		TokenScope required = TokenScope.requiredFor(request.getMethod(), path);
+		if ((scopes & required.bit()) == 0) {
+			response.sendError(HttpStatus.FORBIDDEN.value());
+			return false;
+		}
+		String tenant = this.authenticator.tenant(match);
+		if (tenant != null && TokenScope.isInstanceWide(path)) {
+			response.sendError(HttpStatus.FORBIDDEN.value());
+			return false;
+		}
+		if (tenant != null) {
+			request.setAttribute(TENANT_ATTRIBUTE, tenant);
 		}
 		return true;
 	}
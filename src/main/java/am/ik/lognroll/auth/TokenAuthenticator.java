@@ -0,0 +1,191 @@
+package am.ik.lognroll.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import am.ik.lognroll.auth.AuthProps.ScopedToken;
+import jakarta.annotation.Nullable;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * Resolves the scopes granted by an {@code Authorization} header.
+ * <p>
+ * A bearer token is read at its offsets in the header without creating intermediate
+ * strings. Every configured token is compared in constant time, so that neither the
+ * position of the first mismatch nor which token matched shows in the response time.
+ * Basic credentials are decoded once and kept in a small LRU cache keyed by the header.
+ */
+final class TokenAuthenticator {
+
+	private static final byte[] INVALID = new byte[0];
+
+	private final List<Token> tokens;
+
+	private final Map<String, byte[]> basicPasswords;
+
+	TokenAuthenticator(AuthProps props) {
+		List<Token> tokens = new ArrayList<>();
+		if (StringUtils.hasText(props.token())) {
+			tokens.add(new Token(props.token(), TokenScope.ADMIN, null));
+		}
+		for (ScopedToken token : props.tokens()) {
+			if (StringUtils.hasText(token.value())) {
+				tokens.add(new Token(token.value(), token.scope(), token.tenant()));
+			}
+		}
+		if (tokens.stream().map(Token::value).distinct().count() < tokens.size()) {
+			throw new IllegalStateException("'lognroll.auth.tokens' must not contain the same token twice");
+		}
+		this.tokens = List.copyOf(tokens);
+		int basicCacheSize = props.basicCacheSize();
+		this.basicPasswords = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+				return size() > basicCacheSize;
+			}
+		};
+	}
+
+	/**
+	 * @return whether any token is configured. Requests are not authenticated otherwise.
+	 */
+	boolean isEnabled() {
+		return !this.tokens.isEmpty();
+	}
+
+	/**
+	 * @return the bits of the {@link TokenScope}s granted by the header, {@code 0} if it
+	 * does not carry a known token
+	 */
+	int scopes(@Nullable String authorization) {
+		return scopes(match(authorization));
+	}
+
+	/**
+	 * @param match the result of {@link #match(String)}
+	 * @return the bits of the {@link TokenScope}s granted by the matched token
+	 */
+	int scopes(int match) {
+		return match == 0 ? 0 : this.tokens.get(match - 1).bits();
+	}
+
+	/**
+	 * @param match the result of {@link #match(String)}
+	 * @return the tenant the matched token is bound to
+	 */
+	@Nullable
+	String tenant(int match) {
+		return match == 0 ? null : this.tokens.get(match - 1).tenant();
+	}
+
+	/**
+	 * @return the position of the token carried by the header starting at {@code 1}, or
+	 * {@code 0} if it does not carry a known token
+	 */
+	int match(@Nullable String authorization) {
+		if (authorization == null) {
+			return 0;
+		}
+		int start = skipWhitespace(authorization, 0);
+		int end = authorization.length();
+		while (end > start && Character.isWhitespace(authorization.charAt(end - 1))) {
+			end--;
+		}
+		if (hasScheme(authorization, start, end, "Bearer")) {
+			int offset = skipWhitespace(authorization, start + 6);
+			return bearer(authorization, offset, end - offset);
+		}
+		if (hasScheme(authorization, start, end, "Basic")) {
+			int offset = skipWhitespace(authorization, start + 5);
+			return basic(authorization, offset, end);
+		}
+		return 0;
+	}
+
+	private int bearer(String header, int offset, int length) {
+		int match = 0;
+		for (int i = 0; i < this.tokens.size(); i++) {
+			match |= (i + 1) & -constantTimeEquals(header, offset, length, this.tokens.get(i).chars());
+		}
+		return match;
+	}
+
+	private int basic(String header, int offset, int end) {
+		byte[] password;
+		synchronized (this.basicPasswords) {
+			password = this.basicPasswords.get(header);
+		}
+		if (password == null) {
+			password = decodePassword(header, offset, end);
+			synchronized (this.basicPasswords) {
+				this.basicPasswords.put(header, password);
+			}
+		}
+		if (password == INVALID) {
+			return 0;
+		}
+		int match = 0;
+		for (int i = 0; i < this.tokens.size(); i++) {
+			match |= (i + 1) & -(MessageDigest.isEqual(password, this.tokens.get(i).bytes()) ? 1 : 0);
+		}
+		return match;
+	}
+
+	private static byte[] decodePassword(String header, int offset, int end) {
+		try {
+			byte[] decoded = Base64.getDecoder().decode(header.substring(offset, end));
+			for (int i = 0; i < decoded.length; i++) {
+				if (decoded[i] == ':') {
+					return Arrays.copyOfRange(decoded, i + 1, decoded.length);
+				}
+			}
+			return INVALID;
+		}
+		catch (IllegalArgumentException e) {
+			return INVALID;
+		}
+	}
+
+	/**
+	 * Compares without returning early, like {@link MessageDigest#isEqual}, but on the
+	 * characters of the header so that it does not need to be encoded first.
+	 * @return {@code 1} if the region equals the expected characters, otherwise {@code 0}
+	 */
+	static int constantTimeEquals(String header, int offset, int length, char[] expected) {
+		int diff = length ^ expected.length;
+		for (int i = 0; i < expected.length; i++) {
+			char c = i < length ? header.charAt(offset + i) : 0;
+			diff |= c ^ expected[i];
+		}
+		return (diff - 1) >>> 31;
+	}
+
+	private static boolean hasScheme(String header, int start, int end, String scheme) {
+		int length = scheme.length();
+		return end > start + length && header.regionMatches(true, start, scheme, 0, length)
+				&& Character.isWhitespace(header.charAt(start + length));
+	}
+
+	private static int skipWhitespace(String header, int offset) {
+		while (offset < header.length() && Character.isWhitespace(header.charAt(offset))) {
+			offset++;
+		}
+		return offset;
+	}
+
+	private record Token(String value, char[] chars, byte[] bytes, int bits, @Nullable String tenant) {
+
+		Token(String value, TokenScope scope, @Nullable String tenant) {
+			this(value, value.toCharArray(), value.getBytes(StandardCharsets.UTF_8), scope.grants(), tenant);
+		}
+
+	}
+
+}
@@ -0,0 +1,62 @@
+package am.ik.lognroll.auth;
+
+import org.springframework.http.HttpMethod;
+
+/**
+ * What a token is allowed to do. {@link #ADMIN} includes the other scopes.
+ */
+public enum TokenScope {
+
+	/**
+	 * Sending logs via OTLP
+	 */
+	INGEST,
+	/**
+	 * Querying logs and loading the UI
+	 */
+	READ,
+	/**
+	 * Everything, including deleting logs and maintenance
+	 */
+	ADMIN;
+
+	final int bit() {
+		return 1 << ordinal();
+	}
+
+	/**
+	 * @return the bits of the scopes a token with this scope is granted
+	 */
+	final int grants() {
+		return this == ADMIN ? (1 << values().length) - 1 : bit();
+	}
+
+	/**
+	 * @return the scope a request needs. Ingestion needs {@link #INGEST}, other safe
+	 * requests need {@link #READ} and the rest as well as
+	 * {@linkplain #isInstanceWide(String) instance-wide} requests need {@link #ADMIN}.
+	 */
+	public static TokenScope requiredFor(String method, String path) {
+		if (path.startsWith("/v1/")) {
+			return INGEST;
+		}
+		if (isInstanceWide(path)) {
+			return ADMIN;
+		}
+		if (HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method)) {
+			return READ;
+		}
+		return ADMIN;
+	}
+
+	/**
+	 * @return whether the request acts on the whole instance rather than on the logs of a
+	 * tenant, like downloading the database file or maintenance. Tokens bound to a tenant
+	 * must not make such requests.
+	 */
+	public static boolean isInstanceWide(String path) {
+		return path.equals("/api/logs/download") || path.equals("/api/logs/vacuum") || path.equals("/api/maintenance")
+				|| path.startsWith("/api/maintenance/");
+	}
+
+}
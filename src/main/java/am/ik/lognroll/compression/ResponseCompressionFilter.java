@@ -0,0 +1,454 @@
+package am.ik.lognroll.compression;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import am.ik.lognroll.util.ZstdSupport;
+import com.github.luben.zstd.RecyclingBufferPool;
+import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+/**
+ * Compresses responses of the endpoints configured in {@link ResponseCompressionProps}
+ * with {@code zstd} or {@code gzip}, whichever the client prefers, {@code zstd} winning a
+ * tie.
+ * <p>
+ * The first {@link ResponseCompressionProps#minResponseSize()} bytes of a response are
+ * buffered, so that smaller responses are sent as is. A response is sent as is as well
+ * when its media type is not configured, when it is already encoded or when it is flushed
+ * before the buffer fills up. Strong entity tags of compressed responses are turned into
+ * weak ones, which conditional requests still match.
+ * <p>
+ * Static resources are not compressed here but served from the {@code .br} and
+ * {@code .gz} files generated by the UI build.
+ */
+@Component
+public class ResponseCompressionFilter extends OncePerRequestFilter {
+
+	static final String ZSTD = "zstd";
+
+	static final String GZIP = "gzip";
+
+	private final ResponseCompressionProps props;
+
+	private final List<PathPattern> paths;
+
+	private final List<PathPattern> excludedPaths;
+
+	private final List<MimeType> mimeTypes;
+
+	private final boolean zstdAvailable;
+
+	public ResponseCompressionFilter(ResponseCompressionProps props) {
+		this.props = props;
+		this.paths = props.paths().stream().map(PathPatternParser.defaultInstance::parse).toList();
+		this.excludedPaths = props.excludedPaths().stream().map(PathPatternParser.defaultInstance::parse).toList();
+		this.mimeTypes = props.mimeTypes().stream().map(MimeType::valueOf).toList();
+		this.zstdAvailable = ZstdSupport.isAvailable();
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		if (!this.props.enabled() || request.getHeader(HttpHeaders.RANGE) != null) {
+			return true;
+		}
+		PathContainer path = PathContainer.parsePath(UrlPathHelper.defaultInstance.getPathWithinApplication(request));
+		return this.paths.stream().noneMatch(pattern -> pattern.matches(path))
+				|| this.excludedPaths.stream().anyMatch(pattern -> pattern.matches(path));
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		String encoding = negotiate(Collections.list(request.getHeaders(HttpHeaders.ACCEPT_ENCODING)),
+				this.zstdAvailable);
+		if (encoding == null) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+		CompressingResponse compressingResponse = new CompressingResponse(response, encoding);
+		filterChain.doFilter(request, compressingResponse);
+		if (request.isAsyncStarted()) {
+			request.getAsyncContext().addListener(new AsyncListener() {
+				@Override
+				public void onComplete(AsyncEvent event) throws IOException {
+					compressingResponse.finish();
+				}
+
+				@Override
+				public void onTimeout(AsyncEvent event) {
+				}
+
+				@Override
+				public void onError(AsyncEvent event) {
+				}
+
+				@Override
+				public void onStartAsync(AsyncEvent event) {
+				}
+			});
+		}
+		else {
+			compressingResponse.finish();
+		}
+	}
+
+	/**
+	 * @return the encoding with the highest quality value in {@code Accept-Encoding}, or
+	 * {@code null} if neither {@code zstd} nor {@code gzip} is acceptable
+	 */
+	@Nullable
+	static String negotiate(List<String> acceptEncodings, boolean zstdAvailable) {
+		Map<String, Double> qualities = new HashMap<>();
+		for (String acceptEncoding : acceptEncodings) {
+			for (String token : StringUtils.tokenizeToStringArray(acceptEncoding, ",")) {
+				String[] parts = StringUtils.tokenizeToStringArray(token, ";");
+				double quality = 1.0;
+				for (int i = 1; i < parts.length; i++) {
+					if (parts[i].startsWith("q=")) {
+						try {
+							quality = Double.parseDouble(parts[i].substring(2));
+						}
+						catch (NumberFormatException e) {
+							quality = 0;
+						}
+					}
+				}
+				qualities.put(parts[0].toLowerCase(Locale.ROOT), quality);
+			}
+		}
+		double any = qualities.getOrDefault("*", 0.0);
+		double zstd = zstdAvailable ? qualities.getOrDefault(ZSTD, any) : 0;
+		double gzip = qualities.getOrDefault(GZIP, qualities.getOrDefault("x-gzip", any));
+		if (zstd > 0 && zstd >= gzip) {
+			return ZSTD;
+		}
+		return gzip > 0 ? GZIP : null;
+	}
+
+	private final class CompressingResponse extends HttpServletResponseWrapper {
+
+		private final String encoding;
+
+		private long contentLength = -1;
+
+		@Nullable
+		private CompressingOutputStream outputStream;
+
+		@Nullable
+		private PrintWriter writer;
+
+		CompressingResponse(HttpServletResponse response, String encoding) {
+			super(response);
+			this.encoding = encoding;
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			if (this.outputStream == null) {
+				this.outputStream = new CompressingOutputStream(this, super.getOutputStream(),
+						(int) props.minResponseSize().toBytes());
+			}
+			return this.outputStream;
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			if (this.writer == null) {
+				this.writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+			}
+			return this.writer;
+		}
+
+		@Override
+		public void setContentLength(int len) {
+			setContentLengthLong(len);
+		}
+
+		@Override
+		public void setContentLengthLong(long len) {
+			if (this.outputStream != null && this.outputStream.decided) {
+				if (!this.outputStream.compressing) {
+					super.setContentLengthLong(len);
+				}
+			}
+			else {
+				this.contentLength = len;
+			}
+		}
+
+		@Override
+		public void setHeader(String name, String value) {
+			if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+				setContentLengthLong(Long.parseLong(value));
+			}
+			else {
+				super.setHeader(name, value);
+			}
+		}
+
+		@Override
+		public void addHeader(String name, String value) {
+			if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+				setContentLengthLong(Long.parseLong(value));
+			}
+			else {
+				super.addHeader(name, value);
+			}
+		}
+
+		@Override
+		public void setIntHeader(String name, int value) {
+			setHeader(name, String.valueOf(value));
+		}
+
+		@Override
+		public void addIntHeader(String name, int value) {
+			addHeader(name, String.valueOf(value));
+		}
+
+		@Override
+		public void flushBuffer() throws IOException {
+			if (this.writer != null) {
+				this.writer.flush();
+			}
+			if (this.outputStream != null) {
+				this.outputStream.flush();
+			}
+			super.flushBuffer();
+		}
+
+		@Override
+		public void resetBuffer() {
+			super.resetBuffer();
+			if (this.outputStream != null) {
+				this.outputStream.resetBuffer();
+			}
+		}
+
+		@Override
+		public void reset() {
+			super.reset();
+			this.contentLength = -1;
+			if (this.outputStream != null) {
+				this.outputStream.resetBuffer();
+			}
+		}
+
+		boolean compressible() {
+			int status = getStatus();
+			if (status < 200 || status == HttpServletResponse.SC_NO_CONTENT
+					|| status == HttpServletResponse.SC_NOT_MODIFIED || containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+				return false;
+			}
+			if (this.contentLength >= 0 && this.contentLength < props.minResponseSize().toBytes()) {
+				return false;
+			}
+			String contentType = getContentType();
+			if (contentType == null) {
+				return false;
+			}
+			MimeType mimeType = MimeType.valueOf(contentType);
+			return mimeTypes.stream().anyMatch(candidate -> candidate.includes(mimeType));
+		}
+
+		OutputStream startCompression(OutputStream out) throws IOException {
+			super.setHeader(HttpHeaders.CONTENT_ENCODING, this.encoding);
+			String etag = getHeader(HttpHeaders.ETAG);
+			if (etag != null && etag.startsWith("\"")) {
+				super.setHeader(HttpHeaders.ETAG, "W/" + etag);
+			}
+			OutputStream nonClosing = new FilterOutputStream(out) {
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					this.out.write(b, off, len);
+				}
+
+				@Override
+				public void close() throws IOException {
+					flush();
+				}
+			};
+			if (this.encoding.equals(ZSTD)) {
+				return new ZstdOutputStreamNoFinalizer(nonClosing, RecyclingBufferPool.INSTANCE)
+					.setLevel(props.zstdLevel());
+			}
+			return new GZIPOutputStream(nonClosing, 8192, true) {
+				{
+					this.def.setLevel(props.gzipLevel());
+				}
+			};
+		}
+
+		void sendAsIs() {
+			if (this.contentLength >= 0) {
+				super.setContentLengthLong(this.contentLength);
+			}
+		}
+
+		void finish() throws IOException {
+			if (this.writer != null) {
+				this.writer.flush();
+			}
+			if (this.outputStream != null) {
+				this.outputStream.finish();
+			}
+		}
+
+	}
+
+	/**
+	 * Buffers the beginning of a response until it is known whether to compress it.
+	 */
+	private static final class CompressingOutputStream extends ServletOutputStream {
+
+		private final CompressingResponse response;
+
+		private final ServletOutputStream delegate;
+
+		private byte[] buffer;
+
+		private int count;
+
+		@Nullable
+		private OutputStream target;
+
+		boolean decided;
+
+		boolean compressing;
+
+		private boolean finished;
+
+		CompressingOutputStream(CompressingResponse response, ServletOutputStream delegate, int minResponseSize) {
+			this.response = response;
+			this.delegate = delegate;
+			this.buffer = new byte[Math.max(minResponseSize, 1)];
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (this.finished) {
+				throw new IOException("The response has already been completed");
+			}
+			if (!this.decided) {
+				if (!this.response.compressible()) {
+					decide(false);
+				}
+				else if (this.count + len < this.buffer.length) {
+					System.arraycopy(b, off, this.buffer, this.count, len);
+					this.count += len;
+					return;
+				}
+				else {
+					decide(true);
+				}
+			}
+			this.target.write(b, off, len);
+		}
+
+		private void decide(boolean compress) throws IOException {
+			this.decided = true;
+			this.compressing = compress;
+			if (compress) {
+				this.target = this.response.startCompression(this.delegate);
+			}
+			else {
+				this.response.sendAsIs();
+				this.target = this.delegate;
+			}
+			if (this.count > 0) {
+				this.target.write(this.buffer, 0, this.count);
+			}
+			this.buffer = new byte[0];
+			this.count = 0;
+		}
+
+		void resetBuffer() {
+			if (!this.decided) {
+				this.count = 0;
+			}
+		}
+
+		/**
+		 * A flush before the buffer fills up sends what has been written so far as is,
+		 * because the client is waiting for it.
+		 */
+		@Override
+		public void flush() throws IOException {
+			if (this.finished) {
+				return;
+			}
+			if (!this.decided) {
+				decide(false);
+			}
+			this.target.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			finish();
+		}
+
+		void finish() throws IOException {
+			if (this.finished) {
+				return;
+			}
+			if (!this.decided) {
+				decide(false);
+			}
+			this.finished = true;
+			if (this.compressing) {
+				this.target.close();
+			}
+			else {
+				this.target.flush();
+			}
+		}
+
+		@Override
+		public boolean isReady() {
+			return this.delegate.isReady();
+		}
+
+		@Override
+		public void setWriteListener(WriteListener writeListener) {
+			this.delegate.setWriteListener(writeListener);
+		}
+
+	}
+
+}
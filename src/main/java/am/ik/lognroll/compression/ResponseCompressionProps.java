@@ -0,0 +1,31 @@
+package am.ik.lognroll.compression;
+
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * @param enabled whether responses are compressed
+ * @param paths path patterns of the endpoints whose responses are compressed
+ * @param excludedPaths path patterns of the endpoints whose responses are never
+ * compressed, e.g. because they are always tiny or streamed as server-sent events
+ * @param mimeTypes media types of the responses that are compressed
+ * @param minResponseSize minimum size of a response to be compressed. Smaller responses
+ * are sent as is.
+ * @param zstdLevel compression level of {@code zstd} (1-22)
+ * @param gzipLevel compression level of {@code gzip} (1-9)
+ */
+// @formatter:off
+@ConfigurationProperties(prefix = "lognroll.response-compression")
+public record ResponseCompressionProps(@DefaultValue("true") boolean enabled,
+		@DefaultValue({ "/api/**", "/actuator/prometheus" }) List<String> paths,
+		@DefaultValue({ "/api/logs/count", "/api/logs/tail" }) List<String> excludedPaths,
+		@DefaultValue({ "application/json", "application/*+json", "application/x-protobuf", "application/octet-stream",
+				"application/openmetrics-text", "text/plain", "text/csv" }) List<String> mimeTypes,
+		@DefaultValue("2KB") DataSize minResponseSize, @DefaultValue("3") int zstdLevel,
+		@DefaultValue("5") int gzipLevel) {
+// @formatter:on
+
+}
@@ -18,8 +18,11 @@ import org.eclipse.jetty.util.ClassMatcher;
 import org.flywaydb.core.internal.configuration.extensions.DeployScriptFilenameConfigurationExtension;
 import org.flywaydb.core.internal.configuration.extensions.PrepareScriptFilenameConfigurationExtension;
 import org.flywaydb.core.internal.publishing.PublishingConfigurationExtension;
+import am.ik.lognroll.util.RawJsonMap;
 import org.springframework.aot.hint.ExecutableMode;
+import org.springframework.aot.hint.MemberCategory;
 import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.ImportRuntimeHints;
 
@@ -118,6 +121,10 @@ public class NativeHints {
 				for (Method method : DescriptorProtos.FeatureSet.Builder.class.getDeclaredMethods()) {
 					hints.reflection().registerMethod(method, ExecutableMode.INVOKE);
 				}
+				// instantiated by Jackson from @JsonSerialize(using = ...)
+				hints.reflection()
+					.registerType(TypeReference.of(RawJsonMap.class.getName() + "$Serializer"),
+							MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
 				hints.resources().registerPattern("opentelemetry/*").registerPattern("antlr4/*");
 			}
 			catch (NoSuchMethodException e) {
@@ -5,12 +5,14 @@ import java.util.List;
 import am.ik.lognroll.auth.AuthProps;
 import am.ik.lognroll.auth.SimpleAuthInterceptor;
 import am.ik.lognroll.logs.LogQuery.Cursor;
+import am.ik.lognroll.logs.QueryResponseProtobufHttpMessageConverter;
 import am.ik.lognroll.maintenance.MaintenanceInterceptor;
 import am.ik.lognroll.maintenance.MaintenanceMode;
 import am.ik.pagination.web.CursorPageRequestHandlerMethodArgumentResolver;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -36,6 +38,15 @@ public class WebConfig implements WebMvcConfigurer {
 				props -> props.withSizeDefault(30)));
 	}
 
+	/**
+	 * The protobuf encoding of query responses is added last, so that it is only chosen
+	 * when a client asks for it and JSON stays the default.
+	 */
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+		converters.add(new QueryResponseProtobufHttpMessageConverter(this.objectMapper));
+	}
+
 	@Override
 	public void addInterceptors(InterceptorRegistry registry) {
 		registry.addInterceptor(new SimpleAuthInterceptor(this.authProps));
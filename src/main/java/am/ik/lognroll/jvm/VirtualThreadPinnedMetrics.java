@@ -0,0 +1,88 @@
+package am.ik.lognroll.jvm;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.Nullable;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records how often and how long virtual threads block while pinned to their carrier,
+ * from the {@code jdk.VirtualThreadPinned} JFR event. A pinned virtual thread keeps its
+ * carrier busy, so frequent events mean that blocking calls such as JDBC should move to
+ * platform threads.
+ */
+@Component
+public class VirtualThreadPinnedMetrics implements MeterBinder, DisposableBean {
+
+	static final String EVENT_NAME = "jdk.VirtualThreadPinned";
+
+	private static final int LOGGED_FRAMES = 5;
+
+	private final VirtualThreadPinnedProps props;
+
+	@Nullable
+	private RecordingStream recordingStream;
+
+	private final Logger logger = LoggerFactory.getLogger(VirtualThreadPinnedMetrics.class);
+
+	public VirtualThreadPinnedMetrics(VirtualThreadPinnedProps props) {
+		this.props = props;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		if (!this.props.enabled()) {
+			return;
+		}
+		Timer timer = Timer.builder("jvm.threads.virtual.pinned")
+			.description("Time a virtual thread blocked while pinned to its carrier thread")
+			.register(registry);
+		try {
+			RecordingStream stream = new RecordingStream();
+			stream.enable(EVENT_NAME).withThreshold(this.props.threshold()).withStackTrace();
+			stream.onEvent(EVENT_NAME, event -> {
+				timer.record(event.getDuration());
+				if (logger.isDebugEnabled()) {
+					logger.debug("Virtual thread pinned for {}ms at {}", event.getDuration().toMillis(),
+							topFrames(event));
+				}
+			});
+			stream.startAsync();
+			this.recordingStream = stream;
+		}
+		catch (RuntimeException e) {
+			// e.g. a native image built without JFR support
+			logger.info("Pinned virtual threads are not recorded: {}", e.getMessage());
+		}
+	}
+
+	private static String topFrames(RecordedEvent event) {
+		if (event.getStackTrace() == null) {
+			return "unknown";
+		}
+		List<RecordedFrame> frames = event.getStackTrace().getFrames();
+		return frames.stream()
+			.limit(LOGGED_FRAMES)
+			.map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName())
+			.collect(Collectors.joining(" < "));
+	}
+
+	@Override
+	public void destroy() {
+		if (this.recordingStream != null) {
+			this.recordingStream.close();
+		}
+	}
+
+}
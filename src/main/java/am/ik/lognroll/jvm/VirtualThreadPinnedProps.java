@@ -0,0 +1,16 @@
+package am.ik.lognroll.jvm;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param enabled whether {@code jdk.VirtualThreadPinned} events are recorded
+ * @param threshold minimum time a virtual thread blocks while pinned to be recorded
+ */
+@ConfigurationProperties(prefix = "lognroll.metrics.virtual-thread-pinned")
+public record VirtualThreadPinnedProps(@DefaultValue("true") boolean enabled,
+		@DefaultValue("20ms") Duration threshold) {
+
+}
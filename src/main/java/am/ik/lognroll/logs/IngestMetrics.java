@@ -0,0 +1,191 @@
+package am.ik.lognroll.logs;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters for each stage of the ingest pipeline, so that a slow ingest can be attributed
+ * to decoding, conversion, waiting for the writer or SQLite itself.
+ */
+@Component
+public class IngestMetrics {
+
+	static final String OTHER_SERVICE = "other";
+
+	private final MeterRegistry registry;
+
+	private final IngestMetricsProps props;
+
+	private final Map<String, Timer> decodeTimers = new ConcurrentHashMap<>();
+
+	private final Map<IngestedKey, Counter> ingestedCounters = new ConcurrentHashMap<>();
+
+	private final Map<String, DistributionSummary> compressedBytes = new ConcurrentHashMap<>();
+
+	private final Map<String, DistributionSummary> inflatedBytes = new ConcurrentHashMap<>();
+
+	private final Timer convertTimer;
+
+	private final Timer resourceLookupTimer;
+
+	private final Timer writeLockWaitTimer;
+
+	private final Timer commitTimer;
+
+	private final Map<String, DistributionSummary> batchSizes = new ConcurrentHashMap<>();
+
+	private final Map<String, Timer> insertTimers = new ConcurrentHashMap<>();
+
+	private final Map<String, Timer> ftsIndexTimers = new ConcurrentHashMap<>();
+
+	public IngestMetrics(MeterRegistry registry, IngestMetricsProps props) {
+		this.registry = registry;
+		this.props = props;
+		this.convertTimer = Timer.builder("lognroll.ingest.convert")
+			.description("Time to convert OTLP logs into stored logs")
+			.register(registry);
+		this.resourceLookupTimer = Timer.builder("lognroll.ingest.resource_lookup")
+			.description("Time to look up and insert resource attributes by digest")
+			.register(registry);
+		this.writeLockWaitTimer = Timer.builder("lognroll.ingest.write_lock.wait")
+			.description("Time spent waiting for the single writer")
+			.register(registry);
+		this.commitTimer = Timer.builder("lognroll.ingest.commit")
+			.description("Time to commit an ingest transaction")
+			.register(registry);
+	}
+
+	/**
+	 * @param format {@code protobuf} or {@code json}
+	 */
+	public Timer decode(String format) {
+		return this.decodeTimers.computeIfAbsent(format,
+				f -> Timer.builder("lognroll.ingest.decode")
+					.description("Time to read and decode an ingest request body, including decompression")
+					.tag("format", f)
+					.register(this.registry));
+	}
+
+	/**
+	 * @param encoding content encoding of the request body, e.g. {@code gzip}
+	 */
+	public DistributionSummary compressedBytes(String encoding) {
+		return this.compressedBytes.computeIfAbsent(encoding,
+				e -> DistributionSummary.builder("lognroll.ingest.body.compressed")
+					.description("Size of an encoded ingest request body as received")
+					.baseUnit("bytes")
+					.tag("encoding", e)
+					.register(this.registry));
+	}
+
+	/**
+	 * @param encoding content encoding of the request body, e.g. {@code gzip}
+	 */
+	public DistributionSummary inflatedBytes(String encoding) {
+		return this.inflatedBytes.computeIfAbsent(encoding,
+				e -> DistributionSummary.builder("lognroll.ingest.body.inflated")
+					.description("Size of an encoded ingest request body after decompression")
+					.baseUnit("bytes")
+					.tag("encoding", e)
+					.register(this.registry));
+	}
+
+	public Timer convert() {
+		return this.convertTimer;
+	}
+
+	public Timer resourceLookup() {
+		return this.resourceLookupTimer;
+	}
+
+	/**
+	 * @param indexing how the full-text index is maintained. With {@code immediate}
+	 * indexing, the insert includes the time spent in the full-text index triggers.
+	 */
+	public Timer insert(String indexing) {
+		return this.insertTimers.computeIfAbsent(indexing,
+				i -> Timer.builder("lognroll.ingest.insert")
+					.description("Time to batch insert logs")
+					.tag("indexing", i)
+					.register(this.registry));
+	}
+
+	/**
+	 * @param table full-text index table that is indexed in the background
+	 */
+	public Timer ftsIndex(String table) {
+		return this.ftsIndexTimers.computeIfAbsent(table,
+				t -> Timer.builder("lognroll.fts.index")
+					.description("Time to index a batch of logs in the background")
+					.tag("table", t)
+					.register(this.registry));
+	}
+
+	public Timer writeLockWait() {
+		return this.writeLockWaitTimer;
+	}
+
+	public Timer commit() {
+		return this.commitTimer;
+	}
+
+	/**
+	 * Exposes the number of ingest requests waiting for the writer lock.
+	 */
+	public void bindWriteLock(ReentrantLock writeLock) {
+		Gauge.builder("lognroll.ingest.queue", writeLock, ReentrantLock::getQueueLength)
+			.description("Number of ingest requests waiting for the single writer")
+			.register(this.registry);
+	}
+
+	public void ingested(List<Log> logs) {
+		ingested(LogStore.DEFAULT_TENANT, logs);
+	}
+
+	public void ingested(String tenant, List<Log> logs) {
+		this.batchSizes
+			.computeIfAbsent(tenant,
+					t -> DistributionSummary.builder("lognroll.ingest.batch.size")
+						.description("Number of log records per ingest request")
+						.baseUnit("records")
+						.tag("tenant", t)
+						.register(this.registry))
+			.record(logs.size());
+		Map<String, Integer> counts = new LinkedHashMap<>();
+		for (Log log : logs) {
+			counts.merge(log.serviceName(), 1, Integer::sum);
+		}
+		counts.forEach((serviceName, count) -> ingestedCounter(tenant, serviceName).increment(count));
+	}
+
+	Counter ingestedCounter(String tenant, String serviceName) {
+		IngestedKey key = new IngestedKey(tenant, serviceName == null ? "" : serviceName);
+		Counter counter = this.ingestedCounters.get(key);
+		if (counter != null) {
+			return counter;
+		}
+		if (this.ingestedCounters.size() >= this.props.maxServiceNames()) {
+			key = new IngestedKey(tenant, OTHER_SERVICE);
+		}
+		return this.ingestedCounters.computeIfAbsent(key,
+				k -> Counter.builder("logs.ingested")
+					.tag("tenant", k.tenant())
+					.tag("service_name", k.serviceName())
+					.register(this.registry));
+	}
+
+	private record IngestedKey(String tenant, String serviceName) {
+	}
+
+}
@@ -0,0 +1,13 @@
+package am.ik.lognroll.logs;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param maxServiceNames maximum number of distinct {@code service_name} tag values
+ * across tenants. Services beyond the limit are counted as {@code other}.
+ */
+@ConfigurationProperties(prefix = "lognroll.ingest.metrics")
+public record IngestMetricsProps(@DefaultValue("100") int maxServiceNames) {
+
+}
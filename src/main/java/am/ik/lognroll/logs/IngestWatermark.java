@@ -0,0 +1,84 @@
+package am.ik.lognroll.logs;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tracks how far the stored logs have changed. The ingest high-water mark advances
+ * whenever new logs are committed, the generation advances whenever logs are removed, and
+ * the indexed mark advances whenever a deferred full-text index covers more logs. All are
+ * advanced after the surrounding transaction commits so that a reader never observes a
+ * mark whose data is not visible yet.
+ * <p>
+ * Observed timestamps are set by the client, so a retried or queued batch can land in a
+ * time window that readers already consider closed. The oldest observed timestamp of each
+ * committed batch is therefore passed to the {@linkplain #onAdvance(Consumer) listeners}
+ * before the ingest high-water mark advances.
+ */
+@Component
+public class IngestWatermark {
+
+	private final AtomicLong ingested = new AtomicLong();
+
+	private final AtomicLong generation = new AtomicLong();
+
+	private final AtomicLong indexed = new AtomicLong();
+
+	private final List<Consumer<Instant>> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * @param oldest the oldest observed timestamp of the logs being committed
+	 */
+	public void advance(Instant oldest) {
+		runAfterCommit(() -> {
+			this.listeners.forEach(listener -> listener.accept(oldest));
+			this.ingested.incrementAndGet();
+		});
+	}
+
+	/**
+	 * @param listener called with the oldest observed timestamp of each committed batch
+	 */
+	public void onAdvance(Consumer<Instant> listener) {
+		this.listeners.add(listener);
+	}
+
+	public void invalidate() {
+		runAfterCommit(this.generation::incrementAndGet);
+	}
+
+	public void advanceIndexed() {
+		runAfterCommit(this.indexed::incrementAndGet);
+	}
+
+	public Snapshot snapshot() {
+		// read generation first so that a concurrent delete is never missed
+		long generation = this.generation.get();
+		return new Snapshot(this.ingested.get(), generation, this.indexed.get());
+	}
+
+	private static void runAfterCommit(Runnable action) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			});
+		}
+		else {
+			action.run();
+		}
+	}
+
+	public record Snapshot(long ingested, long generation, long indexed) {
+	}
+
+}
@@ -3,19 +3,55 @@ package am.ik.lognroll.logs;
 import java.time.Instant;
 import java.util.Map;
 
+import am.ik.lognroll.util.RawJsonMap;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.jilt.Builder;
 
 @Builder
 public record Log(Long logId, Instant timestamp, Instant observedTimestamp, String severityText, Integer severityNumber,
-		String serviceName, String scope, String body, String traceId, String spanId, Integer traceFlags,
-		Map<String, Object> attributes, Map<String, Object> resourceAttributes) {
+		SeverityCategory severityCategory, String serviceName, String scope, String body, String traceId, String spanId,
+		Integer traceFlags, Map<String, Object> attributes, Map<String, Object> resourceAttributes) {
+
+	public Log {
+		if (severityCategory == null) {
+			severityCategory = SeverityCategory.of(severityNumber, severityText);
+		}
+	}
 
 	@JsonIgnore
 	public long resourceAttributesDigest() {
 		return calculateMapDigest(this.resourceAttributes);
 	}
 
+	/**
+	 * @return rough number of bytes this log occupies on the heap
+	 */
+	@JsonIgnore
+	public long estimatedSize() {
+		return 192 + sizeOf(this.severityText) + sizeOf(this.serviceName) + sizeOf(this.scope) + sizeOf(this.body)
+				+ sizeOf(this.traceId) + sizeOf(this.spanId) + sizeOf(this.attributes)
+				+ sizeOf(this.resourceAttributes);
+	}
+
+	private static long sizeOf(String s) {
+		return s == null ? 0 : 40 + 2L * s.length();
+	}
+
+	private static long sizeOf(Map<String, Object> map) {
+		if (map == null) {
+			return 0;
+		}
+		if (map instanceof RawJsonMap rawJsonMap) {
+			// the parsed map is kept once it has been accessed
+			return 2 * sizeOf(rawJsonMap.json());
+		}
+		long size = 48;
+		for (Map.Entry<String, Object> entry : map.entrySet()) {
+			size += 32 + sizeOf(entry.getKey()) + sizeOf(String.valueOf(entry.getValue()));
+		}
+		return size;
+	}
+
 	private static long calculateMapDigest(Map<?, ?> map) {
 		long hash = 0;
 		for (Map.Entry<?, ?> entry : map.entrySet()) {
@@ -0,0 +1,71 @@
+package am.ik.lognroll.logs;
+
+import java.util.Map;
+import java.util.function.Predicate;
+
+import am.ik.lognroll.logs.filter.Filter;
+import am.ik.lognroll.logs.filter.FilterExpressionEvaluator;
+import am.ik.lognroll.logs.query.QueryMatcher;
+import jakarta.annotation.Nullable;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * Matches a {@link Log} against a search query and a filter expression without touching
+ * the database.
+ */
+public final class LogMatcher implements Predicate<Log> {
+
+	private static final LogMatcher ALL = new LogMatcher(body -> true, log -> true);
+
+	private final Predicate<String> queryPredicate;
+
+	private final Predicate<Log> filterPredicate;
+
+	private LogMatcher(Predicate<String> queryPredicate, Predicate<Log> filterPredicate) {
+		this.queryPredicate = queryPredicate;
+		this.filterPredicate = filterPredicate;
+	}
+
+	public static LogMatcher of(@Nullable String query, @Nullable Filter.Expression filterExpression) {
+		if (!StringUtils.hasText(query) && filterExpression == null) {
+			return ALL;
+		}
+		return new LogMatcher(StringUtils.hasText(query) ? QueryMatcher.compile(query) : body -> true,
+				filterExpression != null ? FilterExpressionEvaluator.compile(filterExpression, LogMatcher::resolve)
+						: log -> true);
+	}
+
+	@Override
+	public boolean test(Log log) {
+		return this.queryPredicate.test(log.body()) && this.filterPredicate.test(log);
+	}
+
+	@Nullable
+	static Object resolve(Log log, String column, @Nullable String name) {
+		if (name != null) {
+			Map<String, Object> attributes = switch (column) {
+				case "attributes" -> log.attributes();
+				case "resource_attributes" -> log.resourceAttributes();
+				default -> null;
+			};
+			return attributes == null ? null : attributes.get(name);
+		}
+		return switch (column) {
+			case "log_id" -> log.logId();
+			case "timestamp" -> log.timestamp();
+			case "observed_timestamp" -> log.observedTimestamp();
+			case "severity_text" -> log.severityText();
+			case "severity_number" -> log.severityNumber();
+			case "severity_category" -> log.severityCategory().code();
+			case "service_name" -> log.serviceName();
+			case "scope" -> log.scope();
+			case "body" -> log.body();
+			case "trace_id" -> log.traceId();
+			case "span_id" -> log.spanId();
+			case "trace_flags" -> log.traceFlags();
+			default -> null;
+		};
+	}
+
+}
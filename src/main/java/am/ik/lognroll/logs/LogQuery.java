@@ -3,6 +3,7 @@ package am.ik.lognroll.logs;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 
 import am.ik.lognroll.logs.filter.Filter;
 import am.ik.pagination.CursorPageRequest;
@@ -15,17 +16,62 @@ public interface LogQuery {
 
 	long count(SearchRequest request);
 
-	List<Volume> findVolumes(SearchRequest request, Duration interval);
+	/**
+	 * @param traceId hex encoded trace id
+	 * @param tenant tenant whose logs are looked up, or {@code null} for every tenant
+	 * @return logs of the trace in the order they occurred
+	 * @throws IllegalArgumentException if the trace id is not hex encoded
+	 */
+	List<Log> findLogsByTraceId(String traceId, @Nullable String tenant, int size);
+
+	/**
+	 * @param interval bucket size, or {@code null} to choose one from the time window
+	 * @throws IllegalArgumentException if the interval is not positive or yields too many
+	 * buckets
+	 */
+	Volumes findVolumes(SearchRequest request, @Nullable Duration interval);
 
 	int delete(SearchRequest request);
 
+	/**
+	 * Deletes some of the matching logs in a transaction of its own, so that a large
+	 * deletion can be split into batches that do not hold the write lock for long.
+	 * @param limit maximum number of logs to delete
+	 * @return number of deleted logs, which is less than {@code limit} once no matching
+	 * logs are left
+	 */
+	int delete(SearchRequest request, int limit);
+
+	/**
+	 * @return number of stored logs per tenant
+	 */
+	Map<String, Long> countByTenant();
+
+	/**
+	 * @return number of stored logs that full-text searches do not cover yet, which is
+	 * non-zero while a deferred full-text index catches up
+	 */
+	long fullTextLag();
+
 	record Volume(Instant date, long error, long warn, long info, long debug, long trace, long other) {
 
 	}
 
+	/**
+	 * @param volumes buckets in chronological order, empty buckets are omitted
+	 * @param interval bucket size. Buckets start at multiples of it since the epoch.
+	 */
+	record Volumes(List<Volume> volumes, Duration interval) {
+
+	}
+
+	/**
+	 * @param tenant tenant whose logs are searched, or {@code null} for every tenant
+	 */
 	@Builder
 	record SearchRequest(String query, @Nullable CursorPageRequest<Cursor> pageRequest,
-			@Nullable Filter.Expression filterExpression, @Nullable Instant from, @Nullable Instant to) {
+			@Nullable Filter.Expression filterExpression, @Nullable Instant from, @Nullable Instant to,
+			@Nullable String tenant) {
 
 	}
 
@@ -5,7 +5,16 @@ import java.util.concurrent.CompletableFuture;
 
 public interface LogStore {
 
-	void addAll(List<Log> logs);
+	/**
+	 * Tenant of logs sent without a tenant
+	 */
+	String DEFAULT_TENANT = "default";
+
+	default void addAll(List<Log> logs) {
+		addAll(DEFAULT_TENANT, logs);
+	}
+
+	void addAll(String tenant, List<Log> logs);
 
 	void clear();
 
@@ -5,22 +5,31 @@ import java.time.Instant;
 import java.util.List;
 
 import am.ik.lognroll.logs.LogQuery.Cursor;
+import am.ik.lognroll.logs.admission.QueryAdmission;
+import am.ik.lognroll.logs.cache.QueryCache;
 import am.ik.lognroll.logs.filter.FilterExpressionTextParser;
 import am.ik.lognroll.maintenance.MaintenanceMode;
+import am.ik.lognroll.tenant.TenantResolver;
+import am.ik.lognroll.util.BinaryIds;
+import am.ik.lognroll.util.SqliteErrors;
 import am.ik.pagination.CursorPageRequest;
 import jakarta.annotation.Nullable;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sqlite.SQLiteException;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.UncategorizedSQLException;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -29,34 +38,50 @@ import org.springframework.web.server.ResponseStatusException;
 @RestController
 public class QueryController {
 
+	/**
+	 * Maximum number of logs returned for a trace
+	 */
+	static final int MAX_TRACE_LOGS = 10_000;
+
 	private final LogQuery logQuery;
 
 	private final LogStore logStore;
 
 	private final MaintenanceMode maintenanceMode;
 
+	private final QueryCache queryCache;
+
+	private final QueryAdmission queryAdmission;
+
+	private final TenantResolver tenantResolver;
+
 	private final FilterExpressionTextParser parser = new FilterExpressionTextParser();
 
 	private final Logger logger = LoggerFactory.getLogger(QueryController.class);
 
 	private final Resource dbFile;
 
-	public QueryController(LogQuery logQuery, LogStore logStore, MaintenanceMode maintenanceMode,
+	public QueryController(LogQuery logQuery, LogStore logStore, MaintenanceMode maintenanceMode, QueryCache queryCache,
+			QueryAdmission queryAdmission, TenantResolver tenantResolver,
 			@Value("file://${lognroll.db.path}") Resource dbFile) {
 		this.logQuery = logQuery;
 		this.logStore = logStore;
 		this.maintenanceMode = maintenanceMode;
+		this.queryCache = queryCache;
+		this.queryAdmission = queryAdmission;
+		this.tenantResolver = tenantResolver;
 		this.dbFile = dbFile;
 	}
 
 	private LogQuery.SearchRequest buildRequest(String query, @Nullable CursorPageRequest<Cursor> pageRequest,
-			String filter, Instant from, Instant to) {
+			String filter, Instant from, Instant to, HttpServletRequest httpRequest) {
 		SearchRequestBuilder searchRequest = SearchRequestBuilder.searchRequest()
 			.pageRequest(pageRequest)
 			.from(from)
-			.to(to);
+			.to(to)
+			.tenant(this.tenantResolver.queryTenant(httpRequest));
 		if (StringUtils.hasText(query)) {
-			searchRequest.query(query);
+			searchRequest.query(query.trim());
 		}
 		if (StringUtils.hasText(filter)) {
 			try {
@@ -70,15 +95,17 @@ public class QueryController {
 	}
 
 	@GetMapping(path = "/api/logs")
-	public LogsResponse showLogs(@RequestParam(required = false) String query, CursorPageRequest<Cursor> pageRequest,
-			@RequestParam(required = false) String filter, @RequestParam(required = false) Instant from,
-			@RequestParam(required = false) Instant to) {
-		LogQuery.SearchRequest request = buildRequest(query, pageRequest, filter, from, to);
+	public ResponseEntity<LogsResponse> showLogs(@RequestParam(required = false) String query,
+			CursorPageRequest<Cursor> pageRequest, @RequestParam(required = false) String filter,
+			@RequestParam(required = false) Instant from, @RequestParam(required = false) Instant to,
+			HttpServletRequest httpRequest) {
+		LogQuery.SearchRequest request = buildRequest(query, pageRequest, filter, from, to, httpRequest);
 		try {
-			return new LogsResponse(this.logQuery.findLatestLogs(request));
+			return toResponseEntity(this.queryCache.get("logs", request, null, () -> this.queryAdmission.admit("logs",
+					request, () -> new LogsResponse(this.logQuery.findLatestLogs(request), fullTextLag(request)))));
 		}
 		catch (UncategorizedSQLException e) {
-			if (e.getCause() instanceof SQLiteException) {
+			if (e.getCause() instanceof SQLiteException && !SqliteErrors.isBusy(e)) {
 				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getCause().getMessage(), e);
 			}
 			throw e;
@@ -86,15 +113,16 @@ public class QueryController {
 	}
 
 	@GetMapping(path = "/api/logs/count")
-	public CountResponse showCount(@RequestParam(required = false) String query,
+	public ResponseEntity<CountResponse> showCount(@RequestParam(required = false) String query,
 			@RequestParam(required = false) String filter, @RequestParam(required = false) Instant from,
-			@RequestParam(required = false) Instant to) {
-		LogQuery.SearchRequest request = buildRequest(query, null, filter, from, to);
+			@RequestParam(required = false) Instant to, HttpServletRequest httpRequest) {
+		LogQuery.SearchRequest request = buildRequest(query, null, filter, from, to, httpRequest);
 		try {
-			return new CountResponse(this.logQuery.count(request));
+			return toResponseEntity(this.queryCache.get("count", request, null, () -> this.queryAdmission.admit("count",
+					request, () -> new CountResponse(this.logQuery.count(request), fullTextLag(request)))));
 		}
 		catch (UncategorizedSQLException e) {
-			if (e.getCause() instanceof SQLiteException) {
+			if (e.getCause() instanceof SQLiteException && !SqliteErrors.isBusy(e)) {
 				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getCause().getMessage(), e);
 			}
 			throw e;
@@ -102,22 +130,61 @@ public class QueryController {
 	}
 
 	@GetMapping(path = "/api/logs/volumes")
-	public VolumesResponse showVolumes(@RequestParam(required = false) String query,
+	public ResponseEntity<VolumesResponse> showVolumes(@RequestParam(required = false) String query,
 			@RequestParam(required = false) String filter, @RequestParam(required = false) Instant from,
-			@RequestParam(required = false) Instant to,
-			@RequestParam(required = false, defaultValue = "PT10M") Duration interval) {
-		LogQuery.SearchRequest request = buildRequest(query, null, filter, from, to);
+			@RequestParam(required = false) Instant to, @RequestParam(required = false) @Nullable Duration interval,
+			HttpServletRequest httpRequest) {
+		LogQuery.SearchRequest request = buildRequest(query, null, filter, from, to, httpRequest);
 		try {
-			return new VolumesResponse(this.logQuery.findVolumes(request, interval));
+			return toResponseEntity(this.queryCache.get("volumes", request, interval, () -> this.queryAdmission
+				.admit("volumes", request, () -> VolumesResponse.of(this.logQuery.findVolumes(request, interval)))));
+		}
+		catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
 		}
 		catch (UncategorizedSQLException e) {
-			if (e.getCause() instanceof SQLiteException) {
+			if (e.getCause() instanceof SQLiteException && !SqliteErrors.isBusy(e)) {
 				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getCause().getMessage(), e);
 			}
 			throw e;
 		}
 	}
 
+	/**
+	 * Looks up the logs of a trace by the trace id index. It bypasses admission control
+	 * and the query cache because it never scans more than the logs of the trace.
+	 */
+	@GetMapping(path = "/api/traces/{traceId}/logs")
+	public LogsResponse showTraceLogs(@PathVariable String traceId, @RequestParam(defaultValue = "1000") int size,
+			HttpServletRequest httpRequest) {
+		if (!BinaryIds.isValid(traceId)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'traceId' must be a hex encoded id");
+		}
+		if (size < 1 || size > MAX_TRACE_LOGS) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"'size' must be between 1 and %d".formatted(MAX_TRACE_LOGS));
+		}
+		return new LogsResponse(
+				this.logQuery.findLogsByTraceId(traceId, this.tenantResolver.queryTenant(httpRequest), size), 0);
+	}
+
+	private long fullTextLag(LogQuery.SearchRequest request) {
+		return StringUtils.hasText(request.query()) ? this.logQuery.fullTextLag() : 0;
+	}
+
+	/**
+	 * Conditional requests with {@code If-None-Match} are answered with 304 by Spring MVC
+	 * when the entity tag matches. The response varies by {@code Accept} since it may be
+	 * encoded as JSON or protobuf.
+	 */
+	private static <T> ResponseEntity<T> toResponseEntity(QueryCache.Result<T> result) {
+		return ResponseEntity.ok()
+			.cacheControl(CacheControl.noCache().cachePrivate())
+			.varyBy(HttpHeaders.ACCEPT)
+			.eTag(result.etag())
+			.body(result.value());
+	}
+
 	@GetMapping(path = "/api/logs/download")
 	public Resource downloadLogs() {
 		return this.dbFile;
@@ -126,15 +193,15 @@ public class QueryController {
 	@DeleteMapping(path = "/api/logs")
 	public DeleteResponse delete(@RequestParam(required = false) String query,
 			@RequestParam(required = false) String filter, @RequestParam(required = false) Instant from,
-			@RequestParam(required = false) Instant to) {
-		LogQuery.SearchRequest request = buildRequest(query, null, filter, from, to);
+			@RequestParam(required = false) Instant to, HttpServletRequest httpRequest) {
+		LogQuery.SearchRequest request = buildRequest(query, null, filter, from, to, httpRequest);
 		try {
 			int deleted = this.logQuery.delete(request);
 			logger.info("Deleted {} logs", deleted);
 			return new DeleteResponse(deleted);
 		}
 		catch (UncategorizedSQLException e) {
-			if (e.getCause() instanceof SQLiteException) {
+			if (e.getCause() instanceof SQLiteException && !SqliteErrors.isBusy(e)) {
 				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getCause().getMessage(), e);
 			}
 			throw e;
@@ -162,13 +229,43 @@ public class QueryController {
 		return ResponseEntity.accepted().build();
 	}
 
-	public record LogsResponse(List<Log> logs) {
+	/**
+	 * @param fullTextLag number of logs a full-text search did not cover yet
+	 */
+	public record LogsResponse(List<Log> logs, long fullTextLag) implements QueryCache.Weighable {
+
+		@Override
+		public long estimatedSize() {
+			long size = OVERHEAD;
+			for (Log log : this.logs) {
+				size += log.estimatedSize();
+			}
+			return size;
+		}
+
 	}
 
-	public record CountResponse(long totalCount) {
+	/**
+	 * @param fullTextLag number of logs a full-text search did not cover yet
+	 */
+	public record CountResponse(long totalCount, long fullTextLag) {
 	}
 
-	public record VolumesResponse(List<LogQuery.Volume> volumes) {
+	/**
+	 * @param intervalMillis bucket size in milliseconds
+	 */
+	public record VolumesResponse(List<LogQuery.Volume> volumes, long intervalMillis) implements QueryCache.Weighable {
+
+		static VolumesResponse of(LogQuery.Volumes volumes) {
+			return new VolumesResponse(volumes.volumes(), volumes.interval().toMillis());
+		}
+
+		@Override
+		public long estimatedSize() {
+			// an instant and six longs per volume
+			return OVERHEAD + this.volumes.size() * 96L;
+		}
+
 	}
 
 	public record DeleteResponse(int deleted) {
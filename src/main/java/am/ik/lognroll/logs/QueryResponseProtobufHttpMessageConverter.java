@@ -0,0 +1,241 @@
+package am.ik.lognroll.logs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import am.ik.lognroll.logs.QueryController.CountResponse;
+import am.ik.lognroll.logs.QueryController.LogsResponse;
+import am.ik.lognroll.logs.QueryController.VolumesResponse;
+import am.ik.lognroll.util.BinaryIds;
+import am.ik.lognroll.util.Json;
+import am.ik.lognroll.util.RawJsonMap;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.CodedOutputStream;
+import jakarta.annotation.Nullable;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+/**
+ * Writes the responses of the query API in the protocol buffers wire format when a client
+ * asks for {@code application/x-protobuf}. It is a compact alternative to JSON for large
+ * pages, described by the following schema:
+ *
+ * <pre class="code">
+ * message LogsResponse {
+ *   repeated string strings = 1;        // dictionary referenced by the log fields below
+ *   repeated Log logs = 2;
+ *   int64 full_text_lag = 3;
+ * }
+ * message Log {
+ *   int64 log_id = 1;
+ *   sint64 observed_timestamp = 2;      // epoch millis, delta to the previous log
+ *   sint64 timestamp = 3;               // epoch millis, delta to observed_timestamp
+ *   uint32 severity_text = 4;           // 1-based index into strings, 0 if absent
+ *   int32 severity_number = 5;
+ *   int32 severity_category = 6;        // code of SeverityCategory
+ *   uint32 service_name = 7;            // 1-based index into strings
+ *   uint32 scope = 8;                   // 1-based index into strings
+ *   string body = 9;
+ *   bytes trace_id = 10;
+ *   bytes span_id = 11;
+ *   int32 trace_flags = 12;
+ *   string attributes = 13;             // JSON object
+ *   uint32 resource_attributes = 14;    // 1-based index into strings of a JSON object
+ * }
+ * message CountResponse {
+ *   int64 total_count = 1;
+ *   int64 full_text_lag = 2;
+ * }
+ * message VolumesResponse {
+ *   repeated Volume volumes = 1;
+ *   int64 interval_millis = 2;
+ * }
+ * message Volume {
+ *   sint64 date = 1;                    // epoch millis, delta to the previous volume
+ *   int64 error = 2;
+ *   int64 warn = 3;
+ *   int64 info = 4;
+ *   int64 debug = 5;
+ *   int64 trace = 6;
+ *   int64 other = 7;
+ * }
+ * </pre>
+ *
+ * Fields with their default value are omitted, as in any protocol buffers encoder.
+ */
+public class QueryResponseProtobufHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+	public static final MediaType APPLICATION_PROTOBUF = new MediaType("application", "x-protobuf");
+
+	private final ObjectMapper objectMapper;
+
+	public QueryResponseProtobufHttpMessageConverter(ObjectMapper objectMapper) {
+		super(APPLICATION_PROTOBUF);
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return clazz == LogsResponse.class || clazz == CountResponse.class || clazz == VolumesResponse.class;
+	}
+
+	@Override
+	protected boolean canRead(@Nullable MediaType mediaType) {
+		return false;
+	}
+
+	@Override
+	protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+		throw new HttpMessageNotReadableException("Query responses cannot be read", inputMessage);
+	}
+
+	@Override
+	protected void writeInternal(Object response, HttpOutputMessage outputMessage) throws IOException {
+		CodedOutputStream output = CodedOutputStream.newInstance(outputMessage.getBody());
+		switch (response) {
+			case LogsResponse logs -> writeLogs(logs, output);
+			case CountResponse count -> {
+				writeInt64(output, 1, count.totalCount());
+				writeInt64(output, 2, count.fullTextLag());
+			}
+			case VolumesResponse volumes -> writeVolumes(volumes, output);
+			default -> throw new HttpMessageNotWritableException("Unsupported response: " + response.getClass());
+		}
+		output.flush();
+	}
+
+	void writeLogs(LogsResponse response, CodedOutputStream output) throws IOException {
+		List<Log> logs = response.logs();
+		Map<String, Integer> strings = new LinkedHashMap<>();
+		String[] resourceAttributes = new String[logs.size()];
+		for (int i = 0; i < logs.size(); i++) {
+			Log log = logs.get(i);
+			index(strings, log.severityText());
+			index(strings, log.serviceName());
+			index(strings, log.scope());
+			resourceAttributes[i] = attributes(log.resourceAttributes());
+			index(strings, resourceAttributes[i]);
+		}
+		for (String string : strings.keySet()) {
+			output.writeString(1, string);
+		}
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+		long previous = 0;
+		for (int i = 0; i < logs.size(); i++) {
+			Log log = logs.get(i);
+			buffer.reset();
+			CodedOutputStream message = CodedOutputStream.newInstance(buffer, 256);
+			long observed = toEpochMilli(log.observedTimestamp());
+			writeInt64(message, 1, log.logId() != null ? log.logId() : 0);
+			writeSInt64(message, 2, observed - previous);
+			writeSInt64(message, 3, toEpochMilli(log.timestamp()) - observed);
+			writeUInt32(message, 4, index(strings, log.severityText()));
+			writeInt32(message, 5, log.severityNumber() != null ? log.severityNumber() : 0);
+			writeInt32(message, 6, log.severityCategory().code());
+			writeUInt32(message, 7, index(strings, log.serviceName()));
+			writeUInt32(message, 8, index(strings, log.scope()));
+			writeString(message, 9, log.body());
+			writeBytes(message, 10, BinaryIds.toBytes(log.traceId()));
+			writeBytes(message, 11, BinaryIds.toBytes(log.spanId()));
+			writeInt32(message, 12, log.traceFlags() != null ? log.traceFlags() : 0);
+			writeString(message, 13, attributes(log.attributes()));
+			writeUInt32(message, 14, index(strings, resourceAttributes[i]));
+			message.flush();
+			output.writeByteArray(2, buffer.toByteArray());
+			previous = observed;
+		}
+		writeInt64(output, 3, response.fullTextLag());
+	}
+
+	void writeVolumes(VolumesResponse response, CodedOutputStream output) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+		long previous = 0;
+		for (LogQuery.Volume volume : response.volumes()) {
+			buffer.reset();
+			CodedOutputStream message = CodedOutputStream.newInstance(buffer, 64);
+			long date = toEpochMilli(volume.date());
+			writeSInt64(message, 1, date - previous);
+			writeInt64(message, 2, volume.error());
+			writeInt64(message, 3, volume.warn());
+			writeInt64(message, 4, volume.info());
+			writeInt64(message, 5, volume.debug());
+			writeInt64(message, 6, volume.trace());
+			writeInt64(message, 7, volume.other());
+			message.flush();
+			output.writeByteArray(1, buffer.toByteArray());
+			previous = date;
+		}
+		writeInt64(output, 2, response.intervalMillis());
+	}
+
+	@Nullable
+	private String attributes(@Nullable Map<String, Object> attributes) {
+		if (attributes instanceof RawJsonMap raw) {
+			// checked on the text, since any map method would parse it
+			String json = raw.json().strip();
+			return json.isEmpty() || json.equals("{}") ? null : json;
+		}
+		return attributes == null || attributes.isEmpty() ? null : Json.stringify(this.objectMapper, attributes);
+	}
+
+	/**
+	 * @return 1-based index of the string in the dictionary, or {@code 0} for
+	 * {@code null}
+	 */
+	private static int index(Map<String, Integer> strings, @Nullable String string) {
+		if (string == null) {
+			return 0;
+		}
+		return strings.computeIfAbsent(string, s -> strings.size() + 1);
+	}
+
+	private static long toEpochMilli(@Nullable Instant instant) {
+		return instant != null ? instant.toEpochMilli() : 0;
+	}
+
+	private static void writeInt32(CodedOutputStream output, int field, int value) throws IOException {
+		if (value != 0) {
+			output.writeInt32(field, value);
+		}
+	}
+
+	private static void writeUInt32(CodedOutputStream output, int field, int value) throws IOException {
+		if (value != 0) {
+			output.writeUInt32(field, value);
+		}
+	}
+
+	private static void writeInt64(CodedOutputStream output, int field, long value) throws IOException {
+		if (value != 0) {
+			output.writeInt64(field, value);
+		}
+	}
+
+	private static void writeSInt64(CodedOutputStream output, int field, long value) throws IOException {
+		if (value != 0) {
+			output.writeSInt64(field, value);
+		}
+	}
+
+	private static void writeString(CodedOutputStream output, int field, @Nullable String value) throws IOException {
+		if (value != null && !value.isEmpty()) {
+			output.writeString(field, value);
+		}
+	}
+
+	private static void writeBytes(CodedOutputStream output, int field, @Nullable byte[] value) throws IOException {
+		if (value != null && value.length > 0) {
+			output.writeByteArray(field, value);
+		}
+	}
+
+}
@@ -0,0 +1,66 @@
+package am.ik.lognroll.logs;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Normalised severity of a log, stored as the small integer {@link #code()} in the
+ * {@code severity_category} column. Higher codes are more severe, so that
+ * {@code severity_category >= 4} selects warnings and errors.
+ */
+public enum SeverityCategory {
+
+	OTHER(0), TRACE(1), DEBUG(2), INFO(3), WARN(4), ERROR(5);
+
+	private static final SeverityCategory[] BY_CODE = values();
+
+	private final int code;
+
+	SeverityCategory(int code) {
+		this.code = code;
+	}
+
+	public int code() {
+		return this.code;
+	}
+
+	public static SeverityCategory ofCode(int code) {
+		return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : OTHER;
+	}
+
+	/**
+	 * Categorises a log by the ranges of the OTLP severity number, falling back to the
+	 * severity text when the number is unspecified. FATAL is counted as ERROR.
+	 */
+	public static SeverityCategory of(@Nullable Integer severityNumber, @Nullable String severityText) {
+		if (severityNumber != null && severityNumber >= 1 && severityNumber <= 24) {
+			return switch ((severityNumber - 1) / 4) {
+				case 0 -> TRACE;
+				case 1 -> DEBUG;
+				case 2 -> INFO;
+				case 3 -> WARN;
+				default -> ERROR;
+			};
+		}
+		if (severityText == null || severityText.isEmpty()) {
+			return OTHER;
+		}
+		String upper = severityText.toUpperCase();
+		if (upper.contains("ERROR") || upper.contains("FATAL") || upper.contains("CRITICAL")) {
+			return ERROR;
+		}
+		if (upper.contains("WARN")) {
+			return WARN;
+		}
+		if (upper.contains("INFO")) {
+			return INFO;
+		}
+		if (upper.contains("DEBUG")) {
+			return DEBUG;
+		}
+		if (upper.contains("TRACE")) {
+			return TRACE;
+		}
+		return OTHER;
+	}
+
+}
@@ -0,0 +1,148 @@
+package am.ik.lognroll.logs.admission;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that adapts to the observed latency with additive increase and
+ * multiplicative decrease. Every query finishing without a sign of contention while the
+ * limit is in use raises the limit by {@code 1 / limit}, i.e. by about one per round
+ * trip. Every query showing contention cuts it by a quarter.
+ * <p>
+ * A wide search is slow on an idle node as well, so latency alone does not indicate
+ * contention. A query is considered contended only if other queries were running or
+ * waiting, and it took longer than both the target latency and {@link #TOLERANCE} times
+ * the usual latency of queries of the same cost.
+ */
+final class AdaptiveLimiter {
+
+	private static final double BACKOFF_RATIO = 0.75;
+
+	private static final double TOLERANCE = 2;
+
+	/**
+	 * Weight of the latest latency in the moving average of a cost class
+	 */
+	private static final double SMOOTHING = 0.1;
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	private final long targetLatencyNanos;
+
+	private final ReentrantLock lock = new ReentrantLock(true);
+
+	private final Condition released = this.lock.newCondition();
+
+	private double limit;
+
+	private int inFlight;
+
+	private int waiting;
+
+	/**
+	 * Moving average of the latency per cost class in nanoseconds, {@code 0} if unknown
+	 */
+	private final double[] baselines = new double[Integer.SIZE];
+
+	AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, long targetLatencyNanos) {
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.targetLatencyNanos = targetLatencyNanos;
+		this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+	}
+
+	/**
+	 * @return whether a permit was acquired within the timeout. {@code false} is also
+	 * returned without waiting when {@code maxWaiting} callers are already waiting.
+	 */
+	boolean acquire(long timeoutNanos, int maxWaiting) throws InterruptedException {
+		this.lock.lock();
+		try {
+			if (this.inFlight < (int) this.limit) {
+				this.inFlight++;
+				return true;
+			}
+			if (this.waiting >= maxWaiting) {
+				return false;
+			}
+			this.waiting++;
+			try {
+				long remaining = timeoutNanos;
+				while (this.inFlight >= (int) this.limit) {
+					if (remaining <= 0) {
+						return false;
+					}
+					remaining = this.released.awaitNanos(remaining);
+				}
+				this.inFlight++;
+				return true;
+			}
+			finally {
+				this.waiting--;
+			}
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @param cost estimated cost of the query. Queries whose costs are within a factor of
+	 * two share a baseline latency.
+	 */
+	void release(int cost, long latencyNanos) {
+		this.lock.lock();
+		try {
+			boolean saturated = this.inFlight >= (int) this.limit;
+			this.inFlight--;
+			int costClass = 31 - Integer.numberOfLeadingZeros(Math.max(1, cost));
+			double baseline = this.baselines[costClass];
+			boolean contended = (this.inFlight > 0 || this.waiting > 0) && latencyNanos > this.targetLatencyNanos
+					&& baseline > 0 && latencyNanos > baseline * TOLERANCE;
+			if (contended) {
+				this.limit = Math.max(this.minLimit, this.limit * BACKOFF_RATIO);
+			}
+			else if (saturated) {
+				this.limit = Math.min(this.maxLimit, this.limit + 1 / this.limit);
+			}
+			this.baselines[costClass] = baseline > 0 ? baseline + SMOOTHING * (latencyNanos - baseline) : latencyNanos;
+			this.released.signalAll();
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	int limit() {
+		this.lock.lock();
+		try {
+			return (int) this.limit;
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	int inFlight() {
+		this.lock.lock();
+		try {
+			return this.inFlight;
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+	int waiting() {
+		this.lock.lock();
+		try {
+			return this.waiting;
+		}
+		finally {
+			this.lock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,242 @@
+package am.ik.lognroll.logs.admission;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import am.ik.lognroll.logs.LogQuery.SearchRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Limits how many queries run against the log store at the same time, so that searches
+ * typed in the UI cannot saturate the CPU and starve ingest, which is not subject to
+ * admission control.
+ * <p>
+ * All queries share an {@link AdaptiveLimiter adaptive limit}. Queries whose {@link #cost
+ * estimated cost} is heavy additionally need one of a few heavy permits, so they queue
+ * behind each other instead of occupying the whole limit. A query that is not admitted
+ * within the queue timeout is rejected.
+ * <p>
+ * A query running longer than {@link QueryAdmissionProps#statementTimeout()} is
+ * interrupted. The log store aborts the SQLite statements of an interrupted thread, and
+ * the query is rejected as well.
+ */
+@Component
+public class QueryAdmission implements DisposableBean {
+
+	private final QueryAdmissionProps props;
+
+	private final AdaptiveLimiter limiter;
+
+	private final Semaphore heavyPermits;
+
+	private final Counter heavyRejected;
+
+	private final Counter limitRejected;
+
+	private final Counter interruptedRejected;
+
+	private final Counter timeoutRejected;
+
+	private final ScheduledThreadPoolExecutor timer;
+
+	public QueryAdmission(QueryAdmissionProps props, MeterRegistry registry) {
+		this.props = props;
+		this.limiter = new AdaptiveLimiter(props.initialLimit(), props.minLimit(), props.maxLimit(),
+				props.targetLatency().toNanos());
+		this.heavyPermits = new Semaphore(props.heavyConcurrency(), true);
+		this.heavyRejected = rejectedCounter("heavy", registry);
+		this.limitRejected = rejectedCounter("limit", registry);
+		this.interruptedRejected = rejectedCounter("interrupted", registry);
+		this.timeoutRejected = rejectedCounter("timeout", registry);
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("query-timeout-");
+		threadFactory.setDaemon(true);
+		this.timer = new ScheduledThreadPoolExecutor(1, threadFactory);
+		this.timer.setRemoveOnCancelPolicy(true);
+		Gauge.builder("lognroll.query.admission.limit", this.limiter, AdaptiveLimiter::limit)
+			.description("Current concurrency limit for queries")
+			.register(registry);
+		Gauge.builder("lognroll.query.admission.in_flight", this.limiter, AdaptiveLimiter::inFlight)
+			.description("Number of queries running")
+			.register(registry);
+		Gauge.builder("lognroll.query.admission.waiting", this.limiter, AdaptiveLimiter::waiting)
+			.description("Number of queries waiting for admission")
+			.register(registry);
+	}
+
+	/**
+	 * Runs the query once it is admitted.
+	 * @param operation {@code logs}, {@code count} or {@code volumes}
+	 * @throws QueryRejectedException if the query was not admitted in time or exceeded
+	 * the statement timeout
+	 */
+	public <T> T admit(String operation, SearchRequest request, Supplier<T> query) {
+		if (!this.props.enabled()) {
+			return withTimeout(query);
+		}
+		int cost = cost(operation, request);
+		boolean heavy = cost >= this.props.heavyCost();
+		long deadline = System.nanoTime() + this.props.queueTimeout().toNanos();
+		try {
+			if (heavy && !this.heavyPermits.tryAcquire(this.props.queueTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+				throw reject(this.heavyRejected,
+						"Too many expensive queries are running. Narrow the time range or the search.");
+			}
+			try {
+				if (!this.limiter.acquire(deadline - System.nanoTime(), this.props.maxQueued())) {
+					throw reject(this.limitRejected, "Too many queries are running. Try again later.");
+				}
+				long started = System.nanoTime();
+				try {
+					return withTimeout(query);
+				}
+				finally {
+					this.limiter.release(cost, System.nanoTime() - started);
+				}
+			}
+			finally {
+				if (heavy) {
+					this.heavyPermits.release();
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw reject(this.interruptedRejected, "Interrupted while waiting for admission.");
+		}
+	}
+
+	private <T> T withTimeout(Supplier<T> query) {
+		Duration timeout = this.props.statementTimeout();
+		if (timeout.toNanos() <= 0) {
+			return query.get();
+		}
+		Deadline deadline = new Deadline(Thread.currentThread());
+		ScheduledFuture<?> scheduled = this.timer.schedule(deadline, timeout.toNanos(), TimeUnit.NANOSECONDS);
+		boolean expired = false;
+		try {
+			return query.get();
+		}
+		catch (RuntimeException e) {
+			expired = deadline.finish();
+			if (expired) {
+				this.timeoutRejected.increment();
+				throw new QueryRejectedException(
+						"The query exceeded the statement timeout of %ss. Narrow the time range or the search."
+							.formatted(timeout.toSeconds()),
+						null);
+			}
+			throw e;
+		}
+		finally {
+			scheduled.cancel(false);
+			if (!expired) {
+				deadline.finish();
+			}
+		}
+	}
+
+	@Override
+	public void destroy() {
+		this.timer.shutdownNow();
+	}
+
+	private static Counter rejectedCounter(String reason, MeterRegistry registry) {
+		return Counter.builder("lognroll.query.admission.rejected")
+			.description("Number of queries rejected by admission control")
+			.tag("reason", reason)
+			.register(registry);
+	}
+
+	private QueryRejectedException reject(Counter counter, String message) {
+		counter.increment();
+		return new QueryRejectedException(message, this.props.queueTimeout());
+	}
+
+	/**
+	 * Estimates the relative cost of a query from its shape: the wider the time window,
+	 * the more rows are visited. Full-text searches and filters multiply the work per
+	 * row, and counts and volumes visit every matching row instead of stopping at a page.
+	 */
+	static int cost(String operation, SearchRequest request) {
+		int cost = windowWeight(request);
+		if (StringUtils.hasText(request.query())) {
+			cost *= 4;
+		}
+		if (request.filterExpression() != null) {
+			cost *= 2;
+		}
+		if (!"logs".equals(operation)) {
+			cost *= 2;
+		}
+		return cost;
+	}
+
+	private static int windowWeight(SearchRequest request) {
+		if (request.from() == null) {
+			return 8;
+		}
+		Duration width = Duration.between(request.from(), Objects.requireNonNullElseGet(request.to(), Instant::now));
+		if (width.compareTo(Duration.ofHours(1)) <= 0) {
+			return 1;
+		}
+		if (width.compareTo(Duration.ofDays(1)) <= 0) {
+			return 2;
+		}
+		if (width.compareTo(Duration.ofDays(7)) <= 0) {
+			return 4;
+		}
+		return 8;
+	}
+
+	/**
+	 * Interrupts the thread running a query unless the query finished first.
+	 */
+	private static final class Deadline implements Runnable {
+
+		private final Thread thread;
+
+		private boolean finished;
+
+		private boolean expired;
+
+		Deadline(Thread thread) {
+			this.thread = thread;
+		}
+
+		@Override
+		public synchronized void run() {
+			if (!this.finished) {
+				this.expired = true;
+				this.thread.interrupt();
+			}
+		}
+
+		/**
+		 * Called by the thread running the query. Clears the interrupt caused by the
+		 * deadline so that it does not leak into the rest of the request.
+		 * @return whether the deadline expired
+		 */
+		synchronized boolean finish() {
+			this.finished = true;
+			if (this.expired) {
+				Thread.interrupted();
+			}
+			return this.expired;
+		}
+
+	}
+
+}
@@ -0,0 +1,32 @@
+package am.ik.lognroll.logs.admission;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param enabled whether queries are subject to admission control
+ * @param initialLimit number of concurrent queries allowed at startup
+ * @param minLimit lower bound of the adaptive concurrency limit
+ * @param maxLimit upper bound of the adaptive concurrency limit
+ * @param targetLatency queries slower than this and than twice the usual latency of
+ * queries of the same cost shrink the concurrency limit while other queries are running.
+ * See {@link AdaptiveLimiter}.
+ * @param heavyCost estimated cost from which a query is considered heavy. See
+ * {@link QueryAdmission#cost}.
+ * @param heavyConcurrency number of heavy queries allowed to run at the same time
+ * @param queueTimeout how long a query waits to be admitted before it is rejected
+ * @param maxQueued number of queries allowed to wait for admission. Further queries are
+ * rejected immediately.
+ * @param statementTimeout queries running longer than this are interrupted. {@code 0}
+ * disables the timeout. It applies even if admission control is disabled.
+ */
+@ConfigurationProperties(prefix = "lognroll.query.admission")
+public record QueryAdmissionProps(@DefaultValue("true") boolean enabled, @DefaultValue("4") int initialLimit,
+		@DefaultValue("1") int minLimit, @DefaultValue("16") int maxLimit,
+		@DefaultValue("500ms") Duration targetLatency, @DefaultValue("64") int heavyCost,
+		@DefaultValue("2") int heavyConcurrency, @DefaultValue("5s") Duration queueTimeout,
+		@DefaultValue("32") int maxQueued, @DefaultValue("30s") Duration statementTimeout) {
+
+}
@@ -0,0 +1,26 @@
+package am.ik.lognroll.logs.admission;
+
+import java.time.Duration;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Thrown when a query is not admitted or exceeded its statement timeout. Answered with
+ * {@code 429 Too Many Requests}.
+ */
+public class QueryRejectedException extends RuntimeException {
+
+	@Nullable
+	private final Duration retryAfter;
+
+	public QueryRejectedException(String message, @Nullable Duration retryAfter) {
+		super(message);
+		this.retryAfter = retryAfter;
+	}
+
+	@Nullable
+	public Duration getRetryAfter() {
+		return this.retryAfter;
+	}
+
+}
@@ -0,0 +1,258 @@
+package am.ik.lognroll.logs.cache;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import am.ik.lognroll.logs.IngestWatermark;
+import am.ik.lognroll.logs.LogQuery.SearchRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Caches query results keyed by the normalised {@link SearchRequest}.
+ * <p>
+ * A search whose {@code to} lies in the past (by more than
+ * {@link QueryCacheProps#settleTime()}) covers a closed time window and stays valid until
+ * logs are deleted or a late batch whose oldest observed timestamp is at or before
+ * {@code to} is committed. Open-ended searches are invalidated as soon as the ingest
+ * high-water mark advances. Full-text searches are also invalidated when a deferred
+ * full-text index catches up, since that changes their result even for a closed window.
+ * Concurrent misses for the same key are coalesced into a single query.
+ * <p>
+ * The cache is bounded by {@link QueryCacheProps#maxEntries()} and by the
+ * {@linkplain Weighable estimated size} of the results, evicting the least recently used
+ * first.
+ */
+@Component
+public class QueryCache {
+
+	private final QueryCacheProps props;
+
+	private final IngestWatermark watermark;
+
+	/**
+	 * Distinguishes entity tags of this instance from those of a previous run, whose
+	 * watermark started from the same values
+	 */
+	private final String instanceId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+	private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final Map<Key, CompletableFuture<Entry>> inflight = new ConcurrentHashMap<>();
+
+	private final Counter hitCounter;
+
+	private final Counter missCounter;
+
+	/**
+	 * Number of committed batches that may have landed in a closed window. Guarded by
+	 * {@link #entries}.
+	 */
+	private long lateIngests;
+
+	/**
+	 * Estimated size of the cached results in bytes. Guarded by {@link #entries}.
+	 */
+	private long size;
+
+	public QueryCache(QueryCacheProps props, IngestWatermark watermark, MeterRegistry registry) {
+		this.props = props;
+		this.watermark = watermark;
+		this.hitCounter = Counter.builder("logs.query.cache").tag("result", "hit").register(registry);
+		this.missCounter = Counter.builder("logs.query.cache").tag("result", "miss").register(registry);
+		watermark.onAdvance(this::invalidateClosedWindows);
+	}
+
+	/**
+	 * @param name name of the query (e.g. {@code logs}, {@code count})
+	 * @param request search request
+	 * @param parameter additional parameter that affects the result (e.g. interval)
+	 * @param loader executes the query on a miss
+	 * @return the result and its entity tag
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Result<T> get(String name, SearchRequest request, @Nullable Object parameter, Supplier<T> loader) {
+		Key key = new Key(name, request, parameter);
+		IngestWatermark.Snapshot snapshot = this.watermark.snapshot();
+		if (!this.props.enabled()) {
+			return new Result<>(loader.get(), etag(key, snapshot));
+		}
+		boolean closed = isClosedWindow(request.to());
+		Entry entry;
+		long lateIngests;
+		synchronized (this.entries) {
+			entry = this.entries.get(key);
+			lateIngests = this.lateIngests;
+		}
+		if (entry != null && entry.isValid(snapshot)) {
+			this.hitCounter.increment();
+			return new Result<>((T) entry.value(), entry.etag());
+		}
+		CompletableFuture<Entry> future = new CompletableFuture<>();
+		CompletableFuture<Entry> existing = this.inflight.putIfAbsent(key, future);
+		if (existing != null) {
+			entry = join(existing);
+			if (entry.isValid(snapshot) && isCached(key, entry)) {
+				this.hitCounter.increment();
+				return new Result<>((T) entry.value(), entry.etag());
+			}
+		}
+		this.missCounter.increment();
+		try {
+			T value = loader.get();
+			long size = value instanceof Weighable weighable ? weighable.estimatedSize() : Weighable.OVERHEAD;
+			synchronized (this.entries) {
+				// a late batch committed while loading may or may not be included, so the
+				// result is only kept until the next ingest
+				Instant closedTo = closed && lateIngests == this.lateIngests ? request.to() : null;
+				entry = new Entry(value, etag(key, snapshot), size, snapshot, closedTo,
+						StringUtils.hasText(request.query()));
+				put(key, entry);
+			}
+			if (existing == null) {
+				future.complete(entry);
+			}
+			return new Result<>(value, entry.etag());
+		}
+		catch (RuntimeException e) {
+			if (existing == null) {
+				future.completeExceptionally(e);
+			}
+			throw e;
+		}
+		finally {
+			if (existing == null) {
+				this.inflight.remove(key, future);
+			}
+		}
+	}
+
+	public void clear() {
+		synchronized (this.entries) {
+			this.entries.clear();
+			this.size = 0;
+		}
+	}
+
+	private void put(Key key, Entry entry) {
+		Entry previous = this.entries.remove(key);
+		if (previous != null) {
+			this.size -= previous.size();
+		}
+		if (entry.size() > this.props.maxSize().toBytes()) {
+			return;
+		}
+		this.entries.put(key, entry);
+		this.size += entry.size();
+		Iterator<Entry> eldest = this.entries.values().iterator();
+		while (this.entries.size() > this.props.maxEntries() || this.size > this.props.maxSize().toBytes()) {
+			this.size -= eldest.next().size();
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * Removes the closed windows a committed batch may have landed in. No closed window
+	 * can end after the settle time, so recent batches are skipped without locking.
+	 */
+	void invalidateClosedWindows(Instant oldest) {
+		if (!isClosedWindow(oldest)) {
+			return;
+		}
+		synchronized (this.entries) {
+			this.lateIngests++;
+			for (Iterator<Entry> it = this.entries.values().iterator(); it.hasNext();) {
+				Entry entry = it.next();
+				if (entry.closedTo() != null && !entry.closedTo().isBefore(oldest)) {
+					this.size -= entry.size();
+					it.remove();
+				}
+			}
+		}
+	}
+
+	private boolean isCached(Key key, Entry entry) {
+		synchronized (this.entries) {
+			return this.entries.get(key) == entry;
+		}
+	}
+
+	boolean isClosedWindow(@Nullable Instant to) {
+		return to != null && to.isBefore(Instant.now().minus(this.props.settleTime()));
+	}
+
+	private static Entry join(CompletableFuture<Entry> future) {
+		try {
+			return future.join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Weak entity tag derived from the key and the watermark the result was loaded at, so
+	 * that the result does not have to be serialised twice. It changes with every ingest
+	 * for open-ended searches, and only when the result is reloaded for closed windows.
+	 */
+	String etag(Key key, IngestWatermark.Snapshot snapshot) {
+		return "W/\"%s-%x-%x-%x-%x\"".formatted(this.instanceId, key.hashCode(), snapshot.ingested(),
+				snapshot.generation(), snapshot.indexed());
+	}
+
+	/**
+	 * A result that knows roughly how much heap it occupies.
+	 */
+	public interface Weighable {
+
+		/**
+		 * Rough size of an object header and a few fields
+		 */
+		long OVERHEAD = 64;
+
+		/**
+		 * @return estimated size in bytes
+		 */
+		long estimatedSize();
+
+	}
+
+	public record Result<T>(T value, String etag) {
+	}
+
+	record Key(String name, SearchRequest request, @Nullable Object parameter) {
+	}
+
+	/**
+	 * @param closedTo the end of the window if it was closed when loaded
+	 */
+	private record Entry(Object value, String etag, long size, IngestWatermark.Snapshot snapshot,
+			@Nullable Instant closedTo, boolean fullText) {
+
+		boolean isValid(IngestWatermark.Snapshot current) {
+			if (this.snapshot.generation() != current.generation()) {
+				return false;
+			}
+			if (this.fullText && this.snapshot.indexed() != current.indexed()) {
+				return false;
+			}
+			return this.closedTo != null || this.snapshot.ingested() == current.ingested();
+		}
+
+	}
+
+}
@@ -0,0 +1,21 @@
+package am.ik.lognroll.logs.cache;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * @param enabled whether query results are cached
+ * @param maxEntries maximum number of cached results
+ * @param maxSize maximum estimated heap size of the cached results. Larger results are
+ * not cached.
+ * @param settleTime how far in the past {@code to} has to be for a search to be treated
+ * as a closed time window, whose results are kept regardless of new ingests
+ */
+@ConfigurationProperties(prefix = "lognroll.query-cache")
+public record QueryCacheProps(@DefaultValue("true") boolean enabled, @DefaultValue("256") int maxEntries,
+		@DefaultValue("64MB") DataSize maxSize, @DefaultValue("1m") Duration settleTime) {
+
+}
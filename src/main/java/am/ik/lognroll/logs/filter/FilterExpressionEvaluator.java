@@ -0,0 +1,184 @@
+package am.ik.lognroll.logs.filter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Compiles a {@link Filter.Expression} into a {@link Predicate} evaluated in memory. Keys
+ * are interpreted the same way as
+ * {@link am.ik.lognroll.logs.filter.converter.Sqlite3FilterExpressionConverter} does, so
+ * an expression gives the same answer whether it is pushed down to SQLite or evaluated
+ * against a record that has not been stored yet.
+ *
+ * @author Toshiaki Maki
+ */
+public final class FilterExpressionEvaluator {
+
+	private static final Pattern ATTRIBUTES_PATTERN = Pattern
+		.compile("(\\w+\\.?\\w*)\\[\"([\\w.]+)\"\\]|(\\w+\\.?\\w*)\\['([\\w.]+)'\\]");
+
+	private FilterExpressionEvaluator() {
+	}
+
+	public static <T> Predicate<T> compile(Filter.Expression expression, KeyResolver<T> resolver) {
+		return switch (expression.type()) {
+			case AND -> compileOperand(expression.left(), resolver).and(compileOperand(expression.right(), resolver));
+			case OR -> compileOperand(expression.left(), resolver).or(compileOperand(expression.right(), resolver));
+			case NOT -> compileOperand(FilterHelper.negate(expression.left()), resolver);
+			case EQ, NE, GT, GTE, LT, LTE, IN, NIN -> compileComparison(expression, resolver);
+		};
+	}
+
+	private static <T> Predicate<T> compileOperand(@Nullable Filter.Operand operand, KeyResolver<T> resolver) {
+		if (operand instanceof Filter.Group group) {
+			return compile(group.content(), resolver);
+		}
+		if (operand instanceof Filter.Expression expression) {
+			return compile(expression, resolver);
+		}
+		throw new IllegalArgumentException("Operand must be an expression or a group: " + operand);
+	}
+
+	private static <T> Predicate<T> compileComparison(Filter.Expression expression, KeyResolver<T> resolver) {
+		if (!(expression.left() instanceof Filter.Key key) || !(expression.right() instanceof Filter.Value value)) {
+			throw new IllegalArgumentException("Non AND/OR expression must have Key left and Value right argument!");
+		}
+		String[] columnAndName = parseKey(key);
+		String column = columnAndName[0];
+		String name = columnAndName[1];
+		Object expected = value.value();
+		Predicate<Object> test = switch (expression.type()) {
+			case EQ -> actual -> compare(actual, expected) == 0;
+			case NE -> actual -> compare(actual, expected) != 0;
+			case GT -> actual -> compare(actual, expected) > 0;
+			case GTE -> actual -> compare(actual, expected) >= 0;
+			case LT -> actual -> compare(actual, expected) < 0;
+			case LTE -> actual -> compare(actual, expected) <= 0;
+			case IN -> actual -> contains(expected, actual);
+			case NIN -> actual -> !contains(expected, actual);
+			default -> throw new IllegalArgumentException("Not supported expression type: " + expression.type());
+		};
+		return target -> {
+			Object actual = resolver.resolve(target, column, name);
+			// SQL semantics: any comparison with NULL is not true
+			return actual != null && test.test(actual);
+		};
+	}
+
+	/**
+	 * @return a pair of the snake-cased column name and the attribute name (nullable)
+	 */
+	static String[] parseKey(Filter.Key key) {
+		String identifier = key.key().trim();
+		if ((identifier.startsWith("\"") && identifier.endsWith("\""))
+				|| (identifier.startsWith("'") && identifier.endsWith("'"))) {
+			identifier = identifier.substring(1, identifier.length() - 1);
+		}
+		Matcher matcher = ATTRIBUTES_PATTERN.matcher(identifier);
+		if (matcher.matches()) {
+			String column = matcher.group(1) != null ? matcher.group(1) : matcher.group(3);
+			String name = matcher.group(2) != null ? matcher.group(2) : matcher.group(4);
+			return new String[] { toSnakeCase(column), name };
+		}
+		if (identifier.contains(".")) {
+			String[] vals = identifier.split("\\.", 2);
+			return new String[] { toSnakeCase(vals[0]), vals[1] };
+		}
+		return new String[] { toSnakeCase(identifier), null };
+	}
+
+	private static boolean contains(Object values, Object actual) {
+		if (values instanceof List<?> list) {
+			for (Object v : list) {
+				if (compare(actual, v) == 0) {
+					return true;
+				}
+			}
+			return false;
+		}
+		return compare(actual, values) == 0;
+	}
+
+	static int compare(Object actual, Object expected) {
+		Object left = normalize(actual);
+		Object right = normalize(expected);
+		if (left instanceof Number l && right instanceof Number r) {
+			if (isIntegral(l) && isIntegral(r)) {
+				return Long.compare(l.longValue(), r.longValue());
+			}
+			return Double.compare(l.doubleValue(), r.doubleValue());
+		}
+		if (left instanceof Number) {
+			// SQLite orders numeric values before text values
+			return -1;
+		}
+		if (right instanceof Number) {
+			return 1;
+		}
+		return Objects.toString(left).compareTo(Objects.toString(right));
+	}
+
+	private static Object normalize(Object value) {
+		if (value instanceof Boolean b) {
+			// json_extract returns 1/0 for JSON booleans
+			return b ? 1 : 0;
+		}
+		if (value instanceof Instant instant) {
+			// timestamps are stored as epoch millis
+			return instant.toEpochMilli();
+		}
+		if (value instanceof Map<?, ?> || value instanceof List<?>) {
+			return value.toString();
+		}
+		return value;
+	}
+
+	private static boolean isIntegral(Number n) {
+		return n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte;
+	}
+
+	static String toSnakeCase(String camelCase) {
+		StringBuilder snakeCase = new StringBuilder(camelCase.length() + 4);
+		for (char c : camelCase.toCharArray()) {
+			if (Character.isUpperCase(c)) {
+				snakeCase.append('_').append(Character.toLowerCase(c));
+			}
+			else if (c == '.') {
+				snakeCase.append('_');
+			}
+			else {
+				snakeCase.append(c);
+			}
+		}
+		return snakeCase.toString();
+	}
+
+	/**
+	 * Resolves the value that a filter key refers to.
+	 *
+	 * @param <T> type of the evaluated target
+	 */
+	@FunctionalInterface
+	public interface KeyResolver<T> {
+
+		/**
+		 * @param target evaluated target
+		 * @param column column name in snake case (e.g. {@code service_name},
+		 * {@code attributes})
+		 * @param name attribute name inside a JSON column, or {@code null} when the key
+		 * refers to the column itself
+		 * @return the value or {@code null} when absent
+		 */
+		@Nullable
+		Object resolve(T target, String column, @Nullable String name);
+
+	}
+
+}
@@ -16,10 +16,14 @@
 
 package am.ik.lognroll.logs.filter.converter;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import am.ik.lognroll.logs.filter.Filter;
+import jakarta.annotation.Nullable;
 
 /**
  * Converts {@link Filter.Expression} into SQLite3 attributes filter expression format.
@@ -29,11 +33,49 @@ import am.ik.lognroll.logs.filter.Filter;
  */
 public class Sqlite3FilterExpressionConverter extends AbstractFilterExpressionConverter {
 
+	/**
+	 * Columns that store hex encoded ids as bytes.
+	 */
+	private static final Set<String> BINARY_ID_COLUMNS = Set.of("trace_id", "span_id");
+
 	@Override
 	protected void doExpression(Filter.Expression expression, StringBuilder context) {
 		this.convertOperand(expression.left(), context);
 		context.append(getOperationSymbol(expression));
-		this.convertOperand(expression.right(), context);
+		if (expression.left() instanceof Filter.Key key && expression.right() instanceof Filter.Value value
+				&& isBinaryId(key)) {
+			doBinaryIdValue(value, context);
+		}
+		else {
+			this.convertOperand(expression.right(), context);
+		}
+	}
+
+	private boolean isBinaryId(Filter.Key key) {
+		String identifier = hasOuterQuotes(key.key()) ? removeOuterQuotes(key.key()) : key.key();
+		return BINARY_ID_COLUMNS.contains(toSnakeCase(identifier));
+	}
+
+	private void doBinaryIdValue(Filter.Value value, StringBuilder context) {
+		if (value.value() instanceof List<?> list) {
+			doStartValueRange(value, context);
+			for (int i = 0; i < list.size(); i++) {
+				if (i > 0) {
+					doAddValueRangeSpitter(value, context);
+				}
+				doSingleBinaryIdValue(list.get(i), context);
+			}
+			doEndValueRange(value, context);
+		}
+		else {
+			doSingleBinaryIdValue(value.value(), context);
+		}
+	}
+
+	private void doSingleBinaryIdValue(Object value, StringBuilder context) {
+		context.append("unhex(");
+		doSingleValue(value, context);
+		context.append(")");
 	}
 
 	@Override
@@ -96,6 +138,36 @@ public class Sqlite3FilterExpressionConverter extends AbstractFilterExpressionCo
 		}
 	}
 
+	/**
+	 * @return columns the keys of the operand refer to, e.g. {@code resource_attributes}
+	 * for {@code resourceAttributes["service.name"]}
+	 */
+	public Set<String> columns(@Nullable Filter.Operand operand) {
+		Set<String> columns = new HashSet<>();
+		collectColumns(operand, columns);
+		return columns;
+	}
+
+	private void collectColumns(@Nullable Filter.Operand operand, Set<String> columns) {
+		if (operand instanceof Filter.Key key) {
+			String identifier = hasOuterQuotes(key.key()) ? removeOuterQuotes(key.key()) : key.key();
+			Matcher matcher = ATTRIBUTES_PATTERN.matcher(identifier);
+			if (matcher.matches()) {
+				columns.add(toSnakeCase(matcher.group(1) != null ? matcher.group(1) : matcher.group(3)));
+			}
+			else {
+				columns.add(toSnakeCase(identifier.split("\\.", 2)[0]));
+			}
+		}
+		else if (operand instanceof Filter.Expression expression) {
+			collectColumns(expression.left(), columns);
+			collectColumns(expression.right(), columns);
+		}
+		else if (operand instanceof Filter.Group group) {
+			collectColumns(group.content(), columns);
+		}
+	}
+
 	@Override
 	protected void doStartGroup(Filter.Group group, StringBuilder context) {
 		context.append("(");
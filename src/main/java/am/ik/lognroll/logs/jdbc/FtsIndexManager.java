@@ -0,0 +1,490 @@
+package am.ik.lognroll.logs.jdbc;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
+
+import am.ik.lognroll.logs.IngestMetrics;
+import am.ik.lognroll.logs.IngestWatermark;
+import am.ik.lognroll.logs.query.FtsTokenizer;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps the full-text tables in line with {@link FtsProps#tokenizers()}. A table that is
+ * added is created together with its triggers, so that new logs are indexed right away,
+ * and the logs that already exist are indexed in the background in batches of
+ * {@link FtsProps#rebuildBatchSize()}. A table is not searched until its backfill has
+ * caught up. Progress is kept in {@code fts_index_state}, so a backfill interrupted by a
+ * shutdown resumes on the next start.
+ * <p>
+ * With {@link FtsProps.Indexing#DEFERRED} the insert trigger of a table is dropped once
+ * its backfill has caught up. The same background indexer then picks up new logs after
+ * they are committed, every {@link FtsProps#indexingInterval()}. The pending range of
+ * such a table has no upper bound, which the update and delete triggers already honour.
+ */
+@Component
+public class FtsIndexManager implements InitializingBean, SmartLifecycle {
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final FtsProps props;
+
+	private final IngestWatermark ingestWatermark;
+
+	private final IngestMetrics ingestMetrics;
+
+	private final Logger logger = LoggerFactory.getLogger(FtsIndexManager.class);
+
+	private volatile Set<FtsTokenizer> readyTokenizers = Collections.emptySet();
+
+	@Nullable
+	private Thread indexer;
+
+	private volatile boolean running = false;
+
+	public FtsIndexManager(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, FtsProps props,
+			IngestWatermark ingestWatermark, IngestMetrics ingestMetrics) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.props = props;
+		this.ingestWatermark = ingestWatermark;
+		this.ingestMetrics = ingestMetrics;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (this.props.tokenizers().isEmpty()) {
+			throw new IllegalStateException("'lognroll.fts.tokenizers' must not be empty");
+		}
+		if (this.props.tokenchars().contains("'") || this.props.tokenchars().contains("\"")) {
+			throw new IllegalStateException("'lognroll.fts.tokenchars' must not contain quotes");
+		}
+		reconcile();
+	}
+
+	/**
+	 * @return tokenizers whose table can be searched
+	 */
+	public Set<FtsTokenizer> readyTokenizers() {
+		return this.readyTokenizers;
+	}
+
+	/**
+	 * @return number of logs that a searched index does not cover yet
+	 */
+	public long lag() {
+		long lag = 0;
+		for (Map.Entry<FtsTokenizer, State> entry : loadStates().entrySet()) {
+			State state = entry.getValue();
+			if (this.readyTokenizers.contains(entry.getKey()) && state.backfillUpTo() < state.backfillTarget()) {
+				long pending = Objects.requireNonNull(
+						this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM log WHERE log_id > ? AND log_id <= ?",
+								Long.class, state.backfillUpTo(), state.backfillTarget()));
+				lag = Math.max(lag, pending);
+			}
+		}
+		return lag;
+	}
+
+	public List<IndexStatus> status() {
+		Map<FtsTokenizer, State> states = loadStates();
+		List<IndexStatus> status = new ArrayList<>();
+		states.forEach((tokenizer, state) -> status
+			.add(new IndexStatus(tokenizer, state.tokenize(), this.props.tokenizers().contains(tokenizer),
+					state.backfillUpTo(), state.backfillTarget(), this.readyTokenizers.contains(tokenizer))));
+		return status;
+	}
+
+	/**
+	 * Drops the index of the given tokenizer and builds it again online. Searches use the
+	 * other indexes in the meantime.
+	 * @throws IllegalArgumentException if the tokenizer is not configured
+	 * @throws IllegalStateException if no other index is ready to serve searches
+	 */
+	public synchronized void rebuild(FtsTokenizer tokenizer) {
+		if (!this.props.tokenizers().contains(tokenizer)) {
+			throw new IllegalArgumentException("Tokenizer '%s' is not configured".formatted(tokenizer));
+		}
+		Set<FtsTokenizer> others = EnumSet.noneOf(FtsTokenizer.class);
+		others.addAll(loadStates().keySet());
+		others.remove(tokenizer);
+		others.retainAll(this.readyTokenizers);
+		if (others.isEmpty()) {
+			throw new IllegalStateException(
+					"Cannot rebuild '%s' online because no other index is ready".formatted(tokenizer));
+		}
+		this.readyTokenizers = Collections.unmodifiableSet(others);
+		logger.info("Rebuilding full-text index {}", tokenizer.tableName());
+		this.transactionTemplate.executeWithoutResult(status -> {
+			drop(tokenizer);
+			create(tokenizer);
+		});
+		if (this.running) {
+			startIndexer();
+		}
+	}
+
+	synchronized void reconcile() {
+		Map<FtsTokenizer, State> states = loadStates();
+		this.transactionTemplate.executeWithoutResult(status -> {
+			for (FtsTokenizer tokenizer : this.props.tokenizers()) {
+				State state = states.get(tokenizer);
+				if (state != null && !state.tokenize().equals(tokenize(tokenizer))) {
+					logger.info("Tokenizer of {} changed from '{}' to '{}'. Rebuilding the index.",
+							tokenizer.tableName(), state.tokenize(), tokenize(tokenizer));
+					drop(tokenizer);
+					state = null;
+				}
+				if (state == null) {
+					logger.info("Creating full-text index {} with '{}'", tokenizer.tableName(), tokenize(tokenizer));
+					create(tokenizer);
+				}
+				else if (state.isDeferred() && this.props.indexing() == FtsProps.Indexing.IMMEDIATE) {
+					logger.info("Switching full-text index {} to immediate indexing", tokenizer.tableName());
+					createTriggers(tokenizer);
+					// the trigger indexes every log after the current maximum, the
+					// indexer the rest
+					this.jdbcTemplate.update("""
+							UPDATE fts_index_state SET backfill_target = (SELECT COALESCE(MAX(log_id), 0) FROM log)
+							WHERE table_name = ?
+							""", tokenizer.tableName());
+				}
+				else if (!state.isDeferred()) {
+					createTriggers(tokenizer);
+				}
+				else {
+					createUpdateAndDeleteTriggers(tokenizer);
+				}
+			}
+		});
+		refresh();
+	}
+
+	/**
+	 * Publishes the searchable tables and drops the tables that are no longer configured
+	 * once a configured one can replace them.
+	 */
+	private synchronized void refresh() {
+		Map<FtsTokenizer, State> states = loadStates();
+		Set<FtsTokenizer> ready = EnumSet.noneOf(FtsTokenizer.class);
+		states.forEach((tokenizer, state) -> {
+			if (state.isReady()) {
+				ready.add(tokenizer);
+			}
+		});
+		Set<FtsTokenizer> configuredReady = EnumSet.noneOf(FtsTokenizer.class);
+		configuredReady.addAll(ready.isEmpty() ? states.keySet() : ready);
+		configuredReady.retainAll(this.props.tokenizers());
+		if (!configuredReady.isEmpty()) {
+			this.readyTokenizers = Collections.unmodifiableSet(configuredReady);
+			for (FtsTokenizer tokenizer : states.keySet()) {
+				if (!this.props.tokenizers().contains(tokenizer)) {
+					logger.info("Dropping full-text index {} that is no longer configured", tokenizer.tableName());
+					this.transactionTemplate.executeWithoutResult(status -> drop(tokenizer));
+				}
+			}
+		}
+		else {
+			// keep searching the previous index until the configured one has caught up
+			this.readyTokenizers = Collections
+				.unmodifiableSet(ready.isEmpty() ? EnumSet.copyOf(this.props.tokenizers()) : ready);
+		}
+	}
+
+	private void create(FtsTokenizer tokenizer) {
+		String table = tokenizer.tableName();
+		this.jdbcTemplate.execute("""
+				CREATE VIRTUAL TABLE IF NOT EXISTS %s USING fts5
+				(
+				    body,
+				    content='log',
+				    content_rowid='log_id',
+				    tokenize='%s'
+				)
+				""".formatted(table, tokenize(tokenizer).replace("'", "''")));
+		createTriggers(tokenizer);
+		// the triggers index every log after the current maximum, the backfill the rest
+		this.jdbcTemplate.update("""
+				INSERT INTO fts_index_state (table_name, tokenize, backfill_up_to, backfill_target)
+				SELECT ?, ?, 0, COALESCE(MAX(log_id), 0) FROM log
+				""", table, tokenize(tokenizer));
+	}
+
+	/**
+	 * Hands indexing of new logs over from the insert trigger to the background indexer.
+	 * Only a table whose backfill has caught up can be switched, because every log up to
+	 * the current maximum is then indexed.
+	 */
+	private void switchToDeferred(FtsTokenizer tokenizer) {
+		State state = loadStates().get(tokenizer);
+		if (state == null || state.isDeferred() || state.backfillUpTo() < state.backfillTarget()) {
+			return;
+		}
+		String table = tokenizer.tableName();
+		logger.info("Switching full-text index {} to deferred indexing", table);
+		this.jdbcTemplate.execute("DROP TRIGGER IF EXISTS %s_ai".formatted(table));
+		this.jdbcTemplate.update("""
+				UPDATE fts_index_state
+				SET backfill_up_to  = (SELECT COALESCE(MAX(log_id), 0) FROM log),
+				    backfill_target = ?
+				WHERE table_name = ?
+				""", State.DEFERRED, table);
+	}
+
+	private void createTriggers(FtsTokenizer tokenizer) {
+		this.jdbcTemplate.execute("""
+				CREATE TRIGGER IF NOT EXISTS %1$s_ai
+				    AFTER INSERT
+				    ON log
+				BEGIN
+				    INSERT INTO %1$s (rowid, body) VALUES (new.log_id, new.body);
+				END
+				""".formatted(tokenizer.tableName()));
+		createUpdateAndDeleteTriggers(tokenizer);
+	}
+
+	/**
+	 * Creates the triggers that keep already indexed logs in line, which a deferred index
+	 * needs as well.
+	 */
+	private void createUpdateAndDeleteTriggers(FtsTokenizer tokenizer) {
+		String table = tokenizer.tableName();
+		String notBackfilling = """
+				NOT EXISTS (SELECT 1
+				            FROM fts_index_state
+				            WHERE table_name = '%s'
+				              AND %%s.log_id > backfill_up_to
+				              AND %%s.log_id <= backfill_target)
+				""".formatted(table);
+		this.jdbcTemplate.execute("""
+				CREATE TRIGGER IF NOT EXISTS %1$s_au
+				    AFTER UPDATE OF body
+				    ON log
+				BEGIN
+				    INSERT INTO %1$s (%1$s, rowid, body)
+				    SELECT 'delete', old.log_id, old.body
+				    WHERE %2$s;
+				    INSERT INTO %1$s (rowid, body)
+				    SELECT new.log_id, new.body
+				    WHERE %3$s;
+				END
+				""".formatted(table, notBackfilling.formatted("old", "old"), notBackfilling.formatted("new", "new")));
+		this.jdbcTemplate.execute("""
+				CREATE TRIGGER IF NOT EXISTS %1$s_ad
+				    AFTER DELETE
+				    ON log
+				BEGIN
+				    INSERT INTO %1$s (%1$s, rowid, body)
+				    SELECT 'delete', old.log_id, old.body
+				    WHERE %2$s;
+				END
+				""".formatted(table, notBackfilling.formatted("old", "old")));
+	}
+
+	private void drop(FtsTokenizer tokenizer) {
+		String table = tokenizer.tableName();
+		this.jdbcTemplate.execute("DROP TRIGGER IF EXISTS %s_ai".formatted(table));
+		this.jdbcTemplate.execute("DROP TRIGGER IF EXISTS %s_au".formatted(table));
+		this.jdbcTemplate.execute("DROP TRIGGER IF EXISTS %s_ad".formatted(table));
+		this.jdbcTemplate.execute("DROP TABLE IF EXISTS %s".formatted(table));
+		this.jdbcTemplate.update("DELETE FROM fts_index_state WHERE table_name = ?", table);
+	}
+
+	String tokenize(FtsTokenizer tokenizer) {
+		return switch (tokenizer) {
+			case TRIGRAM -> "trigram";
+			case UNICODE61 -> this.props.tokenchars().isEmpty() ? "unicode61"
+					: "unicode61 tokenchars '%s'".formatted(this.props.tokenchars());
+		};
+	}
+
+	private Map<FtsTokenizer, State> loadStates() {
+		Map<FtsTokenizer, State> states = new EnumMap<>(FtsTokenizer.class);
+		this.jdbcTemplate.query("SELECT table_name, tokenize, backfill_up_to, backfill_target FROM fts_index_state",
+				rs -> {
+					Optional<FtsTokenizer> tokenizer = tokenizerOf(rs.getString("table_name"));
+					if (tokenizer.isPresent()) {
+						states.put(tokenizer.get(), new State(rs.getString("tokenize"), rs.getLong("backfill_up_to"),
+								rs.getLong("backfill_target")));
+					}
+				});
+		return states;
+	}
+
+	private static Optional<FtsTokenizer> tokenizerOf(String tableName) {
+		return Arrays.stream(FtsTokenizer.values())
+			.filter(tokenizer -> tokenizer.tableName().equals(tableName))
+			.findFirst();
+	}
+
+	private synchronized void startIndexer() {
+		if (this.indexer == null) {
+			// a platform thread, since SQLite calls would pin the carrier of a virtual
+			// one
+			this.indexer = Thread.ofPlatform().daemon().name("fts-indexer").start(this::index);
+		}
+	}
+
+	private void index() {
+		boolean deferred = this.props.indexing() == FtsProps.Indexing.DEFERRED;
+		while (this.running) {
+			try {
+				for (FtsTokenizer tokenizer : this.props.tokenizers()) {
+					while (this.running && !Objects
+						.requireNonNull(this.transactionTemplate.execute(status -> indexBatch(tokenizer)))) {
+						// continue with the next batch in a new transaction
+					}
+					if (deferred && this.running) {
+						this.transactionTemplate.executeWithoutResult(status -> switchToDeferred(tokenizer));
+					}
+				}
+				if (!this.running) {
+					return;
+				}
+				refresh();
+			}
+			catch (DataAccessException e) {
+				logger.warn("Full-text indexing failed. Retrying in {}.", this.props.indexingInterval(), e);
+			}
+			if (!deferred && finishIndexer()) {
+				return;
+			}
+			LockSupport.parkNanos(this.props.indexingInterval().toNanos());
+		}
+	}
+
+	/**
+	 * @return whether the index of the tokenizer has caught up
+	 */
+	private boolean indexBatch(FtsTokenizer tokenizer) {
+		State state = loadStates().get(tokenizer);
+		if (state == null) {
+			return true;
+		}
+		long maxLogId = Objects
+			.requireNonNull(this.jdbcTemplate.queryForObject("SELECT COALESCE(MAX(log_id), 0) FROM log", Long.class));
+		long end = Math.min(state.backfillTarget(), maxLogId);
+		long from = state.backfillUpTo();
+		if (from >= end && (state.isDeferred() || from >= state.backfillTarget())) {
+			return true;
+		}
+		String table = tokenizer.tableName();
+		long upTo = Math.min(end, from + this.props.rebuildBatchSize());
+		if (upTo > from) {
+			Timer.Sample sample = Timer.start();
+			this.jdbcTemplate.update("""
+					INSERT INTO %s (rowid, body)
+					SELECT log_id, body FROM log WHERE log_id > ? AND log_id <= ?
+					""".formatted(table), from, upTo);
+			sample.stop(this.ingestMetrics.ftsIndex(table));
+			this.ingestWatermark.advanceIndexed();
+		}
+		if (!state.isDeferred() && upTo >= maxLogId) {
+			// no logs up to the target are left, the trigger indexes the ones after it
+			upTo = state.backfillTarget();
+		}
+		this.jdbcTemplate.update("UPDATE fts_index_state SET backfill_up_to = ? WHERE table_name = ?", upTo, table);
+		if (state.isDeferred()) {
+			return upTo >= end;
+		}
+		if (upTo >= state.backfillTarget()) {
+			logger.info("Full-text index {} is ready", table);
+			return true;
+		}
+		logger.debug("Indexed {} up to log_id {} of {}", table, upTo, state.backfillTarget());
+		return false;
+	}
+
+	private synchronized boolean finishIndexer() {
+		if (loadStates().values().stream().anyMatch(state -> !state.isReady())) {
+			return false;
+		}
+		this.indexer = null;
+		return true;
+	}
+
+	@Override
+	public void start() {
+		this.running = true;
+		startIndexer();
+	}
+
+	@Override
+	public void stop() {
+		this.running = false;
+		Thread thread;
+		synchronized (this) {
+			thread = this.indexer;
+			this.indexer = null;
+		}
+		if (thread != null) {
+			LockSupport.unpark(thread);
+			try {
+				// let the current batch commit, indexing resumes on the next start
+				thread.join(Duration.ofSeconds(10));
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	private record State(String tokenize, long backfillUpTo, long backfillTarget) {
+
+		/**
+		 * Target of a table indexed by the background indexer. Every log after
+		 * {@link #backfillUpTo} is pending.
+		 */
+		static final long DEFERRED = Long.MAX_VALUE;
+
+		boolean isDeferred() {
+			return this.backfillTarget == DEFERRED;
+		}
+
+		boolean isReady() {
+			return isDeferred() || this.backfillUpTo >= this.backfillTarget;
+		}
+
+	}
+
+	/**
+	 * @param tokenizer the tokenizer of the index
+	 * @param tokenize the tokenize option the index was created with
+	 * @param configured whether the index is configured. An index that is not configured
+	 * is kept only until a configured one is ready.
+	 * @param backfillUpTo {@code log_id} up to which existing logs have been indexed
+	 * @param backfillTarget {@code log_id} up to which existing logs need to be indexed
+	 * @param ready whether the index is searched
+	 */
+	public record IndexStatus(FtsTokenizer tokenizer, String tokenize, boolean configured, long backfillUpTo,
+			long backfillTarget, boolean ready) {
+	}
+
+}
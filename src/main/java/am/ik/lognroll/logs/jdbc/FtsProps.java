@@ -0,0 +1,51 @@
+package am.ik.lognroll.logs.jdbc;
+
+import java.time.Duration;
+import java.util.List;
+
+import am.ik.lognroll.logs.query.FtsTokenizer;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param timeFirstThreshold maximum number of logs in the searched time window for which
+ * the time range is pushed down into the full-text scan. Larger windows are searched
+ * full-text first unless the query matches more logs than this in the whole history.
+ * {@code 0} disables the push down.
+ * @param tokenizers tokenizers to maintain a full-text index for. Adding one builds its
+ * index online from the existing logs; removing one drops its index once another index is
+ * ready.
+ * @param tokenchars characters that the {@code unicode61} tokenizer keeps inside tokens,
+ * so that identifiers such as UUIDs or pod names are indexed as a single token. Changing
+ * it rebuilds the index.
+ * @param rebuildBatchSize number of logs indexed per transaction while an index is built
+ * online or catches up in deferred mode
+ * @param indexing whether logs are indexed by a trigger in the ingest transaction or by a
+ * background indexer after commit
+ * @param indexingInterval how often the background indexer picks up new logs in deferred
+ * mode
+ */
+@ConfigurationProperties(prefix = "lognroll.fts")
+public record FtsProps(@DefaultValue("100000") int timeFirstThreshold,
+		@DefaultValue("trigram") List<FtsTokenizer> tokenizers, @DefaultValue("-_") String tokenchars,
+		@DefaultValue("10000") int rebuildBatchSize, @DefaultValue("immediate") Indexing indexing,
+		@DefaultValue("1s") Duration indexingInterval) {
+
+	public enum Indexing {
+
+		/**
+		 * Index each log in its insert transaction. Searches see logs as soon as they are
+		 * committed.
+		 */
+		IMMEDIATE,
+
+		/**
+		 * Index logs in batches after commit. Ingest is cheaper, but searches miss the
+		 * latest logs until the indexer catches up.
+		 */
+		DEFERRED
+
+	}
+
+}
@@ -0,0 +1,163 @@
+package am.ik.lognroll.logs.jdbc;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import am.ik.lognroll.logs.LogQuery.Cursor;
+import am.ik.lognroll.logs.LogQuery.SearchRequest;
+import am.ik.lognroll.logs.query.FtsQuery;
+import am.ik.lognroll.logs.query.FtsTokenizer;
+import am.ik.lognroll.logs.query.Sqlite3QueryConverter;
+import jakarta.annotation.Nullable;
+
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.util.StringUtils;
+
+/**
+ * Chooses how a full-text search is combined with its time window.
+ * <p>
+ * {@code log_fts MATCH} alone returns every matching row of the whole history, and the
+ * time predicates are applied only after joining {@code log}. When the time window holds
+ * fewer logs than the term matches, it is cheaper to translate the window into a
+ * {@code log_id} range and let FTS5 restrict its doclist scan to that rowid range. Both
+ * sides are probed with scans bounded by {@link FtsProps#timeFirstThreshold()}: the
+ * number of logs in the window with the {@code log_observed_timestamp} index, which also
+ * yields the exact bounds, and the number of rows the term matches with the full-text
+ * index. A small window is always searched time first. A wide window is searched
+ * full-text first only for a rare term, since a common term would decode its doclist over
+ * the whole history.
+ */
+class FtsQueryPlanner {
+
+	private final JdbcClient jdbcClient;
+
+	private final FtsProps props;
+
+	private final Supplier<Set<FtsTokenizer>> readyTokenizers;
+
+	FtsQueryPlanner(JdbcClient jdbcClient, FtsProps props, Supplier<Set<FtsTokenizer>> readyTokenizers) {
+		this.jdbcClient = jdbcClient;
+		this.props = props;
+		this.readyTokenizers = readyTokenizers;
+	}
+
+	Plan plan(SearchRequest request) {
+		if (this.props.timeFirstThreshold() <= 0) {
+			return Plan.FTS_FIRST;
+		}
+		Instant lower = request.from();
+		Instant upper = upperBound(request);
+		if (lower == null && upper == null) {
+			return Plan.FTS_FIRST;
+		}
+		Map<String, Object> params = new HashMap<>();
+		String window = window(lower, upper, params);
+		params.put("limit", this.props.timeFirstThreshold() + 1);
+		Plan plan = this.jdbcClient.sql("""
+				SELECT COUNT(*) AS count, MIN(log_id) AS min_log_id, MAX(log_id) AS max_log_id
+				FROM (SELECT log_id FROM log INDEXED BY log_observed_timestamp WHERE %s LIMIT :limit)
+				""".formatted(window)).params(params).query((rs, rowNum) -> {
+			long count = rs.getLong("count");
+			if (count > this.props.timeFirstThreshold()) {
+				return Plan.FTS_FIRST;
+			}
+			if (count == 0) {
+				return Plan.EMPTY;
+			}
+			return new Plan(Strategy.TIME_FIRST, rs.getLong("min_log_id"), rs.getLong("max_log_id"));
+		}).single();
+		if (plan.strategy() != Strategy.FTS_FIRST || !isCommon(request.query())) {
+			return plan;
+		}
+		// the bounds of a wide window cost a scan of its index entries, which is still
+		// cheaper than decoding and joining the doclist of a common term over the whole
+		// history
+		params.remove("limit");
+		return this.jdbcClient.sql("""
+				SELECT MIN(log_id) AS min_log_id, MAX(log_id) AS max_log_id
+				FROM log INDEXED BY log_observed_timestamp WHERE %s
+				""".formatted(window))
+			.params(params)
+			.query((rs, rowNum) -> new Plan(Strategy.TIME_FIRST, rs.getLong("min_log_id"), rs.getLong("max_log_id")))
+			.single();
+	}
+
+	private static String window(@Nullable Instant lower, @Nullable Instant upper, Map<String, Object> params) {
+		StringBuilder where = new StringBuilder("1 = 1");
+		if (lower != null) {
+			where.append(" AND observed_timestamp >= :from");
+			params.put("from", Timestamp.from(lower));
+		}
+		if (upper != null) {
+			where.append(" AND observed_timestamp <= :to");
+			params.put("to", Timestamp.from(upper));
+		}
+		return where.toString();
+	}
+
+	/**
+	 * Whether the query matches more rows than the threshold. Only a query that is a
+	 * single {@code MATCH} is probed. Terms searched in different tables are combined by
+	 * a SQL predicate whose count is not bounded by the index, so they are treated as
+	 * rare.
+	 */
+	private boolean isCommon(@Nullable String query) {
+		Set<FtsTokenizer> available = this.readyTokenizers.get();
+		if (!StringUtils.hasText(query) || available.isEmpty()
+				|| !(Sqlite3QueryConverter.convertQuery(query, available, false) instanceof FtsQuery.Match match)
+				|| !StringUtils.hasText(match.expression())) {
+			return false;
+		}
+		String table = match.tokenizer().tableName();
+		long count = this.jdbcClient.sql("""
+				SELECT COUNT(*) FROM (SELECT rowid FROM %1$s WHERE %1$s MATCH :query LIMIT :limit)
+				""".formatted(table))
+			.param("query", match.expression())
+			.param("limit", this.props.timeFirstThreshold() + 1)
+			.query(Long.class)
+			.single();
+		return count > this.props.timeFirstThreshold();
+	}
+
+	@Nullable
+	private static Instant upperBound(SearchRequest request) {
+		Instant upper = request.to();
+		if (request.pageRequest() != null) {
+			Cursor cursor = request.pageRequest().cursor();
+			if (cursor != null && (upper == null || cursor.observedTimestamp().isBefore(upper))) {
+				upper = cursor.observedTimestamp();
+			}
+		}
+		return upper;
+	}
+
+	enum Strategy {
+
+		/**
+		 * Full-text search over the whole history, then filter by time.
+		 */
+		FTS_FIRST,
+
+		/**
+		 * Full-text search restricted to the rowid range of the time window.
+		 */
+		TIME_FIRST
+
+	}
+
+	record Plan(Strategy strategy, long minLogId, long maxLogId) {
+
+		static final Plan FTS_FIRST = new Plan(Strategy.FTS_FIRST, 0, 0);
+
+		/**
+		 * The time window contains no logs. An empty rowid range short-circuits the scan.
+		 */
+		static final Plan EMPTY = new Plan(Strategy.TIME_FIRST, 1, 0);
+
+	}
+
+}
@@ -0,0 +1,106 @@
+package am.ik.lognroll.logs.jdbc;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs SQLite calls of virtual threads on a bounded pool of platform threads.
+ * <p>
+ * sqlite-jdbc calls into native code inside {@code synchronized} blocks, which pins the
+ * carrier of a virtual thread for the whole statement. With many concurrent requests the
+ * few carriers end up pinned while other virtual threads wait for them, including those
+ * that would return a connection to the pool. Waiting for a {@link Future} instead
+ * unmounts the virtual thread and leaves its carrier free.
+ * <p>
+ * Platform threads and threads that already take part in a transaction run the call
+ * themselves, since the transaction is bound to the thread.
+ * <p>
+ * Each thread holds a connection while it runs a call, and the query slices of
+ * {@link TimeSlices} and the background workers draw from the same connection pool. By
+ * default the pool is therefore divided so that the threads here, the slice threads and
+ * the workers can all hold a connection at the same time.
+ */
+@Component
+class JdbcExecutor implements DisposableBean {
+
+	private static final int DEFAULT_THREADS = 10;
+
+	/**
+	 * Connections left for the platform threads of the deferred full-text indexer and the
+	 * tenant retention
+	 */
+	static final int RESERVED_CONNECTIONS = 2;
+
+	private final ThreadPoolExecutor executor;
+
+	JdbcExecutor(DataSource dataSource, JdbcExecutorProps props, ParallelQueryProps parallelQueryProps,
+			MeterRegistry registry) {
+		int threads = props.threads() > 0 ? props.threads()
+				: Math.max(1, poolSize(dataSource) - parallelQueryProps.threads() - RESERVED_CONNECTIONS);
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+				new CustomizableThreadFactory("jdbc-"));
+		this.executor.allowCoreThreadTimeOut(true);
+		new ExecutorServiceMetrics(this.executor, "jdbc", Tags.empty()).bindTo(registry);
+	}
+
+	private static int poolSize(DataSource dataSource) {
+		return dataSource instanceof HikariConfigMXBean config ? config.getMaximumPoolSize() : DEFAULT_THREADS;
+	}
+
+	<T> T call(Supplier<T> action) {
+		if (!Thread.currentThread().isVirtual() || TransactionSynchronizationManager.isSynchronizationActive()) {
+			return action.get();
+		}
+		Future<T> future = this.executor.submit(action::get);
+		try {
+			return future.get();
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			if (e.getCause() instanceof Error error) {
+				throw error;
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	void run(Runnable action) {
+		call(() -> {
+			action.run();
+			return null;
+		});
+	}
+
+	int threads() {
+		return this.executor.getMaximumPoolSize();
+	}
+
+	@Override
+	public void destroy() {
+		this.executor.shutdownNow();
+	}
+
+}
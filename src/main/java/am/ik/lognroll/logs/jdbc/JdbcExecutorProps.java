@@ -0,0 +1,15 @@
+package am.ik.lognroll.logs.jdbc;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param threads number of platform threads running SQLite calls on behalf of virtual
+ * threads. {@code 0} takes the maximum size of the connection pool less the
+ * {@link ParallelQueryProps#threads() slice threads} and two connections for background
+ * workers.
+ */
+@ConfigurationProperties(prefix = "lognroll.jdbc.executor")
+public record JdbcExecutorProps(@DefaultValue("0") int threads) {
+
+}
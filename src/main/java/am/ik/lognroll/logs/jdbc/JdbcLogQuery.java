@@ -1,54 +1,130 @@
 package am.ik.lognroll.logs.jdbc;
 
+import am.ik.lognroll.logs.IngestWatermark;
 import am.ik.lognroll.logs.Log;
 import am.ik.lognroll.logs.LogBuilder;
 import am.ik.lognroll.logs.LogQuery;
-import am.ik.lognroll.logs.filter.FilterExpressionConverter;
+import am.ik.lognroll.logs.SearchRequestBuilder;
+import am.ik.lognroll.logs.SeverityCategory;
 import am.ik.lognroll.logs.filter.converter.Sqlite3FilterExpressionConverter;
+import am.ik.lognroll.logs.query.FtsQuery;
 import am.ik.lognroll.logs.query.Sqlite3QueryConverter;
+import am.ik.lognroll.util.BinaryIds;
 import am.ik.lognroll.util.Json;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import jakarta.annotation.Nullable;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
 @Component
 public class JdbcLogQuery implements LogQuery {
 
+	private static final String LOG_COLUMNS = """
+			SELECT log.log_id,
+			       log.timestamp,
+			       log.observed_timestamp,
+			       log.severity_text,
+			       log.severity_number,
+			       log.severity_category,
+			       log.service_name,
+			       log.scope,
+			       log.body,
+			       log.trace_id,
+			       log.span_id,
+			       log.trace_flags,
+			       log.attributes,
+			       log.resource_attributes_digest
+			""";
+
 	private final JdbcClient jdbcClient;
 
 	private final ObjectMapper objectMapper;
 
-	private final FilterExpressionConverter converter = new Sqlite3FilterExpressionConverter();
+	private final IngestWatermark ingestWatermark;
+
+	private final FtsQueryPlanner ftsQueryPlanner;
+
+	private final FtsIndexManager ftsIndexManager;
+
+	private final QueryMetrics queryMetrics;
+
+	private final TimeSlices timeSlices;
+
+	private final VolumeProps volumeProps;
 
-	public JdbcLogQuery(JdbcClient jdbcClient, ObjectMapper objectMapper) {
+	private final JdbcExecutor jdbcExecutor;
+
+	private final ResourceAttributesCache resourceAttributesCache;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final Sqlite3FilterExpressionConverter converter = new Sqlite3FilterExpressionConverter();
+
+	public JdbcLogQuery(JdbcClient jdbcClient, ObjectMapper objectMapper, IngestWatermark ingestWatermark,
+			FtsProps ftsProps, FtsIndexManager ftsIndexManager, QueryMetrics queryMetrics, TimeSlices timeSlices,
+			VolumeProps volumeProps, JdbcExecutor jdbcExecutor, ResourceAttributesCache resourceAttributesCache,
+			PlatformTransactionManager transactionManager) {
 		this.jdbcClient = jdbcClient;
 		this.objectMapper = objectMapper;
+		this.ingestWatermark = ingestWatermark;
+		this.ftsQueryPlanner = new FtsQueryPlanner(jdbcClient, ftsProps, ftsIndexManager::readyTokenizers);
+		this.ftsIndexManager = ftsIndexManager;
+		this.queryMetrics = queryMetrics;
+		this.timeSlices = timeSlices;
+		this.volumeProps = volumeProps;
+		this.jdbcExecutor = jdbcExecutor;
+		this.resourceAttributesCache = resourceAttributesCache;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
 	}
 
 	QueryAndParams buildQueryAndParams(SearchRequest request) {
 		StringBuilder sql = new StringBuilder();
 		Map<String, Object> params = new HashMap<>();
 		String query = request.query();
+		FtsQueryPlanner.Plan plan = null;
+		FtsQuery ftsQuery = null;
 		if (StringUtils.hasText(query)) {
+			plan = this.ftsQueryPlanner.plan(request);
+			ftsQuery = Sqlite3QueryConverter.convertQuery(query, this.ftsIndexManager.readyTokenizers(),
+					plan.strategy() == FtsQueryPlanner.Strategy.TIME_FIRST);
+		}
+		String filter = request.filterExpression() != null
+				? this.converter.convertExpression(request.filterExpression()) : null;
+		if (ftsQuery instanceof FtsQuery.Match match) {
 			sql.append("""
-					FROM log_fts
-					JOIN log ON log_fts.rowid = log.log_id
-					JOIN resource_attributes ON log.resource_attributes_digest = resource_attributes.digest
-					""");
+					FROM %1$s
+					JOIN log ON %1$s.rowid = log.log_id
+					""".formatted(match.tokenizer().tableName()));
 		}
 		else {
 			sql.append("""
 					FROM log
+					""");
+		}
+		// resource attributes are resolved through ResourceAttributesCache and only
+		// joined when the filter refers to them. Unlike the join, the cache returns a log
+		// whose resource attributes row is missing with empty resource attributes instead
+		// of leaving it out. JdbcLogStore stores the row before its logs and deletes it
+		// only together with all logs, so this only differs for a damaged database.
+		if (request.filterExpression() != null
+				&& this.converter.columns(request.filterExpression()).contains("resource_attributes")) {
+			sql.append("""
 					JOIN resource_attributes ON log.resource_attributes_digest = resource_attributes.digest
 					""");
 		}
@@ -66,6 +142,12 @@ public class JdbcLogQuery implements LogQuery {
 				params.put("timestamp", Timestamp.from(cursor.timestamp()));
 			}
 		}
+		if (request.tenant() != null) {
+			sql.append("""
+					AND log.tenant = :tenant
+					""");
+			params.put("tenant", request.tenant());
+		}
 		if (request.from() != null) {
 			sql.append("""
 					AND observed_timestamp >= :from
@@ -78,38 +160,54 @@ public class JdbcLogQuery implements LogQuery {
 					""");
 			params.put("to", Timestamp.from(request.to()));
 		}
-		if (StringUtils.hasText(query)) {
+		if (ftsQuery instanceof FtsQuery.Match match) {
+			String table = match.tokenizer().tableName();
 			sql.append("""
-					AND log_fts MATCH(:query)
-					""");
-			params.put("query", Sqlite3QueryConverter.convertQuery(query));
+					AND %s MATCH(:query)
+					""".formatted(table));
+			params.put("query", match.expression());
+			if (plan.strategy() == FtsQueryPlanner.Strategy.TIME_FIRST) {
+				sql.append("""
+						AND %s.rowid BETWEEN :min_log_id AND :max_log_id
+						""".formatted(table));
+			}
+		}
+		else if (ftsQuery instanceof FtsQuery.Predicate predicate) {
+			sql.append("AND (").append(predicate.expression()).append(")").append(System.lineSeparator());
+			params.putAll(predicate.params());
 		}
-		if (request.filterExpression() != null) {
-			sql.append("AND ")
-				.append(this.converter.convertExpression(request.filterExpression()))
-				.append(System.lineSeparator());
+		if (plan != null && plan.strategy() == FtsQueryPlanner.Strategy.TIME_FIRST) {
+			params.put("min_log_id", plan.minLogId());
+			params.put("max_log_id", plan.maxLogId());
 		}
-		return new QueryAndParams(sql.toString(), params);
+		if (filter != null) {
+			sql.append("AND ").append(filter).append(System.lineSeparator());
+		}
+		return new QueryAndParams(sql.toString(), params, planShape(ftsQuery, plan));
+	}
+
+	private static String planShape(@Nullable FtsQuery ftsQuery, @Nullable FtsQueryPlanner.Plan plan) {
+		String shape = switch (ftsQuery) {
+			case null -> "none";
+			case FtsQuery.Match match -> "fts";
+			case FtsQuery.Predicate predicate -> "fts_predicate";
+		};
+		return plan != null && plan.strategy() == FtsQueryPlanner.Strategy.TIME_FIRST ? shape + "_time_first" : shape;
 	}
 
 	@Override
 	public List<Log> findLatestLogs(SearchRequest request) {
-		StringBuilder sql = new StringBuilder("""
-				SELECT log.log_id,
-				       log.timestamp,
-				       log.observed_timestamp,
-				       log.severity_text,
-				       log.severity_number,
-				       log.service_name,
-				       log.scope,
-				       log.body,
-				       log.trace_id,
-				       log.span_id,
-				       log.trace_flags,
-				       log.attributes,
-				       resource_attributes.resource_attributes
-				""");
+		return this.jdbcExecutor.call(() -> this.queryMetrics.observe("logs", request, true, measurement -> {
+			List<Log> logs = findLatestLogs(request, measurement);
+			measurement.rows(logs.size());
+			return logs;
+		}));
+	}
+
+	private List<Log> findLatestLogs(SearchRequest request, QueryMetrics.Measurement measurement) {
+		StringBuilder sql = new StringBuilder(LOG_COLUMNS);
 		QueryAndParams queryAndParams = buildQueryAndParams(request);
+		measurement.plan(queryAndParams.planShape());
 		sql.append(queryAndParams.query());
 		sql.append("""
 				ORDER BY observed_timestamp DESC, timestamp DESC
@@ -117,128 +215,252 @@ public class JdbcLogQuery implements LogQuery {
 		if (request.pageRequest() != null && request.pageRequest().pageSize() > 0) {
 			sql.append("LIMIT %d".formatted(request.pageRequest().pageSize()));
 		}
-		return this.jdbcClient.sql(sql.toString()) //
-			.params(queryAndParams.params()) //
-			.query((rs, rowNum) -> LogBuilder.log()
-				.logId(rs.getLong("log_id"))
-				.timestamp(rs.getTimestamp("timestamp").toInstant())
-				.observedTimestamp(rs.getTimestamp("observed_timestamp").toInstant())
-				.severityText(rs.getString("severity_text"))
-				.severityNumber(rs.getInt("severity_number"))
-				.serviceName(rs.getString("service_name"))
-				.scope(rs.getString("scope"))
-				.body(rs.getString("body"))
-				.traceId(rs.getString("trace_id"))
-				.spanId(rs.getString("span_id"))
-				.traceFlags(rs.getInt("trace_flags"))
-				.attributes(Json.parse(this.objectMapper, rs.getString("attributes")))
-				.resourceAttributes(Json.parse(this.objectMapper, rs.getString("resource_attributes")))
-				.build()) //
-			.list();
+		return queryLogs(sql.toString(), queryAndParams.params());
+	}
+
+	@Override
+	public List<Log> findLogsByTraceId(String traceId, @Nullable String tenant, int size) {
+		byte[] id = BinaryIds.toBytes(traceId);
+		if (id == null) {
+			return List.of();
+		}
+		SearchRequest request = SearchRequestBuilder.searchRequest().tenant(tenant).build();
+		return this.jdbcExecutor.call(() -> this.queryMetrics.observe("trace", request, true, measurement -> {
+			measurement.plan("trace_id");
+			Map<String, Object> params = new HashMap<>();
+			params.put("trace_id", id);
+			params.put("size", size);
+			params.put("tenant", tenant);
+			List<Log> logs = queryLogs(LOG_COLUMNS + """
+					FROM log
+					WHERE log.trace_id = :trace_id
+					AND (:tenant IS NULL OR log.tenant = :tenant)
+					ORDER BY log.timestamp ASC, log.log_id ASC
+					LIMIT :size
+					""", params);
+			measurement.rows(logs.size());
+			return logs;
+		}));
+	}
+
+	private List<Log> queryLogs(String sql, Map<String, ?> params) {
+		List<LogRow> rows = this.jdbcClient.sql(sql).params(params).query(this::mapLog).list();
+		Map<Long, Map<String, Object>> resourceAttributes = this.resourceAttributesCache
+			.resolve(rows.stream().map(LogRow::resourceAttributesDigest).collect(Collectors.toSet()));
+		return rows.stream()
+			.map(row -> row.builder()
+				.resourceAttributes(resourceAttributes.getOrDefault(row.resourceAttributesDigest(), Map.of()))
+				.build())
+			.toList();
+	}
+
+	private LogRow mapLog(ResultSet rs, int rowNum) throws SQLException {
+		LogBuilder builder = LogBuilder.log()
+			.logId(rs.getLong("log_id"))
+			.timestamp(rs.getTimestamp("timestamp").toInstant())
+			.observedTimestamp(rs.getTimestamp("observed_timestamp").toInstant())
+			.severityText(rs.getString("severity_text"))
+			.severityNumber(rs.getInt("severity_number"))
+			.severityCategory(SeverityCategory.ofCode(rs.getInt("severity_category")))
+			.serviceName(rs.getString("service_name"))
+			.scope(rs.getString("scope"))
+			.body(rs.getString("body"))
+			.traceId(BinaryIds.toHex(rs.getBytes("trace_id")))
+			.spanId(BinaryIds.toHex(rs.getBytes("span_id")))
+			.traceFlags(rs.getInt("trace_flags"))
+			.attributes(Json.raw(this.objectMapper, rs.getString("attributes")));
+		return new LogRow(builder, rs.getLong("resource_attributes_digest"));
 	}
 
 	@Override
 	public long count(SearchRequest request) {
-		StringBuilder sql = new StringBuilder("""
-				SELECT COUNT(log.log_id)
-				""");
-		QueryAndParams queryAndParams = buildQueryAndParams(request);
-		sql.append(queryAndParams.query());
-		return this.jdbcClient.sql(sql.toString()) //
-			.params(queryAndParams.params()) //
-			.query(Long.class)
-			.single();
+		return this.jdbcExecutor.call(() -> this.queryMetrics.observe("count", request, true, measurement -> {
+			List<SearchRequest> slices = split(request);
+			long count = this.timeSlices.map(slices, measurement, slice -> {
+				StringBuilder sql = new StringBuilder("""
+						SELECT COUNT(log.log_id)
+						""");
+				QueryAndParams queryAndParams = buildQueryAndParams(slice);
+				if (slice == slices.getFirst()) {
+					measurement.plan(queryAndParams.planShape());
+				}
+				sql.append(queryAndParams.query());
+				return this.jdbcClient.sql(sql.toString()) //
+					.params(queryAndParams.params()) //
+					.query(Long.class)
+					.single();
+			}).stream().mapToLong(Long::longValue).sum();
+			measurement.rows(1);
+			return count;
+		}));
+	}
+
+	/**
+	 * Splits the request into time slices unless it is a full-text search planned as
+	 * {@link FtsQueryPlanner.Strategy#FTS_FIRST}, where every slice would repeat the
+	 * {@code MATCH} over the whole history only to filter it by its own window.
+	 */
+	List<SearchRequest> split(SearchRequest request) {
+		if (StringUtils.hasText(request.query())
+				&& this.ftsQueryPlanner.plan(request).strategy() == FtsQueryPlanner.Strategy.FTS_FIRST) {
+			return List.of(request);
+		}
+		return this.timeSlices.split(request);
 	}
 
 	@Override
-	public List<Volume> findVolumes(SearchRequest request, Duration interval) {
+	public Volumes findVolumes(SearchRequest request, @Nullable Duration interval) {
+		Duration bucket = interval != null ? interval : this.jdbcExecutor.call(() -> chooseInterval(request));
+		if (bucket.toMillis() <= 0) {
+			throw new IllegalArgumentException("'interval' must be at least 1ms");
+		}
+		// an open start is bounded by the oldest log, as when choosing the interval
+		Instant from = interval == null ? null
+				: request.from() != null ? request.from() : this.jdbcExecutor.call(this.timeSlices::oldest);
+		if (from != null) {
+			Instant to = Objects.requireNonNullElseGet(request.to(), Instant::now);
+			long buckets = Duration.between(from, to).toMillis() / bucket.toMillis();
+			if (buckets > this.volumeProps.maxBuckets()) {
+				throw new IllegalArgumentException("'interval' %s yields %d buckets, more than the maximum of %d"
+					.formatted(interval, buckets, this.volumeProps.maxBuckets()));
+			}
+		}
+		return this.jdbcExecutor.call(() -> this.queryMetrics.observe("volumes", request, true, measurement -> {
+			List<Volume> volumes = findVolumes(request, bucket.toMillis(), measurement);
+			measurement.rows(volumes.size());
+			return new Volumes(volumes, bucket);
+		}));
+	}
+
+	private Duration chooseInterval(SearchRequest request) {
+		Instant from = request.from() != null ? request.from() : this.timeSlices.oldest();
+		if (from == null) {
+			return VolumeIntervals.STEPS.getFirst();
+		}
+		Instant to = Objects.requireNonNullElseGet(request.to(), Instant::now);
+		return VolumeIntervals.choose(Duration.between(from, to), this.volumeProps.targetBuckets());
+	}
+
+	private List<Volume> findVolumes(SearchRequest request, long bucketMillis, QueryMetrics.Measurement measurement) {
+		List<SearchRequest> slices = split(request);
+		List<List<Volume>> volumesPerSlice = this.timeSlices.map(slices, measurement,
+				slice -> findSliceVolumes(slice, bucketMillis, slice == slices.getFirst() ? measurement : null));
+		List<Volume> volumes = new ArrayList<>();
+		for (List<Volume> sliceVolumes : volumesPerSlice) {
+			for (Volume volume : sliceVolumes) {
+				// a bucket cut by a slice boundary is the last of one slice and the first
+				// of the next
+				Volume last = volumes.isEmpty() ? null : volumes.getLast();
+				if (last != null && last.date().equals(volume.date())) {
+					volumes.set(volumes.size() - 1,
+							new Volume(last.date(), last.error() + volume.error(), last.warn() + volume.warn(),
+									last.info() + volume.info(), last.debug() + volume.debug(),
+									last.trace() + volume.trace(), last.other() + volume.other()));
+				}
+				else {
+					volumes.add(volume);
+				}
+			}
+		}
+		return volumes;
+	}
+
+	private List<Volume> findSliceVolumes(SearchRequest request, long bucketMillis,
+			@Nullable QueryMetrics.Measurement measurement) {
 		StringBuilder sql = new StringBuilder("""
-				SELECT strftime('%%Y-%%m-%%dT%%H', observed_timestamp / 1000, 'unixepoch') || ':' ||
-				   printf('%%02d', (strftime('%%M', observed_timestamp / 1000, 'unixepoch') / %d) * %d) ||
-				   ':00Z' AS date,
-				   COALESCE(severity_text, '') AS severity_text,
-				   count(log_id) AS count
-				""".formatted(interval.toMinutes(), interval.toMinutes()));
+				SELECT observed_timestamp / :bucket_millis AS bucket,
+				       severity_category,
+				       COUNT(log.log_id) AS count
+				""");
 		QueryAndParams queryAndParams = buildQueryAndParams(request);
+		if (measurement != null) {
+			measurement.plan(queryAndParams.planShape());
+		}
 		sql.append(queryAndParams.query());
 		sql.append("""
-				GROUP BY date, severity_text
-				ORDER BY date ASC;
+				GROUP BY bucket, severity_category
+				ORDER BY bucket ASC
 				""");
-		List<SeverityCount> severityCounts = this.jdbcClient.sql(sql.toString())
+		VolumeAccumulator accumulator = new VolumeAccumulator(bucketMillis);
+		this.jdbcClient.sql(sql.toString())
 			.params(queryAndParams.params())
-			.query((rs, rowNum) -> new SeverityCount(Instant.parse(rs.getString("date")), rs.getString("severity_text"),
-					rs.getLong("count")))
-			.list();
-		return aggregateVolumes(severityCounts);
+			.param("bucket_millis", bucketMillis)
+			.query(accumulator);
+		return accumulator.finish();
 	}
 
-	private List<Volume> aggregateVolumes(List<SeverityCount> severityCounts) {
-		Map<Instant, Volume> volumeMap = new LinkedHashMap<>();
-		for (SeverityCount sc : severityCounts) {
-			Volume volume = volumeMap.computeIfAbsent(sc.date(), date -> new Volume(date, 0, 0, 0, 0, 0, 0));
-			volume = switch (sc.category()) {
-				case ERROR -> new Volume(volume.date(), volume.error() + sc.count(), volume.warn(), volume.info(),
-						volume.debug(), volume.trace(), volume.other());
-				case WARN -> new Volume(volume.date(), volume.error(), volume.warn() + sc.count(), volume.info(),
-						volume.debug(), volume.trace(), volume.other());
-				case INFO -> new Volume(volume.date(), volume.error(), volume.warn(), volume.info() + sc.count(),
-						volume.debug(), volume.trace(), volume.other());
-				case DEBUG -> new Volume(volume.date(), volume.error(), volume.warn(), volume.info(),
-						volume.debug() + sc.count(), volume.trace(), volume.other());
-				case TRACE -> new Volume(volume.date(), volume.error(), volume.warn(), volume.info(), volume.debug(),
-						volume.trace() + sc.count(), volume.other());
-				case OTHER -> new Volume(volume.date(), volume.error(), volume.warn(), volume.info(), volume.debug(),
-						volume.trace(), volume.other() + sc.count());
-			};
-			volumeMap.put(sc.date(), volume);
-		}
-		return new ArrayList<>(volumeMap.values());
-	}
+	/**
+	 * Sums the counts per severity of consecutive rows of the same bucket, which arrive
+	 * in bucket order.
+	 */
+	private static final class VolumeAccumulator implements RowCallbackHandler {
 
-	private enum Category {
+		private final long bucketMillis;
 
-		ERROR, WARN, INFO, DEBUG, TRACE, OTHER;
+		private final List<Volume> volumes = new ArrayList<>();
 
-		static Category of(String severityText) {
-			if (severityText == null || severityText.isEmpty()) {
-				return OTHER;
-			}
-			String upper = severityText.toUpperCase();
-			if (upper.contains("ERROR") || upper.contains("FATAL") || upper.contains("CRITICAL")) {
-				return ERROR;
-			}
-			if (upper.contains("WARN")) {
-				return WARN;
-			}
-			if (upper.contains("INFO")) {
-				return INFO;
-			}
-			if (upper.contains("DEBUG")) {
-				return DEBUG;
-			}
-			if (upper.contains("TRACE")) {
-				return TRACE;
-			}
-			return OTHER;
+		private final long[] counts = new long[SeverityCategory.values().length];
+
+		private long bucket = Long.MIN_VALUE;
+
+		VolumeAccumulator(long bucketMillis) {
+			this.bucketMillis = bucketMillis;
 		}
 
-	}
+		@Override
+		public void processRow(ResultSet rs) throws SQLException {
+			long bucket = rs.getLong("bucket");
+			if (bucket != this.bucket) {
+				flush();
+				this.bucket = bucket;
+			}
+			this.counts[SeverityCategory.ofCode(rs.getInt("severity_category")).ordinal()] += rs.getLong("count");
+		}
 
-	private record SeverityCount(Instant date, String severityText, long count) {
+		List<Volume> finish() {
+			flush();
+			return this.volumes;
+		}
 
-		Category category() {
-			return Category.of(severityText);
+		private void flush() {
+			if (this.bucket == Long.MIN_VALUE) {
+				return;
+			}
+			this.volumes.add(new Volume(Instant.ofEpochMilli(this.bucket * this.bucketMillis),
+					this.counts[SeverityCategory.ERROR.ordinal()], this.counts[SeverityCategory.WARN.ordinal()],
+					this.counts[SeverityCategory.INFO.ordinal()], this.counts[SeverityCategory.DEBUG.ordinal()],
+					this.counts[SeverityCategory.TRACE.ordinal()], this.counts[SeverityCategory.OTHER.ordinal()]));
+			Arrays.fill(this.counts, 0);
 		}
 
 	}
 
 	@Override
-	@Transactional
 	public int delete(SearchRequest request) {
+		return delete(request, 0);
+	}
+
+	@Override
+	public int delete(SearchRequest request, int limit) {
+		return this.jdbcExecutor.call(() -> Objects.requireNonNull(this.transactionTemplate
+			.execute(status -> this.queryMetrics.observe("delete", request, false, measurement -> {
+				int deleted = delete(request, limit, measurement);
+				measurement.rows(deleted);
+				return deleted;
+			}))));
+	}
+
+	/**
+	 * @param limit maximum number of logs to delete, or {@code 0} for all matching logs
+	 */
+	private int delete(SearchRequest request, int limit, QueryMetrics.Measurement measurement) {
 		StringBuilder sql = new StringBuilder("SELECT log.log_id ");
 		QueryAndParams queryAndParams = buildQueryAndParams(request);
+		measurement.plan(queryAndParams.planShape());
 		sql.append(queryAndParams.query());
+		if (limit > 0) {
+			sql.append("LIMIT %d".formatted(limit));
+		}
 		List<Long> deleteIds = this.jdbcClient.sql(sql.toString())
 			.params(queryAndParams.params())
 			.query(Long.class)
@@ -250,9 +472,26 @@ public class JdbcLogQuery implements LogQuery {
 				.param("ids", deleteIdList) //
 				.update();
 		}
+		if (deleted > 0) {
+			this.ingestWatermark.invalidate();
+		}
 		return deleted;
 	}
 
+	@Override
+	public Map<String, Long> countByTenant() {
+		return this.jdbcExecutor.call(() -> this.jdbcClient.sql("SELECT tenant, COUNT(*) FROM log GROUP BY tenant")
+			.query((rs, rowNum) -> Map.entry(rs.getString(1), rs.getLong(2)))
+			.list()
+			.stream()
+			.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+	}
+
+	@Override
+	public long fullTextLag() {
+		return this.jdbcExecutor.call(this.ftsIndexManager::lag);
+	}
+
 	static <T> List<List<T>> splitList(List<T> originalList, int chunkSize) {
 		List<List<T>> partitionedList = new ArrayList<>();
 		int size = originalList.size();
@@ -262,7 +501,10 @@ public class JdbcLogQuery implements LogQuery {
 		return partitionedList;
 	}
 
-	private record QueryAndParams(String query, Map<String, Object> params) {
+	private record LogRow(LogBuilder builder, long resourceAttributesDigest) {
+	}
+
+	private record QueryAndParams(String query, Map<String, Object> params, String planShape) {
 	}
 
 }
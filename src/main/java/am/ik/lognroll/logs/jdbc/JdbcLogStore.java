@@ -1,16 +1,26 @@
 package am.ik.lognroll.logs.jdbc;
 
 import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
+import am.ik.lognroll.logs.IngestMetrics;
+import am.ik.lognroll.logs.IngestWatermark;
 import am.ik.lognroll.logs.Log;
 import am.ik.lognroll.logs.LogStore;
+import am.ik.lognroll.util.BinaryIds;
 import am.ik.lognroll.util.Json;
+import am.ik.lognroll.util.JsonTextWriter;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,7 +28,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.CollectionUtils;
 
 @Component
@@ -28,66 +41,167 @@ public class JdbcLogStore implements LogStore {
 
 	private final ObjectMapper objectMapper;
 
+	private final IngestWatermark ingestWatermark;
+
+	private final IngestMetrics ingestMetrics;
+
+	private final Timer insertTimer;
+
+	private final JdbcExecutor jdbcExecutor;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final JdbcLogTemplates logTemplates;
+
+	/**
+	 * SQLite allows a single writer only. Ingest requests queue up here in arrival order
+	 * instead of competing for the database lock, which makes the wait measurable.
+	 */
+	private final ReentrantLock writeLock = new ReentrantLock(true);
+
 	private final Logger logger = LoggerFactory.getLogger(JdbcLogStore.class);
 
-	public JdbcLogStore(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+	public JdbcLogStore(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, IngestWatermark ingestWatermark,
+			IngestMetrics ingestMetrics, FtsProps ftsProps, JdbcExecutor jdbcExecutor,
+			PlatformTransactionManager transactionManager, JdbcLogTemplates logTemplates) {
 		this.jdbcTemplate = jdbcTemplate;
 		this.objectMapper = objectMapper;
+		this.ingestWatermark = ingestWatermark;
+		this.ingestMetrics = ingestMetrics;
+		this.insertTimer = ingestMetrics.insert(ftsProps.indexing().name().toLowerCase(Locale.ROOT));
+		ingestMetrics.bindWriteLock(this.writeLock);
+		this.jdbcExecutor = jdbcExecutor;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.logTemplates = logTemplates;
 	}
 
-	@Transactional
 	@Override
-	public void addAll(List<Log> logs) {
+	public void addAll(String tenant, List<Log> logs) {
 		if (CollectionUtils.isEmpty(logs)) {
 			return;
 		}
+		this.jdbcExecutor.run(() -> this.transactionTemplate.executeWithoutResult(status -> doAddAll(tenant, logs)));
+	}
+
+	private void doAddAll(String tenant, List<Log> logs) {
 		Map<Long, List<Log>> logsMap = logs.stream().collect(Collectors.groupingBy(Log::resourceAttributesDigest));
-		logsMap.forEach(this::addAllByDigest);
+		boolean unlockOnCompletion = lockForWrite();
+		try {
+			logsMap.forEach((digest, logsByDigest) -> addAllByDigest(tenant, digest, logsByDigest));
+			this.ingestWatermark.advance(oldestObservedTimestamp(logs));
+		}
+		finally {
+			if (!unlockOnCompletion) {
+				this.writeLock.unlock();
+			}
+		}
 	}
 
-	private void addAllByDigest(long digest, List<Log> logs) {
-		Log firstLog = logs.getFirst();
-		int count = Objects.requireNonNull(this.jdbcTemplate
-			.queryForObject("SELECT COUNT(digest) FROM resource_attributes WHERE digest = ?", Integer.class, digest));
-		if (count == 0) {
-			this.jdbcTemplate.update("INSERT INTO resource_attributes(digest, resource_attributes) VALUES (?, ?)",
-					digest, Json.stringify(this.objectMapper, firstLog.resourceAttributes()));
+	private static Instant oldestObservedTimestamp(List<Log> logs) {
+		Instant oldest = Instant.MAX;
+		for (Log log : logs) {
+			if (log.observedTimestamp().isBefore(oldest)) {
+				oldest = log.observedTimestamp();
+			}
 		}
-		this.jdbcTemplate.batchUpdate("""
-				INSERT INTO log(
-				    timestamp,
-				    observed_timestamp,
-				    severity_text,
-				    severity_number,
-				    service_name,
-				    scope,
-				    body,
-				    trace_id,
-				    span_id,
-				    trace_flags,
-				    attributes,
-				    resource_attributes_digest
-				)
-				VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-				""".trim(), logs.stream()
-			.map(log -> new Object[] { Timestamp.from(log.timestamp()), Timestamp.from(log.observedTimestamp()),
-					log.severityText(), log.severityNumber(), log.serviceName(), log.scope(), log.body(), log.traceId(),
-					log.spanId(), log.traceFlags(), Json.stringify(this.objectMapper, log.attributes()), digest })
-			.toList());
+		return oldest;
+	}
+
+	/**
+	 * Acquires the write lock. Within a transaction, the lock is held until the
+	 * transaction completes and the commit is timed.
+	 * @return whether the lock is released on completion of the current transaction
+	 */
+	private boolean lockForWrite() {
+		long started = System.nanoTime();
+		this.writeLock.lock();
+		this.ingestMetrics.writeLockWait().record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			return false;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			private long commitStarted;
+
+			@Override
+			public void beforeCommit(boolean readOnly) {
+				this.commitStarted = System.nanoTime();
+			}
+
+			@Override
+			public void afterCommit() {
+				ingestMetrics.commit().record(System.nanoTime() - this.commitStarted, TimeUnit.NANOSECONDS);
+			}
+
+			@Override
+			public void afterCompletion(int status) {
+				writeLock.unlock();
+			}
+		});
+		return true;
+	}
+
+	private void addAllByDigest(String tenant, long digest, List<Log> logs) {
+		Log firstLog = logs.getFirst();
+		this.ingestMetrics.resourceLookup().record(() -> {
+			int count = Objects.requireNonNull(this.jdbcTemplate.queryForObject(
+					"SELECT COUNT(digest) FROM resource_attributes WHERE digest = ?", Integer.class, digest));
+			if (count == 0) {
+				this.jdbcTemplate.update("INSERT INTO resource_attributes(digest, resource_attributes) VALUES (?, ?)",
+						digest, Json.stringify(this.objectMapper, firstLog.resourceAttributes()));
+			}
+		});
+		Long[] templateIds = this.logTemplates.assign(tenant, logs);
+		this.insertTimer.record(() -> {
+			List<Object[]> batchArgs = new ArrayList<>(logs.size());
+			try (JsonTextWriter writer = new JsonTextWriter(this.objectMapper)) {
+				for (int i = 0; i < logs.size(); i++) {
+					Log log = logs.get(i);
+					batchArgs.add(new Object[] { Timestamp.from(log.timestamp()),
+							Timestamp.from(log.observedTimestamp()), log.severityText(), log.severityNumber(),
+							log.severityCategory().code(), log.serviceName(), log.scope(), log.body(),
+							BinaryIds.toBytes(log.traceId()), BinaryIds.toBytes(log.spanId()), log.traceFlags(),
+							writer.write(log.attributes()), digest, tenant, templateIds[i] });
+				}
+			}
+			this.jdbcTemplate.batchUpdate("""
+					INSERT INTO log(
+					    timestamp,
+					    observed_timestamp,
+					    severity_text,
+					    severity_number,
+					    severity_category,
+					    service_name,
+					    scope,
+					    body,
+					    trace_id,
+					    span_id,
+					    trace_flags,
+					    attributes,
+					    resource_attributes_digest,
+					    tenant,
+					    template_id
+					)
+					VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+					""".trim(), batchArgs);
+		});
+		this.logTemplates.count(tenant, logs, templateIds);
 	}
 
-	@Transactional
 	@Override
 	public void clear() {
-		this.jdbcTemplate.update("DELETE FROM resource_attributes");
-		this.jdbcTemplate.update("DELETE FROM log");
+		this.jdbcExecutor.run(() -> this.transactionTemplate.executeWithoutResult(status -> {
+			this.jdbcTemplate.update("DELETE FROM resource_attributes");
+			this.jdbcTemplate.update("DELETE FROM log");
+			this.logTemplates.clear();
+			this.ingestWatermark.invalidate();
+		}));
 	}
 
 	@Async
 	@Override
 	public CompletableFuture<Void> vacuum() {
 		logger.info("Vacuum started");
-		this.jdbcTemplate.execute("VACUUM");
+		this.jdbcExecutor.run(() -> this.jdbcTemplate.execute("VACUUM"));
 		logger.info("Vacuum completed");
 		return CompletableFuture.completedFuture(null);
 	}
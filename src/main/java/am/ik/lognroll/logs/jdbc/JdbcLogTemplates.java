@@ -0,0 +1,209 @@
+package am.ik.lognroll.logs.jdbc;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import am.ik.lognroll.logs.Log;
+import am.ik.lognroll.logs.pattern.Drain;
+import am.ik.lognroll.logs.pattern.PatternProps;
+import am.ik.lognroll.logs.pattern.PatternQuery;
+import jakarta.annotation.Nullable;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Assigns templates to logs as they are stored and maintains the counts per template in
+ * {@code log_template_count}. It is called by {@link JdbcLogStore} under the write lock,
+ * inside the ingest transaction.
+ * <p>
+ * Templates live in a {@link Drain} parse tree in memory, which is rebuilt from
+ * {@code log_template} on startup. Templates created or generalised by a transaction that
+ * rolls back are written again with the next batch, with their text at that time.
+ */
+@Component
+public class JdbcLogTemplates implements PatternQuery, InitializingBean {
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final JdbcClient jdbcClient;
+
+	private final JdbcExecutor jdbcExecutor;
+
+	private final PatternProps props;
+
+	private final Drain drain;
+
+	/**
+	 * Tenants of the templates whose latest text has not been committed yet, by template
+	 * id. The text is read from {@link #drain} when the templates are saved, so that a
+	 * template generalised again in the meantime is not saved with a stale text.
+	 */
+	private final Map<Long, String> unsaved = new LinkedHashMap<>();
+
+	public JdbcLogTemplates(JdbcTemplate jdbcTemplate, JdbcClient jdbcClient, JdbcExecutor jdbcExecutor,
+			PatternProps props) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.jdbcClient = jdbcClient;
+		this.jdbcExecutor = jdbcExecutor;
+		this.props = props;
+		this.drain = new Drain(props);
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (this.props.interval().toMillis() <= 0) {
+			throw new IllegalStateException("'lognroll.patterns.interval' must be positive");
+		}
+		this.jdbcTemplate.query("SELECT template_id, tenant, template FROM log_template ORDER BY template_id",
+				(RowCallbackHandler) rs -> this.drain.restore(rs.getLong(1), rs.getString(2), rs.getString(3)));
+	}
+
+	/**
+	 * Assigns templates to the logs and saves new or changed templates.
+	 * @return template id per log, {@code null} where a log has no template
+	 */
+	Long[] assign(String tenant, List<Log> logs) {
+		Long[] templateIds = new Long[logs.size()];
+		if (!this.props.enabled()) {
+			return templateIds;
+		}
+		Map<Long, String> changed;
+		List<Object[]> batchArgs = new ArrayList<>();
+		synchronized (this.unsaved) {
+			for (int i = 0; i < logs.size(); i++) {
+				Drain.Match match = this.drain.add(tenant, logs.get(i).body());
+				if (match != null) {
+					templateIds[i] = match.templateId();
+					if (match.changed()) {
+						this.unsaved.put(match.templateId(), tenant);
+					}
+				}
+			}
+			changed = new LinkedHashMap<>(this.unsaved);
+			this.unsaved.clear();
+			changed.forEach((templateId, templateTenant) -> {
+				String template = this.drain.template(templateId);
+				if (template != null) {
+					batchArgs.add(new Object[] { templateId, templateTenant, template });
+				}
+			});
+		}
+		if (!changed.isEmpty()) {
+			this.jdbcTemplate.batchUpdate("""
+					INSERT INTO log_template(template_id, tenant, template) VALUES (?, ?, ?)
+					ON CONFLICT(template_id) DO UPDATE SET template = excluded.template
+					""".trim(), batchArgs);
+			if (TransactionSynchronizationManager.isSynchronizationActive()) {
+				TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+					@Override
+					public void afterCompletion(int status) {
+						if (status != STATUS_COMMITTED) {
+							synchronized (unsaved) {
+								changed.forEach(unsaved::putIfAbsent);
+							}
+						}
+					}
+				});
+			}
+		}
+		return templateIds;
+	}
+
+	/**
+	 * Adds the logs to the counts of their templates. Logs are bucketed by their observed
+	 * timestamp like searches, volumes and the retention, since the timestamp of a log is
+	 * optional in OTLP and left at the epoch when absent.
+	 */
+	void count(String tenant, List<Log> logs, Long[] templateIds) {
+		long interval = this.props.interval().toMillis();
+		Map<BucketKey, Long> counts = new HashMap<>();
+		for (int i = 0; i < logs.size(); i++) {
+			if (templateIds[i] != null) {
+				long bucket = Math.floorDiv(logs.get(i).observedTimestamp().toEpochMilli(), interval) * interval;
+				counts.merge(new BucketKey(bucket, templateIds[i]), 1L, Long::sum);
+			}
+		}
+		if (counts.isEmpty()) {
+			return;
+		}
+		List<Object[]> batchArgs = new ArrayList<>(counts.size());
+		counts.forEach((key, count) -> batchArgs.add(new Object[] { tenant, key.bucket(), key.templateId(), count }));
+		this.jdbcTemplate.batchUpdate("""
+				INSERT INTO log_template_count(tenant, bucket, template_id, count) VALUES (?, ?, ?, ?)
+				ON CONFLICT(tenant, bucket, template_id) DO UPDATE SET count = count + excluded.count
+				""".trim(), batchArgs);
+	}
+
+	@Override
+	public int expire(String tenant, Instant before) {
+		long interval = this.props.interval().toMillis();
+		return this.jdbcExecutor.call(() -> {
+			this.jdbcTemplate.update("DELETE FROM log_template_count WHERE tenant = ? AND bucket < ?", tenant,
+					Math.floorDiv(before.toEpochMilli(), interval) * interval);
+			List<Long> unused = this.jdbcTemplate.queryForList("""
+					SELECT template_id FROM log_template AS t
+					WHERE tenant = ?
+					AND template_id NOT IN (SELECT template_id FROM log_template_count WHERE tenant = ?)
+					AND NOT EXISTS (SELECT 1 FROM log WHERE log.template_id = t.template_id)
+					""", Long.class, tenant, tenant);
+			// templates that were assigned since are about to be stored with a log
+			List<Object[]> batchArgs = unused.stream()
+				.filter(templateId -> this.drain.remove(templateId, before.toEpochMilli()))
+				.map(templateId -> new Object[] { templateId })
+				.toList();
+			if (!batchArgs.isEmpty()) {
+				this.jdbcTemplate.batchUpdate("DELETE FROM log_template WHERE template_id = ?", batchArgs);
+			}
+			return batchArgs.size();
+		});
+	}
+
+	void clear() {
+		this.jdbcTemplate.update("DELETE FROM log_template_count");
+	}
+
+	@Override
+	public List<Pattern> findTopPatterns(@Nullable String tenant, @Nullable Instant from, @Nullable Instant to,
+			int size) {
+		long interval = this.props.interval().toMillis();
+		Map<String, Object> params = new HashMap<>();
+		StringBuilder sql = new StringBuilder("""
+				SELECT c.template_id, t.template, SUM(c.count) AS total
+				FROM log_template_count AS c
+				JOIN log_template AS t ON t.template_id = c.template_id
+				WHERE 1 = 1
+				""");
+		if (tenant != null) {
+			sql.append("AND c.tenant = :tenant\n");
+			params.put("tenant", tenant);
+		}
+		if (from != null) {
+			sql.append("AND c.bucket >= :from\n");
+			params.put("from", Math.floorDiv(from.toEpochMilli(), interval) * interval);
+		}
+		if (to != null) {
+			sql.append("AND c.bucket < :to\n");
+			params.put("to", to.toEpochMilli());
+		}
+		sql.append("GROUP BY c.template_id ORDER BY total DESC, c.template_id LIMIT :size");
+		params.put("size", size);
+		return this.jdbcExecutor.call(() -> this.jdbcClient.sql(sql.toString())
+			.params(params)
+			.query((rs, rowNum) -> new Pattern(rs.getLong(1), rs.getString(2), rs.getLong(3)))
+			.list());
+	}
+
+	private record BucketKey(long bucket, long templateId) {
+	}
+
+}
@@ -0,0 +1,21 @@
+package am.ik.lognroll.logs.jdbc;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param slices maximum number of time slices a count or volume query is split into.
+ * {@code 1} disables parallel execution.
+ * @param minSliceWidth minimum width of a time slice. Narrower windows are split into
+ * fewer slices.
+ * @param threads number of threads running slices. When all are busy, slices run on the
+ * requesting thread one after another. These threads are deducted from the connection
+ * pool when sizing the {@link JdbcExecutorProps#threads() JDBC executor}.
+ */
+@ConfigurationProperties(prefix = "lognroll.query.parallel")
+public record ParallelQueryProps(@DefaultValue("4") int slices, @DefaultValue("6h") Duration minSliceWidth,
+		@DefaultValue("8") int threads) {
+
+}
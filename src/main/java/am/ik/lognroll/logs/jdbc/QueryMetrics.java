@@ -0,0 +1,261 @@
+package am.ik.lognroll.logs.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import am.ik.lognroll.logs.LogQuery.SearchRequest;
+import am.ik.lognroll.tenant.TenantQuotas;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.ProgressHandler;
+import org.sqlite.SQLiteConnection;
+
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Measures the cost of each query by its shape, so that expensive dashboards and filters
+ * can be found.
+ * <p>
+ * SQLite does not expose how many rows a statement scanned through JDBC. Instead, the
+ * statements of a query run on one connection with a progress handler that counts the
+ * virtual machine instructions SQLite executes, which is proportional to the rows visited
+ * and a good proxy for CPU time. The same handler aborts the statements of an
+ * interruptible query once the thread running it is interrupted, e.g. by the statement
+ * timeout of {@link am.ik.lognroll.logs.admission.QueryAdmission}.
+ */
+@Component
+class QueryMetrics {
+
+	/**
+	 * Number of virtual machine instructions between two progress callbacks.
+	 */
+	static final int PROGRESS_INTERVAL = 1000;
+
+	private final MeterRegistry registry;
+
+	private final DataSource dataSource;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final QueryMetricsProps props;
+
+	private final TenantQuotas tenantQuotas;
+
+	private final Map<Shape, Meters> meters = new ConcurrentHashMap<>();
+
+	private final Logger logger = LoggerFactory.getLogger(QueryMetrics.class);
+
+	QueryMetrics(MeterRegistry registry, DataSource dataSource, PlatformTransactionManager transactionManager,
+			QueryMetricsProps props, TenantQuotas tenantQuotas) {
+		this.registry = registry;
+		this.dataSource = dataSource;
+		// binds a single connection for the duration of a query without starting a
+		// transaction, or joins the surrounding one
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_SUPPORTS);
+		this.props = props;
+		this.tenantQuotas = tenantQuotas;
+	}
+
+	/**
+	 * @param interruptible whether the statements of the query are aborted when the
+	 * thread running them is interrupted
+	 */
+	<T> T observe(String operation, SearchRequest request, boolean interruptible, Function<Measurement, T> action) {
+		long started = System.nanoTime();
+		Measurement measurement = new Measurement(interruptible);
+		try {
+			return withConnection(measurement, () -> action.apply(measurement));
+		}
+		finally {
+			long elapsed = System.nanoTime() - started;
+			record(operation, request, measurement, elapsed);
+		}
+	}
+
+	/**
+	 * Runs part of an observed query on another thread. The part gets a connection of its
+	 * own that is measured together with the rest of the query, and is aborted when its
+	 * own thread is interrupted.
+	 */
+	<T> T fork(Measurement measurement, Supplier<T> action) {
+		return withConnection(measurement, action);
+	}
+
+	private <T> T withConnection(Measurement measurement, Supplier<T> action) {
+		return this.transactionTemplate.execute(status -> {
+			Connection connection = DataSourceUtils.getConnection(this.dataSource);
+			SQLiteConnection sqliteConnection = unwrap(connection);
+			try {
+				if (sqliteConnection != null) {
+					ProgressHandler.setHandler(sqliteConnection, PROGRESS_INTERVAL, measurement);
+				}
+				return action.get();
+			}
+			catch (SQLException e) {
+				throw new IllegalStateException(e);
+			}
+			finally {
+				if (sqliteConnection != null) {
+					clearHandler(sqliteConnection);
+				}
+				DataSourceUtils.releaseConnection(connection, this.dataSource);
+			}
+		});
+	}
+
+	private void record(String operation, SearchRequest request, Measurement measurement, long elapsed) {
+		Meters meters = this.meters.computeIfAbsent(new Shape(operation, measurement.plan,
+				request.filterExpression() != null, range(request), tenant(request)), this::meters);
+		meters.timer().record(Duration.ofNanos(elapsed));
+		meters.vmSteps().record(measurement.progress.sum());
+		meters.rows().record(measurement.rows);
+		Duration threshold = this.props.slowQueryThreshold();
+		if (threshold.toNanos() > 0 && elapsed >= threshold.toNanos()) {
+			logger.warn("Slow {} query took {}ms: query={} filter={} from={} to={} plan={} vm_steps={}k rows={}",
+					operation, elapsed / 1_000_000, request.query(), request.filterExpression(), request.from(),
+					request.to(), measurement.plan, measurement.progress.sum(), measurement.rows);
+		}
+	}
+
+	private Meters meters(Shape shape) {
+		Tags tags = Tags.of("operation", shape.operation(), "plan", shape.plan(), "filter",
+				String.valueOf(shape.filter()), "range", shape.range(), "tenant", shape.tenant());
+		return new Meters(
+				Timer.builder("lognroll.query")
+					.description("Time to run a query against the log store")
+					.tags(tags)
+					.register(this.registry),
+				DistributionSummary.builder("lognroll.query.vm_steps")
+					.description("SQLite virtual machine instructions executed by a query, in thousands")
+					.baseUnit("kilo_instructions")
+					.tags(tags)
+					.register(this.registry),
+				DistributionSummary.builder("lognroll.query.rows")
+					.description("Number of rows returned or affected by a query")
+					.baseUnit("rows")
+					.tags(tags)
+					.register(this.registry));
+	}
+
+	/**
+	 * @return the tenant of the request as a tag value. The tenant of a query is not
+	 * checked against {@link am.ik.lognroll.tenant.TenantProps#maxTenants()}, so unknown
+	 * tenants share one tag value to keep the number of time series bounded.
+	 */
+	private String tenant(SearchRequest request) {
+		String tenant = request.tenant();
+		if (tenant == null) {
+			return "*";
+		}
+		return this.tenantQuotas.isKnown(tenant) ? tenant : "other";
+	}
+
+	/**
+	 * @return width of the searched time window as a coarse bucket
+	 */
+	static String range(SearchRequest request) {
+		if (request.from() == null) {
+			return "unbounded";
+		}
+		Instant to = Objects.requireNonNullElseGet(request.to(), Instant::now);
+		Duration width = Duration.between(request.from(), to);
+		if (width.compareTo(Duration.ofHours(1)) <= 0) {
+			return "1h";
+		}
+		if (width.compareTo(Duration.ofDays(1)) <= 0) {
+			return "1d";
+		}
+		if (width.compareTo(Duration.ofDays(7)) <= 0) {
+			return "7d";
+		}
+		return "over_7d";
+	}
+
+	private static SQLiteConnection unwrap(Connection connection) {
+		try {
+			return connection.isWrapperFor(SQLiteConnection.class) ? connection.unwrap(SQLiteConnection.class) : null;
+		}
+		catch (SQLException e) {
+			return null;
+		}
+	}
+
+	private void clearHandler(SQLiteConnection connection) {
+		try {
+			ProgressHandler.clearHandler(connection);
+		}
+		catch (SQLException e) {
+			logger.warn("Failed to clear the progress handler", e);
+		}
+	}
+
+	/**
+	 * Tag values of the meters of a query.
+	 */
+	private record Shape(String operation, String plan, boolean filter, String range, String tenant) {
+	}
+
+	private record Meters(Timer timer, DistributionSummary vmSteps, DistributionSummary rows) {
+	}
+
+	/**
+	 * Cost of a query. The progress handler may be called from several connections at the
+	 * same time when the query is run in parallel.
+	 */
+	static final class Measurement extends ProgressHandler {
+
+		private final boolean interruptible;
+
+		private String plan = "none";
+
+		private final LongAdder progress = new LongAdder();
+
+		private long rows;
+
+		/**
+		 * @param interruptible whether statements are aborted when the thread running
+		 * them is interrupted
+		 */
+		Measurement(boolean interruptible) {
+			this.interruptible = interruptible;
+		}
+
+		/**
+		 * @param plan how the query was planned, e.g. {@code fts_time_first}
+		 */
+		void plan(String plan) {
+			this.plan = plan;
+		}
+
+		void rows(long rows) {
+			this.rows = rows;
+		}
+
+		@Override
+		protected int progress() {
+			this.progress.increment();
+			return this.interruptible && Thread.currentThread().isInterrupted() ? 1 : 0;
+		}
+
+	}
+
+}
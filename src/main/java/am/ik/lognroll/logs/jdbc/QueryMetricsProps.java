@@ -0,0 +1,15 @@
+package am.ik.lognroll.logs.jdbc;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param slowQueryThreshold queries taking at least this long are logged with their
+ * search conditions. {@code 0} disables the log.
+ */
+@ConfigurationProperties(prefix = "lognroll.query.metrics")
+public record QueryMetricsProps(@DefaultValue("1s") Duration slowQueryThreshold) {
+
+}
@@ -0,0 +1,92 @@
+package am.ik.lognroll.logs.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import am.ik.lognroll.util.Json;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the attributes of recently read resources by their digest.
+ * <p>
+ * A page of results usually comes from a handful of resources, so instead of joining
+ * {@code resource_attributes} on every row, queries select the digest and resolve the
+ * attributes here, looking up the missing ones in a single statement. A digest is derived
+ * from the attributes themselves, so an entry never goes stale.
+ */
+@Component
+class ResourceAttributesCache {
+
+	private final JdbcClient jdbcClient;
+
+	private final ObjectMapper objectMapper;
+
+	private final Map<Long, Map<String, Object>> entries;
+
+	private final Counter hitCounter;
+
+	private final Counter missCounter;
+
+	ResourceAttributesCache(JdbcClient jdbcClient, ObjectMapper objectMapper, ResourceAttributesCacheProps props,
+			MeterRegistry registry) {
+		this.jdbcClient = jdbcClient;
+		this.objectMapper = objectMapper;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Map<String, Object>> eldest) {
+				return size() > props.maxEntries();
+			}
+		};
+		this.hitCounter = Counter.builder("logs.resource.cache").tag("result", "hit").register(registry);
+		this.missCounter = Counter.builder("logs.resource.cache").tag("result", "miss").register(registry);
+	}
+
+	/**
+	 * @param digests digests of the resources
+	 * @return attributes by digest. Unknown digests are missing from the result.
+	 */
+	Map<Long, Map<String, Object>> resolve(Collection<Long> digests) {
+		Map<Long, Map<String, Object>> resolved = new HashMap<>();
+		List<Long> misses = new ArrayList<>();
+		synchronized (this.entries) {
+			for (Long digest : digests) {
+				Map<String, Object> attributes = this.entries.get(digest);
+				if (attributes != null) {
+					resolved.put(digest, attributes);
+				}
+				else {
+					misses.add(digest);
+				}
+			}
+		}
+		this.hitCounter.increment(resolved.size());
+		if (misses.isEmpty()) {
+			return resolved;
+		}
+		this.missCounter.increment(misses.size());
+		Map<Long, Map<String, Object>> loaded = new HashMap<>();
+		for (List<Long> chunk : JdbcLogQuery.splitList(misses, 1000)) {
+			this.jdbcClient
+				.sql("SELECT digest, resource_attributes FROM resource_attributes WHERE digest IN (:digests)")
+				.param("digests", chunk)
+				.query(rs -> {
+					loaded.put(rs.getLong("digest"), Json.raw(this.objectMapper, rs.getString("resource_attributes")));
+				});
+		}
+		synchronized (this.entries) {
+			this.entries.putAll(loaded);
+		}
+		resolved.putAll(loaded);
+		return resolved;
+	}
+
+}
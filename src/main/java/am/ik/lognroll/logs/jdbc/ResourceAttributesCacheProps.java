@@ -0,0 +1,13 @@
+package am.ik.lognroll.logs.jdbc;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param maxEntries maximum number of resources whose attributes are kept in memory.
+ * {@code 0} looks up the attributes of every result again.
+ */
+@ConfigurationProperties(prefix = "lognroll.resource-attributes-cache")
+public record ResourceAttributesCacheProps(@DefaultValue("1024") int maxEntries) {
+
+}
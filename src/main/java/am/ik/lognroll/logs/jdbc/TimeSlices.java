@@ -0,0 +1,143 @@
+package am.ik.lognroll.logs.jdbc;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import am.ik.lognroll.logs.LogQuery.SearchRequest;
+import am.ik.lognroll.logs.SearchRequestBuilder;
+import jakarta.annotation.Nullable;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Splits queries over a wide time window into consecutive slices that run concurrently on
+ * separate connections, since SQLite runs each statement on a single core.
+ */
+@Component
+class TimeSlices implements DisposableBean {
+
+	private final JdbcClient jdbcClient;
+
+	private final ParallelQueryProps props;
+
+	private final QueryMetrics queryMetrics;
+
+	private final ThreadPoolExecutor executor;
+
+	TimeSlices(JdbcClient jdbcClient, ParallelQueryProps props, QueryMetrics queryMetrics) {
+		this.jdbcClient = jdbcClient;
+		this.props = props;
+		this.queryMetrics = queryMetrics;
+		// a slice that finds no idle thread runs on the requesting thread
+		this.executor = new ThreadPoolExecutor(props.threads(), props.threads(), 60, TimeUnit.SECONDS,
+				new SynchronousQueue<>(), new CustomizableThreadFactory("query-slice-"),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * @return slices in chronological order covering the time window of the request, or
+	 * the request itself if the window is too narrow to split
+	 */
+	List<SearchRequest> split(SearchRequest request) {
+		if (this.props.slices() <= 1) {
+			return List.of(request);
+		}
+		Instant from = request.from() != null ? request.from() : oldest();
+		if (from == null) {
+			return List.of(request);
+		}
+		Instant to = Objects.requireNonNullElseGet(request.to(), Instant::now);
+		long widthMillis = to.toEpochMilli() - from.toEpochMilli();
+		int count = (int) Math.min(this.props.slices(), widthMillis / this.props.minSliceWidth().toMillis());
+		if (count < 2) {
+			return List.of(request);
+		}
+		long sliceMillis = (widthMillis + count - 1) / count;
+		List<SearchRequest> slices = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			// observed_timestamp is stored in milliseconds and both bounds are inclusive
+			Instant sliceFrom = i == 0 ? request.from() : from.plusMillis(i * sliceMillis);
+			Instant sliceTo = i == count - 1 ? request.to() : from.plusMillis((i + 1) * sliceMillis - 1);
+			slices.add(SearchRequestBuilder.searchRequest()
+				.query(request.query())
+				.filterExpression(request.filterExpression())
+				.pageRequest(request.pageRequest())
+				.from(sliceFrom)
+				.to(sliceTo)
+				.tenant(request.tenant())
+				.build());
+		}
+		return slices;
+	}
+
+	/**
+	 * Runs the task for each slice concurrently, the first one on the calling thread.
+	 * @param measurement measurement of the query the slices belong to
+	 * @return results in the order of the slices
+	 */
+	<T> List<T> map(List<SearchRequest> slices, QueryMetrics.Measurement measurement, Function<SearchRequest, T> task) {
+		if (slices.size() == 1) {
+			return List.of(task.apply(slices.getFirst()));
+		}
+		List<Future<T>> futures = new ArrayList<>(slices.size() - 1);
+		Thread caller = Thread.currentThread();
+		try {
+			for (SearchRequest slice : slices.subList(1, slices.size())) {
+				// the caller runs the task itself if no thread is idle
+				futures.add(this.executor.submit(() -> Thread.currentThread() == caller ? task.apply(slice)
+						: this.queryMetrics.fork(measurement, () -> task.apply(slice))));
+			}
+			List<T> results = new ArrayList<>(slices.size());
+			results.add(task.apply(slices.getFirst()));
+			for (Future<T> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+		finally {
+			// interrupts slices still running, e.g. when the query timed out
+			futures.forEach(future -> future.cancel(true));
+		}
+	}
+
+	/**
+	 * @return observed timestamp of the oldest log, or {@code null} if there are none
+	 */
+	@Nullable
+	Instant oldest() {
+		return this.jdbcClient.sql("SELECT MIN(observed_timestamp) FROM log")
+			.query(Timestamp.class)
+			.optional()
+			.map(Timestamp::toInstant)
+			.orElse(null);
+	}
+
+	@Override
+	public void destroy() {
+		this.executor.shutdownNow();
+	}
+
+}
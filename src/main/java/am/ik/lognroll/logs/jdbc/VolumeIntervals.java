@@ -0,0 +1,39 @@
+package am.ik.lognroll.logs.jdbc;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Chooses bucket sizes for log volume histograms.
+ */
+final class VolumeIntervals {
+
+	/**
+	 * Bucket sizes that give readable axis labels, in ascending order.
+	 */
+	static final List<Duration> STEPS = List.of(Duration.ofSeconds(1), Duration.ofSeconds(2), Duration.ofSeconds(5),
+			Duration.ofSeconds(10), Duration.ofSeconds(15), Duration.ofSeconds(30), Duration.ofMinutes(1),
+			Duration.ofMinutes(2), Duration.ofMinutes(5), Duration.ofMinutes(10), Duration.ofMinutes(15),
+			Duration.ofMinutes(30), Duration.ofHours(1), Duration.ofHours(2), Duration.ofHours(3), Duration.ofHours(6),
+			Duration.ofHours(12), Duration.ofDays(1), Duration.ofDays(2), Duration.ofDays(7));
+
+	private VolumeIntervals() {
+	}
+
+	/**
+	 * @return the smallest step that splits the span into at most {@code targetBuckets}
+	 * buckets, or whole days beyond the largest step
+	 */
+	static Duration choose(Duration span, int targetBuckets) {
+		long spanMillis = Math.max(span.toMillis(), 1);
+		for (Duration step : STEPS) {
+			if (spanMillis / step.toMillis() <= targetBuckets) {
+				return step;
+			}
+		}
+		long dayMillis = Duration.ofDays(1).toMillis();
+		long days = (spanMillis / targetBuckets + dayMillis - 1) / dayMillis;
+		return Duration.ofDays(days);
+	}
+
+}
@@ -0,0 +1,14 @@
+package am.ik.lognroll.logs.jdbc;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param targetBuckets number of buckets aimed at when the interval is chosen
+ * automatically
+ * @param maxBuckets maximum number of buckets a requested interval may produce
+ */
+@ConfigurationProperties(prefix = "lognroll.volumes")
+public record VolumeProps(@DefaultValue("120") int targetBuckets, @DefaultValue("5000") int maxBuckets) {
+
+}
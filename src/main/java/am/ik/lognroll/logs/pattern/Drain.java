@@ -0,0 +1,243 @@
+package am.ik.lognroll.logs.pattern;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Online template extraction with the fixed depth parse tree of
+ * <a href="https://jiemingzhu.github.io/pub/pjhe_icws2017.pdf">Drain</a>.
+ * <p>
+ * A body is split into tokens at whitespace. Bodies of each tenant are grouped by their
+ * number of tokens and then by their first tokens, where tokens containing digits are
+ * treated as a wildcard. Within a group, a body is assigned to the most similar template
+ * if enough tokens are equal, and the tokens that differ become {@value #WILDCARD} in the
+ * template. Otherwise the body starts a new template.
+ * <p>
+ * Instances are thread-safe. Templates are only changed under the lock of the instance.
+ */
+public final class Drain {
+
+	public static final String WILDCARD = "<*>";
+
+	private final PatternProps props;
+
+	private final Map<String, Map<Integer, Node>> roots = new HashMap<>();
+
+	private final Map<Long, Template> templates = new HashMap<>();
+
+	private long nextId = 1;
+
+	private int templateCount;
+
+	public Drain(PatternProps props) {
+		this.props = props;
+	}
+
+	/**
+	 * Assigns a body to a template, creating or generalising the template as needed.
+	 * @return the template and whether it was created or changed, or {@code null} if the
+	 * body is empty, too long or no template can be created anymore
+	 */
+	@Nullable
+	public synchronized Match add(String tenant, @Nullable String body) {
+		String[] tokens = tokenize(body, this.props.maxTokens());
+		if (tokens == null) {
+			return null;
+		}
+		Node leaf = leaf(tenant, tokens);
+		Template best = null;
+		double bestSimilarity = -1;
+		int bestWildcards = -1;
+		for (Template template : leaf.templates) {
+			int equal = 0;
+			int wildcards = 0;
+			for (int i = 0; i < tokens.length; i++) {
+				String token = template.tokens[i];
+				if (token.equals(WILDCARD)) {
+					wildcards++;
+				}
+				else if (token.equals(tokens[i])) {
+					equal++;
+				}
+			}
+			double similarity = (double) equal / tokens.length;
+			if (similarity > bestSimilarity || (similarity == bestSimilarity && wildcards > bestWildcards)) {
+				best = template;
+				bestSimilarity = similarity;
+				bestWildcards = wildcards;
+			}
+		}
+		if (best != null && bestSimilarity >= this.props.similarityThreshold()) {
+			boolean changed = false;
+			for (int i = 0; i < tokens.length; i++) {
+				if (!best.tokens[i].equals(WILDCARD) && !best.tokens[i].equals(tokens[i])) {
+					best.tokens[i] = WILDCARD;
+					changed = true;
+				}
+			}
+			if (changed) {
+				best.text = String.join(" ", best.tokens);
+			}
+			best.lastAssigned = System.currentTimeMillis();
+			return new Match(best.id, best.text, changed);
+		}
+		if (this.templateCount >= this.props.maxTemplates()) {
+			return null;
+		}
+		Template template = new Template(this.nextId++, tokens, leaf);
+		template.lastAssigned = System.currentTimeMillis();
+		leaf.templates.add(template);
+		this.templates.put(template.id, template);
+		this.templateCount++;
+		return new Match(template.id, template.text, true);
+	}
+
+	/**
+	 * Adds a template that was extracted before, e.g. when loading templates on startup.
+	 */
+	public synchronized void restore(long id, String tenant, String template) {
+		String[] tokens = tokenize(template, Integer.MAX_VALUE);
+		if (tokens == null) {
+			return;
+		}
+		Node leaf = leaf(tenant, tokens);
+		Template restored = new Template(id, tokens, leaf);
+		leaf.templates.add(restored);
+		this.templates.put(id, restored);
+		this.templateCount++;
+		this.nextId = Math.max(this.nextId, id + 1);
+	}
+
+	/**
+	 * @return the current text of the template, or {@code null} if there is no template
+	 * with the id
+	 */
+	@Nullable
+	public synchronized String template(long id) {
+		Template template = this.templates.get(id);
+		return template != null ? template.text : null;
+	}
+
+	/**
+	 * Removes a template unless a body was assigned to it since the given time, so that a
+	 * template that is about to be stored with a log is never removed.
+	 * @param unassignedSince epoch milliseconds
+	 * @return whether the template was removed
+	 */
+	public synchronized boolean remove(long id, long unassignedSince) {
+		Template template = this.templates.get(id);
+		if (template == null || template.lastAssigned >= unassignedSince) {
+			return false;
+		}
+		this.templates.remove(id);
+		template.leaf.templates.remove(template);
+		this.templateCount--;
+		return true;
+	}
+
+	public synchronized int templateCount() {
+		return this.templateCount;
+	}
+
+	private Node leaf(String tenant, String[] tokens) {
+		Node node = this.roots.computeIfAbsent(tenant, t -> new HashMap<>())
+			.computeIfAbsent(tokens.length, length -> new Node());
+		int levels = Math.min(this.props.depth() - 2, tokens.length);
+		for (int i = 0; i < levels; i++) {
+			String key = hasDigit(tokens[i]) ? WILDCARD : tokens[i];
+			Node child = node.children.get(key);
+			if (child == null) {
+				if (!key.equals(WILDCARD) && node.children.size() >= this.props.maxChildren()) {
+					key = WILDCARD;
+					child = node.children.get(key);
+				}
+				if (child == null) {
+					child = new Node();
+					node.children.put(key, child);
+				}
+			}
+			node = child;
+		}
+		return node;
+	}
+
+	/**
+	 * @return tokens separated by whitespace, or {@code null} if there are none or more
+	 * than {@code maxTokens}
+	 */
+	@Nullable
+	static String[] tokenize(@Nullable String body, int maxTokens) {
+		if (body == null) {
+			return null;
+		}
+		List<String> tokens = new ArrayList<>();
+		int start = -1;
+		for (int i = 0; i <= body.length(); i++) {
+			boolean whitespace = i == body.length() || Character.isWhitespace(body.charAt(i));
+			if (whitespace && start >= 0) {
+				if (tokens.size() == maxTokens) {
+					return null;
+				}
+				tokens.add(body.substring(start, i));
+				start = -1;
+			}
+			else if (!whitespace && start < 0) {
+				start = i;
+			}
+		}
+		return tokens.isEmpty() ? null : tokens.toArray(String[]::new);
+	}
+
+	private static boolean hasDigit(String token) {
+		for (int i = 0; i < token.length(); i++) {
+			if (Character.isDigit(token.charAt(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param changed whether the template was created or generalised by the body
+	 */
+	public record Match(long templateId, String template, boolean changed) {
+	}
+
+	private static final class Node {
+
+		final Map<String, Node> children = new HashMap<>();
+
+		final List<Template> templates = new ArrayList<>();
+
+	}
+
+	private static final class Template {
+
+		final long id;
+
+		final String[] tokens;
+
+		final Node leaf;
+
+		String text;
+
+		/**
+		 * Epoch milliseconds when a body was last assigned, {@code 0} if none was since
+		 * the template was restored
+		 */
+		long lastAssigned;
+
+		Template(long id, String[] tokens, Node leaf) {
+			this.id = id;
+			this.tokens = tokens;
+			this.leaf = leaf;
+			this.text = String.join(" ", tokens);
+		}
+
+	}
+
+}
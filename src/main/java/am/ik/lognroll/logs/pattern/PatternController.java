@@ -0,0 +1,45 @@
+package am.ik.lognroll.logs.pattern;
+
+import java.time.Instant;
+import java.util.List;
+
+import am.ik.lognroll.tenant.TenantResolver;
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+public class PatternController {
+
+	private final PatternQuery patternQuery;
+
+	private final PatternProps props;
+
+	private final TenantResolver tenantResolver;
+
+	public PatternController(PatternQuery patternQuery, PatternProps props, TenantResolver tenantResolver) {
+		this.patternQuery = patternQuery;
+		this.props = props;
+		this.tenantResolver = tenantResolver;
+	}
+
+	@GetMapping(path = "/api/patterns")
+	public PatternsResponse showPatterns(@RequestParam(required = false) Instant from,
+			@RequestParam(required = false) Instant to, @RequestParam(defaultValue = "20") int size,
+			HttpServletRequest request) {
+		if (size < 1 || size > 1000) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'size' must be between 1 and 1000");
+		}
+		return new PatternsResponse(
+				this.patternQuery.findTopPatterns(this.tenantResolver.queryTenant(request), from, to, size),
+				this.props.interval().toMillis());
+	}
+
+	public record PatternsResponse(List<PatternQuery.Pattern> patterns, long intervalMillis) {
+	}
+
+}
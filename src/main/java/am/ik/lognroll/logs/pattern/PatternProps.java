@@ -0,0 +1,28 @@
+package am.ik.lognroll.logs.pattern;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param enabled whether templates are extracted at ingest
+ * @param depth depth of the parse tree. The first {@code depth - 2} tokens of a body
+ * select the group of templates it is compared with.
+ * @param similarityThreshold fraction of tokens a body must share with a template to be
+ * assigned to it
+ * @param maxChildren maximum number of distinct tokens per node of the parse tree.
+ * Further tokens share a wildcard node.
+ * @param maxTokens bodies with more tokens are not assigned a template
+ * @param maxTemplates maximum number of templates held in memory. Bodies matching none
+ * once the limit is reached are not assigned a template.
+ * @param interval width of the time buckets of observed timestamps template counts are
+ * kept in
+ */
+@ConfigurationProperties(prefix = "lognroll.patterns")
+public record PatternProps(@DefaultValue("true") boolean enabled, @DefaultValue("4") int depth,
+		@DefaultValue("0.4") double similarityThreshold, @DefaultValue("100") int maxChildren,
+		@DefaultValue("128") int maxTokens, @DefaultValue("10000") int maxTemplates,
+		@DefaultValue("5m") Duration interval) {
+
+}
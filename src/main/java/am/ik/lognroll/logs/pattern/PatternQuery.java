@@ -0,0 +1,30 @@
+package am.ik.lognroll.logs.pattern;
+
+import java.time.Instant;
+import java.util.List;
+
+import jakarta.annotation.Nullable;
+
+public interface PatternQuery {
+
+	/**
+	 * Counts ingested logs per template from the aggregate maintained at ingest. Logs are
+	 * counted by their observed timestamp, and the range is widened to whole
+	 * {@link PatternProps#interval()} buckets, and logs deleted after ingest are still
+	 * counted.
+	 * @param tenant tenant whose logs are counted, or {@code null} for all tenants
+	 * @return templates ordered by the number of logs, most frequent first
+	 */
+	List<Pattern> findTopPatterns(@Nullable String tenant, @Nullable Instant from, @Nullable Instant to, int size);
+
+	/**
+	 * Deletes the counts of the tenant in buckets that end before the given time, and the
+	 * templates of the tenant that neither a count nor a log refers to anymore.
+	 * @return number of deleted templates
+	 */
+	int expire(String tenant, Instant before);
+
+	record Pattern(long templateId, String template, long count) {
+	}
+
+}
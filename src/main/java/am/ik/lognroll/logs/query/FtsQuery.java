@@ -0,0 +1,30 @@
+package am.ik.lognroll.logs.query;
+
+import java.util.Map;
+
+/**
+ * A full-text query converted for the FTS5 tables that are available.
+ */
+public sealed interface FtsQuery {
+
+	/**
+	 * Every term is searched in the same table, so the whole query is a single
+	 * {@code MATCH} expression against {@link FtsTokenizer#tableName()}.
+	 *
+	 * @param tokenizer the tokenizer whose table is searched
+	 * @param expression the FTS5 query string
+	 */
+	record Match(FtsTokenizer tokenizer, String expression) implements FtsQuery {
+	}
+
+	/**
+	 * Terms are searched in different tables. The query is a SQL predicate on
+	 * {@code log.log_id} made of one {@code MATCH} subquery per term.
+	 *
+	 * @param expression the SQL predicate
+	 * @param params the FTS5 query string bound to each subquery
+	 */
+	record Predicate(String expression, Map<String, String> params) implements FtsQuery {
+	}
+
+}
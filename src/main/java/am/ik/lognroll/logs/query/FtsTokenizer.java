@@ -0,0 +1,48 @@
+package am.ik.lognroll.logs.query;
+
+import java.util.Set;
+
+/**
+ * Tokenizers that a full-text index over {@code log.body} can be built with. Each
+ * tokenizer has its own FTS5 table so that several can be maintained side by side.
+ */
+public enum FtsTokenizer {
+
+	/**
+	 * Substring search. Terms shorter than three characters cannot be matched.
+	 */
+	TRIGRAM("log_fts"),
+
+	/**
+	 * Word search with a much smaller index. Terms match whole tokens, or token prefixes
+	 * with a trailing {@code *}.
+	 */
+	UNICODE61("log_fts_word");
+
+	private final String tableName;
+
+	FtsTokenizer(String tableName) {
+		this.tableName = tableName;
+	}
+
+	public String tableName() {
+		return this.tableName;
+	}
+
+	/**
+	 * Chooses the tokenizer to search the given term with. When both are available,
+	 * trigram is preferred to keep substring semantics, except for terms it cannot match.
+	 * @param term term without wildcards
+	 * @param available tokenizers whose index is ready, must not be empty
+	 */
+	static FtsTokenizer select(String term, Set<FtsTokenizer> available) {
+		if (available.size() == 1) {
+			return available.iterator().next();
+		}
+		if (available.contains(UNICODE61) && term.codePointCount(0, term.length()) < 3) {
+			return UNICODE61;
+		}
+		return available.contains(TRIGRAM) ? TRIGRAM : UNICODE61;
+	}
+
+}
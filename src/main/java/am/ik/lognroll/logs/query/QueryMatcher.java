@@ -0,0 +1,129 @@
+package am.ik.lognroll.logs.query;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+import am.ik.query.Query;
+import am.ik.query.ast.AndNode;
+import am.ik.query.ast.FieldNode;
+import am.ik.query.ast.FuzzyNode;
+import am.ik.query.ast.Node;
+import am.ik.query.ast.NodeVisitor;
+import am.ik.query.ast.NotNode;
+import am.ik.query.ast.OrNode;
+import am.ik.query.ast.PhraseNode;
+import am.ik.query.ast.RangeNode;
+import am.ik.query.ast.RootNode;
+import am.ik.query.ast.TokenNode;
+import am.ik.query.ast.WildcardNode;
+import am.ik.query.parser.QueryParser;
+
+/**
+ * In-memory counterpart of {@link Sqlite3QueryConverter}. Each term matches the body as a
+ * case-insensitive substring, which is how the trigram tokenizer of {@code log_fts}
+ * behaves.
+ */
+public class QueryMatcher implements NodeVisitor<Predicate<String>> {
+
+	private static final QueryParser PARSER = QueryParser.create();
+
+	private static final Predicate<String> ANY = body -> true;
+
+	public static Predicate<String> compile(String query) {
+		Query parsed = PARSER.parse(query);
+		if (parsed.isEmpty()) {
+			return ANY;
+		}
+		return parsed.accept(new QueryMatcher());
+	}
+
+	@Override
+	public Predicate<String> visitRoot(RootNode node) {
+		return allOf(node.children());
+	}
+
+	@Override
+	public Predicate<String> visitAnd(AndNode node) {
+		return allOf(node.children());
+	}
+
+	@Override
+	public Predicate<String> visitOr(OrNode node) {
+		List<Predicate<String>> predicates = node.children().stream().map(child -> child.accept(this)).toList();
+		return body -> {
+			for (Predicate<String> predicate : predicates) {
+				if (predicate.test(body)) {
+					return true;
+				}
+			}
+			return false;
+		};
+	}
+
+	@Override
+	public Predicate<String> visitNot(NotNode node) {
+		return node.child().accept(this).negate();
+	}
+
+	@Override
+	public Predicate<String> visitToken(TokenNode node) {
+		return containsIgnoreCase(node.value());
+	}
+
+	@Override
+	public Predicate<String> visitPhrase(PhraseNode node) {
+		return containsIgnoreCase(node.phrase());
+	}
+
+	@Override
+	public Predicate<String> visitWildcard(WildcardNode node) {
+		return containsIgnoreCase(node.value());
+	}
+
+	@Override
+	public Predicate<String> visitFuzzy(FuzzyNode node) {
+		return containsIgnoreCase(node.value());
+	}
+
+	@Override
+	public Predicate<String> visitField(FieldNode node) {
+		// body is the only column of log_fts
+		if ("body".equals(node.field())) {
+			return containsIgnoreCase(node.value());
+		}
+		return body -> false;
+	}
+
+	@Override
+	public Predicate<String> visitRange(RangeNode node) {
+		return ANY;
+	}
+
+	private Predicate<String> allOf(List<Node> children) {
+		List<Predicate<String>> predicates = children.stream().map(child -> child.accept(this)).toList();
+		return body -> {
+			for (Predicate<String> predicate : predicates) {
+				if (!predicate.test(body)) {
+					return false;
+				}
+			}
+			return true;
+		};
+	}
+
+	private static Predicate<String> containsIgnoreCase(String term) {
+		return body -> {
+			if (body == null) {
+				return false;
+			}
+			int max = body.length() - term.length();
+			for (int i = 0; i <= max; i++) {
+				if (body.regionMatches(true, i, term, 0, term.length())) {
+					return true;
+				}
+			}
+			return false;
+		};
+	}
+
+}
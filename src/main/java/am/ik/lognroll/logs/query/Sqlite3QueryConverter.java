@@ -1,5 +1,9 @@
 package am.ik.lognroll.logs.query;
 
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import am.ik.query.Query;
@@ -16,11 +20,32 @@ import am.ik.query.ast.RootNode;
 import am.ik.query.ast.TokenNode;
 import am.ik.query.ast.WildcardNode;
 import am.ik.query.parser.QueryParser;
+import jakarta.annotation.Nullable;
 
 public class Sqlite3QueryConverter implements NodeVisitor<String> {
 
 	private static final QueryParser PARSER = QueryParser.create();
 
+	private final Set<FtsTokenizer> available;
+
+	private final Set<FtsTokenizer> used = EnumSet.noneOf(FtsTokenizer.class);
+
+	@Nullable
+	private final Map<String, String> params;
+
+	private final boolean rowidRange;
+
+	public Sqlite3QueryConverter() {
+		this(EnumSet.of(FtsTokenizer.TRIGRAM), null, false);
+	}
+
+	private Sqlite3QueryConverter(Set<FtsTokenizer> available, @Nullable Map<String, String> params,
+			boolean rowidRange) {
+		this.available = available;
+		this.params = params;
+		this.rowidRange = rowidRange;
+	}
+
 	public static String convertQuery(String query) {
 		Query parsed = PARSER.parse(query);
 		if (parsed.isEmpty()) {
@@ -29,6 +54,45 @@ public class Sqlite3QueryConverter implements NodeVisitor<String> {
 		return parsed.accept(new Sqlite3QueryConverter());
 	}
 
+	/**
+	 * Converts the query for the given full-text tables. Each term is searched with the
+	 * tokenizer that suits it best. If that ends up being a single table, the result is
+	 * one {@code MATCH} expression, otherwise a SQL predicate with a subquery per term.
+	 * @param query the query to convert
+	 * @param available tokenizers whose index is ready, must not be empty
+	 * @param rowidRange whether per-term subqueries are restricted to {@code :min_log_id}
+	 * and {@code :max_log_id}
+	 */
+	public static FtsQuery convertQuery(String query, Set<FtsTokenizer> available, boolean rowidRange) {
+		Query parsed = PARSER.parse(query);
+		Sqlite3QueryConverter matchConverter = new Sqlite3QueryConverter(available, null, false);
+		String match = parsed.isEmpty() ? "" : parsed.accept(matchConverter);
+		if (matchConverter.used.size() > 1) {
+			Map<String, String> params = new LinkedHashMap<>();
+			String predicate = parsed.accept(new Sqlite3QueryConverter(available, params, rowidRange));
+			return new FtsQuery.Predicate(predicate, params);
+		}
+		FtsTokenizer tokenizer = matchConverter.used.isEmpty()
+				? (available.contains(FtsTokenizer.TRIGRAM) ? FtsTokenizer.TRIGRAM : FtsTokenizer.UNICODE61)
+				: matchConverter.used.iterator().next();
+		return new FtsQuery.Match(tokenizer, match);
+	}
+
+	private String term(@Nullable String field, String value, boolean prefix) {
+		FtsTokenizer tokenizer = FtsTokenizer.select(value, this.available);
+		this.used.add(tokenizer);
+		String match = (field == null ? "" : field + ":") + "\"" + value + "\""
+				+ (prefix && tokenizer == FtsTokenizer.UNICODE61 ? "*" : "");
+		if (this.params == null) {
+			return match;
+		}
+		String name = "fts_query_" + this.params.size();
+		this.params.put(name, match);
+		String table = tokenizer.tableName();
+		return "log.log_id IN (SELECT rowid FROM %s WHERE %s MATCH :%s%s)".formatted(table, table, name,
+				this.rowidRange ? " AND rowid BETWEEN :min_log_id AND :max_log_id" : "");
+	}
+
 	@Override
 	public String visitRoot(RootNode node) {
 		return node.children()
@@ -61,7 +125,7 @@ public class Sqlite3QueryConverter implements NodeVisitor<String> {
 	public String visitNot(NotNode node) {
 		Node child = node.child();
 		if (child instanceof TokenNode tokenNode) {
-			return "NOT \"" + tokenNode.value() + "\"";
+			return "NOT " + visitToken(tokenNode);
 		}
 		String childResult = child.accept(this);
 		return childResult.isEmpty() ? "" : "NOT (" + childResult + ")";
@@ -69,27 +133,33 @@ public class Sqlite3QueryConverter implements NodeVisitor<String> {
 
 	@Override
 	public String visitToken(TokenNode node) {
-		return "\"" + node.value() + "\"";
+		return term(null, node.value(), false);
 	}
 
 	@Override
 	public String visitPhrase(PhraseNode node) {
-		return "\"" + node.phrase() + "\"";
+		return term(null, node.phrase(), false);
 	}
 
 	@Override
 	public String visitWildcard(WildcardNode node) {
-		return "\"" + node.value() + "\"";
+		String value = node.value();
+		// unicode61 supports prefix queries only; other wildcards are searched literally
+		if (value.length() > 1 && value.indexOf('*') == value.length() - 1 && value.indexOf('?') < 0 && FtsTokenizer
+			.select(value.substring(0, value.length() - 1), this.available) == FtsTokenizer.UNICODE61) {
+			return term(null, value.substring(0, value.length() - 1), true);
+		}
+		return term(null, value, false);
 	}
 
 	@Override
 	public String visitFuzzy(FuzzyNode node) {
-		return "\"" + node.value() + "\"";
+		return term(null, node.value(), false);
 	}
 
 	@Override
 	public String visitField(FieldNode node) {
-		return node.field() + ":\"" + node.value() + "\"";
+		return term(node.field(), node.value(), false);
 	}
 
 	@Override
@@ -0,0 +1,66 @@
+package am.ik.lognroll.logs.sampling;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free table of the current window per fingerprint. Each fingerprint maps
+ * to one slot; a fingerprint hashing to an occupied slot replaces the window there, so
+ * memory stays fixed no matter how many distinct logs are ingested.
+ */
+final class FingerprintCache {
+
+	private final AtomicReferenceArray<Window> slots;
+
+	private final int mask;
+
+	FingerprintCache(int size) {
+		int capacity = Integer.highestOneBit(Math.max(2, size) - 1) << 1;
+		this.slots = new AtomicReferenceArray<>(capacity);
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * @param limit number of logs stored per window, to carry over the number of logs
+	 * dropped in the previous window
+	 * @return the window of the fingerprint that is open at {@code now}. A new window is
+	 * opened if there is none.
+	 */
+	Window window(long fingerprint, long now, long windowNanos, long limit) {
+		int index = (int) (fingerprint ^ (fingerprint >>> 32)) & this.mask;
+		while (true) {
+			Window current = this.slots.get(index);
+			if (current != null && current.fingerprint == fingerprint && now - current.start < windowNanos) {
+				return current;
+			}
+			long dropped = current != null && current.fingerprint == fingerprint
+					? Math.max(0, current.count.get() - limit) : 0;
+			Window next = new Window(fingerprint, now, dropped);
+			if (this.slots.compareAndSet(index, current, next)) {
+				return next;
+			}
+		}
+	}
+
+	static final class Window {
+
+		final long fingerprint;
+
+		final long start;
+
+		/**
+		 * number of logs dropped in the previous window of the same fingerprint
+		 */
+		final long previouslyDropped;
+
+		final AtomicLong count = new AtomicLong();
+
+		Window(long fingerprint, long start, long previouslyDropped) {
+			this.fingerprint = fingerprint;
+			this.start = start;
+			this.previouslyDropped = previouslyDropped;
+		}
+
+	}
+
+}
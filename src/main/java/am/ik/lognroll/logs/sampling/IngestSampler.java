@@ -0,0 +1,203 @@
+package am.ik.lognroll.logs.sampling;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import am.ik.lognroll.logs.Log;
+import am.ik.lognroll.logs.LogMatcher;
+import am.ik.lognroll.logs.filter.FilterExpressionTextParser;
+import am.ik.lognroll.logs.sampling.FingerprintCache.Window;
+import am.ik.lognroll.logs.sampling.SamplingProps.Action;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Drops repetitive logs between conversion and storage according to
+ * {@link SamplingProps#rules()}. Counters are atomic and windows live in a bounded
+ * {@link FingerprintCache}, so concurrent ingest requests never wait for each other here.
+ */
+@Component
+public class IngestSampler {
+
+	/**
+	 * Attribute carrying the number of identical logs dropped by {@link Action#DEDUP}
+	 * before the log
+	 */
+	public static final String REPEATED_ATTRIBUTE = "lognroll.repeated";
+
+	private final List<CompiledRule> rules;
+
+	private final FingerprintCache fingerprints;
+
+	public IngestSampler(SamplingProps props, MeterRegistry registry) {
+		FilterExpressionTextParser parser = new FilterExpressionTextParser();
+		List<CompiledRule> rules = new ArrayList<>();
+		for (int i = 0; i < props.rules().size(); i++) {
+			SamplingProps.Rule rule = props.rules().get(i);
+			String name = Objects.requireNonNullElse(rule.name(), "rule-" + i);
+			if (!StringUtils.hasText(rule.filter())) {
+				throw new IllegalStateException("'lognroll.ingest.sampling.rules[%d].filter' must be set".formatted(i));
+			}
+			if (rule.percent() < 0 || rule.percent() > 100) {
+				throw new IllegalStateException(
+						"'lognroll.ingest.sampling.rules[%d].percent' must be between 0 and 100".formatted(i));
+			}
+			LogMatcher matcher;
+			try {
+				matcher = LogMatcher.of(null, parser.parse(rule.filter()));
+			}
+			catch (FilterExpressionTextParser.FilterExpressionParseException e) {
+				throw new IllegalStateException(
+						"'lognroll.ingest.sampling.rules[%d].filter' is invalid: %s".formatted(i, e.getMessage()), e);
+			}
+			Counter dropped = Counter.builder("lognroll.ingest.sampled")
+				.description("Number of ingested logs dropped by a sampling rule")
+				.tag("rule", name)
+				.tag("action", rule.action().name().toLowerCase(Locale.ROOT))
+				.register(registry);
+			rules.add(new CompiledRule(i, rule, matcher, dropped));
+		}
+		this.rules = List.copyOf(rules);
+		this.fingerprints = new FingerprintCache(props.fingerprintCacheSize());
+	}
+
+	/**
+	 * @return the logs to store, the given list itself if no log is dropped or changed
+	 */
+	public List<Log> apply(String tenant, List<Log> logs) {
+		if (this.rules.isEmpty()) {
+			return logs;
+		}
+		long now = System.nanoTime();
+		List<Log> kept = null;
+		for (int i = 0; i < logs.size(); i++) {
+			Log log = logs.get(i);
+			Log result = apply(tenant, log, now);
+			if (result != log && kept == null) {
+				kept = new ArrayList<>(logs.subList(0, i));
+			}
+			if (kept != null && result != null) {
+				kept.add(result);
+			}
+		}
+		return kept == null ? logs : kept;
+	}
+
+	/**
+	 * @return the log to store, or {@code null} if it is dropped
+	 */
+	@Nullable
+	Log apply(String tenant, Log log, long now) {
+		for (CompiledRule rule : this.rules) {
+			if (rule.matcher.test(log)) {
+				Log result = rule.apply(tenant, log, now);
+				if (result == null) {
+					rule.dropped.increment();
+				}
+				return result;
+			}
+		}
+		return log;
+	}
+
+	/**
+	 * @return a 64-bit FNV-1a hash of what makes logs identical for a rule
+	 */
+	static long fingerprint(int rule, String tenant, Log log) {
+		long hash = 0xcbf29ce484222325L ^ rule;
+		hash = hash(hash, tenant);
+		hash = hash(hash, log.serviceName());
+		hash = hash(hash, log.severityText());
+		return hash(hash, log.body());
+	}
+
+	private static long hash(long hash, @Nullable String value) {
+		if (value != null) {
+			for (int i = 0; i < value.length(); i++) {
+				hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+			}
+		}
+		// separates the fields, so that moving characters between them changes the hash
+		return (hash ^ 0x1f) * 0x100000001b3L;
+	}
+
+	private final class CompiledRule {
+
+		private final int index;
+
+		private final SamplingProps.Rule rule;
+
+		private final LogMatcher matcher;
+
+		private final Counter dropped;
+
+		private final AtomicLong seen = new AtomicLong();
+
+		private final double ratio;
+
+		private final long windowNanos;
+
+		CompiledRule(int index, SamplingProps.Rule rule, LogMatcher matcher, Counter dropped) {
+			this.index = index;
+			this.rule = rule;
+			this.matcher = matcher;
+			this.dropped = dropped;
+			this.ratio = rule.percent() / 100;
+			this.windowNanos = rule.window().toNanos();
+		}
+
+		@Nullable
+		Log apply(String tenant, Log log, long now) {
+			return switch (this.rule.action()) {
+				case SAMPLE -> sample(log);
+				case RATE_LIMIT -> limit(tenant, log, now, this.rule.limit()) != null ? log : null;
+				case DEDUP -> {
+					Window window = limit(tenant, log, now, 1);
+					if (window == null) {
+						yield null;
+					}
+					yield window.previouslyDropped > 0 ? withRepeated(log, window.previouslyDropped) : log;
+				}
+			};
+		}
+
+		/**
+		 * Keeps the n-th log when the running total of kept logs at the ratio crosses an
+		 * integer, which spreads the kept logs evenly without a random number generator.
+		 */
+		@Nullable
+		private Log sample(Log log) {
+			long n = this.seen.getAndIncrement();
+			return Math.floor((n + 1) * this.ratio) > Math.floor(n * this.ratio) ? log : null;
+		}
+
+		/**
+		 * @return the window if the log is within the limit of its window
+		 */
+		@Nullable
+		private Window limit(String tenant, Log log, long now, long limit) {
+			Window window = fingerprints.window(fingerprint(this.index, tenant, log), now, this.windowNanos, limit);
+			return window.count.incrementAndGet() <= limit ? window : null;
+		}
+
+	}
+
+	private static Log withRepeated(Log log, long repeated) {
+		Map<String, Object> attributes = log.attributes() == null ? new LinkedHashMap<>()
+				: new LinkedHashMap<>(log.attributes());
+		attributes.put(REPEATED_ATTRIBUTE, repeated);
+		return new Log(log.logId(), log.timestamp(), log.observedTimestamp(), log.severityText(), log.severityNumber(),
+				log.severityCategory(), log.serviceName(), log.scope(), log.body(), log.traceId(), log.spanId(),
+				log.traceFlags(), attributes, log.resourceAttributes());
+	}
+
+}
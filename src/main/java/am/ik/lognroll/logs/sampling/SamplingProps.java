@@ -0,0 +1,58 @@
+package am.ik.lognroll.logs.sampling;
+
+import java.time.Duration;
+import java.util.List;
+
+import jakarta.annotation.Nullable;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param rules rules applied to ingested logs. The first rule whose filter matches a log
+ * decides whether it is stored. Logs matching no rule are always stored.
+ * @param fingerprintCacheSize number of fingerprints whose window is remembered for
+ * {@link Action#RATE_LIMIT} and {@link Action#DEDUP}. Fingerprints share slots of a fixed
+ * size table, so a window may be forgotten early when the table is crowded.
+ */
+@ConfigurationProperties(prefix = "lognroll.ingest.sampling")
+public record SamplingProps(@DefaultValue List<Rule> rules, @DefaultValue("65536") int fingerprintCacheSize) {
+
+	/**
+	 * @param name name of the rule used as the {@code rule} tag of metrics. Defaults to
+	 * {@code rule-<index>}.
+	 * @param filter filter expression selecting the logs the rule applies to, in the same
+	 * language as the {@code filter} parameter of {@code /api/logs}
+	 * @param action what to do with the matching logs
+	 * @param percent percentage of matching logs stored by {@link Action#SAMPLE}
+	 * @param limit number of logs with an identical body stored per window by
+	 * {@link Action#RATE_LIMIT}
+	 * @param window window of {@link Action#RATE_LIMIT} and {@link Action#DEDUP}
+	 */
+	public record Rule(@Nullable String name, String filter, @DefaultValue("SAMPLE") Action action,
+			@DefaultValue("100") double percent, @DefaultValue("1") long limit, @DefaultValue("10s") Duration window) {
+	}
+
+	public enum Action {
+
+		/**
+		 * Stores {@link Rule#percent()} of the matching logs, evenly spread.
+		 */
+		SAMPLE,
+
+		/**
+		 * Stores at most {@link Rule#limit()} logs with an identical service, severity
+		 * and body per {@link Rule#window()}.
+		 */
+		RATE_LIMIT,
+
+		/**
+		 * Stores the first of identical logs per {@link Rule#window()}. The first log of
+		 * the next window carries the number of duplicates dropped in the previous one as
+		 * the {@value IngestSampler#REPEATED_ATTRIBUTE} attribute.
+		 */
+		DEDUP
+
+	}
+
+}
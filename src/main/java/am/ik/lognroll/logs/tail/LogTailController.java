@@ -0,0 +1,55 @@
+package am.ik.lognroll.logs.tail;
+
+import am.ik.lognroll.logs.LogMatcher;
+import am.ik.lognroll.logs.filter.Filter;
+import am.ik.lognroll.logs.filter.FilterExpressionTextParser;
+import am.ik.lognroll.tenant.TenantResolver;
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+public class LogTailController {
+
+	private final LogTailHub logTailHub;
+
+	private final TailProps props;
+
+	private final TenantResolver tenantResolver;
+
+	private final FilterExpressionTextParser parser = new FilterExpressionTextParser();
+
+	public LogTailController(LogTailHub logTailHub, TailProps props, TenantResolver tenantResolver) {
+		this.logTailHub = logTailHub;
+		this.props = props;
+		this.tenantResolver = tenantResolver;
+	}
+
+	@GetMapping(path = "/api/logs/tail", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter tail(@RequestParam(required = false) String query, @RequestParam(required = false) String filter,
+			HttpServletRequest request) {
+		Filter.Expression filterExpression = null;
+		if (StringUtils.hasText(filter)) {
+			try {
+				filterExpression = this.parser.parse(filter);
+			}
+			catch (FilterExpressionTextParser.FilterExpressionParseException e) {
+				throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+			}
+		}
+		String tenant = this.tenantResolver.queryTenant(request);
+		SseEmitter emitter = new SseEmitter(this.props.timeout().toMillis());
+		if (this.logTailHub.subscribe(tenant, LogMatcher.of(query, filterExpression), emitter).isEmpty()) {
+			throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many tail subscribers");
+		}
+		return emitter;
+	}
+
+}
@@ -0,0 +1,198 @@
+package am.ik.lognroll.logs.tail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import am.ik.lognroll.logs.Log;
+import am.ik.lognroll.logs.LogMatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Fans out ingested logs to live tail subscribers. Each subscriber owns a bounded buffer
+ * drained by its own virtual thread, so a slow client never blocks ingest. When the
+ * buffer is full the oldest record is dropped and the number of dropped records is
+ * reported with the next event.
+ */
+@Component
+public class LogTailHub implements SmartLifecycle {
+
+	private static final int MAX_BATCH_SIZE = 256;
+
+	private final TailProps props;
+
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+	private final Thread.Builder threadBuilder = Thread.ofVirtual().name("log-tail-", 0);
+
+	private final Counter droppedCounter;
+
+	private final Logger logger = LoggerFactory.getLogger(LogTailHub.class);
+
+	private volatile boolean running = false;
+
+	public LogTailHub(TailProps props, MeterRegistry registry) {
+		this.props = props;
+		this.droppedCounter = Counter.builder("logs.tail.dropped").register(registry);
+		Gauge.builder("logs.tail.subscribers", this.subscriptions, List::size).register(registry);
+	}
+
+	/**
+	 * Publishes logs of a tenant to every subscriber whose tenant, query and filter
+	 * match. This never blocks.
+	 */
+	public void publish(String tenant, List<Log> logs) {
+		if (this.subscriptions.isEmpty()) {
+			return;
+		}
+		for (Subscription subscription : this.subscriptions) {
+			if (subscription.tenant == null || subscription.tenant.equals(tenant)) {
+				subscription.offer(logs);
+			}
+		}
+	}
+
+	/**
+	 * @param tenant tenant whose logs are sent, or {@code null} for all tenants
+	 * @return the subscription or empty when the number of subscribers reached the limit
+	 */
+	public synchronized Optional<Subscription> subscribe(@Nullable String tenant, LogMatcher matcher,
+			SseEmitter emitter) {
+		if (!this.running || this.subscriptions.size() >= this.props.maxSubscribers()) {
+			return Optional.empty();
+		}
+		Subscription subscription = new Subscription(tenant, matcher, emitter);
+		this.subscriptions.add(subscription);
+		emitter.onCompletion(subscription::close);
+		emitter.onTimeout(subscription::close);
+		emitter.onError(e -> subscription.close());
+		subscription.drainer = this.threadBuilder.start(subscription::drain);
+		return Optional.of(subscription);
+	}
+
+	public int subscriberCount() {
+		return this.subscriptions.size();
+	}
+
+	@Override
+	public void start() {
+		this.running = true;
+	}
+
+	@Override
+	public void stop() {
+		this.running = false;
+		// Complete open streams before the web server starts its graceful shutdown
+		for (Subscription subscription : this.subscriptions) {
+			subscription.emitter.complete();
+			subscription.close();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	public record TailEvent(List<Log> logs, long dropped) {
+	}
+
+	public final class Subscription {
+
+		@Nullable
+		private final String tenant;
+
+		private final LogMatcher matcher;
+
+		private final SseEmitter emitter;
+
+		private final BlockingQueue<Log> buffer;
+
+		private final AtomicLong dropped = new AtomicLong();
+
+		private volatile Thread drainer;
+
+		private volatile boolean closed = false;
+
+		Subscription(@Nullable String tenant, LogMatcher matcher, SseEmitter emitter) {
+			this.tenant = tenant;
+			this.matcher = matcher;
+			this.emitter = emitter;
+			this.buffer = new ArrayBlockingQueue<>(props.bufferSize());
+		}
+
+		void offer(List<Log> logs) {
+			for (Log log : logs) {
+				if (this.matcher.test(log)) {
+					while (!this.buffer.offer(log)) {
+						// drop oldest
+						if (this.buffer.poll() != null) {
+							this.dropped.incrementAndGet();
+							droppedCounter.increment();
+						}
+					}
+				}
+			}
+		}
+
+		void drain() {
+			long heartbeatMillis = props.heartbeatInterval().toMillis();
+			List<Log> batch = new ArrayList<>();
+			try {
+				// flush the response headers so that the client sees the stream open
+				this.emitter.send(SseEmitter.event().comment("subscribed"));
+				while (!this.closed) {
+					Log first = this.buffer.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+					if (first == null) {
+						this.emitter.send(SseEmitter.event().comment("heartbeat"));
+						continue;
+					}
+					batch.add(first);
+					this.buffer.drainTo(batch, MAX_BATCH_SIZE - 1);
+					this.emitter.send(SseEmitter.event()
+						.name("logs")
+						.data(new TailEvent(List.copyOf(batch), this.dropped.getAndSet(0)),
+								MediaType.APPLICATION_JSON));
+					batch.clear();
+				}
+			}
+			catch (IOException | IllegalStateException e) {
+				logger.debug("Tail subscriber disconnected", e);
+				close();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		public void close() {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+			subscriptions.remove(this);
+			Thread thread = this.drainer;
+			if (thread != null && thread != Thread.currentThread()) {
+				thread.interrupt();
+			}
+		}
+
+	}
+
+}
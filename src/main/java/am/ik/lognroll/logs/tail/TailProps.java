@@ -0,0 +1,21 @@
+package am.ik.lognroll.logs.tail;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param bufferSize number of records buffered per subscriber. The oldest records are
+ * dropped once a slow subscriber falls this far behind.
+ * @param maxSubscribers upper limit of concurrent subscribers
+ * @param timeout time after which a subscription is closed by the server. Clients such as
+ * {@code EventSource} reconnect automatically.
+ * @param heartbeatInterval interval of the comment lines sent to idle subscribers so that
+ * closed connections are detected
+ */
+@ConfigurationProperties(prefix = "lognroll.tail")
+public record TailProps(@DefaultValue("1000") int bufferSize, @DefaultValue("100") int maxSubscribers,
+		@DefaultValue("30m") Duration timeout, @DefaultValue("15s") Duration heartbeatInterval) {
+
+}
@@ -1,11 +1,18 @@
 package am.ik.lognroll.maintenance;
 
+import java.util.List;
+import java.util.Locale;
+
+import am.ik.lognroll.logs.jdbc.FtsIndexManager;
+import am.ik.lognroll.logs.jdbc.FtsIndexManager.IndexStatus;
+import am.ik.lognroll.logs.query.FtsTokenizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -17,10 +24,13 @@ public class MaintenanceController {
 
 	private final MaintenanceMode maintenanceMode;
 
+	private final FtsIndexManager ftsIndexManager;
+
 	private final Logger logger = LoggerFactory.getLogger(MaintenanceController.class);
 
-	public MaintenanceController(MaintenanceMode maintenanceMode) {
+	public MaintenanceController(MaintenanceMode maintenanceMode, FtsIndexManager ftsIndexManager) {
 		this.maintenanceMode = maintenanceMode;
+		this.ftsIndexManager = ftsIndexManager;
 	}
 
 	@GetMapping
@@ -45,6 +55,33 @@ public class MaintenanceController {
 		return ResponseEntity.noContent().build();
 	}
 
+	@GetMapping("/fts")
+	public List<IndexStatus> ftsStatus() {
+		return this.ftsIndexManager.status();
+	}
+
+	@PostMapping("/fts/{tokenizer}/rebuild")
+	public ResponseEntity<Void> rebuildFts(@PathVariable String tokenizer) {
+		FtsTokenizer ftsTokenizer;
+		try {
+			ftsTokenizer = FtsTokenizer.valueOf(tokenizer.toUpperCase(Locale.ROOT));
+		}
+		catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown tokenizer: " + tokenizer);
+		}
+		try {
+			this.ftsIndexManager.rebuild(ftsTokenizer);
+		}
+		catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+		}
+		catch (IllegalStateException e) {
+			throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+		}
+		logger.info("Full-text index rebuild started: {}", ftsTokenizer);
+		return ResponseEntity.accepted().build();
+	}
+
 	public record MaintenanceResponse(boolean enabled, boolean vacuumInProgress) {
 	}
 
@@ -49,8 +49,8 @@ public class MaintenanceInterceptor implements HandlerInterceptor {
 		if (path.equals("/api/logs/vacuum")) {
 			return false;
 		}
-		// Block /v1/logs and /api/logs
-		if (path.startsWith("/v1/logs") || path.startsWith("/api/logs")) {
+		// Block /v1/logs, /api/logs and /api/traces
+		if (path.startsWith("/v1/logs") || path.startsWith("/api/logs") || path.startsWith("/api/traces")) {
 			return true;
 		}
 		return false;
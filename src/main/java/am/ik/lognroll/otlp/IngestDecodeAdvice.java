@@ -0,0 +1,66 @@
+package am.ik.lognroll.otlp;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+import am.ik.lognroll.logs.IngestMetrics;
+import am.ik.lognroll.otlp.compression.IngestDecompression;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+/**
+ * Times how long it takes to read and decode the body of an OTLP request. Compressed
+ * bodies are decompressed by {@link IngestDecompression} while they are read, so
+ * decompression is included.
+ */
+@ControllerAdvice(assignableTypes = LogsV1Controller.class)
+public class IngestDecodeAdvice extends RequestBodyAdviceAdapter {
+
+	private static final String STARTED_ATTRIBUTE = IngestDecodeAdvice.class.getName() + ".started";
+
+	private final IngestMetrics ingestMetrics;
+
+	private final IngestDecompression ingestDecompression;
+
+	public IngestDecodeAdvice(IngestMetrics ingestMetrics, IngestDecompression ingestDecompression) {
+		this.ingestMetrics = ingestMetrics;
+		this.ingestDecompression = ingestDecompression;
+	}
+
+	@Override
+	public boolean supports(MethodParameter methodParameter, Type targetType,
+			Class<? extends HttpMessageConverter<?>> converterType) {
+		return true;
+	}
+
+	@Override
+	public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+			Class<? extends HttpMessageConverter<?>> converterType) throws IOException {
+		RequestContextHolder.currentRequestAttributes()
+			.setAttribute(STARTED_ATTRIBUTE, System.nanoTime(), RequestAttributes.SCOPE_REQUEST);
+		return this.ingestDecompression.decompress(inputMessage);
+	}
+
+	@Override
+	public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+			Class<? extends HttpMessageConverter<?>> converterType) {
+		if (RequestContextHolder.currentRequestAttributes()
+			.getAttribute(STARTED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Long started) {
+			MediaType contentType = inputMessage.getHeaders().getContentType();
+			String format = contentType != null && MediaType.APPLICATION_PROTOBUF.isCompatibleWith(contentType)
+					? "protobuf" : "json";
+			this.ingestMetrics.decode(format).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+		}
+		this.ingestDecompression.completed(inputMessage);
+		return body;
+	}
+
+}
@@ -2,13 +2,18 @@ package am.ik.lognroll.otlp;
 
 import java.util.List;
 
+import am.ik.lognroll.logs.IngestMetrics;
 import am.ik.lognroll.logs.Log;
 import am.ik.lognroll.logs.LogStore;
 import am.ik.lognroll.logs.Logs;
-import com.google.protobuf.InvalidProtocolBufferException;
-import io.micrometer.core.instrument.Counter;
-import io.micrometer.core.instrument.MeterRegistry;
+import am.ik.lognroll.logs.sampling.IngestSampler;
+import am.ik.lognroll.logs.tail.LogTailHub;
+import am.ik.lognroll.tenant.TenantQuotas;
+import am.ik.lognroll.tenant.TenantResolver;
 import io.opentelemetry.proto.logs.v1.LogsData;
+import io.opentelemetry.proto.logs.v1.ResourceLogs;
+import io.opentelemetry.proto.logs.v1.ScopeLogs;
+import jakarta.servlet.http.HttpServletRequest;
 
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -20,19 +25,46 @@ public class LogsV1Controller {
 
 	private final LogStore logStore;
 
-	private final MeterRegistry registry;
+	private final LogTailHub logTailHub;
 
-	public LogsV1Controller(LogStore logStore, MeterRegistry registry) {
+	private final IngestMetrics ingestMetrics;
+
+	private final TenantResolver tenantResolver;
+
+	private final TenantQuotas tenantQuotas;
+
+	private final IngestSampler ingestSampler;
+
+	public LogsV1Controller(LogStore logStore, LogTailHub logTailHub, IngestMetrics ingestMetrics,
+			TenantResolver tenantResolver, TenantQuotas tenantQuotas, IngestSampler ingestSampler) {
 		this.logStore = logStore;
-		this.registry = registry;
+		this.logTailHub = logTailHub;
+		this.ingestMetrics = ingestMetrics;
+		this.tenantResolver = tenantResolver;
+		this.tenantQuotas = tenantQuotas;
+		this.ingestSampler = ingestSampler;
 	}
 
 	@PostMapping(path = "/v1/logs",
 			consumes = { MediaType.APPLICATION_PROTOBUF_VALUE, MediaType.APPLICATION_JSON_VALUE })
-	public void logs(@RequestBody LogsData logs) throws InvalidProtocolBufferException {
-		List<Log> data = Logs.from(logs);
-		Counter.builder("logs.ingested").register(this.registry).increment(data.size());
-		this.logStore.addAll(data);
+	public void logs(@RequestBody LogsData logs, HttpServletRequest request) {
+		String tenant = this.tenantResolver.ingestTenant(request);
+		this.tenantQuotas.admit(tenant, recordCount(logs), logs.getSerializedSize());
+		List<Log> data = this.ingestSampler.apply(tenant, this.ingestMetrics.convert().record(() -> Logs.from(logs)));
+		this.logStore.addAll(tenant, data);
+		this.tenantQuotas.stored(tenant, data.size());
+		this.ingestMetrics.ingested(tenant, data);
+		this.logTailHub.publish(tenant, data);
+	}
+
+	static long recordCount(LogsData logs) {
+		long count = 0;
+		for (ResourceLogs resourceLogs : logs.getResourceLogsList()) {
+			for (ScopeLogs scopeLogs : resourceLogs.getScopeLogsList()) {
+				count += scopeLogs.getLogRecordsCount();
+			}
+		}
+		return count;
 	}
 
 }
@@ -0,0 +1,43 @@
+package am.ik.lognroll.otlp.compression;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Inflater;
+
+/**
+ * Keeps idle {@link Inflater}s, whose native zlib state is comparatively expensive to
+ * allocate and release for every request.
+ */
+final class InflaterPool {
+
+	private final boolean nowrap;
+
+	private final BlockingQueue<Inflater> idle;
+
+	/**
+	 * @param nowrap {@code true} for raw deflate data as in gzip, {@code false} for the
+	 * zlib format
+	 * @param size maximum number of idle inflaters
+	 */
+	InflaterPool(boolean nowrap, int size) {
+		this.nowrap = nowrap;
+		this.idle = new ArrayBlockingQueue<>(Math.max(1, size));
+	}
+
+	Inflater acquire() {
+		Inflater inflater = this.idle.poll();
+		return inflater != null ? inflater : new Inflater(this.nowrap);
+	}
+
+	void release(Inflater inflater) {
+		inflater.reset();
+		if (!this.idle.offer(inflater)) {
+			inflater.end();
+		}
+	}
+
+	int idle() {
+		return this.idle.size();
+	}
+
+}
@@ -0,0 +1,212 @@
+package am.ik.lognroll.otlp.compression;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Inflates a gzip or zlib stream with an {@link Inflater} borrowed from an
+ * {@link InflaterPool}, which {@link java.util.zip.GZIPInputStream} does not allow. The
+ * inflater is returned to the pool once the stream ends, fails or is closed.
+ */
+final class InflatingInputStream extends InputStream {
+
+	private static final int FHCRC = 2;
+
+	private static final int FEXTRA = 4;
+
+	private static final int FNAME = 8;
+
+	private static final int FCOMMENT = 16;
+
+	private final InputStream in;
+
+	private final InflaterPool pool;
+
+	private final Inflater inflater;
+
+	private final boolean gzip;
+
+	private final CRC32 crc = new CRC32();
+
+	private final byte[] buffer;
+
+	private int position;
+
+	private int limit;
+
+	private boolean headerRead;
+
+	private boolean finished;
+
+	/**
+	 * @param gzip whether the stream is in the gzip format rather than the zlib format
+	 */
+	InflatingInputStream(InputStream in, InflaterPool pool, boolean gzip, int bufferSize) {
+		this.in = in;
+		this.pool = pool;
+		this.inflater = pool.acquire();
+		this.gzip = gzip;
+		this.buffer = new byte[bufferSize];
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (this.finished) {
+			return -1;
+		}
+		if (len == 0) {
+			return 0;
+		}
+		try {
+			return doRead(b, off, len);
+		}
+		catch (IOException | RuntimeException e) {
+			finish();
+			throw e;
+		}
+	}
+
+	private int doRead(byte[] b, int off, int len) throws IOException {
+		if (this.gzip && !this.headerRead) {
+			readHeader();
+		}
+		while (true) {
+			int n;
+			try {
+				n = this.inflater.inflate(b, off, len);
+			}
+			catch (DataFormatException e) {
+				throw new ZipException(e.getMessage());
+			}
+			if (n > 0) {
+				if (this.gzip) {
+					this.crc.update(b, off, n);
+				}
+				return n;
+			}
+			if (this.inflater.finished()) {
+				this.position = this.limit - this.inflater.getRemaining();
+				if (this.gzip) {
+					readTrailer();
+					if (nextMember()) {
+						continue;
+					}
+				}
+				finish();
+				return -1;
+			}
+			if (this.inflater.needsDictionary()) {
+				throw new ZipException("Preset dictionaries are not supported");
+			}
+			if (this.inflater.needsInput()) {
+				if (this.position >= this.limit && fill() == -1) {
+					throw new EOFException("Unexpected end of the compressed body");
+				}
+				this.inflater.setInput(this.buffer, this.position, this.limit - this.position);
+				this.position = this.limit;
+			}
+		}
+	}
+
+	private void readHeader() throws IOException {
+		if (readUByte() != 0x1f || readUByte() != 0x8b) {
+			throw new ZipException("Not in GZIP format");
+		}
+		if (readUByte() != 8) {
+			throw new ZipException("Unsupported compression method");
+		}
+		int flags = readUByte();
+		// modification time, extra flags and operating system
+		skip(6);
+		if ((flags & FEXTRA) != 0) {
+			skip(readUByte() | (readUByte() << 8));
+		}
+		if ((flags & FNAME) != 0) {
+			while (readUByte() != 0) {
+				// skip the file name
+			}
+		}
+		if ((flags & FCOMMENT) != 0) {
+			while (readUByte() != 0) {
+				// skip the comment
+			}
+		}
+		if ((flags & FHCRC) != 0) {
+			skip(2);
+		}
+		this.crc.reset();
+		this.headerRead = true;
+	}
+
+	private void readTrailer() throws IOException {
+		long expectedCrc = readUInt();
+		long expectedSize = readUInt();
+		if (expectedCrc != this.crc.getValue() || expectedSize != (this.inflater.getBytesWritten() & 0xffffffffL)) {
+			throw new ZipException("Corrupt GZIP trailer");
+		}
+	}
+
+	/**
+	 * A gzip stream may consist of several members, which are inflated one after another.
+	 */
+	private boolean nextMember() throws IOException {
+		if (this.position >= this.limit && fill() == -1) {
+			return false;
+		}
+		if ((this.buffer[this.position] & 0xff) != 0x1f) {
+			return false;
+		}
+		this.inflater.reset();
+		readHeader();
+		return true;
+	}
+
+	private int fill() throws IOException {
+		int n = this.in.read(this.buffer, 0, this.buffer.length);
+		this.position = 0;
+		this.limit = Math.max(n, 0);
+		return n;
+	}
+
+	private int readUByte() throws IOException {
+		if (this.position >= this.limit && fill() == -1) {
+			throw new EOFException("Unexpected end of the compressed body");
+		}
+		return this.buffer[this.position++] & 0xff;
+	}
+
+	private long readUInt() throws IOException {
+		return readUByte() | (readUByte() << 8) | (readUByte() << 16) | ((long) readUByte() << 24);
+	}
+
+	private void skip(int n) throws IOException {
+		for (int i = 0; i < n; i++) {
+			readUByte();
+		}
+	}
+
+	private void finish() {
+		if (!this.finished) {
+			this.finished = true;
+			this.pool.release(this.inflater);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		finish();
+		this.in.close();
+	}
+
+}
@@ -0,0 +1,254 @@
+package am.ik.lognroll.otlp.compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+import am.ik.lognroll.logs.IngestMetrics;
+import am.ik.lognroll.util.ZstdSupport;
+import com.github.luben.zstd.RecyclingBufferPool;
+import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Decompresses ingest request bodies according to their {@code Content-Encoding}
+ * ({@code gzip}, {@code deflate}, {@code zstd}, {@code snappy} or
+ * {@code x-snappy-framed}) while they are read by the message converter.
+ * <p>
+ * Inflaters are pooled, the inflated size is capped by
+ * {@link IngestDecompressionProps#maxInflatedSize()} and the compressed and inflated
+ * sizes are recorded per encoding.
+ */
+@Component
+public class IngestDecompression {
+
+	private final IngestDecompressionProps props;
+
+	private final IngestMetrics ingestMetrics;
+
+	private final InflaterPool gzipInflaters;
+
+	private final InflaterPool deflateInflaters;
+
+	private final boolean zstdAvailable;
+
+	private final Logger logger = LoggerFactory.getLogger(IngestDecompression.class);
+
+	public IngestDecompression(IngestDecompressionProps props, IngestMetrics ingestMetrics) {
+		this.props = props;
+		this.ingestMetrics = ingestMetrics;
+		this.gzipInflaters = new InflaterPool(true, props.inflaterPoolSize());
+		this.deflateInflaters = new InflaterPool(false, props.inflaterPoolSize());
+		this.zstdAvailable = ZstdSupport.isAvailable();
+	}
+
+	/**
+	 * @return the message as is when its body is not encoded, otherwise a message whose
+	 * body is decompressed while it is read
+	 * @throws ResponseStatusException with 415 if the encoding is not supported
+	 */
+	public HttpInputMessage decompress(HttpInputMessage inputMessage) throws IOException {
+		String encoding = inputMessage.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+		if (!StringUtils.hasText(encoding)) {
+			return inputMessage;
+		}
+		encoding = encoding.trim().toLowerCase(Locale.ROOT);
+		if (encoding.equals("identity")) {
+			return inputMessage;
+		}
+		CountingInputStream compressed = new CountingInputStream(inputMessage.getBody());
+		int bufferSize = (int) this.props.bufferSize().toBytes();
+		InputStream decoder = switch (encoding) {
+			case "gzip", "x-gzip" -> new InflatingInputStream(compressed, this.gzipInflaters, true, bufferSize);
+			case "deflate" -> new InflatingInputStream(compressed, this.deflateInflaters, false, bufferSize);
+			case "zstd" -> {
+				if (!this.zstdAvailable) {
+					throw unsupported(encoding);
+				}
+				yield new ZstdInputStreamNoFinalizer(compressed, RecyclingBufferPool.INSTANCE);
+			}
+			case "snappy" -> snappyBlock(compressed);
+			case "x-snappy-framed" -> new Snappy.FramedInputStream(compressed);
+			default -> throw unsupported(encoding);
+		};
+		return new DecompressedInputMessage(inputMessage, encoding, compressed, decoder);
+	}
+
+	/**
+	 * Records the compressed and inflated sizes of a body that has been read.
+	 */
+	public void completed(HttpInputMessage inputMessage) {
+		if (inputMessage instanceof DecompressedInputMessage message) {
+			this.ingestMetrics.compressedBytes(message.encoding).record(message.compressed.count);
+			this.ingestMetrics.inflatedBytes(message.encoding).record(message.body.count);
+			message.body.close();
+		}
+	}
+
+	/**
+	 * The block format cannot be decoded incrementally, so the compressed body is read
+	 * first and the declared length is checked before it is allocated.
+	 */
+	private InputStream snappyBlock(InputStream compressed) throws IOException {
+		long maxInflatedSize = this.props.maxInflatedSize().toBytes();
+		// incompressible data grows by about a sixth in the block format
+		byte[] input = compressed.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, maxInflatedSize * 7 / 6 + 32));
+		if (compressed.read() != -1 || Snappy.uncompressedLength(input, 0, input.length) > maxInflatedSize) {
+			throw tooLarge();
+		}
+		return new ByteArrayInputStream(Snappy.decompress(input, 0, input.length));
+	}
+
+	private ResponseStatusException tooLarge() {
+		return new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+				"The decompressed request body exceeds %s".formatted(this.props.maxInflatedSize()));
+	}
+
+	private static ResponseStatusException unsupported(String encoding) {
+		return new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+				"Unsupported Content-Encoding: " + encoding);
+	}
+
+	private final class DecompressedInputMessage implements HttpInputMessage {
+
+		private final HttpHeaders headers;
+
+		private final String encoding;
+
+		private final CountingInputStream compressed;
+
+		private final LimitedInputStream body;
+
+		DecompressedInputMessage(HttpInputMessage inputMessage, String encoding, CountingInputStream compressed,
+				InputStream decoder) {
+			this.headers = new HttpHeaders();
+			this.headers.putAll(inputMessage.getHeaders());
+			this.headers.remove(HttpHeaders.CONTENT_ENCODING);
+			this.headers.remove(HttpHeaders.CONTENT_LENGTH);
+			this.encoding = encoding;
+			this.compressed = compressed;
+			this.body = new LimitedInputStream(decoder, props.maxInflatedSize().toBytes());
+		}
+
+		@Override
+		public InputStream getBody() {
+			return this.body;
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return this.headers;
+		}
+
+	}
+
+	private static class CountingInputStream extends FilterInputStream {
+
+		long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				this.count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				this.count += n;
+			}
+			return n;
+		}
+
+	}
+
+	/**
+	 * Counts the inflated bytes, fails once they exceed the limit and releases the
+	 * decoder at the end of the body or when it fails.
+	 */
+	private final class LimitedInputStream extends CountingInputStream {
+
+		private final long limit;
+
+		private boolean closed;
+
+		LimitedInputStream(InputStream in, long limit) {
+			super(in);
+			this.limit = limit;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (this.closed) {
+				return -1;
+			}
+			try {
+				int b = super.read();
+				checked(b == -1 ? -1 : 1);
+				return b;
+			}
+			catch (IOException | RuntimeException e) {
+				close();
+				throw e;
+			}
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (this.closed) {
+				return -1;
+			}
+			try {
+				return checked(super.read(b, off, len));
+			}
+			catch (IOException | RuntimeException e) {
+				close();
+				throw e;
+			}
+		}
+
+		private int checked(int n) {
+			if (n == -1) {
+				close();
+			}
+			else if (this.count > this.limit) {
+				close();
+				throw tooLarge();
+			}
+			return n;
+		}
+
+		@Override
+		public void close() {
+			if (!this.closed) {
+				this.closed = true;
+				try {
+					this.in.close();
+				}
+				catch (IOException e) {
+					logger.debug("Failed to close the request body", e);
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,19 @@
+package am.ik.lognroll.otlp.compression;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * @param maxInflatedSize maximum size of a request body after decompression. Larger
+ * bodies are rejected with 413 as soon as the limit is crossed, which guards against
+ * decompression bombs.
+ * @param bufferSize size of the buffer compressed bytes are read into
+ * @param inflaterPoolSize maximum number of idle {@link java.util.zip.Inflater}s kept for
+ * reuse per encoding
+ */
+@ConfigurationProperties(prefix = "lognroll.ingest.decompression")
+public record IngestDecompressionProps(@DefaultValue("64MB") DataSize maxInflatedSize,
+		@DefaultValue("16KB") DataSize bufferSize, @DefaultValue("32") int inflaterPoolSize) {
+
+}
@@ -0,0 +1,265 @@
+package am.ik.lognroll.otlp.compression;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+import java.util.zip.ZipException;
+
+/**
+ * Decoder of the
+ * <a href="https://github.com/google/snappy/blob/main/format_description.txt">Snappy
+ * block format</a> and the
+ * <a href="https://github.com/google/snappy/blob/main/framing_format.txt">framing
+ * format</a>, as sent by OpenTelemetry collectors with the {@code snappy} and
+ * {@code x-snappy-framed} content encodings.
+ */
+final class Snappy {
+
+	/**
+	 * Maximum uncompressed size of a chunk in the framing format.
+	 */
+	static final int MAX_CHUNK_SIZE = 65536;
+
+	private static final byte[] STREAM_IDENTIFIER = "sNaPpY".getBytes(StandardCharsets.US_ASCII);
+
+	private Snappy() {
+	}
+
+	/**
+	 * @return the uncompressed length declared at the start of a block
+	 */
+	static long uncompressedLength(byte[] input, int offset, int length) throws IOException {
+		return readLength(input, offset, offset + length)[0];
+	}
+
+	/**
+	 * @return uncompressed data of a block
+	 */
+	static byte[] decompress(byte[] input, int offset, int length) throws IOException {
+		int end = offset + length;
+		long[] header = readLength(input, offset, end);
+		long uncompressedLength = header[0];
+		int position = (int) header[1];
+		if (uncompressedLength > Integer.MAX_VALUE - 8) {
+			throw new ZipException("Snappy block is too large");
+		}
+		byte[] output = new byte[(int) uncompressedLength];
+		int written = 0;
+		while (position < end) {
+			int tag = input[position++] & 0xff;
+			switch (tag & 3) {
+				case 0 -> {
+					int literalLength = tag >>> 2;
+					if (literalLength >= 60) {
+						int bytes = literalLength - 59;
+						if (position + bytes > end) {
+							throw new ZipException("Corrupt Snappy literal");
+						}
+						literalLength = 0;
+						for (int i = 0; i < bytes; i++) {
+							literalLength |= (input[position++] & 0xff) << (8 * i);
+						}
+					}
+					literalLength += 1;
+					if (literalLength <= 0 || literalLength > end - position
+							|| literalLength > output.length - written) {
+						throw new ZipException("Corrupt Snappy literal");
+					}
+					System.arraycopy(input, position, output, written, literalLength);
+					position += literalLength;
+					written += literalLength;
+				}
+				case 1 -> {
+					if (position >= end) {
+						throw new ZipException("Corrupt Snappy copy");
+					}
+					int copyLength = ((tag >>> 2) & 7) + 4;
+					int copyOffset = ((tag >>> 5) << 8) | (input[position++] & 0xff);
+					written = copy(output, written, copyOffset, copyLength);
+				}
+				case 2 -> {
+					if (position + 2 > end) {
+						throw new ZipException("Corrupt Snappy copy");
+					}
+					int copyOffset = (input[position] & 0xff) | ((input[position + 1] & 0xff) << 8);
+					position += 2;
+					written = copy(output, written, copyOffset, (tag >>> 2) + 1);
+				}
+				default -> {
+					if (position + 4 > end) {
+						throw new ZipException("Corrupt Snappy copy");
+					}
+					int copyOffset = (input[position] & 0xff) | ((input[position + 1] & 0xff) << 8)
+							| ((input[position + 2] & 0xff) << 16) | ((input[position + 3] & 0xff) << 24);
+					position += 4;
+					written = copy(output, written, copyOffset, (tag >>> 2) + 1);
+				}
+			}
+		}
+		if (written != output.length) {
+			throw new ZipException("Snappy block is shorter than its declared length");
+		}
+		return output;
+	}
+
+	/**
+	 * @return the varint encoded uncompressed length and the position after it
+	 */
+	private static long[] readLength(byte[] input, int offset, int end) throws ZipException {
+		int position = offset;
+		long uncompressedLength = 0;
+		for (int shift = 0;; shift += 7) {
+			if (position >= end || shift > 28) {
+				throw new ZipException("Corrupt Snappy length");
+			}
+			int b = input[position++] & 0xff;
+			uncompressedLength |= (long) (b & 0x7f) << shift;
+			if (b < 0x80) {
+				return new long[] { uncompressedLength, position };
+			}
+		}
+	}
+
+	private static int copy(byte[] output, int written, int offset, int length) throws ZipException {
+		if (offset <= 0 || offset > written || length > output.length - written) {
+			throw new ZipException("Corrupt Snappy copy");
+		}
+		// the source may overlap with the destination to repeat a short sequence
+		for (int i = 0; i < length; i++) {
+			output[written + i] = output[written - offset + i];
+		}
+		return written + length;
+	}
+
+	/**
+	 * Reads the framing format chunk by chunk, so that at most one chunk is held in
+	 * memory.
+	 */
+	static final class FramedInputStream extends InputStream {
+
+		private final InputStream in;
+
+		private final CRC32C crc = new CRC32C();
+
+		private byte[] chunk = new byte[0];
+
+		private int position;
+
+		private boolean eof;
+
+		FramedInputStream(InputStream in) {
+			this.in = in;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!ensureChunk()) {
+				return -1;
+			}
+			return this.chunk[this.position++] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!ensureChunk()) {
+				return -1;
+			}
+			int n = Math.min(len, this.chunk.length - this.position);
+			System.arraycopy(this.chunk, this.position, b, off, n);
+			this.position += n;
+			return n;
+		}
+
+		private boolean ensureChunk() throws IOException {
+			while (this.position >= this.chunk.length) {
+				if (this.eof) {
+					return false;
+				}
+				int type = this.in.read();
+				if (type == -1) {
+					this.eof = true;
+					return false;
+				}
+				byte[] header = this.in.readNBytes(3);
+				if (header.length < 3) {
+					throw new EOFException("Unexpected end of the Snappy stream");
+				}
+				int length = (header[0] & 0xff) | ((header[1] & 0xff) << 8) | ((header[2] & 0xff) << 16);
+				if (type >= 0x80) {
+					// padding and skippable chunks
+					skipFully(length);
+					continue;
+				}
+				if (type != 0x00 && type != 0x01 && type != 0xff) {
+					throw new ZipException("Unsupported Snappy chunk type: " + type);
+				}
+				if (length > MAX_CHUNK_SIZE * 2) {
+					throw new ZipException("Snappy chunk is too large");
+				}
+				byte[] data = this.in.readNBytes(length);
+				if (data.length < length) {
+					throw new EOFException("Unexpected end of the Snappy stream");
+				}
+				if (type == 0xff) {
+					if (!Arrays.equals(data, STREAM_IDENTIFIER)) {
+						throw new ZipException("Not in the Snappy framing format");
+					}
+					continue;
+				}
+				if (length < 4) {
+					throw new ZipException("Corrupt Snappy chunk");
+				}
+				int expectedCrc = (data[0] & 0xff) | ((data[1] & 0xff) << 8) | ((data[2] & 0xff) << 16)
+						| ((data[3] & 0xff) << 24);
+				if (type == 0x00 && uncompressedLength(data, 4, length - 4) > MAX_CHUNK_SIZE) {
+					throw new ZipException("Snappy chunk is too large");
+				}
+				byte[] uncompressed = type == 0x00 ? decompress(data, 4, length - 4)
+						: Arrays.copyOfRange(data, 4, length);
+				if (uncompressed.length > MAX_CHUNK_SIZE) {
+					throw new ZipException("Snappy chunk is too large");
+				}
+				if (maskedCrc(uncompressed) != expectedCrc) {
+					throw new ZipException("Corrupt Snappy chunk checksum");
+				}
+				this.chunk = uncompressed;
+				this.position = 0;
+			}
+			return true;
+		}
+
+		private void skipFully(int length) throws IOException {
+			long remaining = length;
+			while (remaining > 0) {
+				long skipped = this.in.skip(remaining);
+				if (skipped <= 0) {
+					if (this.in.read() == -1) {
+						throw new EOFException("Unexpected end of the Snappy stream");
+					}
+					skipped = 1;
+				}
+				remaining -= skipped;
+			}
+		}
+
+		private int maskedCrc(byte[] data) {
+			this.crc.reset();
+			this.crc.update(data);
+			int crc = (int) this.crc.getValue();
+			return ((crc >>> 15) | (crc << 17)) + 0xa282ead8;
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.in.close();
+		}
+
+	}
+
+}
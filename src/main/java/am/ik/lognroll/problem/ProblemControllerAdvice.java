@@ -1,14 +1,23 @@
 package am.ik.lognroll.problem;
 
+import am.ik.lognroll.logs.admission.QueryRejectedException;
+import am.ik.lognroll.tenant.QuotaExceededException;
+import am.ik.lognroll.util.SqliteErrors;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.async.AsyncRequestNotUsableException;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.resource.NoResourceFoundException;
 
@@ -18,6 +27,12 @@ public class ProblemControllerAdvice {
 
 	private final Logger log = LoggerFactory.getLogger(ProblemControllerAdvice.class);
 
+	private final Counter busyCounter;
+
+	public ProblemControllerAdvice(MeterRegistry registry) {
+		this.busyCounter = Counter.builder("sqlite.busy").register(registry);
+	}
+
 	@ExceptionHandler(ResponseStatusException.class)
 	public ProblemDetail handleResponseStatusException(ResponseStatusException e) {
 		ProblemDetail problemDetail = ProblemDetail.forStatus(e.getStatusCode());
@@ -32,6 +47,46 @@ public class ProblemControllerAdvice {
 		return problemDetail;
 	}
 
+	@ExceptionHandler(AsyncRequestNotUsableException.class)
+	public void handleAsyncRequestNotUsableException(AsyncRequestNotUsableException e) {
+		// The client has gone away (e.g. closed a live tail). Nothing can be written.
+		log.debug("Client disconnected", e);
+	}
+
+	@ExceptionHandler(QueryRejectedException.class)
+	public ResponseEntity<ProblemDetail> handleQueryRejectedException(QueryRejectedException e) {
+		ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS);
+		if (e.getRetryAfter() != null) {
+			builder.header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())));
+		}
+		return builder.body(ProblemDetail.forStatusAndDetail(HttpStatus.TOO_MANY_REQUESTS, e.getMessage()));
+	}
+
+	@ExceptionHandler(QuotaExceededException.class)
+	public ResponseEntity<ProblemDetail> handleQuotaExceededException(QuotaExceededException e) {
+		ResponseEntity.BodyBuilder builder = ResponseEntity.status(e.getStatus());
+		if (e.getRetryAfter() != null) {
+			builder.header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())));
+		}
+		return builder.body(ProblemDetail.forStatusAndDetail(e.getStatus(), e.getMessage()));
+	}
+
+	/**
+	 * A locked database is a transient condition. It is answered with 503 so that OTLP
+	 * exporters retry the batch instead of dropping it.
+	 */
+	@ExceptionHandler(DataAccessException.class)
+	public ResponseEntity<ProblemDetail> handleDataAccessException(DataAccessException e) {
+		if (SqliteErrors.isBusy(e)) {
+			this.busyCounter.increment();
+			log.warn("Database is busy: {}", e.getMostSpecificCause().getMessage());
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, "1")
+				.body(ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, "Database is busy"));
+		}
+		return ResponseEntity.internalServerError().body(handleRuntimeException(e));
+	}
+
 	@ExceptionHandler(RuntimeException.class)
 	@ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
 	public ProblemDetail handleRuntimeException(RuntimeException e) {
@@ -0,0 +1,36 @@
+package am.ik.lognroll.tenant;
+
+import java.time.Duration;
+
+import jakarta.annotation.Nullable;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown when a tenant exceeds its rate limits ({@code 429 Too Many Requests}, retried by
+ * OTLP exporters) or its storage quota ({@code 507 Insufficient Storage}, which exporters
+ * do not retry).
+ */
+public class QuotaExceededException extends RuntimeException {
+
+	private final HttpStatus status;
+
+	@Nullable
+	private final Duration retryAfter;
+
+	public QuotaExceededException(HttpStatus status, String message, @Nullable Duration retryAfter) {
+		super(message);
+		this.status = status;
+		this.retryAfter = retryAfter;
+	}
+
+	public HttpStatus getStatus() {
+		return this.status;
+	}
+
+	@Nullable
+	public Duration getRetryAfter() {
+		return this.retryAfter;
+	}
+
+}
@@ -0,0 +1,60 @@
+package am.ik.lognroll.tenant;
+
+import java.time.Duration;
+import java.util.Map;
+
+import jakarta.annotation.Nullable;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * @param header request header naming the tenant when the token is not bound to one
+ * @param maxTenants maximum number of tenants besides the configured ones. Requests
+ * naming further tenants are rejected, which bounds memory and metric tags.
+ * @param defaults quota of tenants that are not configured in {@code tenants}
+ * @param tenants quota per tenant
+ * @param retentionInterval interval at which logs past their tenant's retention are
+ * deleted
+ * @param usageRefreshInterval interval at which the number of stored logs per tenant is
+ * recounted, so that deletions other than retention are reflected in storage quotas
+ */
+@ConfigurationProperties(prefix = "lognroll.tenant")
+public record TenantProps(@DefaultValue("X-Scope-OrgID") String header, @DefaultValue("100") int maxTenants,
+		@DefaultValue Quota defaults, @DefaultValue Map<String, Quota> tenants,
+		@DefaultValue("1m") Duration retentionInterval, @DefaultValue("10m") Duration usageRefreshInterval) {
+
+	public Quota quota(String tenant) {
+		return this.tenants.getOrDefault(tenant, this.defaults);
+	}
+
+	/**
+	 * @return whether any tenant has a storage quota or retention, which needs the
+	 * background maintenance of {@link TenantRetention}
+	 */
+	boolean hasStorageLimits() {
+		return this.defaults.hasStorageLimits() || this.tenants.values().stream().anyMatch(Quota::hasStorageLimits);
+	}
+
+	/**
+	 * @param recordsPerSecond sustained rate of log records a tenant may send. {@code 0}
+	 * means unlimited.
+	 * @param bytesPerSecond sustained rate of decoded request body bytes a tenant may
+	 * send. {@code 0} means unlimited.
+	 * @param burst how long a tenant may send at the rates above after being idle, i.e.
+	 * the capacity of its token buckets. A single request larger than the capacity is
+	 * admitted when the bucket is full.
+	 * @param maxLogs maximum number of stored logs. {@code 0} means unlimited.
+	 * @param retention how long logs are kept. Logs are kept forever when it is not set.
+	 */
+	public record Quota(@DefaultValue("0") long recordsPerSecond, @DefaultValue("0B") DataSize bytesPerSecond,
+			@DefaultValue("1s") Duration burst, @DefaultValue("0") long maxLogs, @Nullable Duration retention) {
+
+		boolean hasStorageLimits() {
+			return this.maxLogs > 0 || this.retention != null;
+		}
+
+	}
+
+}
@@ -0,0 +1,200 @@
+package am.ik.lognroll.tenant;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import am.ik.lognroll.tenant.TenantProps.Quota;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Admits ingest requests of a tenant against its {@link Quota}. The rates are enforced by
+ * lock-free {@link TokenBucket}s per tenant, so that a tenant flooding the ingest
+ * endpoint is turned away before it competes for the single writer.
+ * <p>
+ * The number of stored logs is counted as logs are ingested and recounted by
+ * {@link TenantRetention}, so the storage quota is approximate: logs deleted through the
+ * API are only reflected after the next recount.
+ */
+@Component
+public class TenantQuotas {
+
+	private final TenantProps props;
+
+	private final MeterRegistry registry;
+
+	private final Map<String, TenantState> states = new ConcurrentHashMap<>();
+
+	private final AtomicInteger unconfiguredTenants = new AtomicInteger();
+
+	public TenantQuotas(TenantProps props, MeterRegistry registry) {
+		this.props = props;
+		this.registry = registry;
+	}
+
+	/**
+	 * Takes the records and bytes of an ingest request from the tenant's buckets.
+	 * @param bytes size of the decoded request body
+	 * @throws QuotaExceededException if the request exceeds a rate limit or the storage
+	 * quota
+	 * @throws ResponseStatusException with 400 if the tenant is not known and the number
+	 * of tenants reached {@link TenantProps#maxTenants()}
+	 */
+	public void admit(String tenant, long records, long bytes) {
+		TenantState state = accept(tenant);
+		Quota quota = state.quota;
+		if (quota.maxLogs() > 0 && state.stored.get() + records > quota.maxLogs()) {
+			rejected(state, tenant, "storage");
+			throw new QuotaExceededException(HttpStatus.INSUFFICIENT_STORAGE,
+					"Tenant '%s' exceeds its quota of %d logs".formatted(tenant, quota.maxLogs()), null);
+		}
+		long now = System.nanoTime();
+		if (state.records != null) {
+			long wait = state.records.tryAcquire(records, now);
+			if (wait > 0) {
+				rejected(state, tenant, "records");
+				throw rateLimited(tenant, "%d records/s".formatted(quota.recordsPerSecond()), wait);
+			}
+		}
+		if (state.bytes != null) {
+			long wait = state.bytes.tryAcquire(bytes, now);
+			if (wait > 0) {
+				if (state.records != null) {
+					state.records.refund(records);
+				}
+				rejected(state, tenant, "bytes");
+				throw rateLimited(tenant, "%s/s".formatted(quota.bytesPerSecond()), wait);
+			}
+		}
+	}
+
+	/**
+	 * @return the state of the tenant, created if the number of tenants allows it
+	 */
+	TenantState accept(String tenant) {
+		TenantState state = this.states.get(tenant);
+		if (state != null) {
+			return state;
+		}
+		if (!this.props.tenants().containsKey(tenant) && this.unconfiguredTenants.get() >= this.props.maxTenants()) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"The number of tenants exceeds %d".formatted(this.props.maxTenants()));
+		}
+		return this.states.computeIfAbsent(tenant, this::newState);
+	}
+
+	public void stored(String tenant, long count) {
+		accept(tenant).stored.addAndGet(count);
+	}
+
+	public void removed(String tenant, long count) {
+		TenantState state = this.states.get(tenant);
+		if (state != null) {
+			state.stored.addAndGet(-count);
+		}
+	}
+
+	/**
+	 * Replaces the counted logs with the actual numbers of stored logs. Tenants found in
+	 * the database are tracked regardless of {@link TenantProps#maxTenants()}.
+	 */
+	public void refresh(Map<String, Long> counts) {
+		counts.forEach((tenant, count) -> this.states.computeIfAbsent(tenant, this::newState).stored.set(count));
+		this.states.forEach((tenant, state) -> {
+			if (!counts.containsKey(tenant)) {
+				state.stored.set(0);
+			}
+		});
+	}
+
+	/**
+	 * @return tenants that have ingested since the start or have stored logs, and the
+	 * configured ones
+	 */
+	public Set<String> tenants() {
+		Set<String> tenants = new HashSet<>(this.props.tenants().keySet());
+		tenants.addAll(this.states.keySet());
+		return tenants;
+	}
+
+	/**
+	 * @return whether the tenant is configured or has ingested or stored logs, so that it
+	 * is bounded by {@link TenantProps#maxTenants()}
+	 */
+	public boolean isKnown(String tenant) {
+		return this.props.tenants().containsKey(tenant) || this.states.containsKey(tenant);
+	}
+
+	private TenantState newState(String tenant) {
+		if (!this.props.tenants().containsKey(tenant)) {
+			this.unconfiguredTenants.incrementAndGet();
+		}
+		long now = System.nanoTime();
+		Quota quota = this.props.quota(tenant);
+		TokenBucket records = quota.recordsPerSecond() > 0
+				? new TokenBucket(quota.recordsPerSecond(), quota.burst(), now) : null;
+		TokenBucket bytes = quota.bytesPerSecond().toBytes() > 0
+				? new TokenBucket(quota.bytesPerSecond().toBytes(), quota.burst(), now) : null;
+		TenantState state = new TenantState(quota, records, bytes);
+		if (this.props.hasStorageLimits()) {
+			Gauge.builder("lognroll.tenant.stored_logs", state.stored, AtomicLong::get)
+				.description("Number of stored logs of a tenant as counted for its storage quota")
+				.tag("tenant", tenant)
+				.register(this.registry);
+		}
+		return state;
+	}
+
+	private void rejected(TenantState state, String tenant, String reason) {
+		state.rejected
+			.computeIfAbsent(reason,
+					r -> Counter.builder("lognroll.tenant.rejected")
+						.description("Number of ingest requests rejected by the quota of a tenant")
+						.tag("tenant", tenant)
+						.tag("reason", r)
+						.register(this.registry))
+			.increment();
+	}
+
+	private static QuotaExceededException rateLimited(String tenant, String limit, long waitNanos) {
+		return new QuotaExceededException(HttpStatus.TOO_MANY_REQUESTS,
+				"Tenant '%s' exceeds its rate limit of %s".formatted(tenant, limit), Duration.ofNanos(waitNanos));
+	}
+
+	static final class TenantState {
+
+		final Quota quota;
+
+		@Nullable
+		final TokenBucket records;
+
+		@Nullable
+		final TokenBucket bytes;
+
+		final AtomicLong stored = new AtomicLong();
+
+		/**
+		 * Rejection counters by reason.
+		 */
+		final Map<String, Counter> rejected = new ConcurrentHashMap<>();
+
+		TenantState(Quota quota, @Nullable TokenBucket records, @Nullable TokenBucket bytes) {
+			this.quota = quota;
+			this.records = records;
+			this.bytes = bytes;
+		}
+
+	}
+
+}
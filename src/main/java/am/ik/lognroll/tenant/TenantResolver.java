@@ -0,0 +1,59 @@
+package am.ik.lognroll.tenant;
+
+import java.util.regex.Pattern;
+
+import am.ik.lognroll.auth.SimpleAuthInterceptor;
+import am.ik.lognroll.logs.LogStore;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Resolves the tenant of a request. A token bound to a tenant always acts for that
+ * tenant. Other requests name their tenant in {@link TenantProps#header()}.
+ */
+@Component
+public class TenantResolver {
+
+	private static final Pattern TENANT_PATTERN = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+	private final TenantProps props;
+
+	public TenantResolver(TenantProps props) {
+		this.props = props;
+	}
+
+	/**
+	 * @return the tenant logs are ingested for, {@link LogStore#DEFAULT_TENANT} if the
+	 * request does not name one
+	 */
+	public String ingestTenant(HttpServletRequest request) {
+		String tenant = queryTenant(request);
+		return tenant == null ? LogStore.DEFAULT_TENANT : tenant;
+	}
+
+	/**
+	 * @return the tenant logs are queried for, {@code null} for all tenants
+	 */
+	@Nullable
+	public String queryTenant(HttpServletRequest request) {
+		if (request.getAttribute(SimpleAuthInterceptor.TENANT_ATTRIBUTE) instanceof String tenant) {
+			return tenant;
+		}
+		String tenant = request.getHeader(this.props.header());
+		if (!StringUtils.hasText(tenant)) {
+			return null;
+		}
+		tenant = tenant.trim();
+		if (!TENANT_PATTERN.matcher(tenant).matches()) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+					"'%s' must be 1 to 64 letters, digits, '.', '_' or '-'".formatted(this.props.header()));
+		}
+		return tenant;
+	}
+
+}
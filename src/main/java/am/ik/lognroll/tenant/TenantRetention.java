@@ -0,0 +1,148 @@
+package am.ik.lognroll.tenant;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.locks.LockSupport;
+
+import am.ik.lognroll.logs.LogQuery;
+import am.ik.lognroll.logs.LogQuery.SearchRequest;
+import am.ik.lognroll.logs.SearchRequestBuilder;
+import am.ik.lognroll.logs.pattern.PatternQuery;
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Deletes the logs of each tenant that are older than its
+ * {@link TenantProps.Quota#retention()} every {@link TenantProps#retentionInterval()},
+ * together with the template counts of that time and the templates no longer in use, and
+ * recounts the stored logs per tenant every {@link TenantProps#usageRefreshInterval()}
+ * for {@link TenantQuotas}. Nothing runs unless a retention or a storage quota is
+ * configured.
+ */
+@Component
+public class TenantRetention implements SmartLifecycle {
+
+	/**
+	 * Number of logs deleted per transaction, so that ingestion is not blocked while a
+	 * large backlog of expired logs is deleted.
+	 */
+	static final int BATCH_SIZE = 1000;
+
+	private final LogQuery logQuery;
+
+	private final TenantQuotas tenantQuotas;
+
+	private final PatternQuery patternQuery;
+
+	private final TenantProps props;
+
+	private final Logger logger = LoggerFactory.getLogger(TenantRetention.class);
+
+	@Nullable
+	private Thread worker;
+
+	private volatile boolean running = false;
+
+	public TenantRetention(LogQuery logQuery, TenantQuotas tenantQuotas, PatternQuery patternQuery, TenantProps props) {
+		this.logQuery = logQuery;
+		this.tenantQuotas = tenantQuotas;
+		this.patternQuery = patternQuery;
+		this.props = props;
+	}
+
+	/**
+	 * Deletes expired logs of every tenant.
+	 * @return number of deleted logs
+	 */
+	public int expire() {
+		int total = 0;
+		for (String tenant : this.tenantQuotas.tenants()) {
+			Duration retention = this.props.quota(tenant).retention();
+			if (retention == null || !this.running) {
+				continue;
+			}
+			Instant before = Instant.now().minus(retention);
+			SearchRequest request = SearchRequestBuilder.searchRequest().tenant(tenant).to(before).build();
+			int deleted = 0;
+			int batch;
+			do {
+				batch = this.logQuery.delete(request, BATCH_SIZE);
+				this.tenantQuotas.removed(tenant, batch);
+				deleted += batch;
+			}
+			while (batch == BATCH_SIZE && this.running);
+			if (deleted > 0) {
+				logger.info("Deleted {} logs of tenant {} older than {}", deleted, tenant, retention);
+			}
+			if (this.running) {
+				int templates = this.patternQuery.expire(tenant, before);
+				if (templates > 0) {
+					logger.info("Deleted {} templates of tenant {} unused for {}", templates, tenant, retention);
+				}
+			}
+			total += deleted;
+		}
+		return total;
+	}
+
+	public void refreshUsage() {
+		this.tenantQuotas.refresh(this.logQuery.countByTenant());
+	}
+
+	private void run() {
+		long nextRefresh = System.nanoTime();
+		while (this.running) {
+			try {
+				if (System.nanoTime() - nextRefresh >= 0) {
+					refreshUsage();
+					nextRefresh = System.nanoTime() + this.props.usageRefreshInterval().toNanos();
+				}
+				expire();
+			}
+			catch (DataAccessException e) {
+				logger.warn("Tenant retention failed. Retrying in {}.", this.props.retentionInterval(), e);
+			}
+			LockSupport.parkNanos(this.props.retentionInterval().toNanos());
+		}
+	}
+
+	@Override
+	public synchronized void start() {
+		this.running = true;
+		if (this.props.hasStorageLimits() && this.worker == null) {
+			// a platform thread, since SQLite calls would pin the carrier of a virtual
+			// one
+			this.worker = Thread.ofPlatform().daemon().name("tenant-retention").start(this::run);
+		}
+	}
+
+	@Override
+	public void stop() {
+		this.running = false;
+		Thread thread;
+		synchronized (this) {
+			thread = this.worker;
+			this.worker = null;
+		}
+		if (thread != null) {
+			LockSupport.unpark(thread);
+			try {
+				thread.join(Duration.ofSeconds(10));
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+}
@@ -0,0 +1,58 @@
+package am.ik.lognroll.tenant;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket implemented as the generic cell rate algorithm: the only state
+ * is the time at which the bucket would be full again, updated by compare and set.
+ */
+final class TokenBucket {
+
+	private final double nanosPerToken;
+
+	private final long capacityNanos;
+
+	/**
+	 * {@link System#nanoTime()} at which all tokens taken so far are replenished
+	 */
+	private final AtomicLong fullAt;
+
+	TokenBucket(long tokensPerSecond, Duration burst, long now) {
+		this.nanosPerToken = 1_000_000_000.0 / tokensPerSecond;
+		this.capacityNanos = burst.toNanos();
+		this.fullAt = new AtomicLong(now);
+	}
+
+	/**
+	 * @return {@code 0} if the tokens were taken, otherwise nanoseconds until they are
+	 * available
+	 */
+	long tryAcquire(long tokens, long now) {
+		long cost = cost(tokens);
+		while (true) {
+			long fullAt = this.fullAt.get();
+			long start = fullAt - now > 0 ? fullAt : now;
+			long debt = start - now + cost;
+			if (debt > this.capacityNanos && start != now) {
+				// a request larger than the capacity waits for a full bucket
+				return cost > this.capacityNanos ? start - now : debt - this.capacityNanos;
+			}
+			if (this.fullAt.compareAndSet(fullAt, start + cost)) {
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * Returns tokens taken for a request that was not admitted after all.
+	 */
+	void refund(long tokens) {
+		this.fullAt.addAndGet(-cost(tokens));
+	}
+
+	private long cost(long tokens) {
+		return (long) Math.min(Long.MAX_VALUE / 4.0, tokens * this.nanosPerToken);
+	}
+
+}
@@ -0,0 +1,46 @@
+package am.ik.lognroll.util;
+
+import java.util.HexFormat;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Converts trace and span ids between the hex strings of the API and the bytes stored in
+ * the database. Absent ids are empty strings in the API and {@code NULL} in the database.
+ */
+public final class BinaryIds {
+
+	private static final HexFormat HEX = HexFormat.of();
+
+	private BinaryIds() {
+	}
+
+	/**
+	 * @return the decoded bytes, or {@code null} if the id is empty
+	 * @throws IllegalArgumentException if the id is not an even-length hex string
+	 */
+	@Nullable
+	public static byte[] toBytes(@Nullable String hex) {
+		if (hex == null || hex.isEmpty()) {
+			return null;
+		}
+		return HEX.parseHex(hex);
+	}
+
+	public static String toHex(@Nullable byte[] bytes) {
+		return bytes == null ? "" : HEX.formatHex(bytes);
+	}
+
+	public static boolean isValid(String hex) {
+		if (hex.isEmpty() || hex.length() % 2 != 0) {
+			return false;
+		}
+		for (int i = 0; i < hex.length(); i++) {
+			if (!HexFormat.isHexDigit(hex.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
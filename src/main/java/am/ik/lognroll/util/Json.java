@@ -14,6 +14,9 @@ public final class Json {
 	};
 
 	public static String stringify(ObjectMapper objectMapper, Object json) {
+		if (json instanceof RawJsonMap raw) {
+			return raw.json();
+		}
 		try {
 			return objectMapper.writeValueAsString(json);
 		}
@@ -22,6 +25,17 @@ public final class Json {
 		}
 	}
 
+	/**
+	 * @return a map that is parsed on first access and serialised as the given JSON text
+	 * @see RawJsonMap
+	 */
+	public static Map<String, Object> raw(ObjectMapper objectMapper, String json) {
+		if (json == null) {
+			return Collections.emptyMap();
+		}
+		return new RawJsonMap(objectMapper, json);
+	}
+
 	public static Map<String, Object> parse(ObjectMapper objectMapper, String json) {
 		if (json == null) {
 			return Collections.emptyMap();
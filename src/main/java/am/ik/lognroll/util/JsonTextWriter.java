@@ -0,0 +1,129 @@
+package am.ik.lognroll.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Serialises many attribute maps in a row, e.g. the logs of an ingest batch, with one
+ * generator and one character buffer instead of a fresh writer per map as
+ * {@link ObjectMapper#writeValueAsString(Object)} does.
+ * <p>
+ * The value types produced from OTLP attributes (strings, numbers, booleans, bytes, lists
+ * and maps) are written directly without looking up serializers. Anything else is
+ * delegated to the {@link ObjectMapper}, so the output is the same as
+ * {@link Json#stringify(ObjectMapper, Object)}.
+ * <p>
+ * An instance is not thread-safe and is meant to be confined to the thread writing a
+ * batch.
+ */
+public final class JsonTextWriter implements AutoCloseable {
+
+	private final StringBuilderWriter buffer = new StringBuilderWriter();
+
+	private final JsonGenerator generator;
+
+	public JsonTextWriter(ObjectMapper objectMapper) {
+		try {
+			this.generator = objectMapper.createGenerator(this.buffer);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		// each map is a separate document rather than a stream of root values
+		this.generator.setRootValueSeparator(null);
+	}
+
+	/**
+	 * @return JSON text of the map
+	 */
+	public String write(Map<String, Object> map) {
+		if (map instanceof RawJsonMap raw) {
+			return raw.json();
+		}
+		try {
+			writeMap(map);
+			this.generator.flush();
+			return this.buffer.drain();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writeMap(Map<?, ?> map) throws IOException {
+		this.generator.writeStartObject();
+		for (Map.Entry<?, ?> entry : map.entrySet()) {
+			this.generator.writeFieldName(String.valueOf(entry.getKey()));
+			writeValue(entry.getValue());
+		}
+		this.generator.writeEndObject();
+	}
+
+	private void writeValue(Object value) throws IOException {
+		switch (value) {
+			case null -> this.generator.writeNull();
+			case String s -> this.generator.writeString(s);
+			case Long l -> this.generator.writeNumber(l);
+			case Integer i -> this.generator.writeNumber(i);
+			case Double d -> this.generator.writeNumber(d);
+			case Boolean b -> this.generator.writeBoolean(b);
+			case byte[] bytes -> this.generator.writeBinary(bytes);
+			case Map<?, ?> map -> writeMap(map);
+			case List<?> list -> {
+				this.generator.writeStartArray();
+				for (Object element : list) {
+					writeValue(element);
+				}
+				this.generator.writeEndArray();
+			}
+			default -> this.generator.writeObject(value);
+		}
+	}
+
+	@Override
+	public void close() {
+		try {
+			this.generator.close();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static final class StringBuilderWriter extends Writer {
+
+		private final StringBuilder builder = new StringBuilder(256);
+
+		@Override
+		public void write(char[] chars, int offset, int length) {
+			this.builder.append(chars, offset, length);
+		}
+
+		@Override
+		public void write(String s, int offset, int length) {
+			this.builder.append(s, offset, offset + length);
+		}
+
+		String drain() {
+			String s = this.builder.toString();
+			this.builder.setLength(0);
+			return s;
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+
+	}
+
+}
@@ -0,0 +1,90 @@
+package am.ik.lognroll.util;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import jakarta.annotation.Nullable;
+
+/**
+ * Read-only map of a JSON object as stored in the database. Jackson writes the stored
+ * JSON text as is, and the text is only parsed when the map itself is accessed, so a
+ * query result can be returned without building and re-serialising the map.
+ * <p>
+ * Equality and hash code follow the {@link Map} contract and parse the text, so query
+ * results are hashed by their serialised form instead, see
+ * {@link am.ik.lognroll.logs.cache.QueryCache}.
+ */
+@JsonSerialize(using = RawJsonMap.Serializer.class)
+public final class RawJsonMap extends AbstractMap<String, Object> {
+
+	private final ObjectMapper objectMapper;
+
+	private final String json;
+
+	@Nullable
+	private volatile Map<String, Object> parsed;
+
+	public RawJsonMap(ObjectMapper objectMapper, String json) {
+		this.objectMapper = objectMapper;
+		this.json = json;
+	}
+
+	public String json() {
+		return this.json;
+	}
+
+	boolean isParsed() {
+		return this.parsed != null;
+	}
+
+	private Map<String, Object> parsed() {
+		Map<String, Object> map = this.parsed;
+		if (map == null) {
+			map = Collections.unmodifiableMap(Json.parse(this.objectMapper, this.json));
+			this.parsed = map;
+		}
+		return map;
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		return parsed().entrySet();
+	}
+
+	@Override
+	public Object get(Object key) {
+		return parsed().get(key);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return parsed().containsKey(key);
+	}
+
+	@Override
+	public int size() {
+		return parsed().size();
+	}
+
+	static final class Serializer extends StdSerializer<RawJsonMap> {
+
+		Serializer() {
+			super(RawJsonMap.class);
+		}
+
+		@Override
+		public void serialize(RawJsonMap value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+			gen.writeRawValue(value.json);
+		}
+
+	}
+
+}
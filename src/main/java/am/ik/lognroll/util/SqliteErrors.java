@@ -0,0 +1,27 @@
+package am.ik.lognroll.util;
+
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
+
+public final class SqliteErrors {
+
+	private SqliteErrors() {
+	}
+
+	/**
+	 * @return whether the exception or one of its causes reports that the database is
+	 * locked by another connection ({@code SQLITE_BUSY} or {@code SQLITE_LOCKED},
+	 * including their extended codes)
+	 */
+	public static boolean isBusy(Throwable e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof SQLiteException sqliteException) {
+				int primaryCode = sqliteException.getResultCode().code & 0xff;
+				return primaryCode == SQLiteErrorCode.SQLITE_BUSY.code
+						|| primaryCode == SQLiteErrorCode.SQLITE_LOCKED.code;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,43 @@
+package am.ik.lognroll.util;
+
+import com.github.luben.zstd.util.Native;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Detects whether {@code zstd} can be used. The native library of zstd-jni is loaded once
+ * on first use, and {@code zstd} is disabled instead of failing when it cannot be loaded.
+ */
+public final class ZstdSupport {
+
+	private static final Logger logger = LoggerFactory.getLogger(ZstdSupport.class);
+
+	private ZstdSupport() {
+	}
+
+	/**
+	 * @return whether the native library of zstd-jni can be loaded on this platform. It
+	 * is not available in the native image, for example.
+	 */
+	public static boolean isAvailable() {
+		return Holder.AVAILABLE;
+	}
+
+	private static final class Holder {
+
+		static final boolean AVAILABLE = load();
+
+		private static boolean load() {
+			try {
+				Native.load();
+				return true;
+			}
+			catch (UnsatisfiedLinkError | RuntimeException e) {
+				logger.warn("zstd is not available on this platform", e);
+				return false;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,57 @@
+CREATE TABLE IF NOT EXISTS fts_index_state
+(
+    table_name      TEXT PRIMARY KEY NOT NULL,
+    tokenize        TEXT             NOT NULL,
+    backfill_up_to  INTEGER          NOT NULL DEFAULT 0,
+    backfill_target INTEGER          NOT NULL DEFAULT 0
+);
+
+-- log_fts has been maintained by triggers since the initial schema, so it is complete
+INSERT INTO fts_index_state (table_name, tokenize, backfill_up_to, backfill_target)
+VALUES ('log_fts', 'trigram', 0, 0);
+
+-- FTS tables are managed by FtsIndexManager from now on. Rename the triggers after
+-- the table they maintain and skip rows that an online rebuild has not reached yet.
+DROP TRIGGER IF EXISTS log_ai;
+DROP TRIGGER IF EXISTS log_au;
+DROP TRIGGER IF EXISTS log_ad;
+
+CREATE TRIGGER log_fts_ai
+    AFTER INSERT
+    ON log
+BEGIN
+    INSERT INTO log_fts (rowid, body) VALUES (new.log_id, new.body);
+END;
+
+CREATE TRIGGER log_fts_au
+    AFTER UPDATE
+    ON log
+BEGIN
+    INSERT INTO log_fts (log_fts, rowid, body)
+    SELECT 'delete', old.log_id, old.body
+    WHERE NOT EXISTS (SELECT 1
+                      FROM fts_index_state
+                      WHERE table_name = 'log_fts'
+                        AND old.log_id > backfill_up_to
+                        AND old.log_id <= backfill_target);
+    INSERT INTO log_fts (rowid, body)
+    SELECT new.log_id, new.body
+    WHERE NOT EXISTS (SELECT 1
+                      FROM fts_index_state
+                      WHERE table_name = 'log_fts'
+                        AND new.log_id > backfill_up_to
+                        AND new.log_id <= backfill_target);
+END;
+
+CREATE TRIGGER log_fts_ad
+    AFTER DELETE
+    ON log
+BEGIN
+    INSERT INTO log_fts (log_fts, rowid, body)
+    SELECT 'delete', old.log_id, old.body
+    WHERE NOT EXISTS (SELECT 1
+                      FROM fts_index_state
+                      WHERE table_name = 'log_fts'
+                        AND old.log_id > backfill_up_to
+                        AND old.log_id <= backfill_target);
+END;
@@ -0,0 +1,49 @@
+-- Updating log must not rewrite the full-text index when the body is unchanged
+DROP TRIGGER IF EXISTS log_fts_au;
+
+CREATE TRIGGER log_fts_au
+    AFTER UPDATE OF body
+    ON log
+BEGIN
+    INSERT INTO log_fts (log_fts, rowid, body)
+    SELECT 'delete', old.log_id, old.body
+    WHERE NOT EXISTS (SELECT 1
+                      FROM fts_index_state
+                      WHERE table_name = 'log_fts'
+                        AND old.log_id > backfill_up_to
+                        AND old.log_id <= backfill_target);
+    INSERT INTO log_fts (rowid, body)
+    SELECT new.log_id, new.body
+    WHERE NOT EXISTS (SELECT 1
+                      FROM fts_index_state
+                      WHERE table_name = 'log_fts'
+                        AND new.log_id > backfill_up_to
+                        AND new.log_id <= backfill_target);
+END;
+
+-- The update trigger of the word index was created for any update of log. It is dropped
+-- so that the backfill below does not rewrite that index, and FtsIndexManager creates it
+-- again for updates of body only.
+DROP TRIGGER IF EXISTS log_fts_word_au;
+
+-- See SeverityCategory: 0 = OTHER, 1 = TRACE, 2 = DEBUG, 3 = INFO, 4 = WARN, 5 = ERROR
+ALTER TABLE log ADD COLUMN severity_category INTEGER NOT NULL DEFAULT 0;
+
+UPDATE log
+SET severity_category = CASE
+                            WHEN severity_number BETWEEN 1 AND 4 THEN 1
+                            WHEN severity_number BETWEEN 5 AND 8 THEN 2
+                            WHEN severity_number BETWEEN 9 AND 12 THEN 3
+                            WHEN severity_number BETWEEN 13 AND 16 THEN 4
+                            WHEN severity_number BETWEEN 17 AND 24 THEN 5
+                            WHEN upper(severity_text) LIKE '%ERROR%'
+                                OR upper(severity_text) LIKE '%FATAL%'
+                                OR upper(severity_text) LIKE '%CRITICAL%' THEN 5
+                            WHEN upper(severity_text) LIKE '%WARN%' THEN 4
+                            WHEN upper(severity_text) LIKE '%INFO%' THEN 3
+                            WHEN upper(severity_text) LIKE '%DEBUG%' THEN 2
+                            WHEN upper(severity_text) LIKE '%TRACE%' THEN 1
+                            ELSE 0
+    END;
+
+CREATE INDEX log_severity_category ON log (severity_category, observed_timestamp);
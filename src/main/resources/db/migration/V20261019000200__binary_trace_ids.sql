@@ -0,0 +1,9 @@
+-- Trace and span ids are stored as bytes instead of hex text, and absent ids as NULL
+-- instead of empty strings, so that the trace id index only holds logs with a trace
+UPDATE log
+SET trace_id = CASE WHEN trace_id IS NULL OR trace_id = '' THEN NULL ELSE unhex(trace_id) END,
+    span_id  = CASE WHEN span_id IS NULL OR span_id = '' THEN NULL ELSE unhex(span_id) END;
+
+DROP INDEX IF EXISTS log_trace_id;
+
+CREATE INDEX log_trace_id ON log (trace_id, timestamp) WHERE trace_id IS NOT NULL;
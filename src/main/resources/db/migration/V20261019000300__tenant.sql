@@ -0,0 +1,5 @@
+-- Logs belong to the tenant that sent them. Logs stored before tenants were introduced
+-- belong to the default tenant.
+-- No index is added: tenant conditions are evaluated on the rows selected by the
+-- existing timestamp indexes, so ingest does not maintain another b-tree.
+ALTER TABLE log ADD COLUMN tenant TEXT NOT NULL DEFAULT 'default';
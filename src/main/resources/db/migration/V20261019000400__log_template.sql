@@ -0,0 +1,22 @@
+-- Templates extracted from log bodies at ingest. A template keeps its id when it is
+-- generalised, so logs and counts keep pointing at it.
+CREATE TABLE IF NOT EXISTS log_template
+(
+    template_id INTEGER PRIMARY KEY,
+    tenant      TEXT NOT NULL,
+    template    TEXT NOT NULL
+);
+
+-- Logs stored before templates were introduced have no template.
+ALTER TABLE log ADD COLUMN template_id INTEGER;
+
+-- Number of ingested logs per template and time bucket, maintained at ingest so that top
+-- templates are counted without scanning the logs.
+CREATE TABLE IF NOT EXISTS log_template_count
+(
+    tenant      TEXT    NOT NULL,
+    bucket      INTEGER NOT NULL,
+    template_id INTEGER NOT NULL,
+    count       INTEGER NOT NULL,
+    PRIMARY KEY (tenant, bucket, template_id)
+) WITHOUT ROWID;
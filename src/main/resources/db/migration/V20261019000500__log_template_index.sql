@@ -0,0 +1,3 @@
+-- Looks up the logs of a template in time order. Logs without a template are left out of
+-- the index, so it costs nothing for logs stored before templates were introduced.
+CREATE INDEX log_template_id ON log (template_id, observed_timestamp) WHERE template_id IS NOT NULL;
@@ -0,0 +1,3 @@
+-- Counts the logs per tenant from the index alone, in tenant order, instead of scanning
+-- the table into a temporary b-tree, and looks up the logs of a tenant in time order.
+CREATE INDEX log_tenant ON log (tenant, observed_timestamp);
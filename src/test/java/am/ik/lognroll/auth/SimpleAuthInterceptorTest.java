@@ -0,0 +1,119 @@
+package am.ik.lognroll.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import am.ik.lognroll.auth.AuthProps.ScopedToken;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SimpleAuthInterceptorTest {
+
+	AuthProps props = new AuthProps("admin-token", List.of(new ScopedToken("ingest-token", TokenScope.INGEST, "team-a"),
+			new ScopedToken("read-token", TokenScope.READ, null)), 2);
+
+	SimpleAuthInterceptor interceptor = new SimpleAuthInterceptor(this.props);
+
+	TokenAuthenticator authenticator = new TokenAuthenticator(this.props);
+
+	@Test
+	void bearer() {
+		assertThat(this.authenticator.scopes("Bearer admin-token")).isEqualTo(0b111);
+		assertThat(this.authenticator.scopes("bearer   ingest-token  ")).isEqualTo(TokenScope.INGEST.bit());
+		assertThat(this.authenticator.scopes("BEARER read-token")).isEqualTo(TokenScope.READ.bit());
+		assertThat(this.authenticator.scopes("Bearer read-toke")).isZero();
+		assertThat(this.authenticator.scopes("Bearer read-tokenn")).isZero();
+		assertThat(this.authenticator.scopes("Bearer ")).isZero();
+		assertThat(this.authenticator.scopes("Bearerread-token")).isZero();
+		assertThat(this.authenticator.scopes("Token read-token")).isZero();
+		assertThat(this.authenticator.scopes(null)).isZero();
+	}
+
+	@Test
+	void basic() {
+		assertThat(this.authenticator.scopes(basic("user:admin-token"))).isEqualTo(0b111);
+		assertThat(this.authenticator.scopes(basic("user:admin-token"))).isEqualTo(0b111);
+		assertThat(this.authenticator.scopes(basic(":read-token"))).isEqualTo(TokenScope.READ.bit());
+		assertThat(this.authenticator.scopes(basic("user:pass:word"))).isZero();
+		assertThat(this.authenticator.scopes(basic("read-token"))).isZero();
+		assertThat(this.authenticator.scopes("Basic !!!")).isZero();
+	}
+
+	@Test
+	void constantTimeEquals() {
+		char[] expected = "secret".toCharArray();
+		assertThat(TokenAuthenticator.constantTimeEquals("xsecretx", 1, 6, expected)).isOne();
+		assertThat(TokenAuthenticator.constantTimeEquals("xsecreTx", 1, 6, expected)).isZero();
+		assertThat(TokenAuthenticator.constantTimeEquals("xsecret", 1, 5, expected)).isZero();
+		assertThat(TokenAuthenticator.constantTimeEquals("", 0, 0, new char[0])).isOne();
+	}
+
+	@Test
+	void requiredScope() {
+		assertThat(TokenScope.requiredFor("POST", "/v1/logs")).isEqualTo(TokenScope.INGEST);
+		assertThat(TokenScope.requiredFor("GET", "/api/logs")).isEqualTo(TokenScope.READ);
+		assertThat(TokenScope.requiredFor("GET", "/index.html")).isEqualTo(TokenScope.READ);
+		assertThat(TokenScope.requiredFor("DELETE", "/api/logs")).isEqualTo(TokenScope.ADMIN);
+		assertThat(TokenScope.requiredFor("POST", "/api/maintenance/enable")).isEqualTo(TokenScope.ADMIN);
+		assertThat(TokenScope.requiredFor("GET", "/api/maintenance")).isEqualTo(TokenScope.ADMIN);
+		assertThat(TokenScope.requiredFor("GET", "/api/logs/download")).isEqualTo(TokenScope.ADMIN);
+	}
+
+	@Test
+	void scopedTokens() throws Exception {
+		assertThat(status("POST", "/v1/logs", "Bearer ingest-token")).isEqualTo(200);
+		assertThat(status("GET", "/api/logs", "Bearer ingest-token")).isEqualTo(403);
+		assertThat(status("GET", "/api/logs", "Bearer read-token")).isEqualTo(200);
+		assertThat(status("GET", "/api/logs/download", "Bearer read-token")).isEqualTo(403);
+		assertThat(status("GET", "/api/logs/download", "Bearer admin-token")).isEqualTo(200);
+		assertThat(status("POST", "/v1/logs", "Bearer read-token")).isEqualTo(403);
+		assertThat(status("DELETE", "/api/logs", "Bearer read-token")).isEqualTo(403);
+		assertThat(status("DELETE", "/api/logs", "Bearer admin-token")).isEqualTo(200);
+		assertThat(status("POST", "/v1/logs", "Bearer admin-token")).isEqualTo(200);
+		assertThat(status("GET", "/api/logs", "Bearer unknown")).isEqualTo(401);
+		assertThat(status("GET", "/api/logs", null)).isEqualTo(401);
+	}
+
+	@Test
+	void tenantOfToken() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/v1/logs");
+		request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer ingest-token");
+		assertThat(this.interceptor.preHandle(request, new MockHttpServletResponse(), new Object())).isTrue();
+		assertThat(request.getAttribute(SimpleAuthInterceptor.TENANT_ATTRIBUTE)).isEqualTo("team-a");
+		request = new MockHttpServletRequest("POST", "/v1/logs");
+		request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer admin-token");
+		assertThat(this.interceptor.preHandle(request, new MockHttpServletResponse(), new Object())).isTrue();
+		assertThat(request.getAttribute(SimpleAuthInterceptor.TENANT_ATTRIBUTE)).isNull();
+	}
+
+	@Test
+	void disabled() throws Exception {
+		this.interceptor = new SimpleAuthInterceptor(new AuthProps("", List.of(), 2));
+		assertThat(status("DELETE", "/api/logs", null)).isEqualTo(200);
+	}
+
+	int status(String method, String path, String authorization) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+		if (authorization != null) {
+			request.addHeader(HttpHeaders.AUTHORIZATION, authorization);
+		}
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		boolean proceed = this.interceptor.preHandle(request, response, new Object());
+		assertThat(proceed).isEqualTo(response.getStatus() == 200);
+		if (response.getStatus() == 401) {
+			assertThat(response.getHeader(HttpHeaders.WWW_AUTHENTICATE)).startsWith("Basic");
+		}
+		return response.getStatus();
+	}
+
+	static String basic(String credentials) {
+		return "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
@@ -0,0 +1,122 @@
+package am.ik.lognroll.compression;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import com.github.luben.zstd.ZstdInputStream;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCompressionFilterTest {
+
+	static final byte[] LARGE = "{\"logs\":[]}".repeat(1000).getBytes(StandardCharsets.UTF_8);
+
+	static final byte[] SMALL = "{\"totalCount\":1}".getBytes(StandardCharsets.UTF_8);
+
+	ResponseCompressionProps props = new ResponseCompressionProps(true, List.of("/api/**"), List.of("/api/logs/count"),
+			List.of("application/json", "application/octet-stream"), DataSize.ofKilobytes(2), 3, 5);
+
+	ResponseCompressionFilter filter = new ResponseCompressionFilter(this.props);
+
+	@Test
+	void zstd() throws Exception {
+		MockHttpServletResponse response = perform(request("/api/logs", "gzip, deflate, br, zstd"),
+				MediaType.APPLICATION_JSON_VALUE, LARGE);
+		assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("zstd");
+		assertThat(response.getHeader(HttpHeaders.CONTENT_LENGTH)).isNull();
+		assertThat(response.getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT_ENCODING);
+		assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("W/\"etag\"");
+		try (ZstdInputStream stream = new ZstdInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+			assertThat(stream.readAllBytes()).isEqualTo(LARGE);
+		}
+	}
+
+	@Test
+	void gzip() throws Exception {
+		MockHttpServletResponse response = perform(request("/api/logs", "gzip;q=1.0, zstd;q=0.5"),
+				MediaType.APPLICATION_JSON_VALUE, LARGE);
+		assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+		try (GZIPInputStream stream = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+			assertThat(stream.readAllBytes()).isEqualTo(LARGE);
+		}
+	}
+
+	@Test
+	void smallResponseIsSentAsIs() throws Exception {
+		MockHttpServletResponse response = perform(request("/api/logs", "zstd"), MediaType.APPLICATION_JSON_VALUE,
+				SMALL);
+		assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+		assertThat(response.getHeader(HttpHeaders.CONTENT_LENGTH)).isEqualTo(String.valueOf(SMALL.length));
+		assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"etag\"");
+		assertThat(response.getContentAsByteArray()).isEqualTo(SMALL);
+	}
+
+	@Test
+	void excludedPathIsSentAsIs() throws Exception {
+		MockHttpServletResponse response = perform(request("/api/logs/count", "zstd"), MediaType.APPLICATION_JSON_VALUE,
+				LARGE);
+		assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+		assertThat(response.getContentAsByteArray()).isEqualTo(LARGE);
+	}
+
+	@Test
+	void otherMediaTypeIsSentAsIs() throws Exception {
+		MockHttpServletResponse response = perform(request("/api/logs", "zstd"), MediaType.TEXT_EVENT_STREAM_VALUE,
+				LARGE);
+		assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+		assertThat(response.getContentAsByteArray()).isEqualTo(LARGE);
+	}
+
+	@Test
+	void notAcceptedIsSentAsIs() throws Exception {
+		MockHttpServletResponse response = perform(request("/api/logs", "identity"), MediaType.APPLICATION_JSON_VALUE,
+				LARGE);
+		assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+		assertThat(response.getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT_ENCODING);
+		assertThat(response.getContentAsByteArray()).isEqualTo(LARGE);
+	}
+
+	@Test
+	void negotiate() {
+		assertThat(ResponseCompressionFilter.negotiate(List.of("gzip, zstd"), true)).isEqualTo("zstd");
+		assertThat(ResponseCompressionFilter.negotiate(List.of("gzip", "zstd;q=0.8"), true)).isEqualTo("gzip");
+		assertThat(ResponseCompressionFilter.negotiate(List.of("*"), true)).isEqualTo("zstd");
+		assertThat(ResponseCompressionFilter.negotiate(List.of("*;q=0.5, zstd;q=0"), true)).isEqualTo("gzip");
+		assertThat(ResponseCompressionFilter.negotiate(List.of("br, deflate"), true)).isNull();
+		assertThat(ResponseCompressionFilter.negotiate(List.of(), true)).isNull();
+		assertThat(ResponseCompressionFilter.negotiate(List.of("zstd, gzip"), false)).isEqualTo("gzip");
+	}
+
+	MockHttpServletRequest request(String path, String acceptEncoding) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+		request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+		return request;
+	}
+
+	MockHttpServletResponse perform(MockHttpServletRequest request, String contentType, byte[] body) throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain chain = (req, res) -> {
+			res.setContentType(contentType);
+			res.setContentLength(body.length);
+			((HttpServletResponse) res).setHeader(HttpHeaders.ETAG, "\"etag\"");
+			for (int i = 0; i < body.length; i += 100) {
+				res.getOutputStream().write(body, i, Math.min(100, body.length - i));
+			}
+			res.getOutputStream().flush();
+		};
+		this.filter.doFilter(request, response, chain);
+		return response;
+	}
+
+}
@@ -0,0 +1,51 @@
+package am.ik.lognroll.jvm;
+
+import java.time.Duration;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class VirtualThreadPinnedMetricsTest {
+
+	@Test
+	void recordPinnedVirtualThread() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		VirtualThreadPinnedMetrics metrics = new VirtualThreadPinnedMetrics(
+				new VirtualThreadPinnedProps(true, Duration.ofMillis(1)));
+		try {
+			metrics.bindTo(registry);
+			Object lock = new Object();
+			Thread.ofVirtual().start(() -> {
+				synchronized (lock) {
+					try {
+						// parking inside a monitor pins the carrier
+						Thread.sleep(50);
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}).join();
+			Timer timer = registry.get("jvm.threads.virtual.pinned").timer();
+			await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> assertThat(timer.count()).isPositive());
+		}
+		finally {
+			metrics.destroy();
+		}
+	}
+
+	@Test
+	void disabled() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		VirtualThreadPinnedMetrics metrics = new VirtualThreadPinnedMetrics(
+				new VirtualThreadPinnedProps(false, Duration.ofMillis(20)));
+		metrics.bindTo(registry);
+		assertThat(registry.find("jvm.threads.virtual.pinned").timer()).isNull();
+		metrics.destroy();
+	}
+
+}
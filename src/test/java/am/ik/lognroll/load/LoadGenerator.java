@@ -0,0 +1,402 @@
+package am.ik.lognroll.load;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import am.ik.lognroll.otlp.SyntheticLogs;
+import com.google.protobuf.util.JsonFormat;
+import io.opentelemetry.proto.logs.v1.LogsData;
+import io.opentelemetry.proto.logs.v1.ResourceLogs;
+
+/**
+ * Replays synthetic OTLP batches against a running lognroll while querying it at the same
+ * time, then reports ingest throughput, latencies and how often SQLite was busy.
+ * <p>
+ * Options are given as {@code --name=value}:
+ * <ul>
+ * <li>{@code url} base URL of lognroll (default {@code http://localhost:4318})</li>
+ * <li>{@code token} bearer token (default {@code changeme})</li>
+ * <li>{@code duration} ISO-8601 duration of the run (default {@code PT30S})</li>
+ * <li>{@code concurrency} number of concurrent ingest requests (default 4)</li>
+ * <li>{@code batch-size} records per ingest request (default 100)</li>
+ * <li>{@code format} {@code protobuf} or {@code json} (default protobuf)</li>
+ * <li>{@code gzip} whether request bodies are gzip encoded (default false)</li>
+ * <li>{@code query-concurrency} number of concurrent {@code /api/logs} and
+ * {@code /api/logs/volumes} clients (default 1)</li>
+ * <li>{@code baseline} properties file with the baseline throughput and the parameters it
+ * was recorded with (default {@code load-baseline.properties}). The run fails if it is
+ * missing or was recorded with different parameters.</li>
+ * <li>{@code max-regression} allowed throughput drop from the baseline in percent
+ * (default 10)</li>
+ * <li>{@code write-baseline} stores the result as the new baseline instead of comparing
+ * (default false)</li>
+ * </ul>
+ */
+public class LoadGenerator {
+
+	private static final int PAYLOAD_POOL_SIZE = 32;
+
+	private final Options options;
+
+	private final HttpClient httpClient;
+
+	public LoadGenerator(Options options) {
+		this.options = options;
+		this.httpClient = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(Duration.ofSeconds(5))
+			.build();
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = Options.parse(args);
+		Report report = new LoadGenerator(options).run();
+		System.out.println(report.format());
+		if (options.writeBaseline()) {
+			report.writeBaseline(options.baseline());
+			System.out.println("Baseline written to " + options.baseline().toAbsolutePath());
+		}
+		else {
+			checkBaseline(report, options.baseline(), options.maxRegression());
+		}
+	}
+
+	public Report run() throws Exception {
+		List<Payload> payloads = createPayloads();
+		Instant deadline = Instant.now().plus(this.options.duration());
+		LatencyRecorder ingestLatencies = new LatencyRecorder();
+		LatencyRecorder logsLatencies = new LatencyRecorder();
+		LatencyRecorder volumesLatencies = new LatencyRecorder();
+		AtomicLong records = new AtomicLong();
+		AtomicLong errors = new AtomicLong();
+		AtomicLong busyResponses = new AtomicLong();
+		long serverBusyBefore = scrapeServerBusy();
+		long started = System.nanoTime();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < this.options.concurrency(); i++) {
+				int offset = i;
+				futures.add(executor.submit(() -> {
+					for (int n = offset; Instant.now().isBefore(deadline); n++) {
+						Payload payload = payloads.get(n % payloads.size());
+						HttpResponse<String> response = timed(ingestLatencies, ingestRequest(payload));
+						if (response.statusCode() / 100 == 2) {
+							records.addAndGet(payload.records());
+						}
+						else {
+							errors.incrementAndGet();
+							if (response.statusCode() == 503) {
+								busyResponses.incrementAndGet();
+							}
+						}
+					}
+					return null;
+				}));
+			}
+			for (int i = 0; i < this.options.queryConcurrency(); i++) {
+				futures.add(executor.submit(() -> {
+					while (Instant.now().isBefore(deadline)) {
+						query(logsLatencies, "/api/logs?size=30&query=timeout", errors, busyResponses);
+						String from = URLEncoder.encode(Instant.now().minus(Duration.ofHours(1)).toString(),
+								StandardCharsets.UTF_8);
+						query(volumesLatencies, "/api/logs/volumes?interval=PT1M&from=" + from, errors, busyResponses);
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+		double seconds = (System.nanoTime() - started) / 1e9;
+		long serverBusyAfter = scrapeServerBusy();
+		return new Report(this.options, seconds, ingestLatencies.count(), records.get(), errors.get(),
+				busyResponses.get(),
+				serverBusyBefore < 0 || serverBusyAfter < 0 ? -1 : serverBusyAfter - serverBusyBefore,
+				ingestLatencies.summary(), logsLatencies.summary(), volumesLatencies.summary());
+	}
+
+	/**
+	 * @throws IllegalStateException if there is no baseline, the baseline was recorded
+	 * with different parameters, or the throughput dropped from the baseline by more than
+	 * the allowed percentage
+	 */
+	static void checkBaseline(Report report, Path baseline, double maxRegression) throws IOException {
+		if (!Files.exists(baseline)) {
+			throw new IllegalStateException(
+					"No baseline at %s. Record one with --write-baseline=true.".formatted(baseline.toAbsolutePath()));
+		}
+		Properties properties = new Properties();
+		try (var reader = Files.newBufferedReader(baseline)) {
+			properties.load(reader);
+		}
+		Properties parameters = report.parameters();
+		List<String> mismatches = parameters.stringPropertyNames()
+			.stream()
+			.sorted()
+			.filter(name -> !parameters.getProperty(name).equals(properties.getProperty(name)))
+			.map(name -> "%s=%s (baseline: %s)".formatted(name, parameters.getProperty(name),
+					properties.getProperty(name)))
+			.toList();
+		if (!mismatches.isEmpty()) {
+			throw new IllegalStateException("The baseline was recorded with different parameters: "
+					+ String.join(", ", mismatches) + ". Record a new one with --write-baseline=true.");
+		}
+		double expected = Double.parseDouble(properties.getProperty("records-per-second"));
+		double drop = (expected - report.recordsPerSecond()) / expected * 100;
+		System.out.printf(Locale.ROOT, "Throughput %.1f records/s vs. baseline %.1f records/s (%+.1f%%)%n",
+				report.recordsPerSecond(), expected, -drop);
+		if (drop > maxRegression) {
+			throw new IllegalStateException(
+					"Throughput dropped by %.1f%% from the baseline (allowed: %.1f%%)".formatted(drop, maxRegression));
+		}
+	}
+
+	private void query(LatencyRecorder recorder, String path, AtomicLong errors, AtomicLong busyResponses)
+			throws IOException, InterruptedException {
+		HttpResponse<String> response = timed(recorder,
+				authorized(HttpRequest.newBuilder(this.options.url().resolve(path))).GET().build());
+		if (response.statusCode() != 200) {
+			errors.incrementAndGet();
+			if (response.statusCode() == 503) {
+				busyResponses.incrementAndGet();
+			}
+		}
+	}
+
+	private HttpResponse<String> timed(LatencyRecorder recorder, HttpRequest request)
+			throws IOException, InterruptedException {
+		long start = System.nanoTime();
+		HttpResponse<String> response = this.httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+		recorder.record(System.nanoTime() - start);
+		return response;
+	}
+
+	private HttpRequest ingestRequest(Payload payload) {
+		HttpRequest.Builder builder = authorized(HttpRequest.newBuilder(this.options.url().resolve("/v1/logs")))
+			.header("Content-Type", this.options.format().contentType)
+			.POST(HttpRequest.BodyPublishers.ofByteArray(payload.body()));
+		if (this.options.gzip()) {
+			builder.header("Content-Encoding", "gzip");
+		}
+		return builder.build();
+	}
+
+	private HttpRequest.Builder authorized(HttpRequest.Builder builder) {
+		return builder.header("Authorization", "Bearer " + this.options.token()).timeout(Duration.ofSeconds(60));
+	}
+
+	private List<Payload> createPayloads() throws IOException {
+		int services = Math.max(1, Math.min(10, this.options.batchSize() / 10));
+		int recordsPerService = Math.max(1, this.options.batchSize() / services);
+		List<Payload> payloads = new ArrayList<>();
+		for (int i = 0; i < PAYLOAD_POOL_SIZE; i++) {
+			LogsData logsData = SyntheticLogs.generate(services, recordsPerService, i);
+			byte[] body = switch (this.options.format()) {
+				case PROTOBUF -> logsData.toByteArray();
+				case JSON -> JsonFormat.printer().print(logsData).getBytes(StandardCharsets.UTF_8);
+			};
+			if (this.options.gzip()) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+					gzip.write(body);
+				}
+				body = out.toByteArray();
+			}
+			int records = logsData.getResourceLogsList()
+				.stream()
+				.mapToInt(resourceLogs -> resourceLogs.getScopeLogsList()
+					.stream()
+					.mapToInt(scopeLogs -> scopeLogs.getLogRecordsCount())
+					.sum())
+				.sum();
+			payloads.add(new Payload(body, records));
+		}
+		return payloads;
+	}
+
+	/**
+	 * @return the server side {@code sqlite.busy} counter, or {@code -1} if the
+	 * Prometheus endpoint is not available
+	 */
+	private long scrapeServerBusy() {
+		try {
+			HttpResponse<String> response = this.httpClient
+				.send(authorized(HttpRequest.newBuilder(this.options.url().resolve("/actuator/prometheus"))).GET()
+					.build(), HttpResponse.BodyHandlers.ofString());
+			if (response.statusCode() != 200) {
+				return -1;
+			}
+			return response.body()
+				.lines()
+				.filter(line -> line.startsWith("sqlite_busy_total"))
+				.mapToLong(line -> (long) Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1)))
+				.sum();
+		}
+		catch (IOException e) {
+			return -1;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return -1;
+		}
+	}
+
+	public enum Format {
+
+		PROTOBUF("application/x-protobuf"), JSON("application/json");
+
+		private final String contentType;
+
+		Format(String contentType) {
+			this.contentType = contentType;
+		}
+
+	}
+
+	public record Options(URI url, String token, Duration duration, int concurrency, int batchSize, Format format,
+			boolean gzip, int queryConcurrency, Path baseline, double maxRegression, boolean writeBaseline) {
+
+		public static Options parse(String... args) {
+			Map<String, String> values = new HashMap<>();
+			for (String arg : args) {
+				if (!arg.startsWith("--") || !arg.contains("=")) {
+					throw new IllegalArgumentException("Options must be given as --name=value: " + arg);
+				}
+				values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+			}
+			return new Options(URI.create(values.getOrDefault("url", "http://localhost:4318")),
+					values.getOrDefault("token", "changeme"), Duration.parse(values.getOrDefault("duration", "PT30S")),
+					Integer.parseInt(values.getOrDefault("concurrency", "4")),
+					Integer.parseInt(values.getOrDefault("batch-size", "100")),
+					Format.valueOf(values.getOrDefault("format", "protobuf").toUpperCase(Locale.ROOT)),
+					Boolean.parseBoolean(values.getOrDefault("gzip", "false")),
+					Integer.parseInt(values.getOrDefault("query-concurrency", "1")),
+					Path.of(values.getOrDefault("baseline", "load-baseline.properties")),
+					Double.parseDouble(values.getOrDefault("max-regression", "10")),
+					Boolean.parseBoolean(values.getOrDefault("write-baseline", "false")));
+		}
+
+	}
+
+	record Payload(byte[] body, int records) {
+	}
+
+	/**
+	 * @param serverBusy increase of the server side {@code sqlite.busy} counter, or
+	 * {@code -1} if unknown
+	 */
+	public record Report(Options options, double seconds, long requests, long records, long errors, long busyResponses,
+			long serverBusy, LatencySummary ingest, LatencySummary logs, LatencySummary volumes) {
+
+		public double recordsPerSecond() {
+			return this.records / this.seconds;
+		}
+
+		public String format() {
+			return String.join(System.lineSeparator(),
+					"concurrency=%d batch-size=%d format=%s gzip=%s query-concurrency=%d".formatted(
+							this.options.concurrency(), this.options.batchSize(),
+							this.options.format().name().toLowerCase(Locale.ROOT), this.options.gzip(),
+							this.options.queryConcurrency()),
+					String.format(Locale.ROOT, "records/s          %.1f (%d records in %.1fs)", recordsPerSecond(),
+							this.records, this.seconds),
+					"ingest requests    " + this.requests, "errors             " + this.errors,
+					"busy responses     " + this.busyResponses,
+					"sqlite busy        " + (this.serverBusy < 0 ? "n/a" : String.valueOf(this.serverBusy)),
+					"POST /v1/logs      " + this.ingest, "GET /api/logs      " + this.logs,
+					"GET /api/volumes   " + this.volumes);
+		}
+
+		/**
+		 * @return the options that affect the throughput, which a baseline is only
+		 * comparable for
+		 */
+		Properties parameters() {
+			Properties properties = new Properties();
+			properties.setProperty("concurrency", String.valueOf(this.options.concurrency()));
+			properties.setProperty("batch-size", String.valueOf(this.options.batchSize()));
+			properties.setProperty("format", this.options.format().name().toLowerCase(Locale.ROOT));
+			properties.setProperty("gzip", String.valueOf(this.options.gzip()));
+			properties.setProperty("query-concurrency", String.valueOf(this.options.queryConcurrency()));
+			return properties;
+		}
+
+		void writeBaseline(Path path) throws IOException {
+			Properties properties = parameters();
+			properties.setProperty("records-per-second", String.format(Locale.ROOT, "%.1f", recordsPerSecond()));
+			try (Writer writer = Files.newBufferedWriter(path)) {
+				properties.store(writer, "lognroll load test baseline");
+			}
+		}
+
+	}
+
+	public record LatencySummary(long count, double p50Millis, double p99Millis) {
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "p50=%.1fms p99=%.1fms (n=%d)", this.p50Millis, this.p99Millis,
+					this.count);
+		}
+
+	}
+
+	static final class LatencyRecorder {
+
+		private long[] latencies = new long[1024];
+
+		private int count;
+
+		synchronized void record(long nanos) {
+			if (this.count == this.latencies.length) {
+				this.latencies = Arrays.copyOf(this.latencies, this.count * 2);
+			}
+			this.latencies[this.count++] = nanos;
+		}
+
+		synchronized long count() {
+			return this.count;
+		}
+
+		synchronized LatencySummary summary() {
+			if (this.count == 0) {
+				return new LatencySummary(0, 0, 0);
+			}
+			long[] sorted = Arrays.copyOf(this.latencies, this.count);
+			Arrays.sort(sorted);
+			return new LatencySummary(this.count, percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6);
+		}
+
+		private static long percentile(long[] sorted, double percentile) {
+			int index = (int) Math.ceil(percentile * sorted.length) - 1;
+			return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+		}
+
+	}
+
+}
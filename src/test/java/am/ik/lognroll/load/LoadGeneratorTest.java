@@ -0,0 +1,74 @@
+package am.ik.lognroll.load;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import am.ik.lognroll.IntegrationTestBase;
+import am.ik.lognroll.logs.LogStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoadGeneratorTest extends IntegrationTestBase {
+
+	@Autowired
+	LogStore logStore;
+
+	@Autowired
+	MeterRegistry meterRegistry;
+
+	@TempDir
+	Path tempDir;
+
+	@BeforeEach
+	void setUp() {
+		this.logStore.clear();
+	}
+
+	@Test
+	void run() throws Exception {
+		LoadGenerator.Options options = LoadGenerator.Options.parse("--url=http://localhost:" + this.port,
+				"--duration=PT2S", "--concurrency=2", "--batch-size=20", "--format=json", "--gzip=true");
+		LoadGenerator.Report report = new LoadGenerator(options).run();
+		assertThat(report.records()).isPositive();
+		assertThat(report.errors()).isEqualTo(report.busyResponses());
+		assertThat(report.ingest().count()).isEqualTo(report.requests());
+		assertThat(report.logs().count()).isPositive();
+		assertThat(report.volumes().count()).isPositive();
+		assertThat(this.meterRegistry.counter("sqlite.busy").count()).isGreaterThanOrEqualTo(report.busyResponses());
+		assertThat(report.format()).contains("records/s");
+	}
+
+	@Test
+	void checkBaseline() throws Exception {
+		Path baseline = this.tempDir.resolve("load-baseline.properties");
+		LoadGenerator.Options options = LoadGenerator.Options.parse("--baseline=" + baseline);
+		LoadGenerator.Report report = report(options, 1000);
+		assertThatThrownBy(() -> LoadGenerator.checkBaseline(report, baseline, 10))
+			.isInstanceOf(IllegalStateException.class)
+			.hasMessageContaining("No baseline");
+		report.writeBaseline(baseline);
+		assertThat(Files.readString(baseline)).contains("records-per-second=1000.0");
+		LoadGenerator.checkBaseline(report(options, 950), baseline, 10);
+		assertThatThrownBy(() -> LoadGenerator.checkBaseline(report(options, 800), baseline, 10))
+			.isInstanceOf(IllegalStateException.class)
+			.hasMessageContaining("20.0%");
+		LoadGenerator.Options other = LoadGenerator.Options.parse("--baseline=" + baseline, "--batch-size=500",
+				"--gzip=true");
+		assertThatThrownBy(() -> LoadGenerator.checkBaseline(report(other, 1000), baseline, 10))
+			.isInstanceOf(IllegalStateException.class)
+			.hasMessageContaining("batch-size=500 (baseline: 100), gzip=true (baseline: false)");
+	}
+
+	static LoadGenerator.Report report(LoadGenerator.Options options, long records) {
+		LoadGenerator.LatencySummary empty = new LoadGenerator.LatencySummary(0, 0, 0);
+		return new LoadGenerator.Report(options, 1, 1, records, 0, 0, 0, empty, empty, empty);
+	}
+
+}
@@ -0,0 +1,35 @@
+package am.ik.lognroll.logs;
+
+import java.util.List;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IngestMetricsTest {
+
+	SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	IngestMetrics metrics = new IngestMetrics(this.registry, new IngestMetricsProps(2));
+
+	@Test
+	void serviceNamesAreCapped() {
+		this.metrics.ingested(List.of(log("a"), log("a"), log("b"), log("c"), log("d")));
+		this.metrics.ingested(List.of(log("a"), log("e")));
+		assertThat(count("a")).isEqualTo(3);
+		assertThat(count("b")).isEqualTo(1);
+		assertThat(count(IngestMetrics.OTHER_SERVICE)).isEqualTo(3);
+		assertThat(this.registry.find("logs.ingested").counters()).hasSize(3);
+		assertThat(this.registry.get("lognroll.ingest.batch.size").summary().totalAmount()).isEqualTo(7);
+	}
+
+	double count(String serviceName) {
+		return this.registry.get("logs.ingested").tag("service_name", serviceName).counter().count();
+	}
+
+	static Log log(String serviceName) {
+		return LogBuilder.log().serviceName(serviceName).body("test").build();
+	}
+
+}
@@ -0,0 +1,78 @@
+package am.ik.lognroll.logs;
+
+import java.time.Instant;
+import java.util.Map;
+
+import am.ik.lognroll.logs.filter.FilterExpressionTextParser;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogMatcherTest {
+
+	FilterExpressionTextParser parser = new FilterExpressionTextParser();
+
+	Log log = LogBuilder.log()
+		.timestamp(Instant.parse("2024-06-01T00:00:00Z"))
+		.observedTimestamp(Instant.parse("2024-06-01T00:00:01Z"))
+		.severityText("ERROR")
+		.severityNumber(17)
+		.serviceName("demo")
+		.scope("com.example.Foo")
+		.body("Connection refused: upstream timed out")
+		.traceId("")
+		.spanId("")
+		.traceFlags(0)
+		.attributes(Map.of("http.status_code", 503, "user_agent.original", "kube-probe/1.30", "retry", true))
+		.resourceAttributes(Map.of("k8s.namespace.name", "default"))
+		.build();
+
+	@Test
+	void matchAll() {
+		assertThat(LogMatcher.of(null, null).test(this.log)).isTrue();
+		assertThat(LogMatcher.of("", null).test(this.log)).isTrue();
+	}
+
+	@Test
+	void query() {
+		assertThat(LogMatcher.of("refused", null).test(this.log)).isTrue();
+		assertThat(LogMatcher.of("REFUSED upstream", null).test(this.log)).isTrue();
+		assertThat(LogMatcher.of("refused -upstream", null).test(this.log)).isFalse();
+		assertThat(LogMatcher.of("hello or timed", null).test(this.log)).isTrue();
+		assertThat(LogMatcher.of("\"timed out\"", null).test(this.log)).isTrue();
+		assertThat(LogMatcher.of("hello", null).test(this.log)).isFalse();
+	}
+
+	@Test
+	void filter() {
+		assertThat(matches("severity_text == 'ERROR'")).isTrue();
+		assertThat(matches("severityText == 'ERROR' && service_name == 'demo'")).isTrue();
+		assertThat(matches("severity_text == 'error'")).isFalse();
+		assertThat(matches("severity_number >= 17")).isTrue();
+		assertThat(matches("severity_number < 17")).isFalse();
+		assertThat(matches("severity_category >= 4")).isTrue();
+		assertThat(matches("severityCategory == 3")).isFalse();
+		assertThat(matches("service_name IN ['foo', 'demo']")).isTrue();
+		assertThat(matches("service_name NOT IN ['foo', 'demo']")).isFalse();
+		assertThat(matches("NOT (service_name == 'demo')")).isFalse();
+		assertThat(matches("attributes[\"http.status_code\"] == 503")).isTrue();
+		assertThat(matches("attributes['user_agent.original'] == 'kube-probe/1.30'")).isTrue();
+		assertThat(matches("attributes['retry'] == true")).isTrue();
+		assertThat(matches("resourceAttributes[\"k8s.namespace.name\"] == 'default'")).isTrue();
+		assertThat(matches("resource_attributes[\"k8s.namespace.name\"] != 'default'")).isFalse();
+		assertThat(matches("attributes['missing'] != 'x'")).isFalse();
+		assertThat(matches("(service_name == 'foo' || severity_text == 'ERROR') && scope == 'com.example.Foo'"))
+			.isTrue();
+	}
+
+	@Test
+	void queryAndFilter() {
+		assertThat(LogMatcher.of("refused", this.parser.parse("service_name == 'demo'")).test(this.log)).isTrue();
+		assertThat(LogMatcher.of("refused", this.parser.parse("service_name == 'foo'")).test(this.log)).isFalse();
+	}
+
+	boolean matches(String filter) {
+		return LogMatcher.of(null, this.parser.parse(filter)).test(this.log);
+	}
+
+}
@@ -0,0 +1,275 @@
+package am.ik.lognroll.logs;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import am.ik.lognroll.IntegrationTestBase;
+import am.ik.lognroll.logs.QueryController.CountResponse;
+import com.github.luben.zstd.ZstdInputStream;
+import com.google.protobuf.UnknownFieldSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryControllerTest extends IntegrationTestBase {
+
+	@Autowired
+	LogStore logStore;
+
+	@BeforeEach
+	void resetData() {
+		this.logStore.clear();
+	}
+
+	@Test
+	void conditionalRequest() throws Exception {
+		ingest();
+		ResponseEntity<String> first = this.restClient.get()
+			.uri("/api/logs")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.toEntity(String.class);
+		assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+		String etag = first.getHeaders().getETag();
+		assertThat(etag).isNotNull();
+
+		ResponseEntity<String> notModified = this.restClient.get()
+			.uri("/api/logs")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.header(HttpHeaders.IF_NONE_MATCH, etag)
+			.retrieve()
+			.toEntity(String.class);
+		assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+
+		// new data changes the page
+		ingest();
+		ResponseEntity<String> modified = this.restClient.get()
+			.uri("/api/logs")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.header(HttpHeaders.IF_NONE_MATCH, etag)
+			.retrieve()
+			.toEntity(String.class);
+		assertThat(modified.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(modified.getHeaders().getETag()).isNotEqualTo(etag);
+		assertThat(this.json.from(modified.getBody())).extractingJsonPathNumberValue("$.logs.length()").isEqualTo(2);
+	}
+
+	@Test
+	void volumesWithAutomaticInterval() throws Exception {
+		ingest();
+		ResponseEntity<String> response = this.restClient.get()
+			.uri(uriBuilder -> uriBuilder.path("/api/logs/volumes")
+				.queryParam("from", "2018-12-13T14:00:00Z")
+				.queryParam("to", "2018-12-13T15:00:00Z")
+				.build())
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.toEntity(String.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(this.json.from(response.getBody())).extractingJsonPathNumberValue("$.intervalMillis")
+			.isEqualTo(30_000);
+	}
+
+	@Test
+	void volumesWithSubMinuteInterval() throws Exception {
+		ingest();
+		ResponseEntity<String> response = this.restClient.get()
+			.uri(uriBuilder -> uriBuilder.path("/api/logs/volumes")
+				.queryParam("to", "2018-12-13T15:00:00Z")
+				.queryParam("interval", "PT5S")
+				.build())
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.toEntity(String.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(this.json.from(response.getBody())).extractingJsonPathNumberValue("$.intervalMillis")
+			.isEqualTo(5_000);
+		assertThat(this.json.from(response.getBody())).extractingJsonPathNumberValue("$.volumes.length()").isEqualTo(1);
+	}
+
+	@Test
+	void volumesWithTooManyBuckets() {
+		ResponseEntity<String> response = this.restClient.get()
+			.uri(uriBuilder -> uriBuilder.path("/api/logs/volumes")
+				.queryParam("from", "2024-01-01T00:00:00Z")
+				.queryParam("to", "2024-02-01T00:00:00Z")
+				.queryParam("interval", "PT1S")
+				.build())
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.toEntity(String.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+
+	@Test
+	void volumesWithTooManyBucketsSinceOldestLog() throws Exception {
+		ingest();
+		ResponseEntity<String> response = this.restClient.get()
+			.uri(uriBuilder -> uriBuilder.path("/api/logs/volumes").queryParam("interval", "PT1S").build())
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.toEntity(String.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+
+	@Test
+	void filterBySeverityCategory() throws Exception {
+		ingest();
+		assertThat(count("severity_category == 3")).isEqualTo(1);
+		assertThat(count("severity_category >= 4")).isEqualTo(0);
+		ResponseEntity<String> response = this.restClient.get()
+			.uri("/api/logs")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.toEntity(String.class);
+		assertThat(this.json.from(response.getBody())).extractingJsonPathStringValue("$.logs[0].severityCategory")
+			.isEqualTo("INFO");
+	}
+
+	@Test
+	void traceLogs() throws Exception {
+		ingest();
+		String traceId = "e41f0414517bf7cd37f35d370f6ebd07adf7f35dc50bad02";
+		ResponseEntity<String> response = this.restClient.get()
+			.uri("/api/traces/{traceId}/logs", traceId)
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.toEntity(String.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(this.json.from(response.getBody())).extractingJsonPathNumberValue("$.logs.length()").isEqualTo(1);
+		assertThat(this.json.from(response.getBody())).extractingJsonPathStringValue("$.logs[0].traceId")
+			.isEqualTo(traceId);
+		assertThat(this.json.from(response.getBody())).extractingJsonPathStringValue("$.logs[0].spanId")
+			.isEqualTo("104135f41ec40b70b5075ef8");
+		assertThat(count("trace_id == '" + traceId.toUpperCase() + "'")).isEqualTo(1);
+		assertThat(count("trace_id != '" + traceId + "'")).isEqualTo(0);
+
+		ResponseEntity<String> unknown = this.restClient.get()
+			.uri("/api/traces/{traceId}/logs", "0af7651916cd43dd8448eb211c80319c")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.toEntity(String.class);
+		assertThat(this.json.from(unknown.getBody())).extractingJsonPathNumberValue("$.logs.length()").isEqualTo(0);
+
+		ResponseEntity<String> invalid = this.restClient.get()
+			.uri("/api/traces/{traceId}/logs", "not-a-trace")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.toEntity(String.class);
+		assertThat(invalid.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+		ResponseEntity<String> negativeSize = this.restClient.get()
+			.uri("/api/traces/{traceId}/logs?size=-1", traceId)
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.toEntity(String.class);
+		assertThat(negativeSize.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+
+	@Test
+	void logsAsProtobuf() throws Exception {
+		ingest();
+		ResponseEntity<byte[]> response = this.restClient.get()
+			.uri("/api/logs")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.accept(QueryResponseProtobufHttpMessageConverter.APPLICATION_PROTOBUF, MediaType.APPLICATION_PROBLEM_JSON)
+			.retrieve()
+			.toEntity(byte[].class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(response.getHeaders().getContentType())
+			.isEqualTo(QueryResponseProtobufHttpMessageConverter.APPLICATION_PROTOBUF);
+		assertThat(response.getHeaders().getVary()).contains(HttpHeaders.ACCEPT);
+		UnknownFieldSet message = UnknownFieldSet.parseFrom(response.getBody());
+		assertThat(message.getField(2).getLengthDelimitedList()).hasSize(1);
+
+		ResponseEntity<byte[]> invalid = this.restClient.get()
+			.uri(uriBuilder -> uriBuilder.path("/api/logs/count").queryParam("filter", "foo ==").build())
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.accept(QueryResponseProtobufHttpMessageConverter.APPLICATION_PROTOBUF, MediaType.APPLICATION_PROBLEM_JSON)
+			.retrieve()
+			.toEntity(byte[].class);
+		assertThat(invalid.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+		assertThat(invalid.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_PROBLEM_JSON);
+
+		ResponseEntity<String> json = this.restClient.get()
+			.uri("/api/logs/count")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.accept(MediaType.ALL)
+			.retrieve()
+			.toEntity(String.class);
+		assertThat(json.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+	}
+
+	@Test
+	void compressedLogs() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			ingest();
+		}
+		ResponseEntity<byte[]> response = this.restClient.get()
+			.uri("/api/logs")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.header(HttpHeaders.ACCEPT_ENCODING, "gzip, zstd")
+			.retrieve()
+			.toEntity(byte[].class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("zstd");
+		assertThat(response.getHeaders().getVary()).contains(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+		String etag = response.getHeaders().getETag();
+		assertThat(etag).startsWith("W/");
+		try (ZstdInputStream stream = new ZstdInputStream(new ByteArrayInputStream(response.getBody()))) {
+			assertThat(this.json.from(stream.readAllBytes())).extractingJsonPathNumberValue("$.logs.length()")
+				.isEqualTo(5);
+		}
+
+		ResponseEntity<byte[]> notModified = this.restClient.get()
+			.uri("/api/logs")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.header(HttpHeaders.ACCEPT_ENCODING, "gzip, zstd")
+			.header(HttpHeaders.IF_NONE_MATCH, etag)
+			.retrieve()
+			.toEntity(byte[].class);
+		assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+
+		ResponseEntity<String> count = this.restClient.get()
+			.uri("/api/logs/count")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.header(HttpHeaders.ACCEPT_ENCODING, "gzip, zstd")
+			.retrieve()
+			.toEntity(String.class);
+		assertThat(count.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+		assertThat(this.json.from(count.getBody())).extractingJsonPathNumberValue("$.totalCount").isEqualTo(5);
+	}
+
+	long count(String filter) {
+		CountResponse response = this.restClient.get()
+			.uri(uriBuilder -> uriBuilder.path("/api/logs/count").queryParam("filter", filter).build())
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.body(CountResponse.class);
+		assertThat(response).isNotNull();
+		return response.totalCount();
+	}
+
+	void ingest() throws Exception {
+		String json = StreamUtils.copyToString(new ClassPathResource("logs.json").getInputStream(),
+				StandardCharsets.UTF_8);
+		ResponseEntity<Void> response = this.restClient.post()
+			.uri("/v1/logs")
+			.contentType(MediaType.APPLICATION_JSON)
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.body(json)
+			.retrieve()
+			.toBodilessEntity();
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+	}
+
+}
@@ -0,0 +1,114 @@
+package am.ik.lognroll.logs;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import am.ik.lognroll.logs.QueryController.LogsResponse;
+import am.ik.lognroll.logs.QueryController.VolumesResponse;
+import am.ik.lognroll.util.Json;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.UnknownFieldSet;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryResponseProtobufHttpMessageConverterTest {
+
+	QueryResponseProtobufHttpMessageConverter converter = new QueryResponseProtobufHttpMessageConverter(
+			new ObjectMapper());
+
+	static final Instant BASE = Instant.parse("2024-06-01T00:00:00Z");
+
+	@Test
+	void writeLogs() throws Exception {
+		LogsResponse response = new LogsResponse(List.of(log(1, BASE.plusSeconds(2), "second"),
+				log(2, BASE.plusSeconds(1), "first"), new Log(3L, BASE, BASE, null, null, null, null, null, null, null,
+						null, null, Json.raw(new ObjectMapper(), "{}"), Json.raw(new ObjectMapper(), "{}"))),
+				5);
+		UnknownFieldSet message = write(response);
+		List<String> strings = message.getField(1)
+			.getLengthDelimitedList()
+			.stream()
+			.map(ByteString::toStringUtf8)
+			.toList();
+		assertThat(strings).containsExactly("INFO", "demo", "test", "{\"host\":\"a\"}");
+		List<ByteString> logs = message.getField(2).getLengthDelimitedList();
+		assertThat(logs).hasSize(3);
+		assertThat(message.getField(3).getVarintList()).containsExactly(5L);
+
+		UnknownFieldSet first = UnknownFieldSet.parseFrom(logs.get(0));
+		assertThat(first.getField(1).getVarintList()).containsExactly(1L);
+		assertThat(sint64(first, 2)).isEqualTo(BASE.plusSeconds(2).toEpochMilli());
+		assertThat(sint64(first, 3)).isEqualTo(-500);
+		assertThat(first.getField(4).getVarintList()).containsExactly(1L);
+		assertThat(first.getField(6).getVarintList()).containsExactly((long) SeverityCategory.INFO.code());
+		assertThat(first.getField(7).getVarintList()).containsExactly(2L);
+		assertThat(first.getField(9).getLengthDelimitedList()).containsExactly(ByteString.copyFromUtf8("second"));
+		assertThat(first.getField(10).getLengthDelimitedList().getFirst().size()).isEqualTo(16);
+		assertThat(first.getField(13).getLengthDelimitedList())
+			.containsExactly(ByteString.copyFromUtf8("{\"id\":\"second\"}"));
+		assertThat(first.getField(14).getVarintList()).containsExactly(4L);
+
+		UnknownFieldSet second = UnknownFieldSet.parseFrom(logs.get(1));
+		assertThat(sint64(second, 2)).isEqualTo(-1000);
+		assertThat(second.getField(14).getVarintList()).containsExactly(4L);
+
+		UnknownFieldSet third = UnknownFieldSet.parseFrom(logs.get(2));
+		assertThat(sint64(third, 2)).isEqualTo(-1000);
+		assertThat(third.hasField(3)).isFalse();
+		assertThat(third.hasField(4)).isFalse();
+		assertThat(third.hasField(13)).isFalse();
+		assertThat(third.hasField(14)).isFalse();
+	}
+
+	@Test
+	void writeVolumes() throws Exception {
+		VolumesResponse response = new VolumesResponse(List.of(new LogQuery.Volume(BASE, 1, 0, 3, 0, 0, 0),
+				new LogQuery.Volume(BASE.plusSeconds(60), 0, 2, 0, 0, 0, 4)), 60_000);
+		UnknownFieldSet message = write(response);
+		assertThat(message.getField(2).getVarintList()).containsExactly(60_000L);
+		List<ByteString> volumes = message.getField(1).getLengthDelimitedList();
+		UnknownFieldSet first = UnknownFieldSet.parseFrom(volumes.get(0));
+		assertThat(sint64(first, 1)).isEqualTo(BASE.toEpochMilli());
+		assertThat(first.getField(2).getVarintList()).containsExactly(1L);
+		assertThat(first.getField(4).getVarintList()).containsExactly(3L);
+		UnknownFieldSet second = UnknownFieldSet.parseFrom(volumes.get(1));
+		assertThat(sint64(second, 1)).isEqualTo(60_000);
+		assertThat(second.getField(3).getVarintList()).containsExactly(2L);
+		assertThat(second.getField(7).getVarintList()).containsExactly(4L);
+	}
+
+	UnknownFieldSet write(Object response) throws Exception {
+		MockHttpOutputMessage output = new MockHttpOutputMessage();
+		this.converter.write(response, QueryResponseProtobufHttpMessageConverter.APPLICATION_PROTOBUF, output);
+		return UnknownFieldSet.parseFrom(output.getBodyAsBytes());
+	}
+
+	static long sint64(UnknownFieldSet message, int field) {
+		return CodedInputStream.decodeZigZag64(message.getField(field).getVarintList().getFirst());
+	}
+
+	static Log log(long logId, Instant observedTimestamp, String body) {
+		return LogBuilder.log()
+			.logId(logId)
+			.timestamp(observedTimestamp.minusMillis(500))
+			.observedTimestamp(observedTimestamp)
+			.severityText("INFO")
+			.severityNumber(9)
+			.serviceName("demo")
+			.scope("test")
+			.body(body)
+			.traceId("4bf92f3577b34da6a3ce929d0e0e4736")
+			.spanId("00f067aa0ba902b7")
+			.traceFlags(1)
+			.attributes(Map.of("id", body))
+			.resourceAttributes(Map.of("host", "a"))
+			.build();
+	}
+
+}
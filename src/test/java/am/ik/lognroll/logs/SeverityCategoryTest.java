@@ -0,0 +1,37 @@
+package am.ik.lognroll.logs;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeverityCategoryTest {
+
+	@Test
+	void severityNumber() {
+		assertThat(SeverityCategory.of(1, null)).isEqualTo(SeverityCategory.TRACE);
+		assertThat(SeverityCategory.of(8, null)).isEqualTo(SeverityCategory.DEBUG);
+		assertThat(SeverityCategory.of(10, "Information")).isEqualTo(SeverityCategory.INFO);
+		assertThat(SeverityCategory.of(13, "INFO")).isEqualTo(SeverityCategory.WARN);
+		assertThat(SeverityCategory.of(17, null)).isEqualTo(SeverityCategory.ERROR);
+		assertThat(SeverityCategory.of(21, "FATAL")).isEqualTo(SeverityCategory.ERROR);
+	}
+
+	@Test
+	void severityTextWithoutNumber() {
+		assertThat(SeverityCategory.of(0, "critical")).isEqualTo(SeverityCategory.ERROR);
+		assertThat(SeverityCategory.of(null, "Warning")).isEqualTo(SeverityCategory.WARN);
+		assertThat(SeverityCategory.of(0, "debug")).isEqualTo(SeverityCategory.DEBUG);
+		assertThat(SeverityCategory.of(0, "NOTICE")).isEqualTo(SeverityCategory.OTHER);
+		assertThat(SeverityCategory.of(0, "")).isEqualTo(SeverityCategory.OTHER);
+		assertThat(SeverityCategory.of(null, null)).isEqualTo(SeverityCategory.OTHER);
+	}
+
+	@Test
+	void ofCode() {
+		for (SeverityCategory category : SeverityCategory.values()) {
+			assertThat(SeverityCategory.ofCode(category.code())).isEqualTo(category);
+		}
+		assertThat(SeverityCategory.ofCode(42)).isEqualTo(SeverityCategory.OTHER);
+	}
+
+}
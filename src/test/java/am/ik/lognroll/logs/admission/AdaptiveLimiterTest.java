@@ -0,0 +1,111 @@
+package am.ik.lognroll.logs.admission;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveLimiterTest {
+
+	static final long TARGET = Duration.ofMillis(100).toNanos();
+
+	@Test
+	void rejectsWhenLimitIsReached() throws Exception {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 4, TARGET);
+		assertThat(limiter.acquire(0, 10)).isTrue();
+		assertThat(limiter.acquire(0, 10)).isTrue();
+		assertThat(limiter.acquire(Duration.ofMillis(10).toNanos(), 10)).isFalse();
+		assertThat(limiter.acquire(Duration.ofMillis(10).toNanos(), 0)).isFalse();
+		assertThat(limiter.inFlight()).isEqualTo(2);
+		limiter.release(1, 0);
+		assertThat(limiter.acquire(0, 10)).isTrue();
+	}
+
+	@Test
+	void waitsForRelease() throws Exception {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 4, TARGET);
+		assertThat(limiter.acquire(0, 10)).isTrue();
+		Thread releaser = Thread.ofVirtual().start(() -> {
+			try {
+				Thread.sleep(50);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			limiter.release(1, 0);
+		});
+		assertThat(limiter.acquire(Duration.ofSeconds(5).toNanos(), 10)).isTrue();
+		releaser.join();
+	}
+
+	@Test
+	void contendedQueriesShrinkTheLimit() throws Exception {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 8, TARGET);
+		assertThat(limiter.acquire(0, 10)).isTrue();
+		limiter.release(1, TARGET / 2);
+		for (int i = 0; i < 4; i++) {
+			assertThat(limiter.acquire(0, 10)).isTrue();
+		}
+		// three queries take four times as long as usual while others are running
+		for (int i = 0; i < 3; i++) {
+			limiter.release(1, TARGET * 2);
+		}
+		assertThat(limiter.limit()).isEqualTo(1);
+	}
+
+	@Test
+	void slowQueryAloneDoesNotShrinkTheLimit() throws Exception {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 8, TARGET);
+		for (int i = 0; i < 10; i++) {
+			assertThat(limiter.acquire(0, 10)).isTrue();
+			limiter.release(1, TARGET * 10 * (i + 1));
+		}
+		assertThat(limiter.limit()).isEqualTo(4);
+	}
+
+	@Test
+	void queriesAsSlowAsUsualForTheirCostDoNotShrinkTheLimit() throws Exception {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 8, TARGET);
+		assertThat(limiter.acquire(0, 10)).isTrue();
+		limiter.release(64, TARGET * 10);
+		assertThat(limiter.acquire(0, 10)).isTrue();
+		for (int i = 0; i < 10; i++) {
+			assertThat(limiter.acquire(0, 10)).isTrue();
+			limiter.release(64, TARGET * 15);
+		}
+		assertThat(limiter.limit()).isEqualTo(4);
+		// a cheap query that is as slow is contended
+		limiter.release(1, TARGET / 2);
+		assertThat(limiter.acquire(0, 10)).isTrue();
+		assertThat(limiter.acquire(0, 10)).isTrue();
+		limiter.release(1, TARGET * 15);
+		assertThat(limiter.limit()).isEqualTo(3);
+	}
+
+	@Test
+	void fastSaturatedQueriesGrowTheLimit() throws Exception {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 3, TARGET);
+		for (int i = 0; i < 20; i++) {
+			int limit = limiter.limit();
+			for (int j = 0; j < limit; j++) {
+				assertThat(limiter.acquire(0, 10)).isTrue();
+			}
+			for (int j = 0; j < limit; j++) {
+				limiter.release(1, 0);
+			}
+		}
+		assertThat(limiter.limit()).isEqualTo(3);
+	}
+
+	@Test
+	void fastQueriesBelowTheLimitDoNotGrowIt() throws Exception {
+		AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 8, TARGET);
+		for (int i = 0; i < 20; i++) {
+			assertThat(limiter.acquire(0, 10)).isTrue();
+			limiter.release(1, 0);
+		}
+		assertThat(limiter.limit()).isEqualTo(2);
+	}
+
+}
@@ -0,0 +1,114 @@
+package am.ik.lognroll.logs.admission;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+
+import am.ik.lognroll.logs.LogQuery.SearchRequest;
+import am.ik.lognroll.logs.SearchRequestBuilder;
+import am.ik.lognroll.logs.filter.FilterExpressionTextParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryAdmissionTest {
+
+	static final Instant NOW = Instant.parse("2024-06-01T00:00:00Z");
+
+	SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	void cost() {
+		SearchRequest recent = SearchRequestBuilder.searchRequest().from(NOW.minusSeconds(600)).to(NOW).build();
+		assertThat(QueryAdmission.cost("logs", recent)).isEqualTo(1);
+		assertThat(QueryAdmission.cost("volumes", recent)).isEqualTo(2);
+		SearchRequest unbounded = SearchRequestBuilder.searchRequest().build();
+		assertThat(QueryAdmission.cost("logs", unbounded)).isEqualTo(8);
+		SearchRequest search = SearchRequestBuilder.searchRequest()
+			.query("error")
+			.filterExpression(new FilterExpressionTextParser().parse("serviceName == 'demo'"))
+			.build();
+		assertThat(QueryAdmission.cost("count", search)).isEqualTo(128);
+	}
+
+	@Test
+	void defaultSearchOfTheUiIsNotHeavy() {
+		QueryAdmissionProps props = new Binder(new MapConfigurationPropertySource())
+			.bindOrCreate("lognroll.query.admission", QueryAdmissionProps.class);
+		SearchRequest search = SearchRequestBuilder.searchRequest()
+			.query("error")
+			.from(NOW.minus(Duration.ofHours(12)))
+			.to(NOW)
+			.build();
+		assertThat(QueryAdmission.cost("count", search)).isLessThan(props.heavyCost());
+		assertThat(QueryAdmission.cost("volumes", search)).isLessThan(props.heavyCost());
+	}
+
+	@Test
+	void lightQueriesAreAdmitted() {
+		QueryAdmission admission = new QueryAdmission(props(Duration.ofMillis(100)), this.registry);
+		assertThat(admission.admit("logs", SearchRequestBuilder.searchRequest().build(), () -> "ok")).isEqualTo("ok");
+	}
+
+	@Test
+	void heavyQueriesAreQueuedAndRejected() throws Exception {
+		QueryAdmission admission = new QueryAdmission(props(Duration.ofMillis(100)), this.registry);
+		SearchRequest heavy = SearchRequestBuilder.searchRequest().query("error").build();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch finish = new CountDownLatch(1);
+		Thread running = Thread.ofVirtual().start(() -> admission.admit("volumes", heavy, () -> {
+			started.countDown();
+			try {
+				finish.await();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		}));
+		started.await();
+		assertThatThrownBy(() -> admission.admit("volumes", heavy, () -> "never"))
+			.isInstanceOf(QueryRejectedException.class)
+			.hasMessageContaining("expensive");
+		// light queries are not blocked by heavy ones
+		assertThat(admission.admit("logs", SearchRequestBuilder.searchRequest().build(), () -> "ok")).isEqualTo("ok");
+		finish.countDown();
+		running.join();
+		assertThat(admission.admit("volumes", heavy, () -> "ok")).isEqualTo("ok");
+		assertThat(this.registry.get("lognroll.query.admission.rejected").tag("reason", "heavy").counter().count())
+			.isEqualTo(1);
+	}
+
+	@Test
+	void slowQueryIsInterrupted() {
+		QueryAdmission admission = new QueryAdmission(props(Duration.ofMillis(100), Duration.ofMillis(50)),
+				this.registry);
+		assertThatThrownBy(() -> admission.admit("logs", SearchRequestBuilder.searchRequest().build(), () -> {
+			try {
+				Thread.sleep(Duration.ofSeconds(5));
+				return "never";
+			}
+			catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		})).isInstanceOf(QueryRejectedException.class).hasMessageContaining("statement timeout");
+		assertThat(Thread.currentThread().isInterrupted()).isFalse();
+		assertThat(this.registry.get("lognroll.query.admission.rejected").tag("reason", "timeout").counter().count())
+			.isEqualTo(1);
+		admission.destroy();
+	}
+
+	static QueryAdmissionProps props(Duration queueTimeout) {
+		return props(queueTimeout, Duration.ofSeconds(30));
+	}
+
+	static QueryAdmissionProps props(Duration queueTimeout, Duration statementTimeout) {
+		return new QueryAdmissionProps(true, 2, 1, 4, Duration.ofSeconds(1), 16, 1, queueTimeout, 8, statementTimeout);
+	}
+
+}
@@ -0,0 +1,77 @@
+package am.ik.lognroll.logs.admission;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import am.ik.lognroll.IntegrationTestBase;
+import am.ik.lognroll.logs.Log;
+import am.ik.lognroll.logs.LogBuilder;
+import am.ik.lognroll.logs.LogStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.json.JsonContent;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = { "lognroll.db.path=/tmp/lognroll-admission-test.db",
+		"lognroll.query.admission.statement-timeout=1ns", "lognroll.query-cache.enabled=false" })
+class StatementTimeoutTest extends IntegrationTestBase {
+
+	@Autowired
+	LogStore logStore;
+
+	@BeforeEach
+	void setUp() {
+		this.logStore.clear();
+		this.logStore.addAll(IntStream.range(0, 200).mapToObj(i -> log("error number " + i)).toList());
+	}
+
+	@Test
+	void slowQueryIsRejected() {
+		ResponseEntity<String> response = this.restClient.get()
+			.uri("/api/logs/count?query=error")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.toEntity(String.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+		JsonContent<Object> content = this.json.from(response.getBody());
+		assertThat(content).extractingJsonPathStringValue("$.detail").contains("statement timeout");
+	}
+
+	@Test
+	void deleteIsNotInterrupted() {
+		ResponseEntity<String> response = this.restClient.delete()
+			.uri("/api/logs?query=error")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.toEntity(String.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(this.json.from(response.getBody())).extractingJsonPathNumberValue("$.deleted").isEqualTo(200);
+	}
+
+	static Log log(String body) {
+		Instant now = Instant.now();
+		return LogBuilder.log()
+			.timestamp(now)
+			.observedTimestamp(now)
+			.severityText("INFO")
+			.severityNumber(9)
+			.serviceName("demo")
+			.scope("test")
+			.body(body)
+			.traceId("")
+			.spanId("")
+			.traceFlags(0)
+			.attributes(Map.of())
+			.resourceAttributes(Map.of())
+			.build();
+	}
+
+}
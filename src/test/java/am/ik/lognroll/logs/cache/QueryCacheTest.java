@@ -0,0 +1,139 @@
+package am.ik.lognroll.logs.cache;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import am.ik.lognroll.logs.IngestWatermark;
+import am.ik.lognroll.logs.LogQuery.SearchRequest;
+import am.ik.lognroll.logs.SearchRequestBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryCacheTest {
+
+	IngestWatermark watermark = new IngestWatermark();
+
+	QueryCache queryCache = new QueryCache(new QueryCacheProps(true, 2, DataSize.ofKilobytes(1), Duration.ofMinutes(1)),
+			this.watermark, new SimpleMeterRegistry());
+
+	AtomicInteger loads = new AtomicInteger();
+
+	@Test
+	void openEndedSearchIsInvalidatedByIngest() {
+		SearchRequest request = SearchRequestBuilder.searchRequest().query("hello").build();
+		QueryCache.Result<Integer> first = this.queryCache.get("count", request, null, this::load);
+		QueryCache.Result<Integer> second = this.queryCache.get("count", request, null, this::load);
+		assertThat(second.value()).isEqualTo(first.value());
+		assertThat(second.etag()).isEqualTo(first.etag());
+		assertThat(this.loads).hasValue(1);
+		this.watermark.advance(Instant.now());
+		QueryCache.Result<Integer> third = this.queryCache.get("count", request, null, this::load);
+		assertThat(third.value()).isEqualTo(2);
+		assertThat(third.etag()).isNotEqualTo(first.etag());
+	}
+
+	@Test
+	void closedWindowSurvivesIngest() {
+		Instant to = Instant.now().minus(Duration.ofHours(1));
+		SearchRequest request = SearchRequestBuilder.searchRequest().from(to.minus(Duration.ofHours(1))).to(to).build();
+		this.queryCache.get("count", request, null, this::load);
+		this.watermark.advance(Instant.now());
+		this.queryCache.get("count", request, null, this::load);
+		assertThat(this.loads).hasValue(1);
+		this.watermark.invalidate();
+		this.queryCache.get("count", request, null, this::load);
+		assertThat(this.loads).hasValue(2);
+	}
+
+	@Test
+	void closedWindowIsInvalidatedByLateIngest() {
+		Instant to = Instant.now().minus(Duration.ofHours(1));
+		SearchRequest older = SearchRequestBuilder.searchRequest().to(to.minus(Duration.ofHours(1))).build();
+		SearchRequest newer = SearchRequestBuilder.searchRequest().to(to).build();
+		this.queryCache.get("count", older, null, this::load);
+		this.queryCache.get("count", newer, null, this::load);
+		this.watermark.advance(to);
+		this.queryCache.get("count", older, null, this::load);
+		this.queryCache.get("count", newer, null, this::load);
+		assertThat(this.loads).hasValue(3);
+	}
+
+	@Test
+	void closedFullTextSearchIsInvalidatedByIndexing() {
+		Instant to = Instant.now().minus(Duration.ofHours(1));
+		SearchRequest fullText = SearchRequestBuilder.searchRequest().query("hello").to(to).build();
+		SearchRequest plain = SearchRequestBuilder.searchRequest().to(to).build();
+		this.queryCache.get("count", fullText, null, this::load);
+		this.queryCache.get("count", plain, null, this::load);
+		this.watermark.advanceIndexed();
+		this.queryCache.get("count", fullText, null, this::load);
+		this.queryCache.get("count", plain, null, this::load);
+		assertThat(this.loads).hasValue(3);
+	}
+
+	@Test
+	void keyIncludesNameAndParameter() {
+		SearchRequest request = SearchRequestBuilder.searchRequest().build();
+		this.queryCache.get("count", request, null, this::load);
+		this.queryCache.get("volumes", request, Duration.ofMinutes(10), this::load);
+		this.queryCache.get("volumes", request, Duration.ofMinutes(20), this::load);
+		assertThat(this.loads).hasValue(3);
+	}
+
+	@Test
+	void evictsLeastRecentlyUsed() {
+		SearchRequest a = SearchRequestBuilder.searchRequest().query("a").build();
+		SearchRequest b = SearchRequestBuilder.searchRequest().query("b").build();
+		SearchRequest c = SearchRequestBuilder.searchRequest().query("c").build();
+		this.queryCache.get("count", a, null, this::load);
+		this.queryCache.get("count", b, null, this::load);
+		this.queryCache.get("count", a, null, this::load);
+		this.queryCache.get("count", c, null, this::load);
+		assertThat(this.loads).hasValue(3);
+		this.queryCache.get("count", a, null, this::load);
+		assertThat(this.loads).hasValue(3);
+		this.queryCache.get("count", b, null, this::load);
+		assertThat(this.loads).hasValue(4);
+	}
+
+	@Test
+	void evictsBySize() {
+		SearchRequest a = SearchRequestBuilder.searchRequest().query("a").build();
+		SearchRequest b = SearchRequestBuilder.searchRequest().query("b").build();
+		this.queryCache.get("logs", a, null, () -> weighing(600));
+		this.queryCache.get("logs", b, null, () -> weighing(600));
+		this.queryCache.get("logs", b, null, () -> weighing(600));
+		this.queryCache.get("logs", a, null, () -> weighing(600));
+		assertThat(this.loads).hasValue(3);
+		SearchRequest c = SearchRequestBuilder.searchRequest().query("c").build();
+		this.queryCache.get("logs", c, null, () -> weighing(2000));
+		this.queryCache.get("logs", c, null, () -> weighing(2000));
+		assertThat(this.loads).hasValue(5);
+	}
+
+	@Test
+	void etagChangesWithResult() {
+		SearchRequest request = SearchRequestBuilder.searchRequest().build();
+		String first = this.queryCache.get("count", request, null, this::load).etag();
+		assertThat(first).startsWith("W/\"");
+		assertThat(this.queryCache.get("count", request, null, this::load).etag()).isEqualTo(first);
+		assertThat(this.queryCache.get("volumes", request, null, this::load).etag()).isNotEqualTo(first);
+		this.watermark.advance(Instant.now());
+		assertThat(this.queryCache.get("count", request, null, this::load).etag()).isNotEqualTo(first);
+	}
+
+	QueryCache.Weighable weighing(long size) {
+		this.loads.incrementAndGet();
+		return () -> size;
+	}
+
+	int load() {
+		return this.loads.incrementAndGet();
+	}
+
+}
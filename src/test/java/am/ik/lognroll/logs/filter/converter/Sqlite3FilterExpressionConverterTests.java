@@ -56,6 +56,15 @@ public class Sqlite3FilterExpressionConverterTests {
 		assertThat(vectorExpr).isEqualTo("genre IN (\"comedy\",\"documentary\",\"drama\")");
 	}
 
+	@Test
+	public void testBinaryId() {
+		String vectorExpr = converter.convertExpression(new Filter.Expression(Filter.ExpressionType.OR,
+				new Filter.Expression(Filter.ExpressionType.EQ, new Filter.Key("traceId"), new Filter.Value("0af7")),
+				new Filter.Expression(Filter.ExpressionType.IN, new Filter.Key("span_id"),
+						new Filter.Value(List.of("b7ad", "00f0")))));
+		assertThat(vectorExpr).isEqualTo("trace_id == unhex(\"0af7\") OR span_id IN (unhex(\"b7ad\"),unhex(\"00f0\"))");
+	}
+
 	@Test
 	public void testNe() {
 		// year >= 2020 OR country == "BG" AND city != "Sofia"
@@ -206,4 +215,24 @@ public class Sqlite3FilterExpressionConverterTests {
 		assertThat(vectorExpr).isEqualTo("json_extract(attributes, '$.\"k8s.namespace.name\"') == \"default\"");
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void testColumns() {
+		Sqlite3FilterExpressionConverter converter = new Sqlite3FilterExpressionConverter();
+		// body == 'resource_attributes' AND (resourceAttributes["service.name"] == 'demo'
+		// OR attributes.user == 'alice')
+		Filter.Expression expression = new Filter.Expression(Filter.ExpressionType.AND,
+				new Filter.Expression(Filter.ExpressionType.EQ, new Filter.Key("body"),
+						new Filter.Value("resource_attributes")),
+				new Filter.Group(new Filter.Expression(Filter.ExpressionType.OR,
+						new Filter.Expression(Filter.ExpressionType.EQ,
+								new Filter.Key("resourceAttributes[\"service.name\"]"), new Filter.Value("demo")),
+						new Filter.Expression(Filter.ExpressionType.EQ, new Filter.Key("attributes.user"),
+								new Filter.Value("alice")))));
+		assertThat(converter.columns(expression)).containsExactlyInAnyOrder("body", "resource_attributes",
+				"attributes");
+		assertThat(converter.columns(new Filter.Expression(Filter.ExpressionType.EQ, new Filter.Key("body"),
+				new Filter.Value("resource_attributes"))))
+			.containsExactly("body");
+	}
+
+}
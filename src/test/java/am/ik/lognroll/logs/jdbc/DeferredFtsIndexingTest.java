@@ -0,0 +1,75 @@
+package am.ik.lognroll.logs.jdbc;
+
+import java.time.Duration;
+import java.util.List;
+
+import am.ik.lognroll.IntegrationTestBase;
+import am.ik.lognroll.logs.Log;
+import am.ik.lognroll.logs.LogQuery;
+import am.ik.lognroll.logs.LogStore;
+import am.ik.lognroll.logs.SearchRequestBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.context.TestPropertySource;
+
+import static am.ik.lognroll.logs.jdbc.FtsIndexManagerTest.log;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@TestPropertySource(properties = { "lognroll.db.path=/tmp/lognroll-deferred-test.db", "lognroll.fts.indexing=deferred",
+		"lognroll.fts.indexing-interval=100ms" })
+class DeferredFtsIndexingTest extends IntegrationTestBase {
+
+	@Autowired
+	LogStore logStore;
+
+	@Autowired
+	LogQuery logQuery;
+
+	@Autowired
+	JdbcClient jdbcClient;
+
+	@BeforeEach
+	void setUp() {
+		this.logStore.clear();
+	}
+
+	@Test
+	void insertTriggerIsDropped() {
+		await().atMost(Duration.ofSeconds(10))
+			.until(() -> this.jdbcClient
+				.sql("SELECT COUNT(*) FROM sqlite_master WHERE type = 'trigger' AND name = 'log_fts_ai'")
+				.query(Long.class)
+				.single() == 0);
+	}
+
+	@Test
+	void indexedAfterCommit() {
+		this.logStore.addAll(List.of(log("payment declined"), log("order shipped")));
+		await().atMost(Duration.ofSeconds(10)).until(() -> this.logQuery.fullTextLag() == 0);
+		assertThat(search("declined")).containsExactly("payment declined");
+		assertThat(this.logQuery.count(SearchRequestBuilder.searchRequest().query("order").build())).isEqualTo(1);
+	}
+
+	@Test
+	void deleteBeforeIndexed() {
+		await().atMost(Duration.ofSeconds(10)).until(() -> this.logQuery.fullTextLag() == 0);
+		this.logStore.addAll(List.of(log("payment declined"), log("order shipped")));
+		// deleting logs the indexer has not reached must not touch the index
+		this.logQuery.delete(SearchRequestBuilder.searchRequest().build());
+		this.logStore.addAll(List.of(log("payment accepted")));
+		await().atMost(Duration.ofSeconds(10)).until(() -> this.logQuery.fullTextLag() == 0);
+		assertThat(search("payment")).containsExactly("payment accepted");
+	}
+
+	List<String> search(String query) {
+		return this.logQuery.findLatestLogs(SearchRequestBuilder.searchRequest().query(query).build())
+			.stream()
+			.map(Log::body)
+			.toList();
+	}
+
+}
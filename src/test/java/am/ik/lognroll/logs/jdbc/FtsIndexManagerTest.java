@@ -0,0 +1,137 @@
+package am.ik.lognroll.logs.jdbc;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import am.ik.lognroll.IntegrationTestBase;
+import am.ik.lognroll.logs.Log;
+import am.ik.lognroll.logs.LogBuilder;
+import am.ik.lognroll.logs.LogQuery;
+import am.ik.lognroll.logs.LogStore;
+import am.ik.lognroll.logs.SearchRequestBuilder;
+import am.ik.lognroll.logs.query.FtsTokenizer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@TestPropertySource(properties = { "lognroll.db.path=/tmp/lognroll-fts-test.db",
+		"lognroll.fts.tokenizers=trigram,unicode61", "lognroll.fts.rebuild-batch-size=1" })
+class FtsIndexManagerTest extends IntegrationTestBase {
+
+	@Autowired
+	LogStore logStore;
+
+	@Autowired
+	LogQuery logQuery;
+
+	@Autowired
+	FtsIndexManager ftsIndexManager;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		this.logStore.clear();
+		this.logStore
+			.addAll(List.of(log("GET /orders id=42 ok"), log("request 7f3c-aa42 failed"), log("payment declined")));
+		awaitReady();
+	}
+
+	@Test
+	void shortTermUsesWordIndex() {
+		assertThat(search("id")).containsExactly("GET /orders id=42 ok");
+		assertThat(search("ok")).containsExactly("GET /orders id=42 ok");
+	}
+
+	@Test
+	void longTermKeepsSubstringSemantics() {
+		assertThat(search("decline")).containsExactly("payment declined");
+	}
+
+	@Test
+	void mixedTerms() {
+		assertThat(search("ok or declined")).containsExactlyInAnyOrder("GET /orders id=42 ok", "payment declined");
+		assertThat(search("request 7f3c-aa42")).containsExactly("request 7f3c-aa42 failed");
+	}
+
+	@Test
+	void updateTriggersOnlyFireForBody() {
+		this.jdbcTemplate.execute("DROP TRIGGER log_fts_word_au");
+		this.ftsIndexManager.reconcile();
+		assertThat(this.jdbcTemplate.queryForList(
+				"SELECT sql FROM sqlite_master WHERE type = 'trigger' AND name IN ('log_fts_au', 'log_fts_word_au')",
+				String.class))
+			.hasSize(2)
+			.allSatisfy(sql -> assertThat(sql).contains("AFTER UPDATE OF body"));
+	}
+
+	@Test
+	void rebuild() {
+		ResponseEntity<Void> response = this.restClient.post()
+			.uri("/api/maintenance/fts/unicode61/rebuild")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.toBodilessEntity();
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+		// trigram serves searches while the word index is rebuilt
+		assertThat(this.ftsIndexManager.readyTokenizers()).contains(FtsTokenizer.TRIGRAM);
+		awaitReady();
+		assertThat(search("ok")).containsExactly("GET /orders id=42 ok");
+		assertThat(this.ftsIndexManager.status()).extracting(FtsIndexManager.IndexStatus::tokenizer)
+			.containsExactlyInAnyOrder(FtsTokenizer.TRIGRAM, FtsTokenizer.UNICODE61);
+	}
+
+	@Test
+	void unknownTokenizer() {
+		ResponseEntity<Void> response = this.restClient.post()
+			.uri("/api/maintenance/fts/porter/rebuild")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.toBodilessEntity();
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+	}
+
+	void awaitReady() {
+		await().atMost(Duration.ofSeconds(10))
+			.until(() -> this.ftsIndexManager.readyTokenizers()
+				.containsAll(List.of(FtsTokenizer.TRIGRAM, FtsTokenizer.UNICODE61)));
+	}
+
+	List<String> search(String query) {
+		return this.logQuery.findLatestLogs(SearchRequestBuilder.searchRequest().query(query).build())
+			.stream()
+			.map(Log::body)
+			.toList();
+	}
+
+	static Log log(String body) {
+		Instant now = Instant.now();
+		return LogBuilder.log()
+			.timestamp(now)
+			.observedTimestamp(now)
+			.severityText("INFO")
+			.severityNumber(9)
+			.serviceName("demo")
+			.scope("test")
+			.body(body)
+			.traceId("")
+			.spanId("")
+			.traceFlags(0)
+			.attributes(Map.of())
+			.resourceAttributes(Map.of())
+			.build();
+	}
+
+}
@@ -0,0 +1,141 @@
+package am.ik.lognroll.logs.jdbc;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import am.ik.lognroll.IntegrationTestBase;
+import am.ik.lognroll.logs.Log;
+import am.ik.lognroll.logs.LogBuilder;
+import am.ik.lognroll.logs.LogQuery;
+import am.ik.lognroll.logs.LogQuery.SearchRequest;
+import am.ik.lognroll.logs.LogStore;
+import am.ik.lognroll.logs.SearchRequestBuilder;
+import am.ik.lognroll.logs.query.FtsTokenizer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.simple.JdbcClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FtsQueryPlannerTest extends IntegrationTestBase {
+
+	@Autowired
+	LogStore logStore;
+
+	@Autowired
+	LogQuery logQuery;
+
+	@Autowired
+	JdbcClient jdbcClient;
+
+	static final Instant BASE = Instant.parse("2024-06-01T00:00:00Z");
+
+	@BeforeEach
+	void setUp() {
+		this.logStore.clear();
+		this.logStore.addAll(List.of(log(0, "error in payment"), log(60, "error in order"), log(120, "all good"),
+				log(180, "error in shipping")));
+	}
+
+	@Test
+	void noTimeWindow() {
+		FtsQueryPlanner planner = new FtsQueryPlanner(this.jdbcClient, props(100), () -> Set.of(FtsTokenizer.TRIGRAM));
+		FtsQueryPlanner.Plan plan = planner.plan(SearchRequestBuilder.searchRequest().query("error").build());
+		assertThat(plan.strategy()).isEqualTo(FtsQueryPlanner.Strategy.FTS_FIRST);
+	}
+
+	@Test
+	void smallTimeWindow() {
+		FtsQueryPlanner planner = new FtsQueryPlanner(this.jdbcClient, props(100), () -> Set.of(FtsTokenizer.TRIGRAM));
+		FtsQueryPlanner.Plan plan = planner.plan(SearchRequestBuilder.searchRequest()
+			.query("error")
+			.from(BASE.plusSeconds(60))
+			.to(BASE.plusSeconds(120))
+			.build());
+		assertThat(plan.strategy()).isEqualTo(FtsQueryPlanner.Strategy.TIME_FIRST);
+		List<Long> ids = this.jdbcClient
+			.sql("SELECT log_id FROM log WHERE body IN ('error in order', 'all good') ORDER BY log_id")
+			.query(Long.class)
+			.list();
+		assertThat(plan.minLogId()).isEqualTo(ids.get(0));
+		assertThat(plan.maxLogId()).isEqualTo(ids.get(1));
+	}
+
+	@Test
+	void rareTermOverLargeTimeWindow() {
+		FtsQueryPlanner planner = new FtsQueryPlanner(this.jdbcClient, props(1), () -> Set.of(FtsTokenizer.TRIGRAM));
+		FtsQueryPlanner.Plan plan = planner.plan(SearchRequestBuilder.searchRequest()
+			.query("payment")
+			.from(BASE.plusSeconds(60))
+			.to(BASE.plusSeconds(120))
+			.build());
+		assertThat(plan.strategy()).isEqualTo(FtsQueryPlanner.Strategy.FTS_FIRST);
+	}
+
+	@Test
+	void commonTermOverLargeTimeWindow() {
+		FtsQueryPlanner planner = new FtsQueryPlanner(this.jdbcClient, props(1), () -> Set.of(FtsTokenizer.TRIGRAM));
+		SearchRequest request = SearchRequestBuilder.searchRequest()
+			.query("error")
+			.from(BASE.plusSeconds(60))
+			.to(BASE.plusSeconds(120))
+			.build();
+		FtsQueryPlanner.Plan plan = planner.plan(request);
+		assertThat(plan.strategy()).isEqualTo(FtsQueryPlanner.Strategy.TIME_FIRST);
+		List<Long> ids = this.jdbcClient
+			.sql("SELECT log_id FROM log WHERE body IN ('error in order', 'all good') ORDER BY log_id")
+			.query(Long.class)
+			.list();
+		assertThat(plan.minLogId()).isEqualTo(ids.get(0));
+		assertThat(plan.maxLogId()).isEqualTo(ids.get(1));
+	}
+
+	@Test
+	void emptyTimeWindow() {
+		FtsQueryPlanner planner = new FtsQueryPlanner(this.jdbcClient, props(100), () -> Set.of(FtsTokenizer.TRIGRAM));
+		FtsQueryPlanner.Plan plan = planner
+			.plan(SearchRequestBuilder.searchRequest().query("error").from(BASE.plusSeconds(3600)).build());
+		assertThat(plan).isEqualTo(FtsQueryPlanner.Plan.EMPTY);
+		assertThat(this.logQuery
+			.count(SearchRequestBuilder.searchRequest().query("error").from(BASE.plusSeconds(3600)).build())).isZero();
+	}
+
+	@Test
+	void searchWithinTimeWindow() {
+		List<Log> logs = this.logQuery.findLatestLogs(SearchRequestBuilder.searchRequest()
+			.query("error")
+			.from(BASE.plusSeconds(30))
+			.to(BASE.plusSeconds(200))
+			.build());
+		assertThat(logs).extracting(Log::body).containsExactly("error in shipping", "error in order");
+	}
+
+	static FtsProps props(int timeFirstThreshold) {
+		return new FtsProps(timeFirstThreshold, List.of(FtsTokenizer.TRIGRAM), "-_", 10000, FtsProps.Indexing.IMMEDIATE,
+				Duration.ofSeconds(1));
+	}
+
+	static Log log(long seconds, String body) {
+		Instant timestamp = BASE.plusSeconds(seconds);
+		return LogBuilder.log()
+			.timestamp(timestamp)
+			.observedTimestamp(timestamp)
+			.severityText("INFO")
+			.severityNumber(9)
+			.serviceName("demo")
+			.scope("test")
+			.body(body)
+			.traceId("")
+			.spanId("")
+			.traceFlags(0)
+			.attributes(Map.of())
+			.resourceAttributes(Map.of())
+			.build();
+	}
+
+}
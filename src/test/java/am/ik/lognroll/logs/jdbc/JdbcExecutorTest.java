@@ -0,0 +1,81 @@
+package am.ik.lognroll.logs.jdbc;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class JdbcExecutorTest {
+
+	SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	JdbcExecutor executor = new JdbcExecutor(new SimpleDriverDataSource(), new JdbcExecutorProps(2),
+			new ParallelQueryProps(4, Duration.ofHours(6), 8), this.registry);
+
+	@AfterEach
+	void tearDown() {
+		this.executor.destroy();
+	}
+
+	@Test
+	void virtualThreadIsHandedOver() throws Exception {
+		AtomicReference<Thread> thread = new AtomicReference<>();
+		Thread.ofVirtual().start(() -> thread.set(this.executor.call(Thread::currentThread))).join();
+		assertThat(thread.get().isVirtual()).isFalse();
+		assertThat(thread.get().getName()).startsWith("jdbc-");
+		// the pool counts a task as completed only after its result has been handed over
+		await().untilAsserted(
+				() -> assertThat(this.registry.get("executor.completed").tag("name", "jdbc").functionCounter().count())
+					.isOne());
+	}
+
+	@Test
+	void platformThreadRunsItself() {
+		assertThat(this.executor.call(Thread::currentThread)).isSameAs(Thread.currentThread());
+	}
+
+	@Test
+	void exceptionIsRethrown() throws Exception {
+		AtomicReference<Throwable> thrown = new AtomicReference<>();
+		Thread.ofVirtual().start(() -> {
+			try {
+				this.executor.run(() -> {
+					throw new IllegalArgumentException("boom");
+				});
+			}
+			catch (RuntimeException e) {
+				thrown.set(e);
+			}
+		}).join();
+		assertThat(thrown.get()).isInstanceOf(IllegalArgumentException.class).hasMessage("boom");
+		assertThatThrownBy(() -> this.executor.run(() -> {
+			throw new IllegalArgumentException("boom");
+		})).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void threadsDefaultToPoolSizeLessSliceThreads() {
+		try (HikariDataSource dataSource = new HikariDataSource()) {
+			dataSource.setMaximumPoolSize(32);
+			JdbcExecutor executor = new JdbcExecutor(dataSource, new JdbcExecutorProps(0),
+					new ParallelQueryProps(4, Duration.ofHours(6), 8), this.registry);
+			assertThat(executor.threads()).isEqualTo(22);
+			executor.destroy();
+			dataSource.setMaximumPoolSize(3);
+			executor = new JdbcExecutor(dataSource, new JdbcExecutorProps(0),
+					new ParallelQueryProps(4, Duration.ofHours(6), 8), this.registry);
+			assertThat(executor.threads()).isOne();
+			executor.destroy();
+		}
+	}
+
+}
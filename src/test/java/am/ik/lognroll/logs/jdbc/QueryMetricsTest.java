@@ -0,0 +1,88 @@
+package am.ik.lognroll.logs.jdbc;
+
+import java.time.Instant;
+import java.util.List;
+
+import am.ik.lognroll.IntegrationTestBase;
+import am.ik.lognroll.logs.LogQuery;
+import am.ik.lognroll.logs.LogQuery.SearchRequest;
+import am.ik.lognroll.logs.LogStore;
+import am.ik.lognroll.logs.SearchRequestBuilder;
+import am.ik.lognroll.logs.filter.FilterExpressionTextParser;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static am.ik.lognroll.logs.jdbc.FtsQueryPlannerTest.BASE;
+import static am.ik.lognroll.logs.jdbc.FtsQueryPlannerTest.log;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryMetricsTest extends IntegrationTestBase {
+
+	@Autowired
+	LogStore logStore;
+
+	@Autowired
+	LogQuery logQuery;
+
+	@Autowired
+	MeterRegistry meterRegistry;
+
+	@BeforeEach
+	void setUp() {
+		this.logStore.clear();
+		this.logStore.addAll(List.of(log(0, "error in payment"), log(60, "error in order"), log(120, "all good")));
+	}
+
+	@Test
+	void recordsQueryByShape() {
+		SearchRequest request = SearchRequestBuilder.searchRequest()
+			.query("error")
+			.filterExpression(new FilterExpressionTextParser().parse("serviceName == 'demo'"))
+			.from(BASE)
+			.to(BASE.plusSeconds(600))
+			.build();
+		assertThat(this.logQuery.findLatestLogs(request)).hasSize(2);
+		String[] tags = { "operation", "logs", "plan", "fts_time_first", "filter", "true", "range", "1h" };
+		assertThat(this.meterRegistry.get("lognroll.query").tags(tags).timer().count()).isPositive();
+		assertThat(this.meterRegistry.get("lognroll.query.rows").tags(tags).summary().totalAmount())
+			.isGreaterThanOrEqualTo(2);
+		assertThat(this.meterRegistry.get("lognroll.query.vm_steps").tags(tags).summary().count()).isPositive();
+	}
+
+	@Test
+	void recordsCountWithoutFullTextSearch() {
+		assertThat(this.logQuery.count(SearchRequestBuilder.searchRequest().build())).isEqualTo(3);
+		assertThat(this.meterRegistry.get("lognroll.query")
+			.tags("operation", "count", "plan", "none", "filter", "false", "range", "unbounded")
+			.timer()
+			.count()).isPositive();
+	}
+
+	@Test
+	void unknownTenantsShareOneTag() {
+		this.logQuery.count(SearchRequestBuilder.searchRequest().tenant("tenant-" + System.nanoTime()).build());
+		assertThat(
+				this.meterRegistry.get("lognroll.query").tags("operation", "count", "tenant", "other").timer().count())
+			.isPositive();
+	}
+
+	@Test
+	void range() {
+		assertThat(QueryMetrics.range(SearchRequestBuilder.searchRequest().build())).isEqualTo("unbounded");
+		assertThat(
+				QueryMetrics.range(SearchRequestBuilder.searchRequest().from(BASE).to(BASE.plusSeconds(3600)).build()))
+			.isEqualTo("1h");
+		assertThat(
+				QueryMetrics.range(SearchRequestBuilder.searchRequest().from(BASE).to(BASE.plusSeconds(7200)).build()))
+			.isEqualTo("1d");
+		assertThat(QueryMetrics
+			.range(SearchRequestBuilder.searchRequest().from(BASE).to(BASE.plusSeconds(86400 * 3)).build()))
+			.isEqualTo("7d");
+		assertThat(QueryMetrics.range(SearchRequestBuilder.searchRequest().from(Instant.EPOCH).build()))
+			.isEqualTo("over_7d");
+	}
+
+}
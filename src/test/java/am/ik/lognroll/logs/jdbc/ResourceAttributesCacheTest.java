@@ -0,0 +1,87 @@
+package am.ik.lognroll.logs.jdbc;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import am.ik.lognroll.IntegrationTestBase;
+import am.ik.lognroll.logs.Log;
+import am.ik.lognroll.logs.LogBuilder;
+import am.ik.lognroll.logs.LogQuery;
+import am.ik.lognroll.logs.LogStore;
+import am.ik.lognroll.logs.SearchRequestBuilder;
+import am.ik.lognroll.logs.filter.FilterExpressionTextParser;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResourceAttributesCacheTest extends IntegrationTestBase {
+
+	@Autowired
+	LogStore logStore;
+
+	@Autowired
+	LogQuery logQuery;
+
+	@Autowired
+	MeterRegistry meterRegistry;
+
+	static final Instant BASE = Instant.parse("2024-06-01T00:00:00Z");
+
+	@BeforeEach
+	void setUp() {
+		this.logStore.clear();
+		this.logStore.addAll(List.of(log(0, "apple"), log(1, "apple"), log(2, "banana"), log(3, "banana")));
+	}
+
+	@Test
+	void resolveFromCache() {
+		double misses = misses();
+		List<Log> logs = this.logQuery.findLatestLogs(SearchRequestBuilder.searchRequest().build());
+		assertThat(logs).extracting(log -> log.resourceAttributes().get("service.name"))
+			.containsExactly("banana", "banana", "apple", "apple");
+		assertThat(misses()).isLessThanOrEqualTo(misses + 2);
+		double cached = misses();
+		logs = this.logQuery.findLatestLogs(SearchRequestBuilder.searchRequest().build());
+		assertThat(logs).extracting(log -> log.resourceAttributes().get("service.name"))
+			.containsExactly("banana", "banana", "apple", "apple");
+		assertThat(misses()).isEqualTo(cached);
+	}
+
+	@Test
+	void filterByResourceAttributes() {
+		List<Log> logs = this.logQuery.findLatestLogs(SearchRequestBuilder.searchRequest()
+			.filterExpression(new FilterExpressionTextParser().parse("resourceAttributes[\"service.name\"] == 'apple'"))
+			.build());
+		assertThat(logs).extracting(Log::body).containsExactly("apple", "apple");
+		assertThat(logs).extracting(log -> log.resourceAttributes().get("service.name"))
+			.containsExactly("apple", "apple");
+	}
+
+	double misses() {
+		return this.meterRegistry.counter("logs.resource.cache", "result", "miss").count();
+	}
+
+	static Log log(long seconds, String service) {
+		Instant timestamp = BASE.plusSeconds(seconds);
+		return LogBuilder.log()
+			.timestamp(timestamp)
+			.observedTimestamp(timestamp)
+			.severityText("INFO")
+			.severityNumber(9)
+			.serviceName(service)
+			.scope("test")
+			.body(service)
+			.traceId("")
+			.spanId("")
+			.traceFlags(0)
+			.attributes(Map.of())
+			.resourceAttributes(Map.of("service.name", service))
+			.build();
+	}
+
+}
@@ -0,0 +1,119 @@
+package am.ik.lognroll.logs.jdbc;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import am.ik.lognroll.IntegrationTestBase;
+import am.ik.lognroll.logs.LogQuery;
+import am.ik.lognroll.logs.LogQuery.SearchRequest;
+import am.ik.lognroll.logs.LogStore;
+import am.ik.lognroll.logs.SearchRequestBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import static am.ik.lognroll.logs.jdbc.FtsQueryPlannerTest.BASE;
+import static am.ik.lognroll.logs.jdbc.FtsQueryPlannerTest.log;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = { "lognroll.db.path=/tmp/lognroll-parallel-test.db",
+		"lognroll.query.parallel.min-slice-width=10m", "lognroll.fts.time-first-threshold=50" })
+class TimeSlicesTest extends IntegrationTestBase {
+
+	@Autowired
+	LogStore logStore;
+
+	@Autowired
+	LogQuery logQuery;
+
+	@Autowired
+	TimeSlices timeSlices;
+
+	@Autowired
+	JdbcLogQuery jdbcLogQuery;
+
+	@BeforeEach
+	void setUp() {
+		this.logStore.clear();
+		// one log per minute for two hours, every third one is an error
+		this.logStore.addAll(IntStream.range(0, 120)
+			.mapToObj(i -> log(i * 60L, i % 3 == 0 ? "error number " + i : "ok number " + i))
+			.toList());
+	}
+
+	@Test
+	void split() {
+		SearchRequest request = SearchRequestBuilder.searchRequest()
+			.query("error")
+			.from(BASE)
+			.to(BASE.plus(Duration.ofHours(2)))
+			.build();
+		List<SearchRequest> slices = this.timeSlices.split(request);
+		assertThat(slices).hasSize(4);
+		assertThat(slices.getFirst().from()).isEqualTo(BASE);
+		assertThat(slices.getLast().to()).isEqualTo(request.to());
+		for (int i = 1; i < slices.size(); i++) {
+			assertThat(slices.get(i).from()).isEqualTo(slices.get(i - 1).to().plusMillis(1));
+		}
+		assertThat(slices).allSatisfy(slice -> assertThat(slice.query()).isEqualTo("error"));
+	}
+
+	@Test
+	void narrowWindowIsNotSplit() {
+		SearchRequest request = SearchRequestBuilder.searchRequest().from(BASE).to(BASE.plusSeconds(900)).build();
+		assertThat(this.timeSlices.split(request)).containsExactly(request);
+	}
+
+	@Test
+	void unboundedWindowStartsAtTheOldestLog() {
+		SearchRequest request = SearchRequestBuilder.searchRequest().to(BASE.plus(Duration.ofHours(2))).build();
+		List<SearchRequest> slices = this.timeSlices.split(request);
+		assertThat(slices).hasSize(4);
+		assertThat(slices.getFirst().from()).isNull();
+		assertThat(slices.get(1).from()).isEqualTo(BASE.plus(Duration.ofMinutes(30)));
+	}
+
+	@Test
+	void count() {
+		assertThat(this.logQuery.count(SearchRequestBuilder.searchRequest().build())).isEqualTo(120);
+		assertThat(this.logQuery.count(SearchRequestBuilder.searchRequest().query("error").build())).isEqualTo(40);
+		assertThat(this.logQuery.count(SearchRequestBuilder.searchRequest()
+			.from(BASE.plus(Duration.ofMinutes(30)))
+			.to(BASE.plus(Duration.ofMinutes(89)))
+			.build())).isEqualTo(60);
+	}
+
+	@Test
+	void fullTextCountOverWholeHistoryIsNotSplit() {
+		SearchRequest wide = SearchRequestBuilder.searchRequest()
+			.query("error")
+			.from(BASE)
+			.to(BASE.plus(Duration.ofHours(2)))
+			.build();
+		assertThat(this.jdbcLogQuery.split(wide)).containsExactly(wide);
+		assertThat(this.logQuery.count(wide)).isEqualTo(40);
+		// the window is small enough to be searched by rowid range per slice
+		SearchRequest narrow = SearchRequestBuilder.searchRequest()
+			.query("error")
+			.from(BASE)
+			.to(BASE.plus(Duration.ofMinutes(40)))
+			.build();
+		assertThat(this.jdbcLogQuery.split(narrow)).hasSize(4);
+		assertThat(this.logQuery.count(narrow)).isEqualTo(14);
+	}
+
+	@Test
+	void findVolumes() {
+		// 7 minute buckets do not line up with the slice boundaries
+		List<LogQuery.Volume> volumes = this.logQuery
+			.findVolumes(SearchRequestBuilder.searchRequest().to(BASE.plus(Duration.ofHours(2))).build(),
+					Duration.ofMinutes(7))
+			.volumes();
+		assertThat(volumes).extracting(LogQuery.Volume::date).doesNotHaveDuplicates().isSorted();
+		assertThat(volumes.stream().mapToLong(LogQuery.Volume::info).sum()).isEqualTo(120);
+	}
+
+}
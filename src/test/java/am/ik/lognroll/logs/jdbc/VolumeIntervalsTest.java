@@ -0,0 +1,34 @@
+package am.ik.lognroll.logs.jdbc;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VolumeIntervalsTest {
+
+	@Test
+	void subMinute() {
+		assertThat(VolumeIntervals.choose(Duration.ofMinutes(1), 120)).isEqualTo(Duration.ofSeconds(1));
+		assertThat(VolumeIntervals.choose(Duration.ofMinutes(15), 120)).isEqualTo(Duration.ofSeconds(10));
+	}
+
+	@Test
+	void hours() {
+		assertThat(VolumeIntervals.choose(Duration.ofHours(1), 120)).isEqualTo(Duration.ofSeconds(30));
+		assertThat(VolumeIntervals.choose(Duration.ofHours(24), 120)).isEqualTo(Duration.ofMinutes(15));
+		assertThat(VolumeIntervals.choose(Duration.ofDays(30), 120)).isEqualTo(Duration.ofHours(6));
+	}
+
+	@Test
+	void beyondLargestStep() {
+		assertThat(VolumeIntervals.choose(Duration.ofDays(3650), 120)).isEqualTo(Duration.ofDays(31));
+	}
+
+	@Test
+	void emptySpan() {
+		assertThat(VolumeIntervals.choose(Duration.ZERO, 120)).isEqualTo(Duration.ofSeconds(1));
+	}
+
+}
@@ -0,0 +1,108 @@
+package am.ik.lognroll.logs.pattern;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DrainTest {
+
+	Drain drain = new Drain(new PatternProps(true, 4, 0.4, 100, 8, 3, Duration.ofMinutes(5)));
+
+	@Test
+	void generalise() {
+		Drain.Match first = this.drain.add("default", "Connected to 10.0.0.1 in 12 ms");
+		assertThat(first).isNotNull();
+		assertThat(first.changed()).isTrue();
+		assertThat(first.template()).isEqualTo("Connected to 10.0.0.1 in 12 ms");
+		Drain.Match second = this.drain.add("default", "Connected to 10.0.0.2 in 7 ms");
+		assertThat(second).isNotNull();
+		assertThat(second.templateId()).isEqualTo(first.templateId());
+		assertThat(second.changed()).isTrue();
+		assertThat(second.template()).isEqualTo("Connected to <*> in <*> ms");
+		Drain.Match third = this.drain.add("default", "Connected  to 10.0.0.3 in 5 ms");
+		assertThat(third).isNotNull();
+		assertThat(third.templateId()).isEqualTo(first.templateId());
+		assertThat(third.changed()).isFalse();
+	}
+
+	@Test
+	void dissimilarBodiesGetTheirOwnTemplates() {
+		Drain.Match connected = this.drain.add("default", "Connected to db");
+		Drain.Match failed = this.drain.add("default", "Connected after retrying twice");
+		Drain.Match shorter = this.drain.add("default", "Connected");
+		assertThat(connected).isNotNull();
+		assertThat(failed).isNotNull();
+		assertThat(shorter).isNotNull();
+		assertThat(connected.templateId()).isNotEqualTo(failed.templateId()).isNotEqualTo(shorter.templateId());
+	}
+
+	@Test
+	void tenantsHaveTheirOwnTemplates() {
+		Drain.Match a = this.drain.add("team-a", "user alice logged in");
+		Drain.Match b = this.drain.add("team-b", "user bob logged in");
+		assertThat(a).isNotNull();
+		assertThat(b).isNotNull();
+		assertThat(a.templateId()).isNotEqualTo(b.templateId());
+		assertThat(b.template()).isEqualTo("user bob logged in");
+	}
+
+	@Test
+	void limits() {
+		assertThat(this.drain.add("default", "")).isNull();
+		assertThat(this.drain.add("default", null)).isNull();
+		assertThat(this.drain.add("default", "1 2 3 4 5 6 7 8 9")).isNull();
+		assertThat(this.drain.add("default", "a")).isNotNull();
+		assertThat(this.drain.add("default", "a b")).isNotNull();
+		assertThat(this.drain.add("default", "a b c")).isNotNull();
+		assertThat(this.drain.add("default", "a b c d")).isNull();
+		assertThat(this.drain.add("default", "a b")).isNotNull();
+		assertThat(this.drain.templateCount()).isEqualTo(3);
+	}
+
+	@Test
+	void restore() {
+		this.drain.restore(42, "default", "Connected to <*> in <*> ms");
+		Drain.Match match = this.drain.add("default", "Connected to 10.0.0.1 in 12 ms");
+		assertThat(match).isNotNull();
+		assertThat(match.templateId()).isEqualTo(42);
+		assertThat(match.changed()).isFalse();
+		Drain.Match next = this.drain.add("default", "Disconnected");
+		assertThat(next).isNotNull();
+		assertThat(next.templateId()).isEqualTo(43);
+	}
+
+	@Test
+	void currentTemplate() {
+		Drain.Match first = this.drain.add("default", "Connected to db in 12 ms");
+		assertThat(first).isNotNull();
+		assertThat(this.drain.template(first.templateId())).isEqualTo("Connected to db in 12 ms");
+		this.drain.add("default", "Connected to cache in 7 ms");
+		assertThat(this.drain.template(first.templateId())).isEqualTo("Connected to <*> in <*> ms");
+		assertThat(this.drain.template(first.templateId() + 1)).isNull();
+	}
+
+	@Test
+	void remove() {
+		this.drain.restore(42, "default", "Connected to <*> in <*> ms");
+		Drain.Match match = this.drain.add("default", "Disconnected");
+		assertThat(match).isNotNull();
+		// assigned since
+		assertThat(this.drain.remove(match.templateId(), 1)).isFalse();
+		assertThat(this.drain.remove(42, 1)).isTrue();
+		assertThat(this.drain.template(42)).isNull();
+		assertThat(this.drain.templateCount()).isEqualTo(1);
+		Drain.Match next = this.drain.add("default", "Connected to 10.0.0.1 in 12 ms");
+		assertThat(next).isNotNull();
+		assertThat(next.templateId()).isNotEqualTo(42);
+	}
+
+	@Test
+	void tokenize() {
+		assertThat(Drain.tokenize("  a\tb\n c ", 3)).containsExactly("a", "b", "c");
+		assertThat(Drain.tokenize("a b c d", 3)).isNull();
+		assertThat(Drain.tokenize(" ", 3)).isNull();
+	}
+
+}
@@ -0,0 +1,132 @@
+package am.ik.lognroll.logs.pattern;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import am.ik.lognroll.IntegrationTestBase;
+import am.ik.lognroll.logs.Log;
+import am.ik.lognroll.logs.LogBuilder;
+import am.ik.lognroll.logs.LogStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.json.JsonContent;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PatternControllerTest extends IntegrationTestBase {
+
+	static final Instant NOW = Instant.parse("2026-10-19T10:02:00Z");
+
+	@Autowired
+	LogStore logStore;
+
+	@Autowired
+	PatternQuery patternQuery;
+
+	@BeforeEach
+	void setUp() {
+		this.logStore.clear();
+		this.logStore.addAll(List.of(log(0, "order 1 shipped to tokyo"), log(1, "order 2 shipped to osaka"),
+				log(2, "order 3 shipped to kyoto"), log(3, "payment declined for card 4242"),
+				log(4, "payment declined for card 1881")));
+		this.logStore.addAll("team-a", List.of(log(5, "order 4 shipped to nagoya")));
+		this.logStore.addAll(List.of(log(-600, "order 5 shipped to sapporo")));
+	}
+
+	@Test
+	void topPatterns() {
+		ResponseEntity<String> response = this.restClient.get()
+			.uri("/api/patterns?from={from}", NOW.minusSeconds(60))
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.toEntity(String.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		JsonContent<Object> content = this.json.from(response.getBody());
+		assertThat(content).extractingJsonPathNumberValue("$.intervalMillis").isEqualTo(300000);
+		assertThat(content).extractingJsonPathArrayValue("$.patterns").hasSize(3);
+		assertThat(content).extractingJsonPathStringValue("$.patterns[0].template")
+			.isEqualTo("order <*> shipped to <*>");
+		assertThat(content).extractingJsonPathNumberValue("$.patterns[0].count").isEqualTo(3);
+		assertThat(content).extractingJsonPathStringValue("$.patterns[1].template")
+			.isEqualTo("payment declined for card <*>");
+		assertThat(content).extractingJsonPathNumberValue("$.patterns[1].count").isEqualTo(2);
+		assertThat(content).extractingJsonPathStringValue("$.patterns[2].template")
+			.isEqualTo("order 4 shipped to nagoya");
+	}
+
+	@Test
+	void expire() {
+		assertThat(this.patternQuery.findTopPatterns("default", null, null, 1).getFirst().count()).isEqualTo(4);
+		this.patternQuery.expire("default", NOW.minusSeconds(300));
+		// templates of stored logs are kept
+		assertThat(this.patternQuery.findTopPatterns("default", null, null, 10)).extracting(PatternQuery.Pattern::count)
+			.containsExactly(3L, 2L);
+		this.logStore.clear();
+		assertThat(this.patternQuery.expire("default", Instant.now().plusSeconds(1))).isEqualTo(2);
+		this.logStore.addAll("team-a", List.of(log(5, "order 4 shipped to nagoya")));
+		assertThat(this.patternQuery.findTopPatterns(null, null, null, 10)).extracting(PatternQuery.Pattern::template)
+			.containsExactly("order 4 shipped to nagoya");
+	}
+
+	@Test
+	void topPatternsOfTenant() {
+		String body = this.restClient.get()
+			.uri("/api/patterns?size=1")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.header("X-Scope-OrgID", "default")
+			.retrieve()
+			.body(String.class);
+		JsonContent<Object> content = this.json.from(body);
+		assertThat(content).extractingJsonPathArrayValue("$.patterns").hasSize(1);
+		assertThat(content).extractingJsonPathNumberValue("$.patterns[0].count").isEqualTo(4);
+	}
+
+	@Test
+	void filterByTemplate() {
+		Map<?, ?> patterns = this.restClient.get()
+			.uri("/api/patterns?size=1")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.body(Map.class);
+		assertThat(patterns).isNotNull();
+		Object templateId = ((Map<?, ?>) ((List<?>) patterns.get("patterns")).getFirst()).get("templateId");
+		String logs = this.restClient.get()
+			.uri("/api/logs?filter={filter}", "template_id == " + templateId)
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.body(String.class);
+		assertThat(this.json.from(logs)).extractingJsonPathNumberValue("$.logs.length()").isEqualTo(4);
+	}
+
+	@Test
+	void invalidSize() {
+		ResponseEntity<String> response = this.restClient.get()
+			.uri("/api/patterns?size=0")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.toEntity(String.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+
+	static Log log(int seconds, String body) {
+		// logs without a timestamp are counted by the observed timestamp
+		return LogBuilder.log()
+			.timestamp(Instant.EPOCH)
+			.observedTimestamp(NOW.plusSeconds(seconds))
+			.severityText("INFO")
+			.severityNumber(9)
+			.serviceName("demo")
+			.scope("demo")
+			.body(body)
+			.attributes(Map.of())
+			.resourceAttributes(Map.of())
+			.build();
+	}
+
+}
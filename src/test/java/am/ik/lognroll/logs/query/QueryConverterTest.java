@@ -1,5 +1,8 @@
 package am.ik.lognroll.logs.query;
 
+import java.util.EnumSet;
+import java.util.Map;
+
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -42,4 +45,35 @@ class QueryConverterTest {
 		assertThat(query).isEqualTo("\"hello\" AND (\"world\" OR \"java\")");
 	}
 
-}
\ No newline at end of file
+	@Test
+	void unicode61Prefix() {
+		FtsQuery query = Sqlite3QueryConverter.convertQuery("hello wor*", EnumSet.of(FtsTokenizer.UNICODE61), false);
+		assertThat(query).isEqualTo(new FtsQuery.Match(FtsTokenizer.UNICODE61, "\"hello\" AND \"wor\"*"));
+	}
+
+	@Test
+	void bothTokenizersSingleTable() {
+		FtsQuery query = Sqlite3QueryConverter.convertQuery("hello world",
+				EnumSet.of(FtsTokenizer.TRIGRAM, FtsTokenizer.UNICODE61), false);
+		assertThat(query).isEqualTo(new FtsQuery.Match(FtsTokenizer.TRIGRAM, "\"hello\" AND \"world\""));
+	}
+
+	@Test
+	void bothTokenizersShortTerm() {
+		FtsQuery query = Sqlite3QueryConverter.convertQuery("id",
+				EnumSet.of(FtsTokenizer.TRIGRAM, FtsTokenizer.UNICODE61), false);
+		assertThat(query).isEqualTo(new FtsQuery.Match(FtsTokenizer.UNICODE61, "\"id\""));
+	}
+
+	@Test
+	void bothTokenizersMixed() {
+		FtsQuery query = Sqlite3QueryConverter.convertQuery("hello (id or -world)",
+				EnumSet.of(FtsTokenizer.TRIGRAM, FtsTokenizer.UNICODE61), true);
+		assertThat(query).isEqualTo(new FtsQuery.Predicate(
+				"log.log_id IN (SELECT rowid FROM log_fts WHERE log_fts MATCH :fts_query_0 AND rowid BETWEEN :min_log_id AND :max_log_id)"
+						+ " AND (log.log_id IN (SELECT rowid FROM log_fts_word WHERE log_fts_word MATCH :fts_query_1 AND rowid BETWEEN :min_log_id AND :max_log_id)"
+						+ " OR NOT log.log_id IN (SELECT rowid FROM log_fts WHERE log_fts MATCH :fts_query_2 AND rowid BETWEEN :min_log_id AND :max_log_id))",
+				Map.of("fts_query_0", "\"hello\"", "fts_query_1", "\"id\"", "fts_query_2", "\"world\"")));
+	}
+
+}
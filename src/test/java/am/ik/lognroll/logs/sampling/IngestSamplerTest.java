@@ -0,0 +1,122 @@
+package am.ik.lognroll.logs.sampling;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import am.ik.lognroll.logs.Log;
+import am.ik.lognroll.logs.LogBuilder;
+import am.ik.lognroll.logs.sampling.SamplingProps.Action;
+import am.ik.lognroll.logs.sampling.SamplingProps.Rule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+class IngestSamplerTest {
+
+	static final long WINDOW = Duration.ofSeconds(10).toNanos();
+
+	SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	IngestSampler sampler = new IngestSampler(
+			new SamplingProps(List.of(
+					new Rule("health", "service_name == 'health'", Action.SAMPLE, 10, 1, Duration.ofSeconds(10)),
+					new Rule(null, "service_name == 'retry'", Action.RATE_LIMIT, 100, 2, Duration.ofSeconds(10)),
+					new Rule(null, "service_name == 'chatty'", Action.DEDUP, 100, 1, Duration.ofSeconds(10))), 1024),
+			this.registry);
+
+	@Test
+	void noRules() {
+		IngestSampler sampler = new IngestSampler(new SamplingProps(List.of(), 1024), this.registry);
+		List<Log> logs = List.of(log("health", "ok"), log("health", "ok"));
+		assertThat(sampler.apply("default", logs)).isSameAs(logs);
+	}
+
+	@Test
+	void sample() {
+		List<Log> logs = IntStream.range(0, 100).mapToObj(i -> log("health", "ok " + i)).toList();
+		List<Log> kept = this.sampler.apply("default", logs);
+		assertThat(kept).hasSize(10);
+		assertThat(kept.getFirst().body()).isEqualTo("ok 9");
+		assertThat(this.registry.get("lognroll.ingest.sampled")
+			.tags("rule", "health", "action", "sample")
+			.counter()
+			.count()).isEqualTo(90);
+	}
+
+	@Test
+	void unmatchedLogsAreKept() {
+		List<Log> logs = List.of(log("orders", "ok"), log("orders", "ok"));
+		assertThat(this.sampler.apply("default", logs)).isSameAs(logs);
+	}
+
+	@Test
+	void rateLimit() {
+		assertThat(this.sampler.apply("default",
+				List.of(log("retry", "retrying"), log("retry", "retrying"), log("retry", "retrying"),
+						log("retry", "giving up"), log("orders", "ok"))))
+			.extracting(Log::body)
+			.containsExactly("retrying", "retrying", "giving up", "ok");
+		assertThat(this.sampler.apply("default", List.of(log("retry", "retrying")))).isEmpty();
+		// windows are per tenant
+		assertThat(this.sampler.apply("team-a", List.of(log("retry", "retrying")))).hasSize(1);
+		assertThat(this.registry.get("lognroll.ingest.sampled").tags("rule", "rule-1").counter().count()).isEqualTo(2);
+	}
+
+	@Test
+	void rateLimitWindow() {
+		Log log = log("retry", "retrying");
+		long now = System.nanoTime();
+		assertThat(this.sampler.apply("default", log, now)).isNotNull();
+		assertThat(this.sampler.apply("default", log, now)).isNotNull();
+		assertThat(this.sampler.apply("default", log, now + WINDOW - 1)).isNull();
+		assertThat(this.sampler.apply("default", log, now + WINDOW)).isNotNull();
+	}
+
+	@Test
+	void dedup() {
+		Log log = log("chatty", "connection reset");
+		long now = System.nanoTime();
+		assertThat(this.sampler.apply("default", log, now)).isSameAs(log);
+		assertThat(this.sampler.apply("default", log, now + 1)).isNull();
+		assertThat(this.sampler.apply("default", log, now + 2)).isNull();
+		Log next = this.sampler.apply("default", log, now + WINDOW);
+		assertThat(next).isNotNull();
+		assertThat(next.body()).isEqualTo("connection reset");
+		assertThat(next.attributes()).containsEntry(IngestSampler.REPEATED_ATTRIBUTE, 2L).containsEntry("k", "v");
+		assertThat(this.sampler.apply("default", log, now + 2 * WINDOW)).isSameAs(log);
+	}
+
+	@Test
+	void fingerprint() {
+		assertThat(IngestSampler.fingerprint(0, "default", log("a", "bc")))
+			.isNotEqualTo(IngestSampler.fingerprint(0, "default", log("ab", "c")))
+			.isNotEqualTo(IngestSampler.fingerprint(1, "default", log("a", "bc")))
+			.isNotEqualTo(IngestSampler.fingerprint(0, "team-a", log("a", "bc")))
+			.isEqualTo(IngestSampler.fingerprint(0, "default", log("a", "bc")));
+	}
+
+	@Test
+	void invalidRule() {
+		assertThatIllegalStateException()
+			.isThrownBy(() -> new IngestSampler(
+					new SamplingProps(List.of(new Rule(null, "service_name ==", Action.SAMPLE, 10, 1, Duration.ZERO)),
+							1024),
+					this.registry))
+			.withMessageContaining("rules[0].filter");
+		assertThatIllegalStateException()
+			.isThrownBy(() -> new IngestSampler(
+					new SamplingProps(
+							List.of(new Rule(null, "service_name == 'a'", Action.SAMPLE, 110, 1, Duration.ZERO)), 1024),
+					this.registry))
+			.withMessageContaining("rules[0].percent");
+	}
+
+	static Log log(String serviceName, String body) {
+		return LogBuilder.log().serviceName(serviceName).body(body).attributes(Map.of("k", "v")).build();
+	}
+
+}
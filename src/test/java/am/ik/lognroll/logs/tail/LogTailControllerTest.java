@@ -0,0 +1,88 @@
+package am.ik.lognroll.logs.tail;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import am.ik.lognroll.IntegrationTestBase;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.json.JsonContent;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class LogTailControllerTest extends IntegrationTestBase {
+
+	@Autowired
+	LogTailHub logTailHub;
+
+	@Test
+	void tail() throws Exception {
+		String json = StreamUtils.copyToString(new ClassPathResource("logs.json").getInputStream(),
+				StandardCharsets.UTF_8);
+		try (HttpClient httpClient = HttpClient.newHttpClient()) {
+			HttpRequest request = HttpRequest
+				.newBuilder(URI.create("http://localhost:" + port + "/api/logs/tail?query=example&filter="
+						+ "service_name%20%3D%3D%20%27my.service%27"))
+				.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+				.header(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE)
+				.timeout(Duration.ofSeconds(10))
+				.build();
+			HttpResponse<Stream<String>> response = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofLines())
+				.get(10, TimeUnit.SECONDS);
+			assertThat(response.statusCode()).isEqualTo(200);
+			await().atMost(Duration.ofSeconds(5)).until(() -> this.logTailHub.subscriberCount() > 0);
+
+			ResponseEntity<Void> ingest = this.restClient.post()
+				.uri("/v1/logs")
+				.contentType(MediaType.APPLICATION_JSON)
+				.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+				.body(json)
+				.retrieve()
+				.toBodilessEntity();
+			assertThat(ingest.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+			Iterator<String> lines = response.body().iterator();
+			String data = null;
+			while (lines.hasNext()) {
+				String line = lines.next();
+				if (line.startsWith("data:")) {
+					data = line.substring("data:".length());
+					break;
+				}
+			}
+			assertThat(data).isNotNull();
+			JsonContent<Object> content = this.json.from(data);
+			assertThat(content).extractingJsonPathNumberValue("$.logs.length()").isEqualTo(1);
+			assertThat(content).extractingJsonPathStringValue("$.logs[0].body").isEqualTo("Example log record");
+			assertThat(content).extractingJsonPathStringValue("$.logs[0].serviceName").isEqualTo("my.service");
+			assertThat(content).extractingJsonPathNumberValue("$.dropped").isEqualTo(0);
+			response.body().close();
+		}
+	}
+
+	@Test
+	void tailWithInvalidFilter() {
+		ResponseEntity<String> response = this.restClient.get()
+			.uri(uriBuilder -> uriBuilder.path("/api/logs/tail").queryParam("filter", "service_name ==").build())
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.toEntity(String.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+
+}
@@ -3,13 +3,17 @@ package am.ik.lognroll.otlp;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.zip.GZIPOutputStream;
 
 import am.ik.lognroll.IntegrationTestBase;
 import am.ik.lognroll.logs.LogStore;
 import am.ik.lognroll.logs.QueryController;
 import am.ik.lognroll.logs.QueryController.CountResponse;
+import com.github.luben.zstd.Zstd;
 import com.google.protobuf.util.JsonFormat;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.opentelemetry.proto.logs.v1.LogsData;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -30,6 +34,9 @@ class LogsV1ControllerTest extends IntegrationTestBase {
 	@Autowired
 	LogStore logStore;
 
+	@Autowired
+	MeterRegistry meterRegistry;
+
 	@BeforeEach
 	void resetData() {
 		this.logStore.clear();
@@ -70,6 +77,24 @@ class LogsV1ControllerTest extends IntegrationTestBase {
 		assertData();
 	}
 
+	@Test
+	void ingestProtobufZstd() throws Exception {
+		String json = StreamUtils.copyToString(new ClassPathResource("logs.json").getInputStream(),
+				StandardCharsets.UTF_8);
+		LogsData.Builder builder = LogsData.newBuilder();
+		JsonFormat.parser().merge(json, builder);
+		ResponseEntity<Void> response = this.restClient.post()
+			.uri("/v1/logs")
+			.contentType(MediaType.APPLICATION_PROTOBUF)
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.header(HttpHeaders.CONTENT_ENCODING, "zstd")
+			.body(Zstd.compress(builder.build().toByteArray()))
+			.retrieve()
+			.toBodilessEntity();
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertData();
+	}
+
 	@Test
 	void ingestJson() throws Exception {
 		String json = StreamUtils.copyToString(new ClassPathResource("logs.json").getInputStream(),
@@ -100,6 +125,32 @@ class LogsV1ControllerTest extends IntegrationTestBase {
 		assertData();
 	}
 
+	@Test
+	void ingestRecordsStageMetrics() throws Exception {
+		double ingested = ingested();
+		byte[] json = new ClassPathResource("logs.json").getContentAsByteArray();
+		ResponseEntity<Void> response = this.restClient.post()
+			.uri("/v1/logs")
+			.contentType(MediaType.APPLICATION_JSON)
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.body(json)
+			.retrieve()
+			.toBodilessEntity();
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(this.meterRegistry.get("lognroll.ingest.decode").tag("format", "json").timer().count()).isPositive();
+		for (String timer : List.of("lognroll.ingest.convert", "lognroll.ingest.resource_lookup",
+				"lognroll.ingest.insert", "lognroll.ingest.write_lock.wait", "lognroll.ingest.commit")) {
+			assertThat(this.meterRegistry.get(timer).timer().count()).as(timer).isPositive();
+		}
+		assertThat(this.meterRegistry.get("lognroll.ingest.queue").gauge().value()).isZero();
+		assertThat(ingested()).isEqualTo(ingested + 1);
+	}
+
+	double ingested() {
+		Counter counter = this.meterRegistry.find("logs.ingested").tag("service_name", "my.service").counter();
+		return counter == null ? 0 : counter.count();
+	}
+
 	void assertData() {
 		CountResponse count = this.restClient.get()
 			.uri("/api/logs/count")
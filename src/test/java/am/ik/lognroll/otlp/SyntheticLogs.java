@@ -0,0 +1,101 @@
+package am.ik.lognroll.otlp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.util.JsonFormat;
+import io.opentelemetry.proto.common.v1.AnyValue;
+import io.opentelemetry.proto.common.v1.KeyValue;
+import io.opentelemetry.proto.logs.v1.LogRecord;
+import io.opentelemetry.proto.logs.v1.LogsData;
+import io.opentelemetry.proto.logs.v1.ResourceLogs;
+import io.opentelemetry.proto.logs.v1.ScopeLogs;
+import io.opentelemetry.proto.resource.v1.Resource;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Generates OTLP batches shaped like the {@code logs.json} fixture, scaled up to any
+ * number of services and records, for benchmarks and load tests.
+ */
+public final class SyntheticLogs {
+
+	private static final String[] MESSAGES = { "GET /api/orders/%d 200 in %dms", "POST /api/payments/%d 201 in %dms",
+			"Cache miss for key user:%d, loaded in %dms", "Connection pool exhausted after %d attempts, waited %dms",
+			"Failed to process order %d: timeout after %dms", "Scheduled job %d finished in %dms" };
+
+	private static final String[] SEVERITIES = { "INFO", "INFO", "INFO", "INFO", "DEBUG", "WARN", "ERROR" };
+
+	private static final int[] SEVERITY_NUMBERS = { 9, 9, 9, 9, 5, 13, 17 };
+
+	private static final ScopeLogs TEMPLATE = loadTemplate();
+
+	private SyntheticLogs() {
+	}
+
+	/**
+	 * @param services number of resources, each with its own {@code service.name}
+	 * @param recordsPerService number of log records per resource
+	 * @param seed seed for bodies, severities and ids
+	 */
+	public static LogsData generate(int services, int recordsPerService, long seed) {
+		Random random = new Random(seed);
+		long now = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+		LogRecord template = TEMPLATE.getLogRecords(0);
+		LogsData.Builder logsData = LogsData.newBuilder();
+		for (int s = 0; s < services; s++) {
+			Resource resource = Resource.newBuilder()
+				.addAttributes(attribute("service.name", "service-" + s))
+				.addAttributes(attribute("k8s.namespace.name", "default"))
+				.addAttributes(attribute("k8s.pod.name", "service-%d-7f9c6d8b5-%05d".formatted(s, s * 7919 % 100000)))
+				.addAttributes(attribute("host.name", "node-" + (s % 3)))
+				.build();
+			ScopeLogs.Builder scopeLogs = ScopeLogs.newBuilder().setScope(TEMPLATE.getScope());
+			for (int i = 0; i < recordsPerService; i++) {
+				int severity = random.nextInt(SEVERITIES.length);
+				String body = MESSAGES[random.nextInt(MESSAGES.length)].formatted(random.nextInt(100_000),
+						random.nextInt(2_000));
+				long timestamp = now - TimeUnit.MILLISECONDS.toNanos(recordsPerService - i);
+				scopeLogs.addLogRecords(template.toBuilder()
+					.setTimeUnixNano(timestamp)
+					.setObservedTimeUnixNano(timestamp)
+					.setSeverityText(SEVERITIES[severity])
+					.setSeverityNumberValue(SEVERITY_NUMBERS[severity])
+					.setBody(AnyValue.newBuilder().setStringValue(body))
+					.setTraceId(randomBytes(random, 16))
+					.setSpanId(randomBytes(random, 8)));
+			}
+			logsData.addResourceLogs(ResourceLogs.newBuilder().setResource(resource).addScopeLogs(scopeLogs));
+		}
+		return logsData.build();
+	}
+
+	private static KeyValue attribute(String key, String value) {
+		return KeyValue.newBuilder().setKey(key).setValue(AnyValue.newBuilder().setStringValue(value)).build();
+	}
+
+	private static ByteString randomBytes(Random random, int length) {
+		byte[] bytes = new byte[length];
+		random.nextBytes(bytes);
+		return ByteString.copyFrom(bytes);
+	}
+
+	private static ScopeLogs loadTemplate() {
+		try {
+			String json = StreamUtils.copyToString(new ClassPathResource("logs.json").getInputStream(),
+					StandardCharsets.UTF_8);
+			LogsData.Builder builder = LogsData.newBuilder();
+			JsonFormat.parser().merge(json, builder);
+			return builder.getResourceLogs(0).getScopeLogs(0);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
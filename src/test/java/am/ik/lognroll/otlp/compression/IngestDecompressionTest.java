@@ -0,0 +1,199 @@
+package am.ik.lognroll.otlp.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import am.ik.lognroll.logs.IngestMetrics;
+import am.ik.lognroll.logs.IngestMetricsProps;
+import com.github.luben.zstd.Zstd;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IngestDecompressionTest {
+
+	static final byte[] BODY = "{\"resourceLogs\":[]}".repeat(100).getBytes(StandardCharsets.UTF_8);
+
+	SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	IngestDecompression decompression = new IngestDecompression(
+			new IngestDecompressionProps(DataSize.ofKilobytes(4), DataSize.ofBytes(64), 2),
+			new IngestMetrics(this.registry, new IngestMetricsProps(10)));
+
+	@Test
+	void identity() throws Exception {
+		MockHttpInputMessage inputMessage = new MockHttpInputMessage(BODY);
+		assertThat(this.decompression.decompress(inputMessage)).isSameAs(inputMessage);
+		inputMessage.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "identity");
+		assertThat(this.decompression.decompress(inputMessage)).isSameAs(inputMessage);
+	}
+
+	@Test
+	void gzip() throws Exception {
+		byte[] compressed = gzip(BODY);
+		HttpInputMessage message = this.decompression.decompress(message("gzip", compressed));
+		assertThat(message.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+		assertThat(message.getBody().readAllBytes()).isEqualTo(BODY);
+		this.decompression.completed(message);
+		assertThat(this.registry.get("lognroll.ingest.body.compressed").tag("encoding", "gzip").summary().totalAmount())
+			.isEqualTo(compressed.length);
+		assertThat(this.registry.get("lognroll.ingest.body.inflated").tag("encoding", "gzip").summary().totalAmount())
+			.isEqualTo(BODY.length);
+	}
+
+	@Test
+	void gzipMultipleMembers() throws Exception {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		compressed.write(gzip(BODY));
+		compressed.write(gzip(BODY));
+		HttpInputMessage message = this.decompression.decompress(message("gzip", compressed.toByteArray()));
+		assertThat(message.getBody().readAllBytes()).hasSize(BODY.length * 2);
+	}
+
+	@Test
+	void gzipCorruptTrailer() throws Exception {
+		byte[] compressed = gzip(BODY);
+		compressed[compressed.length - 1] ^= 1;
+		HttpInputMessage message = this.decompression.decompress(message("gzip", compressed));
+		assertThatThrownBy(() -> message.getBody().readAllBytes()).isInstanceOf(IOException.class);
+	}
+
+	@Test
+	void inflatersAreReused() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			HttpInputMessage message = this.decompression.decompress(message("gzip", gzip(BODY)));
+			assertThat(message.getBody().readAllBytes()).isEqualTo(BODY);
+			this.decompression.completed(message);
+		}
+		InflaterPool pool = new InflaterPool(true, 1);
+		InputStream stream = new InflatingInputStream(new MockHttpInputMessage(gzip(BODY)).getBody(), pool, true, 16);
+		assertThat(pool.idle()).isZero();
+		assertThat(stream.readAllBytes()).isEqualTo(BODY);
+		assertThat(pool.idle()).isEqualTo(1);
+	}
+
+	@Test
+	void deflate() throws Exception {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (DeflaterOutputStream stream = new DeflaterOutputStream(compressed)) {
+			stream.write(BODY);
+		}
+		HttpInputMessage message = this.decompression.decompress(message("deflate", compressed.toByteArray()));
+		assertThat(message.getBody().readAllBytes()).isEqualTo(BODY);
+	}
+
+	@Test
+	void zstd() throws Exception {
+		HttpInputMessage message = this.decompression.decompress(message("zstd", Zstd.compress(BODY)));
+		assertThat(message.getBody().readAllBytes()).isEqualTo(BODY);
+	}
+
+	@Test
+	void snappy() throws Exception {
+		HttpInputMessage message = this.decompression.decompress(message("snappy", snappyBlock()));
+		assertThat(message.getBody().readAllBytes()).asString().isEqualTo("abcabcabcabc");
+	}
+
+	@Test
+	void snappyFramed() throws Exception {
+		byte[] block = snappyBlock();
+		ByteArrayOutputStream framed = new ByteArrayOutputStream();
+		chunk(framed, 0xff, "sNaPpY".getBytes(StandardCharsets.US_ASCII));
+		chunk(framed, 0x00, maskedCrc("abcabcabcabc"), block);
+		chunk(framed, 0xfe, new byte[2]);
+		chunk(framed, 0x01, maskedCrc("def"), "def".getBytes(StandardCharsets.US_ASCII));
+		HttpInputMessage message = this.decompression.decompress(message("x-snappy-framed", framed.toByteArray()));
+		assertThat(message.getBody().readAllBytes()).asString().isEqualTo("abcabcabcabcdef");
+	}
+
+	@Test
+	void snappyFramedCorruptChecksum() throws Exception {
+		ByteArrayOutputStream framed = new ByteArrayOutputStream();
+		chunk(framed, 0xff, "sNaPpY".getBytes(StandardCharsets.US_ASCII));
+		chunk(framed, 0x01, maskedCrc("abc"), "def".getBytes(StandardCharsets.US_ASCII));
+		HttpInputMessage message = this.decompression.decompress(message("x-snappy-framed", framed.toByteArray()));
+		assertThatThrownBy(() -> message.getBody().readAllBytes()).isInstanceOf(IOException.class);
+	}
+
+	@Test
+	void tooLarge() throws Exception {
+		HttpInputMessage message = this.decompression.decompress(message("gzip", gzip(new byte[8192])));
+		assertThatThrownBy(() -> message.getBody().readAllBytes()).isInstanceOfSatisfying(ResponseStatusException.class,
+				e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE));
+		assertThat(message.getBody().read()).isEqualTo(-1);
+	}
+
+	@Test
+	void snappyTooLarge() {
+		// declares an uncompressed length of 1 MiB
+		byte[] block = { (byte) 0x80, (byte) 0x80, 0x40, 0x00, 'a' };
+		assertThatThrownBy(() -> this.decompression.decompress(message("snappy", block))).isInstanceOfSatisfying(
+				ResponseStatusException.class,
+				e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE));
+	}
+
+	@Test
+	void unsupportedEncoding() {
+		assertThatThrownBy(() -> this.decompression.decompress(message("br", BODY))).isInstanceOfSatisfying(
+				ResponseStatusException.class,
+				e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.UNSUPPORTED_MEDIA_TYPE));
+	}
+
+	static MockHttpInputMessage message(String encoding, byte[] body) {
+		MockHttpInputMessage message = new MockHttpInputMessage(body);
+		message.getHeaders().set(HttpHeaders.CONTENT_ENCODING, encoding);
+		return message;
+	}
+
+	static byte[] gzip(byte[] body) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (GZIPOutputStream stream = new GZIPOutputStream(baos)) {
+			stream.write(body);
+		}
+		return baos.toByteArray();
+	}
+
+	/**
+	 * "abcabcabcabc" as a literal of "abc" followed by a copy of 9 bytes at offset 3
+	 */
+	static byte[] snappyBlock() {
+		return new byte[] { 12, 0x08, 'a', 'b', 'c', 0x15, 0x03 };
+	}
+
+	static byte[] maskedCrc(String data) {
+		CRC32C crc = new CRC32C();
+		crc.update(data.getBytes(StandardCharsets.US_ASCII));
+		int c = (int) crc.getValue();
+		int masked = ((c >>> 15) | (c << 17)) + 0xa282ead8;
+		return new byte[] { (byte) masked, (byte) (masked >>> 8), (byte) (masked >>> 16), (byte) (masked >>> 24) };
+	}
+
+	static void chunk(ByteArrayOutputStream out, int type, byte[]... parts) throws IOException {
+		int length = 0;
+		for (byte[] part : parts) {
+			length += part.length;
+		}
+		out.write(type);
+		out.write(length);
+		out.write(length >>> 8);
+		out.write(length >>> 16);
+		for (byte[] part : parts) {
+			out.write(part);
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+package am.ik.lognroll.tenant;
+
+import am.ik.lognroll.IntegrationTestBase;
+import am.ik.lognroll.logs.LogQuery;
+import am.ik.lognroll.logs.LogStore;
+import am.ik.lognroll.logs.SearchRequestBuilder;
+import am.ik.lognroll.logs.QueryController.CountResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = { "lognroll.db.path=/tmp/lognroll-tenant-test.db",
+		"lognroll.tenant.tenants.team-a.records-per-second=1", "lognroll.auth.tokens[0].value=team-b-token",
+		"lognroll.auth.tokens[0].scope=ADMIN", "lognroll.auth.tokens[0].tenant=team-b" })
+class TenantIsolationTest extends IntegrationTestBase {
+
+	@Autowired
+	LogStore logStore;
+
+	@Autowired
+	LogQuery logQuery;
+
+	@BeforeEach
+	void setUp() {
+		this.logStore.clear();
+	}
+
+	@Test
+	void tenantsAreIsolated() throws Exception {
+		assertThat(ingest("Bearer changeme", "team-c").getStatusCode()).isEqualTo(HttpStatus.OK);
+		// the token is bound to team-b, the header is ignored
+		assertThat(ingest("Bearer team-b-token", "team-c").getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(ingest("Bearer team-b-token", null).getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(count("Bearer changeme", "team-c")).isEqualTo(1);
+		assertThat(count("Bearer changeme", "team-b")).isEqualTo(2);
+		assertThat(count("Bearer changeme", "team-x")).isZero();
+		assertThat(count("Bearer changeme", null)).isEqualTo(3);
+		assertThat(count("Bearer team-b-token", "team-c")).isEqualTo(2);
+	}
+
+	@Test
+	void rateLimited() throws Exception {
+		assertThat(ingest("Bearer changeme", "team-a").getStatusCode()).isEqualTo(HttpStatus.OK);
+		ResponseEntity<Void> response = ingest("Bearer changeme", "team-a");
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+		assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+		assertThat(ingest("Bearer changeme", "team-c").getStatusCode()).isEqualTo(HttpStatus.OK);
+	}
+
+	@Test
+	void deleteInBatches() throws Exception {
+		assertThat(ingest("Bearer changeme", "team-c").getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(ingest("Bearer changeme", "team-c").getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(ingest("Bearer changeme", "team-d").getStatusCode()).isEqualTo(HttpStatus.OK);
+		LogQuery.SearchRequest request = SearchRequestBuilder.searchRequest().tenant("team-c").build();
+		assertThat(this.logQuery.delete(request, 1)).isEqualTo(1);
+		assertThat(this.logQuery.delete(request, 2)).isEqualTo(1);
+		assertThat(this.logQuery.delete(request, 2)).isZero();
+		assertThat(count("Bearer changeme", "team-d")).isEqualTo(1);
+	}
+
+	@Test
+	void instanceWideRequestsNeedAnUnboundToken() {
+		for (String path : new String[] { "/api/logs/vacuum", "/api/maintenance/enable" }) {
+			ResponseEntity<Void> response = this.restClient.post()
+				.uri(path)
+				.header(HttpHeaders.AUTHORIZATION, "Bearer team-b-token")
+				.retrieve()
+				.toBodilessEntity();
+			assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+		}
+		ResponseEntity<Void> response = this.restClient.get()
+			.uri("/api/logs/download")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer team-b-token")
+			.retrieve()
+			.toBodilessEntity();
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+		assertThat(this.restClient.get()
+			.uri("/api/maintenance")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer changeme")
+			.retrieve()
+			.toBodilessEntity()
+			.getStatusCode()).isEqualTo(HttpStatus.OK);
+	}
+
+	@Test
+	void invalidTenant() throws Exception {
+		assertThat(ingest("Bearer changeme", "team a").getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+
+	ResponseEntity<Void> ingest(String authorization, String tenant) throws Exception {
+		return this.restClient.post()
+			.uri("/v1/logs")
+			.contentType(MediaType.APPLICATION_JSON)
+			.header(HttpHeaders.AUTHORIZATION, authorization)
+			.headers(headers -> {
+				if (tenant != null) {
+					headers.set("X-Scope-OrgID", tenant);
+				}
+			})
+			.body(new ClassPathResource("logs.json").getContentAsByteArray())
+			.retrieve()
+			.toBodilessEntity();
+	}
+
+	long count(String authorization, String tenant) {
+		CountResponse count = this.restClient.get()
+			.uri("/api/logs/count")
+			.header(HttpHeaders.AUTHORIZATION, authorization)
+			.headers(headers -> {
+				if (tenant != null) {
+					headers.set("X-Scope-OrgID", tenant);
+				}
+			})
+			.retrieve()
+			.body(CountResponse.class);
+		assertThat(count).isNotNull();
+		return count.totalCount();
+	}
+
+}
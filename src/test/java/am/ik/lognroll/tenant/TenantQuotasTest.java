@@ -0,0 +1,78 @@
+package am.ik.lognroll.tenant;
+
+import java.time.Duration;
+import java.util.Map;
+
+import am.ik.lognroll.tenant.TenantProps.Quota;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class TenantQuotasTest {
+
+	SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	TenantQuotas quotas = new TenantQuotas(
+			new TenantProps("X-Scope-OrgID", 1, new Quota(0, DataSize.ofBytes(0), Duration.ofSeconds(1), 0, null),
+					Map.of("team-a", new Quota(10, DataSize.ofBytes(0), Duration.ofSeconds(1), 0, null), "team-b",
+							new Quota(0, DataSize.ofBytes(100), Duration.ofSeconds(1), 5, Duration.ofDays(1))),
+					Duration.ofMinutes(1), Duration.ofMinutes(10)),
+			this.registry);
+
+	@Test
+	void recordsRateLimit() {
+		this.quotas.admit("team-a", 10, 1000);
+		QuotaExceededException e = catchThrowableOfType(QuotaExceededException.class,
+				() -> this.quotas.admit("team-a", 1, 100));
+		assertThat(e.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+		assertThat(e.getRetryAfter()).isPositive().isLessThanOrEqualTo(Duration.ofMillis(100));
+		assertThat(this.registry.get("lognroll.tenant.rejected")
+			.tags("tenant", "team-a", "reason", "records")
+			.counter()
+			.count()).isEqualTo(1);
+		// other tenants are not affected
+		assertThatNoException().isThrownBy(() -> this.quotas.admit("default", 1000, 1000));
+	}
+
+	@Test
+	void bytesRateLimit() {
+		this.quotas.admit("team-b", 1, 100);
+		QuotaExceededException e = catchThrowableOfType(QuotaExceededException.class,
+				() -> this.quotas.admit("team-b", 1, 10));
+		assertThat(e.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+		assertThat(e.getMessage()).contains("100B/s");
+	}
+
+	@Test
+	void storageQuota() {
+		this.quotas.stored("team-b", 4);
+		QuotaExceededException e = catchThrowableOfType(QuotaExceededException.class,
+				() -> this.quotas.admit("team-b", 2, 1));
+		assertThat(e.getStatus()).isEqualTo(HttpStatus.INSUFFICIENT_STORAGE);
+		assertThat(e.getRetryAfter()).isNull();
+		assertThat(this.registry.get("lognroll.tenant.stored_logs").tag("tenant", "team-b").gauge().value())
+			.isEqualTo(4);
+		this.quotas.refresh(Map.of("team-a", 3L));
+		assertThatNoException().isThrownBy(() -> this.quotas.admit("team-b", 2, 1));
+		assertThat(this.registry.get("lognroll.tenant.stored_logs").tag("tenant", "team-a").gauge().value())
+			.isEqualTo(3);
+	}
+
+	@Test
+	void numberOfTenantsIsCapped() {
+		this.quotas.admit("x", 1, 1);
+		ResponseStatusException e = catchThrowableOfType(ResponseStatusException.class,
+				() -> this.quotas.admit("y", 1, 1));
+		assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+		assertThatNoException().isThrownBy(() -> this.quotas.admit("team-a", 1, 1));
+		assertThat(this.quotas.tenants()).containsExactlyInAnyOrder("x", "team-a", "team-b");
+	}
+
+}
@@ -0,0 +1,43 @@
+package am.ik.lognroll.tenant;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+	static final long SECOND = 1_000_000_000L;
+
+	@Test
+	void burstThenSustainedRate() {
+		TokenBucket bucket = new TokenBucket(10, Duration.ofSeconds(1), 0);
+		for (int i = 0; i < 10; i++) {
+			assertThat(bucket.tryAcquire(1, 0)).isZero();
+		}
+		assertThat(bucket.tryAcquire(1, 0)).isEqualTo(SECOND / 10);
+		assertThat(bucket.tryAcquire(1, SECOND / 10)).isZero();
+		assertThat(bucket.tryAcquire(1, SECOND / 10)).isPositive();
+		assertThat(bucket.tryAcquire(5, SECOND)).isZero();
+	}
+
+	@Test
+	void requestLargerThanBurstIsAdmittedWhenFull() {
+		TokenBucket bucket = new TokenBucket(10, Duration.ofSeconds(1), 0);
+		assertThat(bucket.tryAcquire(1, 0)).isZero();
+		assertThat(bucket.tryAcquire(30, 0)).isEqualTo(SECOND / 10);
+		assertThat(bucket.tryAcquire(30, SECOND / 10)).isZero();
+		assertThat(bucket.tryAcquire(1, SECOND)).isEqualTo(SECOND + 2 * SECOND / 10);
+	}
+
+	@Test
+	void refund() {
+		TokenBucket bucket = new TokenBucket(10, Duration.ofSeconds(1), 0);
+		assertThat(bucket.tryAcquire(10, 0)).isZero();
+		assertThat(bucket.tryAcquire(1, 0)).isPositive();
+		bucket.refund(5);
+		assertThat(bucket.tryAcquire(5, 0)).isZero();
+	}
+
+}
@@ -0,0 +1,44 @@
+package am.ik.lognroll.util;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonTextWriterTest {
+
+	ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void sameAsObjectMapper() {
+		Map<String, Object> attributes = new LinkedHashMap<>();
+		attributes.put("string", "say \"hello\"\n");
+		attributes.put("long", 42L);
+		attributes.put("double", 1.5);
+		attributes.put("boolean", true);
+		attributes.put("bytes", new byte[] { 1, 2, 3 });
+		attributes.put("list", Arrays.asList("a", 1L, null));
+		attributes.put("map", Map.of("nested", List.of(Map.of("k", "v"))));
+		attributes.put("other", new BigDecimal("12.30"));
+		try (JsonTextWriter writer = new JsonTextWriter(this.objectMapper)) {
+			assertThat(writer.write(attributes)).isEqualTo(Json.stringify(this.objectMapper, attributes));
+		}
+	}
+
+	@Test
+	void writeManyMaps() {
+		try (JsonTextWriter writer = new JsonTextWriter(this.objectMapper)) {
+			assertThat(writer.write(Map.of())).isEqualTo("{}");
+			assertThat(writer.write(Map.of("a", "b"))).isEqualTo("{\"a\":\"b\"}");
+			assertThat(writer.write(Map.of("c", 1L))).isEqualTo("{\"c\":1}");
+			assertThat(writer.write(new RawJsonMap(this.objectMapper, "{\"d\": true}"))).isEqualTo("{\"d\": true}");
+		}
+	}
+
+}
@@ -0,0 +1,39 @@
+package am.ik.lognroll.util;
+
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RawJsonMapTest {
+
+	ObjectMapper objectMapper = new ObjectMapper();
+
+	String json = "{\"http.status_code\":503,\"tags\":[\"a\",\"b\"]}";
+
+	@Test
+	void serializeWithoutParsing() throws Exception {
+		RawJsonMap map = new RawJsonMap(this.objectMapper, this.json);
+		String serialized = this.objectMapper.writeValueAsString(Map.of("attributes", map));
+		assertThat(serialized).isEqualTo("{\"attributes\":" + this.json + "}");
+		assertThat(map.isParsed()).isFalse();
+	}
+
+	@Test
+	void parseOnAccess() {
+		RawJsonMap map = new RawJsonMap(this.objectMapper, this.json);
+		assertThat(map.get("http.status_code")).isEqualTo(503);
+		assertThat(map).containsEntry("tags", List.of("a", "b")).hasSize(2);
+		assertThat(map.isParsed()).isTrue();
+		Map<String, Object> expected = Map.of("http.status_code", 503, "tags", List.of("a", "b"));
+		assertThat(map.equals(expected)).isTrue();
+		assertThat(expected.equals(map)).isTrue();
+		assertThat(map.hashCode()).isEqualTo(expected.hashCode());
+		assertThat(new RawJsonMap(this.objectMapper, "{\"tags\": [\"a\", \"b\"], \"http.status_code\": 503}"))
+			.isEqualTo(map);
+	}
+
+}
@@ -0,0 +1,34 @@
+// Writes .br and .gz files next to the built assets, so that the server can send them
+// as is instead of compressing the same bundle on every request.
+import {readdirSync, readFileSync, statSync, writeFileSync} from 'node:fs';
+import {join} from 'node:path';
+import {brotliCompressSync, constants, gzipSync} from 'node:zlib';
+
+const extensions = ['.html', '.js', '.css', '.svg', '.json', '.txt', '.map'];
+const minSize = 1024;
+
+function compress(dir) {
+  for (const name of readdirSync(dir)) {
+    const path = join(dir, name);
+    if (statSync(path).isDirectory()) {
+      compress(path);
+      continue;
+    }
+    if (!extensions.some((extension) => name.endsWith(extension))) {
+      continue;
+    }
+    const content = readFileSync(path);
+    if (content.length < minSize) {
+      continue;
+    }
+    writeFileSync(`${path}.br`, brotliCompressSync(content, {
+      params: {
+        [constants.BROTLI_PARAM_QUALITY]: constants.BROTLI_MAX_QUALITY,
+        [constants.BROTLI_PARAM_SIZE_HINT]: content.length,
+      },
+    }));
+    writeFileSync(`${path}.gz`, gzipSync(content, {level: constants.Z_BEST_COMPRESSION}));
+  }
+}
+
+compress(process.argv[2]);
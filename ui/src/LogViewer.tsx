@@ -1,4 +1,4 @@
-import React, { ChangeEvent, KeyboardEvent, useState, useCallback } from 'react';
+import React, { ChangeEvent, KeyboardEvent, useState, useCallback, useEffect, useRef } from 'react';
 import ScrollToTop from 'react-scroll-to-top';
 // @ts-expect-error TODO
 import { JSONToHTMLTable } from '@kevincobain2000/json-to-html-table';
@@ -22,6 +22,13 @@ import {
 import VolumesChart, { VolumeData } from './VolumesChart';
 import { MagnifyingGlassIcon, FunnelIcon } from '@heroicons/react/24/outline';
 import { useLogSearchParams } from './hooks/useLogSearchParams';
+import {
+  PROTOBUF_ACCEPT,
+  SEVERITY_CATEGORIES,
+  decodeCountResponse,
+  decodeLogsResponse,
+  decodeVolumesResponse,
+} from './protobuf';
 
 interface BuildUrlParams {
   size?: number;
@@ -30,7 +37,6 @@ interface BuildUrlParams {
   cursor?: string;
   from?: string;
   to?: string;
-  interval?: number;
 }
 
 const buildLogsUrl = ({ size, query, filter, cursor, from, to }: BuildUrlParams): string => {
@@ -50,7 +56,7 @@ const buildLogsUrl = ({ size, query, filter, cursor, from, to }: BuildUrlParams)
   return url;
 };
 
-const buildCountUrl = (path: string, { query, filter, from, to, interval }: BuildUrlParams): string => {
+const buildCountUrl = (path: string, { query, filter, from, to }: BuildUrlParams): string => {
   let url = `/api/logs${path}?query=${encodeURIComponent(query)}`;
   if (filter) {
     url += `&filter=${encodeURIComponent(filter)}`;
@@ -61,8 +67,13 @@ const buildCountUrl = (path: string, { query, filter, from, to, interval }: Buil
   if (to) {
     url += `&to=${encodeURIComponent(convertToIsoUtc(to))}`;
   }
-  if (interval) {
-    url += `&interval=PT${interval}M`;
+  return url;
+};
+
+const buildTailUrl = ({ query, filter }: BuildUrlParams): string => {
+  let url = `/api/logs/tail?query=${encodeURIComponent(query)}`;
+  if (filter) {
+    url += `&filter=${encodeURIComponent(filter)}`;
   }
   return url;
 };
@@ -79,14 +90,22 @@ function convertUtcToLocal(utcDateString: string): string {
 
 interface LogsResponse {
   logs: Log[];
+  fullTextLag: number;
+}
+
+interface TailEvent {
+  logs: Log[];
+  dropped: number;
 }
 
 interface CountResponse {
   totalCount: number;
+  fullTextLag: number;
 }
 
 interface VolumesResponse {
   volumes: VolumeData[];
+  intervalMillis: number;
 }
 
 interface Log {
@@ -95,6 +114,7 @@ interface Log {
   observedTimestamp: string;
   severityText?: string;
   severityNumber?: number;
+  severityCategory?: 'ERROR' | 'WARN' | 'INFO' | 'DEBUG' | 'TRACE' | 'OTHER';
   serviceName?: string;
   scope?: string;
   body?: string;
@@ -126,34 +146,34 @@ const formatDate = (date: Date) => {
   return `${year}-${month}-${day}T${hours}:${minutes}:${seconds}`;
 };
 
-const calcInterval = (from: string, to: string) => {
-  if (!from) {
-    return 60;
-  }
-  const startDate = new Date(from);
-  const endDate = to ? new Date(to) : new Date();
-  const diffTime = Math.abs(endDate.getTime() - startDate.getTime());
-  const diffDays = Math.ceil(diffTime / (1000 * 60 * 60 * 24));
-  if (diffDays < 3) {
-    return 10;
-  } else if (diffDays < 4) {
-    return 20;
-  } else if (diffDays < 5) {
-    return 30;
-  } else {
-    return 60;
+const formatInterval = (millis: number) => {
+  if (millis % (24 * 60 * 60 * 1000) === 0) {
+    return `${millis / (24 * 60 * 60 * 1000)} d`;
+  } else if (millis % (60 * 60 * 1000) === 0) {
+    return `${millis / (60 * 60 * 1000)} h`;
+  } else if (millis % (60 * 1000) === 0) {
+    return `${millis / (60 * 1000)} min`;
+  } else if (millis % 1000 === 0) {
+    return `${millis / 1000} s`;
   }
+  return `${millis} ms`;
 };
 
-const getSeverityVariant = (severity?: string): 'error' | 'warning' | 'info' | 'debug' | 'trace' | 'other' => {
-  if (!severity) return 'other';
-  const s = severity.toUpperCase();
-  if (s.includes('ERROR') || s.includes('FATAL') || s.includes('CRITICAL')) return 'error';
-  if (s.includes('WARN')) return 'warning';
-  if (s.includes('INFO')) return 'info';
-  if (s.includes('DEBUG')) return 'debug';
-  if (s.includes('TRACE')) return 'trace';
-  return 'other';
+const getSeverityVariant = (category?: Log['severityCategory']): 'error' | 'warning' | 'info' | 'debug' | 'trace' | 'other' => {
+  switch (category) {
+    case 'ERROR':
+      return 'error';
+    case 'WARN':
+      return 'warning';
+    case 'INFO':
+      return 'info';
+    case 'DEBUG':
+      return 'debug';
+    case 'TRACE':
+      return 'trace';
+    default:
+      return 'other';
+  }
 };
 
 const getDefaultFrom = () => formatDate(new Date(new Date().getTime() - 12 * 60 * 60 * 1000));
@@ -173,6 +193,7 @@ const LogViewer: React.FC = () => {
   // Local state
   const [logs, setLogs] = useState<Log[]>([]);
   const [count, setCount] = useState<number | string>();
+  const [fullTextLag, setFullTextLag] = useState<number>(0);
   const [isLoading, setIsLoading] = useState<boolean>(false);
   const [jsonToTable, setJsonToTable] = useState<boolean>(false);
   const [useLocalTimezone, setUseLocalTimezone] = useState<boolean>(true);
@@ -183,7 +204,10 @@ const LogViewer: React.FC = () => {
   const [showLoadMore, setShowLoadMore] = useState<boolean>(false);
   const [message, setMessage] = useState<Message | null>(null);
   const [volumes, setVolumes] = useState<VolumeData[]>([]);
-  const [interval, setInterval] = useState<number>(10);
+  const [intervalMillis, setIntervalMillis] = useState<number>(60 * 1000);
+  const [isTailing, setIsTailing] = useState<boolean>(false);
+  const eventSourceRef = useRef<EventSource | null>(null);
+  const tailSequenceRef = useRef<number>(0);
 
   // Sync URL params when local state changes
   const setQuery = useCallback((value: string) => {
@@ -230,10 +254,13 @@ const LogViewer: React.FC = () => {
     // Sync state to URL
     syncToUrl();
     try {
-      const logsResponse = await fetch(buildLogsUrl({ size, query, filter, from, to }));
+      const logsResponse = await fetch(buildLogsUrl({ size, query, filter, from, to }), {
+        headers: { Accept: PROTOBUF_ACCEPT },
+      });
       if (logsResponse.status === 200) {
-        const logsData: LogsResponse = await logsResponse.json();
+        const logsData: LogsResponse = decodeLogsResponse(await logsResponse.arrayBuffer());
         setLogs(logsData.logs);
+        setFullTextLag(logsData.fullTextLag);
         setCount('Counting...');
         setShowLoadMore(logsData.logs.length >= size);
       } else {
@@ -246,20 +273,23 @@ const LogViewer: React.FC = () => {
       setIsLoading(false);
     }
     try {
-      const countResponse = await fetch(buildCountUrl('/count', { query, filter, from, to }));
-      const interval = calcInterval(from, to);
-      const volumesResponse = await fetch(buildCountUrl('/volumes', { query, filter, from, to, interval }));
+      const countResponse = await fetch(buildCountUrl('/count', { query, filter, from, to }), {
+        headers: { Accept: PROTOBUF_ACCEPT },
+      });
+      const volumesResponse = await fetch(buildCountUrl('/volumes', { query, filter, from, to }), {
+        headers: { Accept: PROTOBUF_ACCEPT },
+      });
       if (countResponse.status === 200) {
-        const countData: CountResponse = await countResponse.json();
+        const countData: CountResponse = decodeCountResponse(await countResponse.arrayBuffer());
         setCount(countData.totalCount);
       } else {
         const data: Problem = await countResponse.json();
         setProblemMessage(data);
       }
       if (volumesResponse.status === 200) {
-        const volumesData: VolumesResponse = await volumesResponse.json();
+        const volumesData: VolumesResponse = decodeVolumesResponse(await volumesResponse.arrayBuffer());
         setVolumes(volumesData.volumes);
-        setInterval(interval);
+        setIntervalMillis(volumesData.intervalMillis);
       } else {
         const data: Problem = await volumesResponse.json();
         setProblemMessage(data);
@@ -284,9 +314,9 @@ const LogViewer: React.FC = () => {
     });
     setIsLoading(true);
     try {
-      const response = await fetch(url);
+      const response = await fetch(url, { headers: { Accept: PROTOBUF_ACCEPT } });
       if (response.status == 200) {
-        const { logs: moreLogs }: LogsResponse = await response.json();
+        const { logs: moreLogs }: LogsResponse = decodeLogsResponse(await response.arrayBuffer());
         setLogs([...logs, ...moreLogs]);
         setShowLoadMore(moreLogs.length >= size);
       } else {
@@ -300,6 +330,40 @@ const LogViewer: React.FC = () => {
     }
   };
 
+  const stopTail = useCallback(() => {
+    eventSourceRef.current?.close();
+    eventSourceRef.current = null;
+    setIsTailing(false);
+  }, []);
+
+  const startTail = () => {
+    stopTail();
+    setMessage(null);
+    setShowLoadMore(false);
+    const eventSource = new EventSource(buildTailUrl({ query, filter }));
+    eventSource.addEventListener('logs', (e: MessageEvent<string>) => {
+      const event: TailEvent = JSON.parse(e.data);
+      // tailed records are not assigned a log_id yet, so give them a unique key
+      const tailed = event.logs
+        .map((log) => ({ ...log, logId: log.logId ?? -++tailSequenceRef.current }))
+        .reverse();
+      setLogs((current) => [...tailed, ...current].slice(0, size));
+      if (event.dropped > 0) {
+        setMessage({ status: 'warning', text: `${event.dropped} records were dropped because the tail fell behind` });
+      }
+    });
+    eventSource.onerror = () => {
+      if (eventSource.readyState === EventSource.CLOSED) {
+        setMessage({ status: 'error', text: 'Live tail disconnected' });
+        stopTail();
+      }
+    };
+    eventSourceRef.current = eventSource;
+    setIsTailing(true);
+  };
+
+  useEffect(() => stopTail, [stopTail]);
+
   const handleKeyDown = (e: KeyboardEvent<HTMLInputElement>) => {
     if (e.key === 'Enter') {
       fetchLogs().then();
@@ -324,7 +388,15 @@ const LogViewer: React.FC = () => {
 
   const addFilter = (field: string, value: string | number | undefined) => {
     if (value === undefined || value === null) return;
-    const newFilter = `${field}=='${value}'`;
+    appendFilter(`${field}=='${value}'`);
+  };
+
+  // the category is the indexed column; its code is an integer, so it is not quoted
+  const addSeverityFilter = (category?: Log['severityCategory']) => {
+    appendFilter(`severity_category==${SEVERITY_CATEGORIES.indexOf(category ?? 'OTHER')}`);
+  };
+
+  const appendFilter = (newFilter: string) => {
     setFilter(filter ? `${filter} AND ${newFilter}` : newFilter);
   };
 
@@ -445,8 +517,11 @@ const LogViewer: React.FC = () => {
               ]}
               disabled={isLoading}
             />
-            <div className="ml-auto">
-              <Button onClick={fetchLogs} disabled={isLoading} isLoading={isLoading}>
+            <div className="ml-auto flex items-center gap-2">
+              <Button variant="secondary" onClick={isTailing ? stopTail : startTail} disabled={isLoading}>
+                {isTailing ? 'Stop Tail' : 'Live Tail'}
+              </Button>
+              <Button onClick={fetchLogs} disabled={isLoading || isTailing} isLoading={isLoading}>
                 View Logs
               </Button>
             </div>
@@ -463,14 +538,14 @@ const LogViewer: React.FC = () => {
 
       {/* Chart Section */}
       {volumes.length > 0 && (
-        <Card title="Log Volume" subtitle={`Interval: ${interval} min`}>
+        <Card title="Log Volume" subtitle={`Interval: ${formatInterval(intervalMillis)}`}>
           <VolumesChart
             data={volumes}
-            interval={interval}
+            intervalMillis={intervalMillis}
             useLocalTimezone={useLocalTimezone}
             onClick={(date) => {
               const from = new Date(date);
-              const to = new Date(from.getTime() + interval * 60 * 1000);
+              const to = new Date(from.getTime() + intervalMillis);
               setFrom(formatDate(from));
               setTo(formatDate(to));
             }}
@@ -483,6 +558,11 @@ const LogViewer: React.FC = () => {
         <div className="flex items-center gap-2">
           <span className="text-sm text-gray-600 dark:text-gray-400">Total Count:</span>
           <Badge variant="info">{count.toLocaleString()}</Badge>
+          {fullTextLag > 0 && (
+            <span className="text-sm text-amber-600 dark:text-amber-400">
+              Full-text index lagging by {fullTextLag.toLocaleString()} rows
+            </span>
+          )}
         </div>
       )}
 
@@ -514,13 +594,8 @@ const LogViewer: React.FC = () => {
                       </TableCell>
                       <TableCell>
                         <Badge
-                          variant={getSeverityVariant(log.severityText)}
-                          onClick={() =>
-                            addFilter(
-                              useSeverityText ? 'severity_text' : 'severity_number',
-                              useSeverityText ? log.severityText : log.severityNumber
-                            )
-                          }
+                          variant={getSeverityVariant(log.severityCategory)}
+                          onClick={() => addSeverityFilter(log.severityCategory)}
                         >
                           {useSeverityText ? log.severityText : log.severityNumber}
                         </Badge>
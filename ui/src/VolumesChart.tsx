@@ -41,7 +41,7 @@ const formatDate = (date: Date, useLocalTimezone: boolean): string => {
   return date.toISOString().replace('T', ' ').substring(0, 19);
 };
 
-const fillMissingData = (data: VolumeData[], interval: number, useLocalTimezone: boolean) => {
+const fillMissingData = (data: VolumeData[], intervalMillis: number, useLocalTimezone: boolean) => {
   if (data.length <= 1) {
     return data.map(d => ({
       date: formatDate(new Date(d.date), useLocalTimezone),
@@ -84,7 +84,7 @@ const fillMissingData = (data: VolumeData[], interval: number, useLocalTimezone:
         total: 0,
       });
     }
-    currentTime.setMinutes(currentTime.getMinutes() + interval);
+    currentTime.setTime(currentTime.getTime() + intervalMillis);
   }
   return filledData;
 };
@@ -125,13 +125,13 @@ const TooltipContent = (props: TooltipProps<number, string>) => {
 
 interface VolumesChartProps {
   data: VolumeData[];
-  interval: number;
+  intervalMillis: number;
   useLocalTimezone: boolean;
   onClick: (date: string) => void;
 }
 
-const VolumesChart: React.FC<VolumesChartProps> = ({ data, interval, useLocalTimezone, onClick }) => {
-  const filled = fillMissingData(data, interval, useLocalTimezone);
+const VolumesChart: React.FC<VolumesChartProps> = ({ data, intervalMillis, useLocalTimezone, onClick }) => {
+  const filled = fillMissingData(data, intervalMillis, useLocalTimezone);
 
   // Stack order: other -> trace -> debug -> info -> warn -> error (error on top)
   const severityKeys: SeverityKey[] = ['other', 'trace', 'debug', 'info', 'warn', 'error'];
@@ -0,0 +1,308 @@
+// Decoder for the protobuf encoding of the query API (application/x-protobuf).
+// The schema is documented in QueryResponseProtobufHttpMessageConverter.
+
+export const PROTOBUF_ACCEPT = 'application/x-protobuf, application/problem+json';
+
+// indexed by the code of SeverityCategory
+export const SEVERITY_CATEGORIES = ['OTHER', 'TRACE', 'DEBUG', 'INFO', 'WARN', 'ERROR'] as const;
+
+const textDecoder = new TextDecoder();
+
+class Reader {
+  private pos: number;
+
+  constructor(
+    private readonly buf: Uint8Array,
+    start = 0,
+    private readonly end = buf.length,
+  ) {
+    this.pos = start;
+  }
+
+  hasMore(): boolean {
+    return this.pos < this.end;
+  }
+
+  // values above 2^53 are not expected: ids, counts and epoch millis all fit
+  varint(): number {
+    let result = 0;
+    let shift = 1;
+    let b: number;
+    do {
+      b = this.buf[this.pos++];
+      result += (b & 0x7f) * shift;
+      shift *= 128;
+    } while (b & 0x80);
+    return result;
+  }
+
+  sint(): number {
+    const n = this.varint();
+    return n % 2 === 0 ? n / 2 : -(n + 1) / 2;
+  }
+
+  bytes(): Uint8Array {
+    const length = this.varint();
+    const bytes = this.buf.subarray(this.pos, this.pos + length);
+    this.pos += length;
+    return bytes;
+  }
+
+  string(): string {
+    return textDecoder.decode(this.bytes());
+  }
+
+  message(): Reader {
+    const length = this.varint();
+    const reader = new Reader(this.buf, this.pos, this.pos + length);
+    this.pos += length;
+    return reader;
+  }
+
+  skip(wireType: number) {
+    switch (wireType) {
+      case 0:
+        this.varint();
+        break;
+      case 1:
+        this.pos += 8;
+        break;
+      case 2:
+        this.pos += this.varint();
+        break;
+      case 5:
+        this.pos += 4;
+        break;
+      default:
+        throw new Error(`Unsupported wire type: ${wireType}`);
+    }
+  }
+}
+
+const toHex = (bytes: Uint8Array): string => Array.from(bytes, (b) => b.toString(16).padStart(2, '0')).join('');
+
+const toIsoString = (epochMillis: number): string => new Date(epochMillis).toISOString();
+
+export interface DecodedLog {
+  logId: number;
+  timestamp: string;
+  observedTimestamp: string;
+  severityText?: string;
+  severityNumber?: number;
+  severityCategory: (typeof SEVERITY_CATEGORIES)[number];
+  serviceName?: string;
+  scope?: string;
+  body?: string;
+  traceId: string;
+  spanId: string;
+  traceFlags: number;
+  attributes: Record<string, object>;
+  resourceAttributes: Record<string, object>;
+}
+
+export const decodeLogsResponse = (buffer: ArrayBuffer): { logs: DecodedLog[]; fullTextLag: number } => {
+  const reader = new Reader(new Uint8Array(buffer));
+  const strings: string[] = [];
+  const messages: Reader[] = [];
+  let fullTextLag = 0;
+  while (reader.hasMore()) {
+    const tag = reader.varint();
+    switch (tag >>> 3) {
+      case 1:
+        strings.push(reader.string());
+        break;
+      case 2:
+        messages.push(reader.message());
+        break;
+      case 3:
+        fullTextLag = reader.varint();
+        break;
+      default:
+        reader.skip(tag & 7);
+    }
+  }
+  // resource attributes repeat on most rows, so each dictionary entry is parsed once
+  const parsed = new Map<number, Record<string, object>>();
+  const lookup = (index: number): string | undefined => (index > 0 ? strings[index - 1] : undefined);
+  const lookupJson = (index: number): Record<string, object> => {
+    if (index === 0) {
+      return {};
+    }
+    let json = parsed.get(index);
+    if (json === undefined) {
+      json = JSON.parse(strings[index - 1]) as Record<string, object>;
+      parsed.set(index, json);
+    }
+    return json;
+  };
+  let previous = 0;
+  const logs = messages.map((message) => {
+    let logId = 0;
+    let observed = 0;
+    let timestampDelta = 0;
+    let severityText = 0;
+    let severityNumber: number | undefined;
+    let severityCategory = 0;
+    let serviceName = 0;
+    let scope = 0;
+    let body: string | undefined;
+    let traceId = '';
+    let spanId = '';
+    let traceFlags = 0;
+    let attributes: Record<string, object> = {};
+    let resourceAttributes = 0;
+    while (message.hasMore()) {
+      const tag = message.varint();
+      switch (tag >>> 3) {
+        case 1:
+          logId = message.varint();
+          break;
+        case 2:
+          observed = message.sint();
+          break;
+        case 3:
+          timestampDelta = message.sint();
+          break;
+        case 4:
+          severityText = message.varint();
+          break;
+        case 5:
+          severityNumber = message.varint();
+          break;
+        case 6:
+          severityCategory = message.varint();
+          break;
+        case 7:
+          serviceName = message.varint();
+          break;
+        case 8:
+          scope = message.varint();
+          break;
+        case 9:
+          body = message.string();
+          break;
+        case 10:
+          traceId = toHex(message.bytes());
+          break;
+        case 11:
+          spanId = toHex(message.bytes());
+          break;
+        case 12:
+          traceFlags = message.varint();
+          break;
+        case 13:
+          attributes = JSON.parse(message.string());
+          break;
+        case 14:
+          resourceAttributes = message.varint();
+          break;
+        default:
+          message.skip(tag & 7);
+      }
+    }
+    const observedTimestamp = previous + observed;
+    previous = observedTimestamp;
+    return {
+      logId,
+      timestamp: toIsoString(observedTimestamp + timestampDelta),
+      observedTimestamp: toIsoString(observedTimestamp),
+      severityText: lookup(severityText),
+      severityNumber,
+      severityCategory: SEVERITY_CATEGORIES[severityCategory] ?? 'OTHER',
+      serviceName: lookup(serviceName),
+      scope: lookup(scope),
+      body,
+      traceId,
+      spanId,
+      traceFlags,
+      attributes,
+      resourceAttributes: lookupJson(resourceAttributes),
+    };
+  });
+  return { logs, fullTextLag };
+};
+
+export const decodeCountResponse = (buffer: ArrayBuffer): { totalCount: number; fullTextLag: number } => {
+  const reader = new Reader(new Uint8Array(buffer));
+  let totalCount = 0;
+  let fullTextLag = 0;
+  while (reader.hasMore()) {
+    const tag = reader.varint();
+    switch (tag >>> 3) {
+      case 1:
+        totalCount = reader.varint();
+        break;
+      case 2:
+        fullTextLag = reader.varint();
+        break;
+      default:
+        reader.skip(tag & 7);
+    }
+  }
+  return { totalCount, fullTextLag };
+};
+
+export interface DecodedVolume {
+  date: string;
+  error: number;
+  warn: number;
+  info: number;
+  debug: number;
+  trace: number;
+  other: number;
+}
+
+export const decodeVolumesResponse = (buffer: ArrayBuffer): { volumes: DecodedVolume[]; intervalMillis: number } => {
+  const reader = new Reader(new Uint8Array(buffer));
+  const volumes: DecodedVolume[] = [];
+  let intervalMillis = 0;
+  let previous = 0;
+  while (reader.hasMore()) {
+    const tag = reader.varint();
+    switch (tag >>> 3) {
+      case 1: {
+        const message = reader.message();
+        const volume: DecodedVolume = { date: '', error: 0, warn: 0, info: 0, debug: 0, trace: 0, other: 0 };
+        let date = 0;
+        while (message.hasMore()) {
+          const fieldTag = message.varint();
+          switch (fieldTag >>> 3) {
+            case 1:
+              date = message.sint();
+              break;
+            case 2:
+              volume.error = message.varint();
+              break;
+            case 3:
+              volume.warn = message.varint();
+              break;
+            case 4:
+              volume.info = message.varint();
+              break;
+            case 5:
+              volume.debug = message.varint();
+              break;
+            case 6:
+              volume.trace = message.varint();
+              break;
+            case 7:
+              volume.other = message.varint();
+              break;
+            default:
+              message.skip(fieldTag & 7);
+          }
+        }
+        previous += date;
+        volume.date = toIsoString(previous);
+        volumes.push(volume);
+        break;
+      }
+      case 2:
+        intervalMillis = reader.varint();
+        break;
+      default:
+        reader.skip(tag & 7);
+    }
+  }
+  return { volumes, intervalMillis };
+};